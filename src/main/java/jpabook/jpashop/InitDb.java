@@ -2,23 +2,52 @@ package jpabook.jpashop;
 
 import jakarta.annotation.PostConstruct;
 import jakarta.persistence.EntityManager;
+import jpabook.jpashop.config.shard.OrderShards;
+import jpabook.jpashop.config.shard.ShardContext;
+import jpabook.jpashop.config.shard.ShardReplicator;
 import jpabook.jpashop.domain.*;
 import jpabook.jpashop.domain.item.Book;
+import jpabook.jpashop.domain.item.Item;
+import jpabook.jpashop.service.rollup.SalesRollup;
 import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Component;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.util.List;
+
 //API와 사이트 테스트 용 테스트 DB//
 @Component
 @RequiredArgsConstructor
 public class InitDb {
 
     private final InitService initService;
+    private final OrderShards orderShards;
 
     @PostConstruct
     public void init(){
-        initService.dbInit1();
-        initService.dbInit2();
+        dbInit1();
+        dbInit2();
+    }
+
+    public void dbInit1(){
+        Member member = initService.saveMember("userA", "서울", "1", "1111");
+        Book book1 = initService.saveBook("JPA1 BOOK", 10000, 100);
+        Book book2 = initService.saveBook("JPA2 BOOK", 20000, 100);
+        order(member, book1, 1, book2, 2);
+    }
+
+    public void dbInit2() {
+        Member member = initService.saveMember("userB", "진주", "2", "2222");
+        Book book1 = initService.saveBook("SPRING1 BOOK", 20000, 200);
+        Book book2 = initService.saveBook("SPRING2 BOOK", 40000, 300);
+        order(member, book1, 3, book2, 4);
+    }
+
+    //주문은 회원 샤드에 쓴다 (회원/상품은 커밋할 때 모든 샤드에 복사돼 있다)
+    private void order(Member member, Book book1, int count1, Book book2, int count2) {
+        try (ShardContext.Scope ignored = orderShards.bindMember(member.getId())) {
+            initService.order(member.getId(), book1.getId(), count1, book2.getId(), count2);
+        }
     }
 
     @Component
@@ -26,32 +55,34 @@ public class InitDb {
     @RequiredArgsConstructor
     static class InitService{
         private final EntityManager em;
-        public void dbInit1(){
-            Member member = createMember("userA", "서울", "1", "1111");
+        private final ShardReplicator shardReplicator;
+        private final SalesRollup salesRollup;
+
+        public Member saveMember(String name, String city, String street, String zipcode) {
+            Member member = createMember(name, city, street, zipcode);
             em.persist(member);
-            Book book1 = createBook("JPA1 BOOK", 10000, 100);
-            em.persist(book1);
-            Book book2 = createBook("JPA2 BOOK", 20000, 100);
-            em.persist(book2);
-            OrderItem orderItem1 = OrderItem.createOrderItem(book1, 10000, 1);
-            OrderItem orderItem2 = OrderItem.createOrderItem(book2, 20000, 2);
-            Order order = Order.createOrder(member, createDelivery(member),
-                    orderItem1, orderItem2);
-            em.persist(order);
+            shardReplicator.replicate(member);
+            return member;
         }
 
-        public void dbInit2() {
-            Member member = createMember("userB", "진주", "2", "2222");
-            em.persist(member);
-            Book book1 = createBook("SPRING1 BOOK", 20000, 200);
-            em.persist(book1);
-            Book book2 = createBook("SPRING2 BOOK", 40000, 300);
-            em.persist(book2);
-            Delivery delivery = createDelivery(member); OrderItem orderItem1 = OrderItem.createOrderItem(book1, 20000, 3);
-            OrderItem orderItem2 = OrderItem.createOrderItem(book2, 40000, 4);
+        public Book saveBook(String name, int price, int stockQuantity) {
+            Book book = createBook(name, price, stockQuantity);
+            shardReplicator.replicateItems(List.of(book)); //재고를 샤드마다 나눈다
+            em.persist(book);
+            return book;
+        }
+
+        public void order(Long memberId, Long itemId1, int count1, Long itemId2, int count2) {
+            Member member = em.find(Member.class, memberId);
+            Item item1 = em.find(Item.class, itemId1);
+            Item item2 = em.find(Item.class, itemId2);
+            Delivery delivery = createDelivery(member);
+            OrderItem orderItem1 = OrderItem.createOrderItem(item1, item1.getPrice(), count1);
+            OrderItem orderItem2 = OrderItem.createOrderItem(item2, item2.getPrice(), count2);
             Order order = Order.createOrder(member, delivery, orderItem1,
                     orderItem2);
             em.persist(order);
+            salesRollup.orderPlaced(order); //상태별 건수도 롤업에서 읽으므로 처음 주문부터 더한다
         }
 
         private Member createMember(String name, String city, String street,
@@ -0,0 +1,64 @@
+package jpabook.jpashop.api;
+
+import jpabook.jpashop.domain.catalog.CatalogImportJob;
+import jpabook.jpashop.service.catalog.CatalogImporter;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.time.LocalDateTime;
+
+/**
+ * 상품 CSV 가져오기 API
+ * 시작하면 바로 작업 id를 돌려주고, 진행 상황은 GET으로 조회한다.
+ */
+@RestController
+@RequiredArgsConstructor
+public class CatalogImportApiController {
+
+    private final CatalogImporter catalogImporter;
+
+    @PostMapping("/api/items/imports")
+    public ImportJobResponse start(@RequestBody StartImportRequest request) {
+        return ImportJobResponse.of(catalogImporter.start(request.getFileName()));
+    }
+
+    @PostMapping("/api/items/imports/{jobId}/resume")
+    public ImportJobResponse resume(@PathVariable Long jobId) {
+        return ImportJobResponse.of(catalogImporter.resume(jobId));
+    }
+
+    @GetMapping("/api/items/imports/{jobId}")
+    public ResponseEntity<ImportJobResponse> progress(@PathVariable Long jobId) {
+        CatalogImportJob job = catalogImporter.findJob(jobId);
+        return job == null ? ResponseEntity.notFound().build() : ResponseEntity.ok(ImportJobResponse.of(job));
+    }
+
+    @Data
+    static class StartImportRequest {
+        private String fileName;
+    }
+
+    @Data
+    @AllArgsConstructor
+    static class ImportJobResponse {
+        private Long jobId;
+        private String fileName;
+        private CatalogImportJob.Status status;
+        private long processedLines;
+        private long created;
+        private long updated;
+        private long failed;
+        private String lastError;
+        private LocalDateTime startedAt;
+        private LocalDateTime finishedAt;
+
+        static ImportJobResponse of(CatalogImportJob job) {
+            return new ImportJobResponse(job.getId(), job.getFileName(), job.getStatus(), job.getProcessedLines(),
+                    job.getCreated(), job.getUpdated(), job.getFailed(), job.getLastError(),
+                    job.getStartedAt(), job.getFinishedAt());
+        }
+    }
+}
@@ -0,0 +1,87 @@
+package jpabook.jpashop.api;
+
+import jakarta.servlet.http.HttpServletRequest;
+import jpabook.jpashop.config.admission.MemberOrderRateLimiter;
+import jpabook.jpashop.domain.DeliveryStatus;
+import jpabook.jpashop.exception.InvalidRequestException;
+import jpabook.jpashop.service.DeliveryService;
+import jpabook.jpashop.service.DeliveryTransitionResult;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.RequiredArgsConstructor;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+/**
+ * 배송 상태 일괄 변경 API (창고에서 웨이브가 끝날 때 수만 건을 한번에 완료 처리)
+ * 요청 값이 잘못되면(빈 id 목록, 뒤로 가는 상태 변경 등) 400
+ * 청크마다 커밋하므로 중간에 실패하면 앞 청크는 이미 반영되어 있다. 같은 요청을 다시 보내면 이미 바뀐 건은 STATUS_MISMATCH로 나온다.
+ */
+@RestController
+@RequiredArgsConstructor
+public class DeliveryApiController {
+
+    private static final int MAX_IDS = 100_000;
+
+    private final DeliveryService deliveryService;
+    private final MemberOrderRateLimiter memberOrderRateLimiter;
+
+    //배송 id 목록으로 변경
+    @PostMapping("/api/deliveries/status")
+    public TransitionResponse transition(@RequestBody TransitionRequest request, HttpServletRequest httpRequest) {
+        if (request.getDeliveryIds() == null || request.getDeliveryIds().isEmpty()
+                || request.getDeliveryIds().size() > MAX_IDS) {
+            throw new InvalidRequestException("deliveryIds는 1건 이상 " + MAX_IDS + "건 이하여야 합니다.");
+        }
+        memberOrderRateLimiter.acquireBulk(httpRequest); //호출자별 일괄 작업 속도 제한 - 넘으면 429
+        return TransitionResponse.of(deliveryService.transition(
+                request.getDeliveryIds(), request.getFrom(), request.getTo()));
+    }
+
+    //조건으로 변경
+    @PostMapping("/api/deliveries/status/bulk")
+    public TransitionResponse transitionAll(@RequestBody BulkTransitionRequest request,
+                                            HttpServletRequest httpRequest) {
+        if (request.getLimit() < 1 || request.getLimit() > MAX_IDS) {
+            throw new InvalidRequestException("limit은 1 이상 " + MAX_IDS + " 이하여야 합니다.");
+        }
+        memberOrderRateLimiter.acquireBulk(httpRequest);
+        return TransitionResponse.of(deliveryService.transitionAll(
+                request.getFrom(), request.getTo(), request.getOrderedBefore(), request.getLimit()));
+    }
+
+    @Data
+    static class TransitionRequest {
+        private List<Long> deliveryIds;
+        private DeliveryStatus from;
+        private DeliveryStatus to;
+    }
+
+    @Data
+    static class BulkTransitionRequest {
+        private DeliveryStatus from;
+        private DeliveryStatus to;
+        @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME)
+        private LocalDateTime orderedBefore;
+        private int limit = MAX_IDS;
+    }
+
+    @Data
+    @AllArgsConstructor
+    static class TransitionResponse {
+        private Map<DeliveryTransitionResult.Outcome, Long> counts; //결과별 건수
+        private List<DeliveryTransitionResult> results;
+
+        static TransitionResponse of(List<DeliveryTransitionResult> results) {
+            return new TransitionResponse(results.stream().collect(Collectors.groupingBy(
+                    DeliveryTransitionResult::getOutcome, Collectors.counting())), results);
+        }
+    }
+}
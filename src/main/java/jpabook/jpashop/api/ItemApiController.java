@@ -0,0 +1,60 @@
+package jpabook.jpashop.api;
+
+import jpabook.jpashop.repository.item.query.ItemQueryDto;
+import jpabook.jpashop.service.CatalogVersion;
+import jpabook.jpashop.service.ItemService;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.RequiredArgsConstructor;
+import org.springframework.data.domain.Slice;
+import org.springframework.http.CacheControl;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.WebRequest;
+
+import java.util.List;
+
+@RestController
+@RequiredArgsConstructor
+public class ItemApiController {
+
+    private final ItemService itemService;
+    private final CatalogVersion catalogVersion;
+
+    /**
+     * 상품 목록 조회 API
+     * - 엔티티 대신 DTO 프로젝션으로 필요한 컬럼만 페이지 단위로 조회한다.
+     * - 응답에 카탈로그 버전으로 만든 ETag를 붙인다.
+     *   클라이언트가 If-None-Match로 같은 ETag를 보내면 DB 조회와 JSON 변환 없이 304를 돌려준다.
+     */
+    @GetMapping("/api/items")
+    public ResponseEntity<ItemPageResult<List<ItemQueryDto>>> items(
+            @RequestParam(value = "page", defaultValue = "0") int page,
+            @RequestParam(value = "size", defaultValue = "100") int size,
+            WebRequest webRequest){
+        String etag = catalogVersion.etag(ItemService.itemPageRequest(page, size));
+        if(webRequest.checkNotModified(etag)){
+            return null; //304 응답은 스프링이 알아서 마무리한다
+        }
+        Slice<ItemQueryDto> items = itemService.findItemPage(page, size);
+        ItemPageResult<List<ItemQueryDto>> result = new ItemPageResult<>(items.getNumber(), items.getSize(),
+                items.hasNext(), items.getNumberOfElements(), items.getContent());
+        //no-cache: 캐시는 하되 매번 ETag로 재검증하라는 뜻
+        return ResponseEntity.ok()
+                .eTag(etag)
+                .cacheControl(CacheControl.noCache())
+                .body(result);
+    }
+
+    @Data
+    @AllArgsConstructor
+    static class ItemPageResult<T>{
+        private int page;
+        private int size;
+        private boolean hasNext;
+        private int count;
+        private T data;
+    }
+}
@@ -2,19 +2,33 @@ package jpabook.jpashop.api;
 
 import jakarta.validation.Valid;
 import jpabook.jpashop.domain.Member;
+import jpabook.jpashop.repository.order.query.OrderFieldSet;
+import jpabook.jpashop.repository.order.query.OrderQueryDto;
+import jpabook.jpashop.repository.order.query.OrderQueryRepository;
+import jpabook.jpashop.repository.order.query.OrderSparseQueryRepository;
+import jpabook.jpashop.repository.order.query.SparseOrder;
+import jpabook.jpashop.service.MemberListCache;
 import jpabook.jpashop.service.MemberService;
 import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
 import java.util.List;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
 @RestController //@Controller + @ResponseBody (데이터 자체를 JSON이나 XML로 보낼 때 사용)
 @RequiredArgsConstructor
 public class MemberApiController {
     private final MemberService memberService;
+    private final MemberListCache memberListCache;
+    private final ResponseFormats responseFormats;
+    private final OrderQueryRepository orderQueryRepository;
+    private final OrderSparseQueryRepository orderSparseQueryRepository;
 
     //회원 등록 API//
     /**
@@ -124,8 +138,20 @@ public class MemberApiController {
         //array를 반환하면 스펙 확장이 안되는 등 유연성이 떨어진다.
     }
     //V2 - 응답 값으로 엔티티가 아닌 별도의 DTO 반환
+    //회원은 자주 바뀌지 않으니까 직렬화된 바이트 자체를 캐시해서 돌려준다 (MemberListCache 참고)
+    //Accept 헤더에 따라 JSON(기본), Smile, CBOR 중 하나로 응답하고, 포맷별로 따로 캐시한다
     @GetMapping("/api/v2/members")
-    public Result membersV2(){
+    public ResponseEntity<byte[]> membersV2(@RequestHeader(value = HttpHeaders.ACCEPT, required = false) String accept){
+        MediaType format = responseFormats.negotiate(accept);
+        byte[] body = memberListCache.get("v2:" + format,
+                () -> responseFormats.write(format, findMemberResult()));
+        return ResponseEntity.ok()
+                .contentType(format)
+                .varyBy(HttpHeaders.ACCEPT)
+                .body(body);
+    }
+
+    private Result findMemberResult(){
         List<Member> findMembers = memberService.findMembers();
         //엔티티 -> DTO 변환
         List<MemberDto> collect = findMembers.stream()
@@ -145,6 +171,45 @@ public class MemberApiController {
     static class MemberDto{
         private String name;
     }
+
+    /**
+     * 회원별 주문 이력 - 최신순 keyset 페이징
+     * 첫 페이지는 lastOrderId 없이, 다음 페이지는 응답의 nextOrderId를 lastOrderId로 넘긴다.
+     * limit + 1건을 조회해서 다음 페이지가 있을 때만 nextOrderId를 준다. (마지막 페이지 뒤에 빈 페이지를 또 요청하지 않게)
+     * (보관된 오래된 주문은 목록에 나오지 않고 /api/orders/{orderId}로 조회한다)
+     */
+    @GetMapping("/api/members/{id}/orders")
+    public MemberOrdersResult<?> memberOrders(
+            @PathVariable("id") Long id,
+            @RequestParam(value = "lastOrderId", required = false) Long lastOrderId,
+            @RequestParam(value = "limit", defaultValue = "20") int limit,
+            @RequestParam(value = "fields", required = false) String fields){
+        int size = Math.min(Math.max(limit, 1), 100);
+        //?fields= 로 필요한 필드만 고를 수 있다 (OrderFieldSet)
+        if (fields != null) {
+            return MemberOrdersResult.of(orderSparseQueryRepository.findMemberOrders(
+                    OrderFieldSet.of(fields), id, lastOrderId, size + 1), size, SparseOrder::getOrderId);
+        }
+        //OrderQueryDto의 orderId는 @JsonIgnore라서 다음 페이지 키를 따로 내려준다
+        return MemberOrdersResult.of(orderQueryRepository.findMemberOrders(id, lastOrderId, size + 1),
+                size, OrderQueryDto::getOrderId);
+    }
+
+    @Data
+    @AllArgsConstructor
+    static class MemberOrdersResult<T>{
+        private Long nextOrderId; //없으면 마지막 페이지
+        private T data;
+
+        //size + 1건을 조회한 결과에서 size건만 내려주고, 남는 게 있으면 다음 페이지 키를 준다
+        static <O> MemberOrdersResult<List<O>> of(List<O> orders, int size, Function<O, Long> orderId) {
+            if (orders.size() <= size) {
+                return new MemberOrdersResult<>(null, orders);
+            }
+            List<O> page = orders.subList(0, size);
+            return new MemberOrdersResult<>(orderId.apply(page.get(size - 1)), page);
+        }
+    }
     /*
     단순히 List<MemberDto>를 반환하는 것이 아닌,  Result라는 객체에 다시 감싸서 반환할 때의 이점
     앞으로 응답에 다른 정보(ex. total count, pagination info)를 추가해야 할 경우 확장성에 유리하다.
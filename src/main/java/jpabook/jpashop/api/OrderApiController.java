@@ -2,16 +2,24 @@ package jpabook.jpashop.api;
 
 import jpabook.jpashop.domain.*;
 import jpabook.jpashop.repository.OrderRepository;
+import jpabook.jpashop.repository.order.query.OrderFieldSet;
 import jpabook.jpashop.repository.order.query.OrderFlatDto;
 import jpabook.jpashop.repository.order.query.OrderItemQueryDto;
 import jpabook.jpashop.repository.order.query.OrderQueryDto;
 import jpabook.jpashop.repository.order.query.OrderQueryRepository;
+import jpabook.jpashop.repository.order.query.OrderSparseQueryRepository;
+import jpabook.jpashop.repository.order.query.SparseOrder;
+import jpabook.jpashop.service.ReadOnlyLoading;
+import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.Getter;
 import lombok.RequiredArgsConstructor;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.WebRequest;
 
 import java.time.LocalDateTime;
 import java.util.List;
@@ -28,6 +36,8 @@ OrderItems가 들어가 컬렉션을 조회하게 될 때
 public class OrderApiController {
 
     private final OrderRepository orderRepository;
+    private final OrderConditionalGet orderConditionalGet;
+    private final ReadOnlyLoading readOnlyLoading;
 
     /**
      * V1. 엔티티 직접 노출 (당연히 쓰면 안되는거)
@@ -102,10 +112,9 @@ public class OrderApiController {
     @GetMapping("/api/v3/orders")
     public List<OrderDto> ordersV3(){
         //사실 v2와 코드 자체는 똑같다
-        List<Order> orders = orderRepository.findAllWithItem();
-        List<OrderDto> result = orders.stream()
-                .map(OrderDto::new).toList();
-        return result;
+        //읽기 전용으로 올려서 변경 감지 스냅샷을 만들지 않는다 (ReadOnlyLoading)
+        return readOnlyLoading.load(() -> orderRepository.findAllWithItem().stream()
+                .map(OrderDto::new).toList());
     }
 
     /**
@@ -123,11 +132,15 @@ public class OrderApiController {
      *      * 이 옵션을 사용하면 컬렉션이나, 프록시 객체를 한꺼번에 설정한 size 만큼 IN 쿼리로 조회한다.
      */
     @GetMapping("/api/v3.1/orders")
-    public List<OrderDto> orderV3_page(@RequestParam(value="offset",defaultValue = "0") int offset,
-                                       @RequestParam(value="limit",defaultValue = "100") int limit){
-        List<Order> orders = orderRepository.findAllWithMemberDelivery(offset,limit);
-        List<OrderDto> result = orders.stream()
-                .map(OrderDto::new).toList();
+    public ResponseEntity<List<OrderDto>> orderV3_page(@RequestParam(value="offset",defaultValue = "0") int offset,
+                                       @RequestParam(value="limit",defaultValue = "100") int limit,
+                                       WebRequest webRequest){
+        //주문 버전이 그대로면 304 - 쿼리도 JSON 변환도 하지 않는다
+        return orderConditionalGet.respond(webRequest, "v3.1",
+                //지연 로딩되는 orderItems, item까지 읽기 전용으로 올라오도록 DTO 변환까지 안에서 한다
+                () -> readOnlyLoading.load(() -> orderRepository.findAllWithMemberDelivery(offset,limit).stream()
+                        .map(OrderDto::new).toList()),
+                offset, limit);
         /*
         여기서 매핑을 할 때 OrderDto 생성자에서 OrderItemsDto를 호출할 때,
         Hibernate가 설정된 batch size 만큼 묶어서 쿼리를 보낸다.
@@ -135,7 +148,6 @@ public class OrderApiController {
         =>  컬렉션 fetch join은 페이징에 문제를 일으키지만,
             Lazy + BatchSize는 페이징도 되고 성능도 나쁘지 않다.
          */
-        return result;
     }
     /*
     BatchSize관련 질문
@@ -203,6 +215,7 @@ public class OrderApiController {
      * 실질적인 로직은 order.query 패키지 참조
      */
     private final OrderQueryRepository orderQueryRepository;
+    private final OrderSparseQueryRepository orderSparseQueryRepository;
 
     @GetMapping("api/v4/orders")
     public List<OrderQueryDto> ordersV4(){
@@ -220,8 +233,47 @@ public class OrderApiController {
      * V5 방식으로 최적화 하면 쿼리가 총 1 + 1번만 실행된다
      */
     @GetMapping("api/v5/orders")
-    public List<OrderQueryDto> ordersV5(){
-        return orderQueryRepository.findAllByDto_optimization();
+    public ResponseEntity<List<OrderQueryDto>> ordersV5(WebRequest webRequest){
+        return orderConditionalGet.respond(webRequest, "v5",
+                orderQueryRepository::findAllByDto_optimization);
+    }
+
+    /**
+     * V5.1 - V5 + keyset 페이징
+     * 첫 페이지는 lastOrderId 없이, 다음 페이지는 받은 목록의 마지막 주문 id를 넘긴다.
+     * 샤딩 중에도 샤드마다 limit건씩만 읽으면 되므로 offset 페이징보다 싸다.
+     */
+    @GetMapping("/api/v5.1/orders")
+    public KeysetResult<?> ordersV5_keyset(
+            @RequestParam(value = "lastOrderId", required = false) Long lastOrderId,
+            @RequestParam(value = "limit", defaultValue = "100") int limit,
+            @RequestParam(value = "fields", required = false) String fields){
+        //?fields=orderId,orderStatus 처럼 필드를 고르면 그 필드에 필요한 컬럼과 조인만 조회한다 (OrderFieldSet)
+        if (fields != null) {
+            List<SparseOrder> orders = orderSparseQueryRepository.findOrders(
+                    OrderFieldSet.of(fields), lastOrderId, Math.min(limit, 1000));
+            return new KeysetResult<>(orders.isEmpty() ? null : orders.get(orders.size() - 1).getOrderId(), orders);
+        }
+        List<OrderQueryDto> orders = orderQueryRepository.findAllByDto_keyset(lastOrderId, Math.min(limit, 1000));
+        //OrderQueryDto의 orderId는 @JsonIgnore라서 다음 페이지 키를 따로 내려준다
+        Long nextOrderId = orders.isEmpty() ? null : orders.get(orders.size() - 1).getOrderId();
+        return new KeysetResult<>(nextOrderId, orders);
+    }
+
+    @Data
+    @AllArgsConstructor
+    static class KeysetResult<T>{
+        private Long nextOrderId; //다음 페이지 요청 시 lastOrderId로 넘길 값 (없으면 마지막 페이지)
+        private T data;
+    }
+
+    /**
+     * 주문 단건 조회 - 보관(archive)된 오래된 주문도 조회된다
+     */
+    @GetMapping("/api/orders/{orderId}")
+    public ResponseEntity<OrderQueryDto> order(@PathVariable("orderId") Long orderId){
+        OrderQueryDto order = orderQueryRepository.findOrderQueryDto(orderId);
+        return order == null ? ResponseEntity.notFound().build() : ResponseEntity.ok(order);
     }
 
     /**
@@ -0,0 +1,58 @@
+package jpabook.jpashop.api;
+
+import jakarta.servlet.http.HttpServletRequest;
+import jpabook.jpashop.config.admission.MemberOrderRateLimiter;
+import jpabook.jpashop.exception.InvalidRequestException;
+import jpabook.jpashop.service.OrderBulkCancelService;
+import jpabook.jpashop.service.OrderCancelResult;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.RequiredArgsConstructor;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+/**
+ * 주문 일괄 취소 API
+ * 같은 요청을 다시 보내도 이미 취소된 주문은 ALREADY_CANCELED로 나오고 재고는 한번만 되돌아간다.
+ */
+@RestController
+@RequiredArgsConstructor
+public class OrderCancelApiController {
+
+    private static final int MAX_IDS = 100_000;
+
+    private final OrderBulkCancelService orderBulkCancelService;
+    private final MemberOrderRateLimiter memberOrderRateLimiter;
+
+    @PostMapping("/api/orders/cancel")
+    public CancelResponse cancel(@RequestBody CancelRequest request, HttpServletRequest httpRequest) {
+        if (request.getOrderIds() == null || request.getOrderIds().isEmpty()
+                || request.getOrderIds().size() > MAX_IDS) {
+            throw new InvalidRequestException("orderIds는 1건 이상 " + MAX_IDS + "건 이하여야 합니다.");
+        }
+        memberOrderRateLimiter.acquireBulk(httpRequest); //호출자별 일괄 작업 속도 제한 - 넘으면 429
+        return CancelResponse.of(orderBulkCancelService.cancelOrders(request.getOrderIds()));
+    }
+
+    @Data
+    static class CancelRequest {
+        private List<Long> orderIds;
+    }
+
+    @Data
+    @AllArgsConstructor
+    static class CancelResponse {
+        private Map<OrderCancelResult.Outcome, Long> counts; //결과별 건수
+        private List<OrderCancelResult> results;
+
+        static CancelResponse of(List<OrderCancelResult> results) {
+            return new CancelResponse(results.stream().collect(Collectors.groupingBy(
+                    OrderCancelResult::getOutcome, Collectors.counting())), results);
+        }
+    }
+}
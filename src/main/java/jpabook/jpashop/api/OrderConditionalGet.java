@@ -0,0 +1,85 @@
+package jpabook.jpashop.api;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.http.HttpServletResponse;
+import jpabook.jpashop.service.OrderVersion;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Component;
+import org.springframework.web.context.request.NativeWebRequest;
+import org.springframework.web.context.request.WebRequest;
+
+import java.util.function.Supplier;
+
+/**
+ * 주문 조회 API용 조건부 GET 처리
+ * 주문 버전으로 ETag를 만들고, If-None-Match가 일치하면 쿼리와 JSON 변환 없이 304를 돌려준다.
+ * 같은 URL이라도 Accept에 따라 JSON/Smile/CBOR로 바이트가 달라지므로 ETag에 응답 포맷을 넣는다.
+ * 304 비율은 액추에이터 메트릭으로 확인할 수 있다.
+ *  - orders.conditional.requests{result=not_modified|modified}
+ *  - orders.conditional.not_modified.ratio
+ */
+@Component
+public class OrderConditionalGet {
+
+    private final OrderVersion orderVersion;
+    private final ResponseFormats responseFormats;
+    private final Counter notModified;
+    private final Counter modified;
+
+    public OrderConditionalGet(OrderVersion orderVersion, ResponseFormats responseFormats, MeterRegistry registry) {
+        this.orderVersion = orderVersion;
+        this.responseFormats = responseFormats;
+        this.notModified = Counter.builder("orders.conditional.requests")
+                .tag("result", "not_modified").register(registry);
+        this.modified = Counter.builder("orders.conditional.requests")
+                .tag("result", "modified").register(registry);
+        Gauge.builder("orders.conditional.not_modified.ratio", this, OrderConditionalGet::notModifiedRatio)
+                .register(registry);
+    }
+
+    /**
+     * 버전이 같으면 null을 반환한다. (스프링이 304 응답으로 마무리)
+     * 다르면 query를 실행해서 ETag와 함께 200으로 응답한다.
+     */
+    public <T> ResponseEntity<T> respond(WebRequest webRequest, String endpoint, Supplier<T> query,
+                                         Object... params) {
+        //버전은 쿼리보다 먼저 읽어야 한다. 조회 도중 주문이 바뀌면 다음 요청에서 다시 조회된다.
+        MediaType format = responseFormats.negotiate(webRequest.getHeader(HttpHeaders.ACCEPT));
+        String etag = orderVersion.etag(endpoint, withFormat(format, params));
+        if (webRequest.checkNotModified(etag)) {
+            notModified.increment();
+            //304도 캐시가 Accept별로 구분해서 저장하도록 Vary를 붙인다
+            if (webRequest instanceof NativeWebRequest nativeRequest) {
+                HttpServletResponse response = nativeRequest.getNativeResponse(HttpServletResponse.class);
+                if (response != null) {
+                    response.setHeader(HttpHeaders.VARY, HttpHeaders.ACCEPT);
+                }
+            }
+            return null;
+        }
+        modified.increment();
+        //같은 URL이 Accept에 따라 JSON/Smile/CBOR로 달라지므로 Vary: Accept
+        return ResponseEntity.ok()
+                .eTag(etag)
+                .cacheControl(CacheControl.noCache())
+                .varyBy(HttpHeaders.ACCEPT)
+                .body(query.get());
+    }
+
+    private Object[] withFormat(MediaType format, Object[] params) {
+        Object[] withFormat = new Object[params.length + 1];
+        withFormat[0] = format.getSubtype();
+        System.arraycopy(params, 0, withFormat, 1, params.length);
+        return withFormat;
+    }
+
+    public double notModifiedRatio() {
+        double total = notModified.count() + modified.count();
+        return total == 0 ? 0 : notModified.count() / total;
+    }
+}
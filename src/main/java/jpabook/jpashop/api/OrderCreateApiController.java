@@ -0,0 +1,65 @@
+package jpabook.jpashop.api;
+
+import jpabook.jpashop.config.admission.MemberOrderRateLimiter;
+import jpabook.jpashop.exception.InvalidRequestException;
+import jpabook.jpashop.service.OrderService;
+import jpabook.jpashop.service.idempotency.IdempotentOrderResult;
+import jpabook.jpashop.service.idempotency.IdempotentOrderService;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RestController;
+
+/**
+ * 주문 생성 API
+ * Idempotency-Key 헤더를 보내면 같은 키로 다시 보내도 주문은 하나만 생기고, 처음 만든 주문 id가 200으로 나온다.
+ * (처음 만들 때는 201, 다시 보낸 요청은 Idempotent-Replayed: true 헤더가 붙는다)
+ * 같은 키로 다른 상품/수량을 보내면 422, 먼저 보낸 요청이 아직 처리 중이면 409. 요청 값이 빠졌으면 400.
+ */
+@RestController
+@RequiredArgsConstructor
+public class OrderCreateApiController {
+
+    private final OrderService orderService;
+    private final IdempotentOrderService idempotentOrderService;
+    private final MemberOrderRateLimiter memberOrderRateLimiter;
+
+    @PostMapping("/api/orders")
+    public ResponseEntity<CreateOrderResponse> create(
+            @RequestHeader(value = "Idempotency-Key", required = false) String idempotencyKey,
+            @RequestBody CreateOrderRequest request) {
+        if (request.getMemberId() == null || request.getItemId() == null || request.getCount() < 1) {
+            throw new InvalidRequestException("memberId, itemId와 1 이상의 count가 필요합니다.");
+        }
+        memberOrderRateLimiter.acquire(request.getMemberId()); //회원별 주문 속도 제한 - 넘으면 429
+        if (idempotencyKey == null) {
+            Long orderId = orderService.order(request.getMemberId(), request.getItemId(), request.getCount());
+            return ResponseEntity.status(HttpStatus.CREATED).body(new CreateOrderResponse(orderId));
+        }
+        IdempotentOrderResult result = idempotentOrderService.order(
+                idempotencyKey, request.getMemberId(), request.getItemId(), request.getCount());
+        if (result.isReplayed()) {
+            return ResponseEntity.ok().header("Idempotent-Replayed", "true")
+                    .body(new CreateOrderResponse(result.getOrderId()));
+        }
+        return ResponseEntity.status(HttpStatus.CREATED).body(new CreateOrderResponse(result.getOrderId()));
+    }
+
+    @Data
+    static class CreateOrderRequest {
+        private Long memberId;
+        private Long itemId;
+        private int count;
+    }
+
+    @Data
+    @AllArgsConstructor
+    static class CreateOrderResponse {
+        private Long orderId;
+    }
+}
@@ -7,10 +7,20 @@ import jpabook.jpashop.domain.OrderStatus;
 import jpabook.jpashop.repository.OrderRepository;
 import jpabook.jpashop.repository.order.simplequery.OrderSimpleQueryDto;
 import jpabook.jpashop.repository.order.simplequery.OrderSimpleQueryRepository;
+import jpabook.jpashop.service.OrderService;
+import jpabook.jpashop.service.ReadOnlyLoading;
+import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.RequiredArgsConstructor;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.web.PageableDefault;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.ModelAttribute;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.WebRequest;
 
 import java.time.LocalDateTime;
 import java.util.List;
@@ -30,6 +40,9 @@ Order -> Delivery
 public class OrderSimpleApiController {
     private final OrderRepository orderRepository;
     private final OrderSimpleQueryRepository orderSimpleQueryRepository;
+    private final OrderConditionalGet orderConditionalGet;
+    private final OrderService orderService;
+    private final ReadOnlyLoading readOnlyLoading;
 
     /**
      * V1 - 엔티티를 직접 노출하는 방법
@@ -93,9 +106,9 @@ public class OrderSimpleApiController {
      */
     @GetMapping("/api/v3/simple-orders")
     public List<SimpleOrderDto> ordersV3(){
-        List<Order> orders = orderRepository.findAllWithMemberDelivery();
-        List<SimpleOrderDto> result = orders.stream().map(SimpleOrderDto::new).toList();
-        return result;
+        //읽기 전용으로 올려서 변경 감지 스냅샷을 만들지 않는다 (ReadOnlyLoading)
+        return readOnlyLoading.load(() -> orderRepository.findAllWithMemberDelivery().stream()
+                .map(SimpleOrderDto::new).toList());
     }
 
     /**
@@ -103,12 +116,37 @@ public class OrderSimpleApiController {
      * DTO를 조회하기 위한 Repository가 추가로 필요하다
      */
     @GetMapping("/api/v4/simple-orders")
-    public List<OrderSimpleQueryDto> ordersV4(){
-        return orderSimpleQueryRepository.findOrderDtos();
+    public ResponseEntity<List<OrderSimpleQueryDto>> ordersV4(WebRequest webRequest){
+        //주문이 바뀌지 않았으면 304로 응답한다 (OrderConditionalGet 참고)
+        return orderConditionalGet.respond(webRequest, "simple-v4",
+                orderSimpleQueryRepository::findOrderDtos);
         //쿼리를 확인해보면, select 절에서 가져오는 데이터의 양이 다름을 확인할 수 있다.
         //말만 리포지토리이지, API 스펙 자체가 레포에 들어와 있는 것이다.
     }
 
+    /**
+     * V5 - 검색 조건 + 정렬 + 페이징 (QueryDSL)
+     * GET /api/v5/simple-orders?orderStatus=ORDER&orderDateFrom=2025-01-01T00:00:00&itemName=JPA&page=0&size=20&sort=orderDate,desc
+     * 전체 건수는 조건이 없거나 상태 조건만 있으면 카운터에서, 그 외에는 count 쿼리로 구한다.
+     */
+    @GetMapping("/api/v5/simple-orders")
+    public PageResult<List<SimpleOrderDto>> ordersV5(@ModelAttribute OrderSearch orderSearch,
+                                                     @PageableDefault(size = 20, sort = "id", direction = Sort.Direction.DESC)
+                                                     Pageable pageable){
+        Page<Order> page = orderService.searchOrders(orderSearch, pageable);
+        List<SimpleOrderDto> result = page.getContent().stream().map(SimpleOrderDto::new).toList();
+        return new PageResult<>(page.getTotalElements(), page.getNumber(), page.getSize(), result);
+    }
+
+    @Data
+    @AllArgsConstructor
+    static class PageResult<T>{
+        private long totalCount;
+        private int page;
+        private int size;
+        private T data;
+    }
+
     /*
     V3 vs V4
     재사용성에서는 V3가 훨씬 좋다. 다른 Api에서도 findAllWithMemberDeilvery를 사용할 수 있으니까...
@@ -0,0 +1,64 @@
+package jpabook.jpashop.api;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.http.InvalidMediaTypeException;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.cbor.MappingJackson2CborHttpMessageConverter;
+import org.springframework.http.converter.smile.MappingJackson2SmileHttpMessageConverter;
+import org.springframework.stereotype.Component;
+import org.springframework.util.MimeTypeUtils;
+import org.springframework.util.StringUtils;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 응답을 직접 바이트로 만들어야 하는 API(캐시된 회원 목록 등)를 위한 포맷 선택기
+ * 일반 API는 메시지 컨버터가 알아서 Accept 헤더를 보고 포맷을 고르지만,
+ * 바이트를 캐시하는 경우에는 포맷별로 따로 직렬화해서 보관해야 하므로 여기서 직접 고른다.
+ */
+@Component
+public class ResponseFormats {
+
+    //JSON을 맨 앞에 두어서 Accept가 */* 일 때 JSON이 선택되게 한다
+    private final Map<MediaType, ObjectMapper> mappers = new LinkedHashMap<>();
+
+    public ResponseFormats(ObjectMapper objectMapper,
+                           MappingJackson2SmileHttpMessageConverter smileConverter,
+                           MappingJackson2CborHttpMessageConverter cborConverter) {
+        mappers.put(MediaType.APPLICATION_JSON, objectMapper);
+        mappers.put(smileConverter.getSupportedMediaTypes().get(0), smileConverter.getObjectMapper());
+        mappers.put(MediaType.APPLICATION_CBOR, cborConverter.getObjectMapper());
+    }
+
+    public MediaType negotiate(String accept) {
+        if (!StringUtils.hasText(accept)) {
+            return MediaType.APPLICATION_JSON;
+        }
+        try {
+            //메시지 컨버터와 같은 순서(q값, 구체성)로 골라야 ETag의 포맷과 실제로 쓰는 본문의 포맷이 같다
+            List<MediaType> accepted = MediaType.parseMediaTypes(accept);
+            MimeTypeUtils.sortBySpecificity(accepted);
+            for (MediaType candidate : accepted) {
+                for (MediaType supported : mappers.keySet()) {
+                    if (candidate.includes(supported)) {
+                        return supported;
+                    }
+                }
+            }
+        } catch (InvalidMediaTypeException e) {
+            //잘못된 Accept 헤더는 무시하고 기본 포맷으로
+        }
+        return MediaType.APPLICATION_JSON;
+    }
+
+    public byte[] write(MediaType format, Object value) {
+        try {
+            return mappers.get(format).writeValueAsBytes(value);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("응답 직렬화 실패: " + format, e);
+        }
+    }
+}
@@ -0,0 +1,66 @@
+package jpabook.jpashop.api;
+
+import jpabook.jpashop.service.report.SalesReport;
+import jpabook.jpashop.service.report.SalesReportJobs;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.RequiredArgsConstructor;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.net.URI;
+import java.time.LocalDate;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+/**
+ * 매출 리포트 API
+ * POST로 작업을 만들면 202와 작업 id를 주고, GET으로 결과를 가져간다. (만드는 중이면 202)
+ */
+@RestController
+@RequiredArgsConstructor
+public class SalesReportApiController {
+
+    private static final int MAX_TOP_ITEMS = 1000;
+
+    private final SalesReportJobs salesReportJobs;
+
+    @PostMapping("/api/reports/sales")
+    public ResponseEntity<ReportJobResponse> submit(
+            @RequestParam("from") @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam("to") @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+            @RequestParam(value = "top", defaultValue = "100") int top) {
+        String jobId = salesReportJobs.submit(from, to, Math.min(Math.max(top, 0), MAX_TOP_ITEMS));
+        return ResponseEntity.accepted()
+                .location(URI.create("/api/reports/sales/" + jobId))
+                .body(new ReportJobResponse(jobId, "RUNNING", null, null));
+    }
+
+    @GetMapping("/api/reports/sales/{jobId}")
+    public ResponseEntity<ReportJobResponse> result(@PathVariable("jobId") String jobId) {
+        CompletableFuture<SalesReport> job = salesReportJobs.find(jobId);
+        if (job == null) {
+            return ResponseEntity.notFound().build();
+        }
+        if (!job.isDone()) {
+            return ResponseEntity.accepted().body(new ReportJobResponse(jobId, "RUNNING", null, null));
+        }
+        try {
+            return ResponseEntity.ok(new ReportJobResponse(jobId, "COMPLETED", job.join(), null));
+        } catch (CompletionException e) {
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                    .body(new ReportJobResponse(jobId, "FAILED", null, String.valueOf(e.getCause())));
+        }
+    }
+
+    @Data
+    @AllArgsConstructor
+    static class ReportJobResponse {
+        private String jobId;
+        private String status;
+        private SalesReport report;
+        private String error;
+    }
+}
@@ -0,0 +1,51 @@
+package jpabook.jpashop.api;
+
+import jpabook.jpashop.domain.OrderStatus;
+import jpabook.jpashop.service.rollup.SalesRollupQuery;
+import jpabook.jpashop.service.rollup.SalesRollupRebuilder;
+import lombok.RequiredArgsConstructor;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 매출 대시보드 API - 롤업 테이블만 읽는다 (SalesRollupQuery)
+ */
+@RestController
+@RequiredArgsConstructor
+public class SalesRollupApiController {
+
+    private static final int MAX_LIMIT = 100;
+
+    private final SalesRollupQuery salesRollupQuery;
+    private final SalesRollupRebuilder salesRollupRebuilder;
+
+    //날짜(기본 오늘)의 매출 상위 상품
+    @GetMapping("/api/rollups/items/top")
+    public List<SalesRollupQuery.ItemSales> topItems(
+            @RequestParam(value = "date", required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate date,
+            @RequestParam(value = "limit", defaultValue = "10") int limit) {
+        return salesRollupQuery.topItems(date == null ? LocalDate.now() : date, Math.min(Math.max(limit, 1), MAX_LIMIT));
+    }
+
+    @GetMapping("/api/rollups/members/{memberId}")
+    public SalesRollupQuery.MemberSalesDto memberSales(@PathVariable("memberId") Long memberId) {
+        return salesRollupQuery.memberSales(memberId);
+    }
+
+    @GetMapping("/api/rollups/order-status")
+    public Map<OrderStatus, Long> orderStatusCounts() {
+        return salesRollupQuery.orderStatusCounts();
+    }
+
+    //처음부터 다시 계산 (차이만 더하므로 주문을 받는 중에 돌려도 된다)
+    @PostMapping("/api/rollups/rebuild")
+    public ResponseEntity<Void> rebuild() {
+        salesRollupRebuilder.rebuild();
+        return ResponseEntity.noContent().build();
+    }
+}
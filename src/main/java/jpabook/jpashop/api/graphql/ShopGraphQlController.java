@@ -0,0 +1,186 @@
+package jpabook.jpashop.api.graphql;
+
+import graphql.schema.DataFetchingEnvironment;
+import jpabook.jpashop.config.graphql.ShopGraphQlProperties;
+import jpabook.jpashop.repository.graph.*;
+import jpabook.jpashop.service.ReadOnlyLoading;
+import org.dataloader.DataLoader;
+import org.springframework.graphql.data.method.annotation.Argument;
+import org.springframework.graphql.data.method.annotation.QueryMapping;
+import org.springframework.graphql.data.method.annotation.SchemaMapping;
+import org.springframework.graphql.execution.BatchLoaderRegistry;
+import org.springframework.stereotype.Controller;
+import reactor.core.publisher.Mono;
+
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * GraphQL 조회 API (POST /graphql, 스키마는 resources/graphql/schema.graphqls)
+ *
+ * 연관 필드는 모두 요청마다 새로 만들어지는 DataLoader를 거친다.
+ * - 같은 단계에서 요청된 키를 모았다가 in 쿼리 한번으로 읽는다. (주문 20건의 회원 -> select ... where member_id in (...) 한번)
+ * - 같은 요청 안에서는 키별로 결과를 캐시하므로 같은 회원/상품이 여러 번 나와도 한번만 읽는다.
+ * - 요청이 끝나면 DataLoader도 버려지므로 요청끼리 캐시가 섞이지 않는다.
+ * 그래서 쿼리 중첩 깊이만큼만 SQL이 나가고, 결과 건수와는 상관이 없다. (N+1 없음)
+ *
+ * 조회는 ReadOnlyLoading 안에서 해서 읽기 전용 트랜잭션(복제본 라우팅, 스냅샷 없음)으로 실행된다.
+ */
+@Controller
+public class ShopGraphQlController {
+
+    static final String MEMBER = "member";
+    static final String DELIVERY = "delivery";
+    static final String ORDER = "order";
+    static final String ORDER_ITEMS = "orderItems";
+    static final String MEMBER_ORDERS = "memberOrders";
+    static final String ITEM = "item";
+    static final String ITEM_CATEGORIES = "itemCategories";
+    static final String CATEGORY = "category";
+    static final String CATEGORY_CHILDREN = "categoryChildren";
+    static final String CATEGORY_ITEMS = "categoryItems";
+
+    private final ShopGraphRepository shopGraphRepository;
+    private final ReadOnlyLoading readOnlyLoading;
+    private final ShopGraphQlProperties properties;
+
+    public ShopGraphQlController(BatchLoaderRegistry registry, ShopGraphRepository shopGraphRepository,
+                                 ReadOnlyLoading readOnlyLoading, ShopGraphQlProperties properties) {
+        this.shopGraphRepository = shopGraphRepository;
+        this.readOnlyLoading = readOnlyLoading;
+        this.properties = properties;
+
+        //단건 연관 - id -> 노드
+        register(registry, MEMBER, ids -> byId(shopGraphRepository.findMembersByIds(ids), GraphMember::id));
+        register(registry, DELIVERY, ids -> byId(shopGraphRepository.findDeliveriesByIds(ids), GraphDelivery::id));
+        register(registry, ORDER, ids -> byId(shopGraphRepository.findOrdersByIds(ids), GraphOrder::id));
+        register(registry, ITEM, ids -> byId(shopGraphRepository.findItemsByIds(ids), GraphItem::id));
+        register(registry, CATEGORY, ids -> byId(shopGraphRepository.findCategoriesByIds(ids), GraphCategory::id));
+        //컬렉션 연관 - 부모 id -> 목록 (없으면 빈 목록)
+        register(registry, ORDER_ITEMS, ids -> orEmpty(ids, shopGraphRepository.findOrderItemsByOrderIds(ids)));
+        register(registry, MEMBER_ORDERS, ids -> orEmpty(ids,
+                shopGraphRepository.findRecentOrdersByMemberIds(ids, properties.getMemberOrders())));
+        register(registry, ITEM_CATEGORIES, ids -> orEmpty(ids, shopGraphRepository.findCategoriesByItemIds(ids)));
+        register(registry, CATEGORY_CHILDREN, ids -> orEmpty(ids, shopGraphRepository.findCategoriesByParentIds(ids)));
+        register(registry, CATEGORY_ITEMS, ids -> orEmpty(ids, shopGraphRepository.findItemsByCategoryIds(ids)));
+    }
+
+    //==루트 조회==//
+    @QueryMapping
+    public List<GraphOrder> orders(@Argument Long after, @Argument Integer first) {
+        return readOnlyLoading.load(() -> shopGraphRepository.findOrders(after, pageSize(first)));
+    }
+
+    @QueryMapping
+    public CompletableFuture<GraphOrder> order(@Argument Long id, DataFetchingEnvironment env) {
+        return load(env, ORDER, id);
+    }
+
+    @QueryMapping
+    public List<GraphMember> members(@Argument Long after, @Argument Integer first) {
+        return readOnlyLoading.load(() -> shopGraphRepository.findMembers(after, pageSize(first)));
+    }
+
+    @QueryMapping
+    public CompletableFuture<GraphMember> member(@Argument Long id, DataFetchingEnvironment env) {
+        return load(env, MEMBER, id);
+    }
+
+    @QueryMapping
+    public List<GraphItem> items(@Argument Long after, @Argument Integer first) {
+        return readOnlyLoading.load(() -> shopGraphRepository.findItems(after, pageSize(first)));
+    }
+
+    @QueryMapping
+    public CompletableFuture<GraphItem> item(@Argument Long id, DataFetchingEnvironment env) {
+        return load(env, ITEM, id);
+    }
+
+    @QueryMapping
+    public List<GraphCategory> categories() {
+        return readOnlyLoading.load(shopGraphRepository::findRootCategories);
+    }
+
+    //==연관 필드==//
+    @SchemaMapping(typeName = "Order")
+    public CompletableFuture<GraphMember> member(GraphOrder order, DataFetchingEnvironment env) {
+        return load(env, MEMBER, order.memberId());
+    }
+
+    @SchemaMapping(typeName = "Order")
+    public CompletableFuture<GraphDelivery> delivery(GraphOrder order, DataFetchingEnvironment env) {
+        return load(env, DELIVERY, order.deliveryId());
+    }
+
+    @SchemaMapping(typeName = "Order")
+    public CompletableFuture<List<GraphOrderItem>> orderItems(GraphOrder order, DataFetchingEnvironment env) {
+        return load(env, ORDER_ITEMS, order.id());
+    }
+
+    @SchemaMapping(typeName = "OrderItem")
+    public CompletableFuture<GraphOrder> order(GraphOrderItem orderItem, DataFetchingEnvironment env) {
+        return load(env, ORDER, orderItem.orderId());
+    }
+
+    @SchemaMapping(typeName = "OrderItem")
+    public CompletableFuture<GraphItem> item(GraphOrderItem orderItem, DataFetchingEnvironment env) {
+        return load(env, ITEM, orderItem.itemId());
+    }
+
+    @SchemaMapping(typeName = "Member")
+    public CompletableFuture<List<GraphOrder>> recentOrders(GraphMember member, DataFetchingEnvironment env) {
+        return load(env, MEMBER_ORDERS, member.id());
+    }
+
+    @SchemaMapping(typeName = "Item")
+    public CompletableFuture<List<GraphCategory>> categories(GraphItem item, DataFetchingEnvironment env) {
+        return load(env, ITEM_CATEGORIES, item.id());
+    }
+
+    @SchemaMapping(typeName = "Category")
+    public CompletableFuture<GraphCategory> parent(GraphCategory category, DataFetchingEnvironment env) {
+        return load(env, CATEGORY, category.parentId());
+    }
+
+    @SchemaMapping(typeName = "Category")
+    public CompletableFuture<List<GraphCategory>> children(GraphCategory category, DataFetchingEnvironment env) {
+        return load(env, CATEGORY_CHILDREN, category.id());
+    }
+
+    @SchemaMapping(typeName = "Category")
+    public CompletableFuture<List<GraphItem>> items(GraphCategory category, DataFetchingEnvironment env) {
+        return load(env, CATEGORY_ITEMS, category.id());
+    }
+
+    private int pageSize(Integer first) {
+        int size = first == null ? 20 : first;
+        return Math.max(1, Math.min(size, properties.getMaxPageSize()));
+    }
+
+    private <V> void register(BatchLoaderRegistry registry, String name, Function<Set<Long>, Map<Long, V>> loader) {
+        registry.<Long, V>forName(name)
+                .withOptions(options -> options.setMaxBatchSize(properties.getBatchSize()))
+                .registerMappedBatchLoader((ids, env) ->
+                        Mono.fromCallable(() -> readOnlyLoading.load(() -> loader.apply(ids))));
+    }
+
+    private static <V> CompletableFuture<V> load(DataFetchingEnvironment env, String name, Long id) {
+        if (id == null) {
+            return CompletableFuture.completedFuture(null);
+        }
+        DataLoader<Long, V> loader = env.getDataLoader(name);
+        return loader.load(id);
+    }
+
+    private static <V> Map<Long, V> byId(List<V> nodes, Function<V, Long> id) {
+        return nodes.stream().collect(Collectors.toMap(id, Function.identity(), (a, b) -> a));
+    }
+
+    private static <V> Map<Long, List<V>> orEmpty(Set<Long> ids, Map<Long, List<V>> found) {
+        Map<Long, List<V>> result = new HashMap<>(found);
+        ids.forEach(id -> result.putIfAbsent(id, List.of()));
+        return result;
+    }
+}
@@ -0,0 +1,31 @@
+package jpabook.jpashop.config;
+
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.converter.cbor.MappingJackson2CborHttpMessageConverter;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.http.converter.smile.MappingJackson2SmileHttpMessageConverter;
+
+/**
+ * 바이너리 응답 포맷 설정
+ * 내부 서비스가 Accept 헤더로 application/x-jackson-smile 이나 application/cbor 를 요청하면
+ * JSON 대신 바이너리로 응답한다. Accept가 없거나 *&#47;* 이면 지금처럼 JSON이 기본이다.
+ *
+ * 스프링 부트가 만들어주는 Jackson2ObjectMapperBuilder를 그대로 사용하므로
+ * JSON과 같은 모듈(LocalDateTime, Hibernate5 모듈 등)과 설정이 적용된다.
+ */
+@Configuration
+public class BinaryFormatConfig {
+
+    @Bean
+    public MappingJackson2SmileHttpMessageConverter smileHttpMessageConverter(Jackson2ObjectMapperBuilder builder) {
+        return new MappingJackson2SmileHttpMessageConverter(builder.factory(new SmileFactory()).build());
+    }
+
+    @Bean
+    public MappingJackson2CborHttpMessageConverter cborHttpMessageConverter(Jackson2ObjectMapperBuilder builder) {
+        return new MappingJackson2CborHttpMessageConverter(builder.factory(new CBORFactory()).build());
+    }
+}
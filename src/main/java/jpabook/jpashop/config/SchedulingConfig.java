@@ -0,0 +1,10 @@
+package jpabook.jpashop.config;
+
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.EnableScheduling;
+
+//@Scheduled 작업 활성화 (주문 보관 등)
+@Configuration
+@EnableScheduling
+public class SchedulingConfig {
+}
@@ -0,0 +1,38 @@
+package jpabook.jpashop.config.admission;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.availability.ApplicationAvailability;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.Ordered;
+
+/**
+ * 부하 제한 (jpashop.admission.enabled)
+ * 급증한 요청이 커넥션 풀 대기(Hikari connectionTimeout 30초)로 쌓여서 모두가 느려지는 대신,
+ * 한도를 넘는 요청은 바로 거절해서 받아들인 요청의 지연을 지킨다.
+ * - route class별 동시 처리 한도: AdmissionControlFilter (503)
+ * - 회원별 주문 속도, 호출자별 일괄 작업 속도: MemberOrderRateLimiter (429), 주문/일괄 작업 컨트롤러에서 호출
+ */
+@Configuration
+@EnableConfigurationProperties(AdmissionProperties.class)
+public class AdmissionConfig {
+
+    @Bean
+    public MemberOrderRateLimiter memberOrderRateLimiter(AdmissionProperties properties, MeterRegistry registry) {
+        return new MemberOrderRateLimiter(properties, registry);
+    }
+
+    @Bean
+    @ConditionalOnProperty(prefix = "jpashop.admission", name = "enabled", havingValue = "true")
+    public FilterRegistrationBean<AdmissionControlFilter> admissionControlFilter(AdmissionProperties properties,
+                                                                                MeterRegistry registry,
+                                                                                ApplicationAvailability availability) {
+        FilterRegistrationBean<AdmissionControlFilter> registration =
+                new FilterRegistrationBean<>(new AdmissionControlFilter(properties, registry, availability));
+        registration.setOrder(Ordered.HIGHEST_PRECEDENCE + 10); //다른 필터 작업도 하기 전에 거절
+        return registration;
+    }
+}
@@ -0,0 +1,114 @@
+package jpabook.jpashop.config.admission;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.boot.availability.ApplicationAvailability;
+import org.springframework.boot.availability.ReadinessState;
+import org.springframework.http.HttpHeaders;
+import org.springframework.util.AntPathMatcher;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * route class별 동시 처리 한도 (checkout, heavy-read 등)
+ * 요청을 설정한 패턴으로 분류해서 해당 AimdLimiter에서 자리를 얻고, 못 얻으면 컨트롤러/트랜잭션/커넥션 풀까지 가지 않고
+ * 바로 503 + Retry-After로 응답한다. 분류되지 않은 요청은 제한하지 않는다.
+ * 처리 시간과 결과(5xx/예외)로 한도를 조정한다.
+ * readiness가 ACCEPTING_TRAFFIC이 아닐 때(시작 워밍업 중)의 요청은 제한하지도, 한도에 반영하지도 않는다.
+ * 로드밸런서는 이때 트래픽을 보내지 않으므로 자기 자신을 부르는 워밍업 호출이고, 그 콜드 지연으로 한도를 줄이면 안 된다.
+ *
+ * 메트릭: admission.limit / admission.inflight (gauge), admission.rejected (counter, reason=concurrency) - route 태그
+ */
+public class AdmissionControlFilter extends OncePerRequestFilter {
+
+    private final AntPathMatcher pathMatcher = new AntPathMatcher();
+    private final List<RouteClass> routes = new ArrayList<>();
+    private final ApplicationAvailability availability;
+
+    public AdmissionControlFilter(AdmissionProperties properties, MeterRegistry registry,
+                                  ApplicationAvailability availability) {
+        this.availability = availability;
+        for (Map.Entry<String, AdmissionProperties.Route> entry : properties.getRoutes().entrySet()) {
+            routes.add(new RouteClass(entry.getKey(), entry.getValue(), registry));
+        }
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        RouteClass route = classify(request);
+        if (route == null || availability.getReadinessState() != ReadinessState.ACCEPTING_TRAFFIC) {
+            filterChain.doFilter(request, response);
+            return;
+        }
+        int inflight = route.limiter.tryAcquire();
+        if (inflight < 0) {
+            route.rejected.increment();
+            response.setStatus(HttpServletResponse.SC_SERVICE_UNAVAILABLE);
+            response.setHeader(HttpHeaders.RETRY_AFTER, String.valueOf(route.retryAfterSeconds));
+            response.setContentType("text/plain;charset=UTF-8");
+            response.getWriter().write("server busy (" + route.name + ")");
+            return;
+        }
+        long start = System.nanoTime();
+        boolean failed = true;
+        try {
+            filterChain.doFilter(request, response);
+            failed = response.getStatus() >= 500;
+        } finally {
+            route.limiter.release(inflight, start, System.nanoTime(), failed);
+        }
+    }
+
+    private RouteClass classify(HttpServletRequest request) {
+        String method = request.getMethod();
+        String path = request.getRequestURI().substring(request.getContextPath().length());
+        for (RouteClass route : routes) {
+            if (route.matches(pathMatcher, method, path)) {
+                return route;
+            }
+        }
+        return null;
+    }
+
+    private static class RouteClass {
+        final String name;
+        final List<String[]> patterns = new ArrayList<>(); //[method, path]
+        final AimdLimiter limiter;
+        final long retryAfterSeconds;
+        final Counter rejected;
+
+        RouteClass(String name, AdmissionProperties.Route route, MeterRegistry registry) {
+            this.name = name;
+            for (String pattern : route.getPatterns()) {
+                String[] parts = pattern.trim().split("\\s+", 2);
+                patterns.add(parts.length == 2 ? parts : new String[]{null, parts[0]});
+            }
+            this.limiter = new AimdLimiter(route);
+            this.retryAfterSeconds = AdmissionRejectedException.retryAfterSeconds(route.getRetryAfter());
+            Gauge.builder("admission.limit", limiter, AimdLimiter::limit).tag("route", name).register(registry);
+            Gauge.builder("admission.inflight", limiter, AimdLimiter::inflight).tag("route", name).register(registry);
+            this.rejected = Counter.builder("admission.rejected")
+                    .tag("route", name).tag("reason", "concurrency")
+                    .register(registry);
+        }
+
+        boolean matches(AntPathMatcher matcher, String method, String path) {
+            for (String[] pattern : patterns) {
+                if ((pattern[0] == null || pattern[0].equalsIgnoreCase(method)) && matcher.match(pattern[1], path)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+}
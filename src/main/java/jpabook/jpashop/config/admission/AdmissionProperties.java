@@ -0,0 +1,48 @@
+package jpabook.jpashop.config.admission;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+//jpashop.admission.* 설정 (application.yml 참고)
+@Getter @Setter
+@ConfigurationProperties(prefix = "jpashop.admission")
+public class AdmissionProperties {
+
+    private boolean enabled;
+    private Map<String, Route> routes = new LinkedHashMap<>(); //route class 이름 -> 설정
+    private Rate memberRate = new Rate(); //주문 생성 - 회원별
+    private Rate bulkRate = Rate.of(2, 0.1); //일괄 작업 - 호출자별
+
+    @Getter @Setter
+    public static class Route {
+        private List<String> patterns = new ArrayList<>(); //"POST /order", "GET /api/v1/orders" (경로는 Ant 패턴)
+        private int initialLimit = 20; //동시 처리 한도 시작값
+        private int minLimit = 1;
+        private int maxLimit = 100;
+        private Duration latencyThreshold = Duration.ofMillis(500); //이보다 느리거나 5xx면 한도를 줄인다
+        private double backoff = 0.9; //줄일 때 곱하는 비율
+        private Duration retryAfter = Duration.ofSeconds(1); //503 Retry-After
+    }
+
+    @Getter @Setter
+    public static class Rate {
+        private boolean enabled = true;
+        private int capacity = 5; //한 번에 몰아서 할 수 있는 요청 수
+        private double refillPerSecond = 1; //초당 채워지는 요청 수
+        private Duration idleExpiry = Duration.ofMinutes(10); //이만큼 안 쓴 버킷은 정리
+
+        static Rate of(int capacity, double refillPerSecond) {
+            Rate rate = new Rate();
+            rate.setCapacity(capacity);
+            rate.setRefillPerSecond(refillPerSecond);
+            return rate;
+        }
+    }
+}
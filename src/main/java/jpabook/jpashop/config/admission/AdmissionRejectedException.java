@@ -0,0 +1,38 @@
+package jpabook.jpashop.config.admission;
+
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.time.Duration;
+
+//부하 제한으로 거절 - 스프링 MVC가 상태 코드와 Retry-After 헤더로 응답한다
+public class AdmissionRejectedException extends ResponseStatusException {
+
+    private final long retryAfterSeconds;
+
+    private AdmissionRejectedException(HttpStatus status, String reason, Duration retryAfter) {
+        super(status, reason);
+        this.retryAfterSeconds = retryAfterSeconds(retryAfter);
+    }
+
+    public static AdmissionRejectedException tooManyRequests(Duration retryAfter) {
+        return new AdmissionRejectedException(HttpStatus.TOO_MANY_REQUESTS, "order rate limit exceeded", retryAfter);
+    }
+
+    public long getRetryAfterSeconds() {
+        return retryAfterSeconds;
+    }
+
+    @Override
+    public HttpHeaders getHeaders() {
+        HttpHeaders headers = new HttpHeaders();
+        headers.set(HttpHeaders.RETRY_AFTER, String.valueOf(retryAfterSeconds));
+        return headers;
+    }
+
+    //Retry-After는 초 단위 정수 - 올림, 최소 1초
+    static long retryAfterSeconds(Duration retryAfter) {
+        return Math.max(1, (retryAfter.toMillis() + 999) / 1000);
+    }
+}
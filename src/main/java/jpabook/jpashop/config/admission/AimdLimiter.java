@@ -0,0 +1,89 @@
+package jpabook.jpashop.config.admission;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * AIMD 동시 처리 한도 (route class 하나)
+ * - 한도만큼 처리 중이면 바로 거절한다. (커넥션 풀 앞에서 줄 서지 않게)
+ * - 응답이 latency threshold 안에 오면 한도를 조금씩 올린다. (한도의 절반 이상을 쓰고 있을 때만, 한 바퀴에 +1 정도)
+ * - 느리거나 5xx/예외면 한도에 backoff를 곱해서 줄인다. 단 마지막으로 줄인 뒤에 시작한 요청일 때만 줄인다.
+ *   (느려진 순간 처리 중이던 요청 N개가 모두 느리게 끝나도 한 바퀴에 한번만 줄인다. 아니면 backoff^N으로 minLimit까지 떨어진다)
+ * 한도는 double 비트를 AtomicLong에 넣어 CAS로 바꾼다.
+ */
+class AimdLimiter {
+
+    private final AtomicInteger inflight = new AtomicInteger();
+    private final AtomicLong limitBits;
+    private final AtomicLong lastDecreaseNanos = new AtomicLong(System.nanoTime());
+    private final int minLimit;
+    private final int maxLimit;
+    private final long thresholdNanos;
+    private final double backoff;
+
+    AimdLimiter(AdmissionProperties.Route route) {
+        this.minLimit = Math.max(1, route.getMinLimit());
+        this.maxLimit = Math.max(minLimit, route.getMaxLimit());
+        this.thresholdNanos = route.getLatencyThreshold().toNanos();
+        this.backoff = route.getBackoff();
+        double initial = Math.max(minLimit, Math.min(route.getInitialLimit(), maxLimit));
+        this.limitBits = new AtomicLong(Double.doubleToRawLongBits(initial));
+    }
+
+    //받으면 그때 처리 중이던 수(자기 포함), 거절이면 -1
+    int tryAcquire() {
+        while (true) {
+            int current = inflight.get();
+            if (current >= (int) limit()) {
+                return -1;
+            }
+            if (inflight.compareAndSet(current, current + 1)) {
+                return current + 1;
+            }
+        }
+    }
+
+    //startNanos, endNanos: System.nanoTime()
+    void release(int inflightAtStart, long startNanos, long endNanos, boolean failed) {
+        inflight.decrementAndGet();
+        if (failed || endNanos - startNanos > thresholdNanos) {
+            decrease(startNanos, endNanos);
+            return;
+        }
+        if (inflightAtStart * 2 < limit()) {
+            return;
+        }
+        while (true) {
+            long bits = limitBits.get();
+            double limit = Double.longBitsToDouble(bits);
+            double next = Math.min(maxLimit, limit + 1.0 / limit); //성공 한 건에 1/한도 - 한도만큼 성공하면 +1
+            if (next == limit || limitBits.compareAndSet(bits, Double.doubleToRawLongBits(next))) {
+                return;
+            }
+        }
+    }
+
+    private void decrease(long startNanos, long endNanos) {
+        long last = lastDecreaseNanos.get();
+        //이 요청이 시작한 뒤에 이미 줄였거나, 다른 스레드가 먼저 줄이기로 했으면 넘어간다
+        if (startNanos - last <= 0 || !lastDecreaseNanos.compareAndSet(last, endNanos)) {
+            return;
+        }
+        while (true) {
+            long bits = limitBits.get();
+            double limit = Double.longBitsToDouble(bits);
+            double next = Math.max(minLimit, limit * backoff);
+            if (next == limit || limitBits.compareAndSet(bits, Double.doubleToRawLongBits(next))) {
+                return;
+            }
+        }
+    }
+
+    double limit() {
+        return Double.longBitsToDouble(limitBits.get());
+    }
+
+    int inflight() {
+        return inflight.get();
+    }
+}
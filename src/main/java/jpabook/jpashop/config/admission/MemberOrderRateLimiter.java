@@ -0,0 +1,118 @@
+package jpabook.jpashop.config.admission;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.http.HttpServletRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.util.StringUtils;
+
+import java.time.Duration;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 회원별 주문 토큰 버킷
+ * 회원 하나가 capacity건까지는 몰아서 주문할 수 있고, 그 뒤로는 초당 refillPerSecond건.
+ * 넘으면 429 + Retry-After(다음 토큰까지 남은 초). 주문 트랜잭션/커넥션을 쓰기 전에 막는다.
+ * 일괄 작업(일괄 취소, 배송 일괄 변경)은 요청 하나가 주문 수만 건을 건드리므로 호출자(X-Client-Id, 없으면 원격 주소)별
+ * 버킷을 따로 둔다. (bulk-rate 설정)
+ * 오래 안 쓴 버킷(= 이미 가득 찬 버킷)은 주기적으로 지운다.
+ */
+public class MemberOrderRateLimiter {
+
+    static final String CLIENT_ID_HEADER = "X-Client-Id";
+
+    private final ConcurrentHashMap<Long, Bucket> buckets = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<String, Bucket> bulkBuckets = new ConcurrentHashMap<>();
+    private final boolean enabled;
+    private final boolean bulkEnabled;
+    private final AdmissionProperties.Rate memberRate;
+    private final AdmissionProperties.Rate bulkRate;
+    private final Counter rejected;
+    private final Counter bulkRejected;
+
+    public MemberOrderRateLimiter(AdmissionProperties properties, MeterRegistry registry) {
+        this.memberRate = properties.getMemberRate();
+        this.bulkRate = properties.getBulkRate();
+        this.enabled = properties.isEnabled() && memberRate.isEnabled();
+        this.bulkEnabled = properties.isEnabled() && bulkRate.isEnabled();
+        this.rejected = Counter.builder("admission.rejected")
+                .tag("route", "checkout").tag("reason", "member-rate")
+                .register(registry);
+        this.bulkRejected = Counter.builder("admission.rejected")
+                .tag("route", "bulk").tag("reason", "client-rate")
+                .register(registry);
+    }
+
+    //주문 전에 호출 - 토큰이 없으면 AdmissionRejectedException(429)
+    public void acquire(Long memberId) {
+        if (!enabled || memberId == null) {
+            return;
+        }
+        take(buckets.computeIfAbsent(memberId, id -> new Bucket(memberRate)), rejected);
+    }
+
+    //일괄 작업 전에 호출 - 토큰이 없으면 AdmissionRejectedException(429)
+    public void acquireBulk(HttpServletRequest request) {
+        if (!bulkEnabled) {
+            return;
+        }
+        take(bulkBuckets.computeIfAbsent(clientKey(request), key -> new Bucket(bulkRate)), bulkRejected);
+    }
+
+    private static void take(Bucket bucket, Counter rejected) {
+        long waitNanos = bucket.take(System.nanoTime());
+        if (waitNanos > 0) {
+            rejected.increment();
+            throw AdmissionRejectedException.tooManyRequests(Duration.ofNanos(waitNanos));
+        }
+    }
+
+    private static String clientKey(HttpServletRequest request) {
+        String clientId = request.getHeader(CLIENT_ID_HEADER);
+        return StringUtils.hasText(clientId) ? "client:" + clientId : "addr:" + request.getRemoteAddr();
+    }
+
+    @Scheduled(fixedDelayString = "PT1M")
+    public void evictIdle() {
+        long now = System.nanoTime();
+        buckets.values().removeIf(bucket -> bucket.idle(now));
+        bulkBuckets.values().removeIf(bucket -> bucket.idle(now));
+    }
+
+    private static class Bucket {
+        private final double capacity;
+        private final double refillPerNano;
+        private final long idleExpiryNanos;
+        private double tokens;
+        private long updatedNanos = System.nanoTime();
+        private long lastTakeNanos = updatedNanos;
+
+        Bucket(AdmissionProperties.Rate rate) {
+            this.capacity = rate.getCapacity();
+            this.refillPerNano = Math.max(rate.getRefillPerSecond(), 0.001) / 1e9;
+            this.idleExpiryNanos = rate.getIdleExpiry().toNanos();
+            this.tokens = capacity;
+        }
+
+        //토큰을 하나 쓰면 0, 모자라면 다음 토큰까지 남은 나노초 (같은 회원의 동시 주문끼리만 경쟁한다)
+        synchronized long take(long now) {
+            refill(now);
+            lastTakeNanos = now;
+            if (tokens >= 1) {
+                tokens -= 1;
+                return 0;
+            }
+            return (long) Math.ceil((1 - tokens) / refillPerNano);
+        }
+
+        synchronized boolean idle(long now) {
+            refill(now);
+            return tokens >= capacity && now - lastTakeNanos >= idleExpiryNanos;
+        }
+
+        private void refill(long now) {
+            tokens = Math.min(capacity, tokens + (now - updatedNanos) * refillPerNano);
+            updatedNanos = now;
+        }
+    }
+}
@@ -0,0 +1,125 @@
+package jpabook.jpashop.config.datasource;
+
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.metrics.micrometer.MicrometerMetricsTrackerFactory;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.hibernate.cfg.AvailableSettings;
+import org.hibernate.resource.jdbc.spi.PhysicalConnectionHandlingMode;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.boot.jdbc.DataSourceBuilder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+
+import javax.sql.DataSource;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 읽기/쓰기 DataSource 분리
+ * jpashop.datasource.routing.enabled=true 일 때만 동작한다. (기본은 기존처럼 DataSource 하나)
+ *
+ * primary: spring.datasource 설정 그대로
+ * replica: jpashop.datasource.routing.replicas 목록 (로컬에서는 H2 인스턴스를 하나 더 띄워서 사용)
+ *
+ * 커넥션 풀마다 이름(primary, replica-0, ...)을 붙이고 Micrometer를 연결해서
+ * hikaricp.connections.acquire / usage 등의 메트릭을 대상별로 볼 수 있다.
+ * 라우팅 횟수는 jpashop.datasource.route, 복제본 지연은 jpashop.datasource.replica.lag.
+ *
+ * 커넥션은 트랜잭션이 끝날 때마다 돌려준다. (Hibernate 기본은 EntityManager가 닫힐 때까지 보관)
+ * OSIV로 요청 하나가 EntityManager 하나를 쓰면, 먼저 읽기 트랜잭션이 얻은 복제본 커넥션으로
+ * 뒤의 쓰기 트랜잭션까지 실행되기 때문이다. 트랜잭션마다 새로 얻으면 매번 다시 라우팅된다.
+ */
+@Configuration
+@EnableConfigurationProperties(RoutingDataSourceProperties.class)
+@ConditionalOnProperty(prefix = "jpashop.datasource.routing", name = "enabled", havingValue = "true")
+public class DataSourceRoutingConfig {
+
+    //커넥션 풀은 빈으로 등록하지 않는다. DataSource 빈은 p6spy가 감싸므로 풀마다 SQL 로그가 한번 더 남는다
+    //primary와 복제본 풀은 ReplicaLagMonitor가 닫는다
+    @Bean
+    public ReplicaLagMonitor replicaLagMonitor(DataSourceProperties dataSourceProperties,
+                                               RoutingDataSourceProperties properties,
+                                               MeterRegistry registry) {
+        HikariDataSource primary = dataSourceProperties.initializeDataSourceBuilder()
+                .type(HikariDataSource.class)
+                .build();
+        return new ReplicaLagMonitor(withMetrics(primary, ReadWriteRoutingDataSource.PRIMARY, registry),
+                replicaDataSources(dataSourceProperties, properties, registry), properties, registry);
+    }
+
+    //p6spy는 이 빈을 감싸므로 SQL 로그는 실제로 고른 대상의 커넥션에서 남는다
+    @Bean
+    public ReadWriteRoutingDataSource routingDataSource(ReplicaLagMonitor replicaLagMonitor,
+                                                       RoutingDataSourceProperties properties,
+                                                       MeterRegistry registry) {
+        DataSource primaryDataSource = replicaLagMonitor.primaryDataSource();
+        Map<Object, Object> targets = new HashMap<>(replicaLagMonitor.replicaDataSources());
+        targets.put(ReadWriteRoutingDataSource.PRIMARY, primaryDataSource);
+
+        ReadWriteRoutingDataSource routing = new ReadWriteRoutingDataSource(
+                new ArrayList<>(replicaLagMonitor.replicaDataSources().keySet()), replicaLagMonitor,
+                properties.getMaxLag().toMillis(), registry);
+        routing.setTargetDataSources(targets);
+        routing.setDefaultTargetDataSource(primaryDataSource);
+        return routing;
+    }
+
+    //readOnly 여부는 트랜잭션 시작 이후에 정해지므로 실제 커넥션은 첫 쿼리 시점에 얻는다
+    @Bean
+    @Primary
+    public DataSource dataSource(@Qualifier("routingDataSource") DataSource routingDataSource) {
+        return new LazyConnectionDataSourceProxy(routingDataSource);
+    }
+
+    @Bean
+    public static DecoratorExclusion lazyDataSourceDecoratorExclusion() {
+        return new DecoratorExclusion("dataSource");
+    }
+
+    @Bean
+    public HibernatePropertiesCustomizer routingConnectionHandling() {
+        return hibernateProperties -> hibernateProperties.put(AvailableSettings.CONNECTION_HANDLING,
+                PhysicalConnectionHandlingMode.DELAYED_ACQUISITION_AND_RELEASE_AFTER_TRANSACTION);
+    }
+
+    @Bean
+    public RoutingClientFilter routingClientFilter() {
+        return new RoutingClientFilter();
+    }
+
+    private Map<String, DataSource> replicaDataSources(DataSourceProperties dataSourceProperties,
+                                                       RoutingDataSourceProperties properties,
+                                                       MeterRegistry registry) {
+        Map<String, DataSource> replicas = new LinkedHashMap<>();
+        List<RoutingDataSourceProperties.Replica> configs = properties.getReplicas();
+        for (int i = 0; i < configs.size(); i++) {
+            RoutingDataSourceProperties.Replica config = configs.get(i);
+            String key = "replica-" + i;
+            HikariDataSource dataSource = DataSourceBuilder.create()
+                    .type(HikariDataSource.class)
+                    .driverClassName(dataSourceProperties.determineDriverClassName())
+                    .url(config.getUrl())
+                    .username(config.getUsername() != null ? config.getUsername() : dataSourceProperties.determineUsername())
+                    .password(config.getPassword() != null ? config.getPassword() : dataSourceProperties.determinePassword())
+                    .build();
+            dataSource.setReadOnly(true);
+            replicas.put(key, withMetrics(dataSource, key, registry));
+        }
+        return replicas;
+    }
+
+    private static HikariDataSource withMetrics(HikariDataSource dataSource, String poolName, MeterRegistry registry) {
+        dataSource.setPoolName(poolName);
+        dataSource.setMetricsTrackerFactory(new MicrometerMetricsTrackerFactory(registry));
+        return dataSource;
+    }
+}
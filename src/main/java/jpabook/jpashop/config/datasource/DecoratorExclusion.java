@@ -0,0 +1,33 @@
+package jpabook.jpashop.config.datasource;
+
+import com.github.gavlyukovskiy.boot.jdbc.decorator.DataSourceDecoratorProperties;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+
+import java.util.ArrayList;
+import java.util.Collection;
+
+/**
+ * LazyConnectionDataSourceProxy 빈을 p6spy 데코레이터에서 제외한다.
+ * p6spy는 getConnection() 직후 getMetaData()를 호출하므로, 지연 프록시를 감싸면 트랜잭션 시작 시점에
+ * 실제 커넥션을 얻어버린다. 그러면 readOnly 여부나 샤드가 정해지기 전에 대상이 골라진다.
+ * 대신 프록시 안쪽의 라우팅 DataSource 빈을 감싸서 SQL 로그를 남긴다.
+ */
+public class DecoratorExclusion implements BeanPostProcessor {
+
+    private final String beanName;
+
+    public DecoratorExclusion(String beanName) {
+        this.beanName = beanName;
+    }
+
+    @Override
+    public Object postProcessAfterInitialization(Object bean, String name) {
+        if (bean instanceof DataSourceDecoratorProperties properties
+                && !properties.getExcludeBeans().contains(beanName)) {
+            Collection<String> excluded = new ArrayList<>(properties.getExcludeBeans());
+            excluded.add(beanName);
+            properties.setExcludeBeans(excluded);
+        }
+        return bean;
+    }
+}
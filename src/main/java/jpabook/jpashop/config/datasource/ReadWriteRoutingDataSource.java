@@ -0,0 +1,74 @@
+package jpabook.jpashop.config.datasource;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * readOnly 트랜잭션은 복제본(replica)으로, 나머지는 primary로 보내는 DataSource
+ *
+ * - 복제본이 여러 개면 라운드 로빈으로 고르고, 지연이 큰(ReplicaLagMonitor) 복제본은 건너뛴다.
+ * - 모든 복제본이 지연/장애 상태면 primary로 보낸다.
+ * - 쓰기 직후 같은 클라이언트의 읽기는 primary로 보낸다. (RoutingContext)
+ *
+ * 주의: 트랜잭션 시작 시점에는 아직 readOnly 여부가 동기화되지 않았으므로
+ * 반드시 LazyConnectionDataSourceProxy로 감싸서 실제 쿼리 시점에 커넥션을 얻게 해야 한다.
+ */
+public class ReadWriteRoutingDataSource extends AbstractRoutingDataSource {
+
+    public static final String PRIMARY = "primary";
+
+    private final List<String> replicaKeys;
+    private final ReplicaLagMonitor lagMonitor;
+    private final long pinMillis;
+    private final AtomicInteger next = new AtomicInteger();
+    private final Map<String, Counter> routeCounters = new HashMap<>();
+
+    public ReadWriteRoutingDataSource(List<String> replicaKeys, ReplicaLagMonitor lagMonitor,
+                                      long pinMillis, MeterRegistry registry) {
+        this.replicaKeys = replicaKeys;
+        this.lagMonitor = lagMonitor;
+        this.pinMillis = pinMillis;
+        routeCounters.put(PRIMARY, routeCounter(PRIMARY, registry));
+        replicaKeys.forEach(key -> routeCounters.put(key, routeCounter(key, registry)));
+    }
+
+    private static Counter routeCounter(String target, MeterRegistry registry) {
+        return Counter.builder("jpashop.datasource.route")
+                .tag("target", target)
+                .register(registry);
+    }
+
+    @Override
+    protected Object determineCurrentLookupKey() {
+        String target = selectTarget();
+        routeCounters.get(target).increment();
+        return target;
+    }
+
+    private String selectTarget() {
+        if (!TransactionSynchronizationManager.isCurrentTransactionReadOnly()) {
+            if (TransactionSynchronizationManager.isActualTransactionActive()) {
+                RoutingContext.markWrite();
+            }
+            return PRIMARY;
+        }
+        if (RoutingContext.isPinnedToPrimary(pinMillis)) {
+            return PRIMARY;
+        }
+        int size = replicaKeys.size();
+        for (int i = 0; i < size; i++) {
+            String key = replicaKeys.get(Math.floorMod(next.getAndIncrement(), size));
+            if (lagMonitor.isHealthy(key)) {
+                return key;
+            }
+        }
+        return PRIMARY;
+    }
+}
@@ -0,0 +1,130 @@
+package jpabook.jpashop.config.datasource;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import javax.sql.DataSource;
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 복제본 지연 감시
+ * primary의 replication_heartbeat 테이블에 주기적으로 현재 시각을 쓰고,
+ * 각 복제본에서 같은 행을 읽어 "지금 - 복제본에 보이는 시각"을 지연 시간으로 본다.
+ * 지연이 maxLag를 넘거나 조회에 실패한 복제본은 읽기 대상에서 빠진다.
+ *
+ * 첫 측정 전에는 모든 복제본을 비정상으로 보고 primary를 사용한다. (안전한 쪽으로)
+ */
+@Slf4j
+public class ReplicaLagMonitor implements InitializingBean, DisposableBean {
+
+    private static final long UNKNOWN = -1;
+
+    private final DataSource primaryDataSource;
+    private final JdbcTemplate primary;
+    private final Map<String, DataSource> replicaDataSources;
+    private final Map<String, JdbcTemplate> replicas = new ConcurrentHashMap<>();
+    private final Map<String, AtomicLong> lagMillis = new ConcurrentHashMap<>();
+    private final RoutingDataSourceProperties properties;
+    private final ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread thread = new Thread(r, "replica-lag-monitor");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    public ReplicaLagMonitor(DataSource primary, Map<String, DataSource> replicas,
+                             RoutingDataSourceProperties properties, MeterRegistry registry) {
+        this.primaryDataSource = primary;
+        this.primary = new JdbcTemplate(primary);
+        this.replicaDataSources = Collections.unmodifiableMap(new LinkedHashMap<>(replicas));
+        this.properties = properties;
+        replicas.forEach((key, dataSource) -> {
+            this.replicas.put(key, new JdbcTemplate(dataSource));
+            AtomicLong lag = new AtomicLong(UNKNOWN);
+            lagMillis.put(key, lag);
+            Gauge.builder("jpashop.datasource.replica.lag", lag, AtomicLong::get)
+                    .tag("target", key)
+                    .baseUnit("milliseconds")
+                    .register(registry);
+        });
+    }
+
+    @Override
+    public void afterPropertiesSet() {
+        if (!properties.isLagCheck()) {
+            return;
+        }
+        primary.execute("create table if not exists replication_heartbeat" +
+                " (id int primary key, beat_millis bigint not null)");
+        long interval = properties.getHeartbeatInterval().toMillis();
+        executor.scheduleWithFixedDelay(this::check, 0, interval, TimeUnit.MILLISECONDS);
+    }
+
+    public DataSource primaryDataSource() {
+        return primaryDataSource;
+    }
+
+    //라우팅 대상 복제본 (키: replica-0, replica-1, ...)
+    public Map<String, DataSource> replicaDataSources() {
+        return replicaDataSources;
+    }
+
+    public boolean isHealthy(String key) {
+        if (!properties.isLagCheck()) {
+            return true;
+        }
+        long lag = lagMillis.get(key).get();
+        return lag != UNKNOWN && lag <= properties.getMaxLag().toMillis();
+    }
+
+    private void check() {
+        long now = System.currentTimeMillis();
+        try {
+            primary.update("merge into replication_heartbeat key (id) values (1, ?)", now);
+        } catch (RuntimeException e) {
+            log.warn("heartbeat write failed on primary", e);
+            return;
+        }
+        replicas.forEach((key, replica) -> {
+            try {
+                Long beat = replica.queryForObject(
+                        "select beat_millis from replication_heartbeat where id = 1", Long.class);
+                lagMillis.get(key).set(beat == null ? UNKNOWN : Math.max(0, now - beat));
+            } catch (RuntimeException e) {
+                //테이블이 아직 복제되지 않았거나 복제본이 죽은 경우
+                lagMillis.get(key).set(UNKNOWN);
+                log.debug("replica {} lag check failed: {}", key, e.getMessage());
+            }
+        });
+    }
+
+    @Override
+    public void destroy() {
+        executor.shutdownNow();
+        //커넥션 풀은 빈이 아니라서 여기서 닫는다
+        replicaDataSources.values().forEach(this::close);
+        close(primaryDataSource);
+    }
+
+    private void close(DataSource dataSource) {
+        if (dataSource instanceof Closeable closeable) {
+            try {
+                closeable.close();
+            } catch (IOException e) {
+                log.warn("failed to close connection pool", e);
+            }
+        }
+    }
+}
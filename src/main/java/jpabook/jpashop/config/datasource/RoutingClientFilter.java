@@ -0,0 +1,44 @@
+package jpabook.jpashop.config.datasource;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import jakarta.servlet.http.HttpSession;
+import org.springframework.util.StringUtils;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+
+/**
+ * 요청마다 클라이언트를 RoutingContext에 묶고, 요청이 끝나면 스레드에서 지운다.
+ * 클라이언트 구분: 세션 id > X-Client-Id 헤더 > 원격 주소
+ * (원격 주소는 프록시 뒤에서 여러 클라이언트가 묶일 수 있지만, 그만큼 primary로 더 갈 뿐 틀린 데이터를 읽지는 않는다)
+ */
+class RoutingClientFilter extends OncePerRequestFilter {
+
+    static final String CLIENT_ID_HEADER = "X-Client-Id";
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        RoutingContext.bindClient(clientKey(request));
+        try {
+            filterChain.doFilter(request, response);
+        } finally {
+            RoutingContext.clear();
+        }
+    }
+
+    private String clientKey(HttpServletRequest request) {
+        HttpSession session = request.getSession(false);
+        if (session != null) {
+            return "session:" + session.getId();
+        }
+        String clientId = request.getHeader(CLIENT_ID_HEADER);
+        if (StringUtils.hasText(clientId)) {
+            return "client:" + clientId;
+        }
+        return "addr:" + request.getRemoteAddr();
+    }
+}
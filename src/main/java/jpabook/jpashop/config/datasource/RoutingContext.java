@@ -0,0 +1,80 @@
+package jpabook.jpashop.config.datasource;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * 클라이언트별 라우팅 상태 (read-your-writes)
+ * 쓰기 트랜잭션이 커넥션을 얻으면 시각을 기록해 두고, 그 뒤 일정 시간 동안은 같은 클라이언트의
+ * readOnly 트랜잭션도 primary로 보낸다.
+ * 예: 회원 수정 API에서 update() 직후 목록 API로 다시 조회하는 경우
+ *
+ * 스레드가 아니라 클라이언트(세션 id, X-Client-Id 헤더, 원격 주소 - RoutingClientFilter)를 기준으로 기억한다.
+ * 요청 스레드는 풀에서 재사용되므로 스레드로만 기억하면 다른 클라이언트가 고정되고,
+ * 같은 클라이언트의 다음 요청은 다른 스레드로 와서 고정이 풀린다.
+ * 클라이언트가 없는 스레드(스케줄 작업 등)는 스레드 안에서만 기억한다.
+ */
+public final class RoutingContext {
+
+    //기억할 클라이언트 수 - 넘치면 가장 오래 쓰지 않은 클라이언트부터 잊는다 (잊으면 복제본에서 읽을 뿐이다)
+    private static final int MAX_CLIENTS = 10_000;
+
+    private static final ThreadLocal<String> client = new ThreadLocal<>();
+    private static final ThreadLocal<Long> lastWriteMillis = new ThreadLocal<>();
+    private static final Map<String, Long> clientLastWrite = Collections.synchronizedMap(
+            new LinkedHashMap<>(16, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<String, Long> eldest) {
+                    return size() > MAX_CLIENTS;
+                }
+            });
+
+    private RoutingContext() {
+    }
+
+    //요청이 끝나면 반드시 clear()를 호출해야 한다
+    public static void bindClient(String clientKey) {
+        client.set(clientKey);
+    }
+
+    static void markWrite() {
+        long now = System.currentTimeMillis();
+        lastWriteMillis.set(now);
+        String clientKey = client.get();
+        if (clientKey != null) {
+            clientLastWrite.put(clientKey, now);
+        }
+    }
+
+    static boolean isPinnedToPrimary(long pinMillis) {
+        long now = System.currentTimeMillis();
+        Long lastWrite = lastWriteMillis.get();
+        if (lastWrite != null && now - lastWrite < pinMillis) {
+            return true;
+        }
+        String clientKey = client.get();
+        if (clientKey == null) {
+            return false;
+        }
+        Long clientWrite = clientLastWrite.get(clientKey);
+        if (clientWrite == null) {
+            return false;
+        }
+        if (now - clientWrite >= pinMillis) {
+            clientLastWrite.remove(clientKey, clientWrite);
+            return false;
+        }
+        return true;
+    }
+
+    //읽기지만 반드시 최신 데이터를 봐야 할 때 직접 호출해서 primary로 고정한다
+    public static void pinToPrimary() {
+        markWrite();
+    }
+
+    public static void clear() {
+        client.remove();
+        lastWriteMillis.remove();
+    }
+}
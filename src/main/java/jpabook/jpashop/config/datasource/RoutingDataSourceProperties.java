@@ -0,0 +1,28 @@
+package jpabook.jpashop.config.datasource;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+//jpashop.datasource.routing.* 설정 (application.yml 참고)
+@Getter @Setter
+@ConfigurationProperties(prefix = "jpashop.datasource.routing")
+public class RoutingDataSourceProperties {
+
+    private boolean enabled; //false면 지금처럼 spring.datasource 하나만 사용
+    private Duration maxLag = Duration.ofSeconds(5); //이보다 뒤처진 복제본은 읽기에서 제외
+    private Duration heartbeatInterval = Duration.ofSeconds(1); //지연 측정 주기
+    private boolean lagCheck = true; //false면 지연 측정 없이 복제본을 항상 정상으로 본다
+    private List<Replica> replicas = new ArrayList<>();
+
+    @Getter @Setter
+    public static class Replica {
+        private String url;
+        private String username;
+        private String password;
+    }
+}
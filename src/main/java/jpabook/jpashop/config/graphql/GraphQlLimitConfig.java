@@ -0,0 +1,50 @@
+package jpabook.jpashop.config.graphql;
+
+import graphql.analysis.FieldComplexityCalculator;
+import graphql.analysis.MaxQueryComplexityInstrumentation;
+import graphql.analysis.MaxQueryDepthInstrumentation;
+import graphql.execution.instrumentation.Instrumentation;
+import graphql.schema.GraphQLList;
+import graphql.schema.GraphQLType;
+import graphql.schema.GraphQLTypeUtil;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * GraphQL 쿼리 비용 제한
+ * DataLoader로 연관 단계마다 SQL은 한번이지만, 깊고 넓은 쿼리는 그 한번이 수십만 행을 읽을 수 있다.
+ * 실행 전에 쿼리 문서만 보고 깊이와 비용을 계산해서 넘으면 SQL을 하나도 보내지 않고 에러로 돌려준다.
+ * 스프링 부트가 Instrumentation 빈을 GraphQL 엔진에 등록해 준다.
+ *
+ * 비용 = 필드마다 1 + 하위 필드 비용 * 펼쳐지는 건수
+ * - 목록 필드에 first 인자가 있으면 그 값(최대 max-page-size), 없으면 list-fan-out 으로 본다.
+ * - 단건 필드(member, item 등)는 하위 비용을 그대로 더한다.
+ */
+@Configuration
+@EnableConfigurationProperties(ShopGraphQlProperties.class)
+public class GraphQlLimitConfig {
+
+    @Bean
+    public Instrumentation maxQueryDepthInstrumentation(ShopGraphQlProperties properties) {
+        return new MaxQueryDepthInstrumentation(properties.getMaxDepth());
+    }
+
+    @Bean
+    public Instrumentation maxQueryComplexityInstrumentation(ShopGraphQlProperties properties) {
+        return new MaxQueryComplexityInstrumentation(properties.getMaxComplexity(), fieldComplexity(properties));
+    }
+
+    private FieldComplexityCalculator fieldComplexity(ShopGraphQlProperties properties) {
+        return (env, childComplexity) -> {
+            GraphQLType type = GraphQLTypeUtil.unwrapNonNull(env.getFieldDefinition().getType());
+            if (!(type instanceof GraphQLList)) {
+                return 1 + childComplexity;
+            }
+            int fanOut = env.getArguments().get("first") instanceof Integer first
+                    ? Math.min(Math.max(first, 0), properties.getMaxPageSize())
+                    : properties.getListFanOut();
+            return (int) Math.min(Integer.MAX_VALUE, 1L + (long) childComplexity * fanOut); //깊은 쿼리에서 int 넘침 방지
+        };
+    }
+}
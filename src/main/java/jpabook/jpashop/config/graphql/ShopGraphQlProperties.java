@@ -0,0 +1,18 @@
+package jpabook.jpashop.config.graphql;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+//jpashop.graphql.* 설정 (application.yml 참고)
+@Getter @Setter
+@ConfigurationProperties(prefix = "jpashop.graphql")
+public class ShopGraphQlProperties {
+
+    private int maxDepth = 8; //필드 중첩 깊이 제한
+    private int maxComplexity = 50000; //쿼리 비용 제한 (GraphQlLimitConfig 계산 방식)
+    private int listFanOut = 10; //first 인자가 없는 목록 필드(orderItems 등)가 항목 하나당 평균 몇 건으로 펼쳐진다고 볼지
+    private int maxPageSize = 100; //루트 목록 first 최대값
+    private int memberOrders = 20; //Member.recentOrders 회원당 최대 건수
+    private int batchSize = 1000; //DataLoader 한번에 in 쿼리로 보내는 키 수 (default_batch_fetch_size와 맞춘다)
+}
@@ -0,0 +1,92 @@
+package jpabook.jpashop.config.jdbc;
+
+import com.p6spy.engine.common.StatementInformation;
+import com.p6spy.engine.event.SimpleJdbcEventListener;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.sql.SQLException;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.regex.Pattern;
+
+/**
+ * 샘플링 SQL 로그 (p6spy 리스너, SAMPLED 모드에서만 동작)
+ * 요청 스레드에서는 남길지만 정하고 (실패 > 느림 > 확률 샘플) 링 버퍼에 넣고 끝낸다.
+ * 값 가리기, 포맷팅, 출력은 소비 스레드(sql-log-writer)가 "jpashop.sql" 로거로 한다.
+ * 바인딩 값을 채운 문장(getSqlWithValues)만 요청 스레드에서 만든다. 남기기로 한 문장만이라 드물다.
+ */
+public class SampledSqlLogListener extends SimpleJdbcEventListener {
+
+    private static final Logger sqlLog = LoggerFactory.getLogger("jpashop.sql");
+    private static final Pattern STRING = Pattern.compile("'(?:[^']|'')*'");
+    private static final Pattern NUMBER = Pattern.compile("(?<![\\w.])-?\\d+(?:\\.\\d+)?(?![\\w.])");
+
+    private final double sampleRate;
+    private final long slowNanos;
+    private final SqlLogProperties.Redaction redaction;
+    private final SqlLogRing<Entry> ring;
+    private volatile boolean active;
+
+    public SampledSqlLogListener(SqlLogProperties properties) {
+        this.sampleRate = properties.getSampleRate();
+        this.slowNanos = properties.getSlowThreshold().toNanos();
+        this.redaction = properties.getRedact();
+        this.ring = new SqlLogRing<>(properties.getBufferSize(), this::write, "sql-log-writer");
+    }
+
+    void setActive(boolean active) {
+        this.active = active;
+    }
+
+    public long dropped() {
+        return ring.dropped();
+    }
+
+    @Override
+    public void onAfterAnyExecute(StatementInformation info, long timeElapsedNanos, SQLException e) {
+        if (!active) {
+            return;
+        }
+        String reason;
+        if (e != null) {
+            reason = "error";
+        } else if (timeElapsedNanos >= slowNanos) {
+            reason = "slow";
+        } else if (sampleRate > 0 && ThreadLocalRandom.current().nextDouble() < sampleRate) {
+            reason = "sample";
+        } else {
+            return;
+        }
+        ring.offer(new Entry(reason, timeElapsedNanos, info.getConnectionInformation().getConnectionId(),
+                info.getSqlWithValues(), e == null ? null : e.getMessage()));
+    }
+
+    //소비 스레드
+    private void write(Entry entry) {
+        String sql = redact(entry.sql);
+        if (entry.error != null) {
+            sqlLog.warn("[{}] {} ms conn={} {} | {}", entry.reason, millis(entry.nanos), entry.connectionId, sql, entry.error);
+        } else {
+            sqlLog.info("[{}] {} ms conn={} {}", entry.reason, millis(entry.nanos), entry.connectionId, sql);
+        }
+    }
+
+    String redact(String sql) {
+        if (sql == null || redaction == SqlLogProperties.Redaction.NONE) {
+            return sql;
+        }
+        String masked = STRING.matcher(sql).replaceAll("'***'");
+        return redaction == SqlLogProperties.Redaction.ALL ? NUMBER.matcher(masked).replaceAll("?") : masked;
+    }
+
+    private static String millis(long nanos) {
+        return String.format("%.2f", nanos / 1_000_000.0);
+    }
+
+    public void shutdown() {
+        ring.close();
+    }
+
+    private record Entry(String reason, long nanos, int connectionId, String sql, String error) {
+    }
+}
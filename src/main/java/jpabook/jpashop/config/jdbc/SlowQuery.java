@@ -0,0 +1,78 @@
+package jpabook.jpashop.config.jdbc;
+
+import java.time.Instant;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+//지문 하나의 누적 통계 (여러 스레드가 락 없이 갱신한다)
+class SlowQuery {
+
+    final String fingerprint;
+    final String sql; //처음 본 문장 (바인딩 값 없이 ? 그대로)
+    final String caller; //처음 본 호출 위치 (리포지토리 메서드)
+    final Instant firstSeen = Instant.now();
+    final LongAdder count = new LongAdder();
+    final LongAdder totalNanos = new LongAdder();
+    final AtomicLong maxNanos = new AtomicLong();
+    final LongAdder fetchNanos = new LongAdder(); //ResultSet.next()에 쓴 시간
+    final LongAdder rows = new LongAdder(); //조회 행 수 또는 변경 행 수
+    final AtomicLong maxRows = new AtomicLong();
+    final LongAdder errors = new LongAdder();
+    private final AtomicBoolean explainClaimed = new AtomicBoolean();
+    volatile String plan;
+    volatile long lastSeenMillis;
+
+    SlowQuery(String fingerprint, String sql, String caller) {
+        this.fingerprint = fingerprint;
+        this.sql = sql;
+        this.caller = caller;
+    }
+
+    void add(long nanos, boolean failed) {
+        count.increment();
+        totalNanos.add(nanos);
+        maxNanos.accumulateAndGet(nanos, Math::max);
+        if (failed) {
+            errors.increment();
+        }
+        lastSeenMillis = System.currentTimeMillis();
+    }
+
+    void addRows(long count, long fetch) {
+        rows.add(count);
+        maxRows.accumulateAndGet(count, Math::max);
+        fetchNanos.add(fetch);
+    }
+
+    //EXPLAIN은 지문마다 한번만
+    boolean claimExplain() {
+        return explainClaimed.compareAndSet(false, true);
+    }
+
+    long maxNanos() {
+        return maxNanos.get();
+    }
+
+    Map<String, Object> toMap() {
+        long n = count.sum();
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("fingerprint", fingerprint);
+        result.put("sql", sql);
+        result.put("caller", caller);
+        result.put("count", n);
+        result.put("maxMillis", maxNanos.get() / 1_000_000.0);
+        result.put("avgMillis", n == 0 ? 0 : totalNanos.sum() / 1_000_000.0 / n);
+        result.put("totalMillis", totalNanos.sum() / 1_000_000.0);
+        result.put("fetchMillis", fetchNanos.sum() / 1_000_000.0);
+        result.put("avgRows", n == 0 ? 0 : (double) rows.sum() / n);
+        result.put("maxRows", maxRows.get());
+        result.put("errors", errors.sum());
+        result.put("firstSeen", firstSeen.toString());
+        result.put("lastSeen", Instant.ofEpochMilli(lastSeenMillis).toString());
+        result.put("plan", plan);
+        return result;
+    }
+}
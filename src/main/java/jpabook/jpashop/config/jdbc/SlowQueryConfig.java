@@ -0,0 +1,38 @@
+package jpabook.jpashop.config.jdbc;
+
+import jakarta.persistence.EntityManagerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import javax.sql.DataSource;
+
+/**
+ * 느린 쿼리 기록 (jpashop.slow-query.enabled, 기본 켜짐)
+ * 하이버네이트 통계(spring.jpa.properties.hibernate.generate_statistics)는 hibernate-micrometer가 있으면
+ * 스프링 부트가 hibernate.* 메트릭으로도 내보낸다.
+ */
+@Configuration
+@EnableConfigurationProperties(SlowQueryProperties.class)
+@ConditionalOnProperty(prefix = "jpashop.slow-query", name = "enabled", havingValue = "true", matchIfMissing = true)
+public class SlowQueryConfig {
+
+    @Bean
+    public SlowQueryRecorder slowQueryRecorder(SlowQueryProperties properties) {
+        return new SlowQueryRecorder(properties.getTopN());
+    }
+
+    @Bean(destroyMethod = "shutdown")
+    public SlowQueryListener slowQueryListener(SlowQueryRecorder recorder, SlowQueryProperties properties,
+                                               ObjectProvider<DataSource> dataSource) {
+        return new SlowQueryListener(recorder, properties, dataSource);
+    }
+
+    @Bean
+    public SlowQueryEndpoint slowQueryEndpoint(SlowQueryRecorder recorder, SlowQueryProperties properties,
+                                               EntityManagerFactory emf) {
+        return new SlowQueryEndpoint(recorder, properties, emf);
+    }
+}
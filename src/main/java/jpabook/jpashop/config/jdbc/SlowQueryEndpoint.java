@@ -0,0 +1,74 @@
+package jpabook.jpashop.config.jdbc;
+
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.springframework.boot.actuate.endpoint.annotation.DeleteOperation;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * /actuator/slowqueries
+ * GET: 느린 쿼리 상위 N개(지문, 호출 위치, 횟수/시간/행 수, 실행 계획) + 하이버네이트 통계 요약
+ * DELETE: 둘 다 초기화
+ */
+@Endpoint(id = "slowqueries")
+public class SlowQueryEndpoint {
+
+    private final SlowQueryRecorder recorder;
+    private final SlowQueryProperties properties;
+    private final EntityManagerFactory emf;
+
+    public SlowQueryEndpoint(SlowQueryRecorder recorder, SlowQueryProperties properties, EntityManagerFactory emf) {
+        this.recorder = recorder;
+        this.properties = properties;
+        this.emf = emf;
+    }
+
+    @ReadOperation
+    public Map<String, Object> slowQueries() {
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("thresholdMillis", properties.getThreshold().toMillis());
+        result.put("dropped", recorder.dropped());
+        result.put("evicted", recorder.evicted());
+        result.put("hibernate", hibernateStatistics());
+        result.put("queries", recorder.top());
+        return result;
+    }
+
+    @DeleteOperation
+    public void reset() {
+        recorder.reset();
+        statistics().clear();
+    }
+
+    private Map<String, Object> hibernateStatistics() {
+        Statistics statistics = statistics();
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("enabled", statistics.isStatisticsEnabled());
+        if (!statistics.isStatisticsEnabled()) {
+            return result;
+        }
+        result.put("queryExecutionCount", statistics.getQueryExecutionCount());
+        result.put("queryExecutionMaxTimeMillis", statistics.getQueryExecutionMaxTime());
+        result.put("queryExecutionMaxTimeQuery", statistics.getQueryExecutionMaxTimeQueryString());
+        result.put("queryPlanCacheHitCount", statistics.getQueryPlanCacheHitCount());
+        result.put("queryPlanCacheMissCount", statistics.getQueryPlanCacheMissCount());
+        result.put("prepareStatementCount", statistics.getPrepareStatementCount());
+        result.put("entityLoadCount", statistics.getEntityLoadCount());
+        result.put("entityFetchCount", statistics.getEntityFetchCount());
+        result.put("collectionLoadCount", statistics.getCollectionLoadCount());
+        result.put("collectionFetchCount", statistics.getCollectionFetchCount());
+        result.put("flushCount", statistics.getFlushCount());
+        result.put("transactionCount", statistics.getTransactionCount());
+        result.put("sessionOpenCount", statistics.getSessionOpenCount());
+        return result;
+    }
+
+    private Statistics statistics() {
+        return emf.unwrap(SessionFactory.class).getStatistics();
+    }
+}
@@ -0,0 +1,201 @@
+package jpabook.jpashop.config.jdbc;
+
+import com.p6spy.engine.common.PreparedStatementInformation;
+import com.p6spy.engine.common.ResultSetInformation;
+import com.p6spy.engine.common.StatementInformation;
+import com.p6spy.engine.event.SimpleJdbcEventListener;
+import jpabook.jpashop.config.shard.ShardContext;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Locale;
+import java.util.StringJoiner;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 느린 쿼리 기록 (p6spy 리스너)
+ * p6spy 스타터가 모든 DataSource를 감싸고 JdbcEventListener 빈을 호출해 준다.
+ *
+ * - 실행 시간이 threshold 미만이면 바로 끝낸다. (지문/스택 계산 없음)
+ * - 넘으면 지문별로 SlowQueryRecorder에 더하고, 처음 본 지문이면 호출한 리포지토리 메서드를 스택에서 찾고
+ *   EXPLAIN을 별도 스레드에서 실행해 실행 계획을 붙인다. (요청 스레드는 기다리지 않는다)
+ * - 조회 행 수/ResultSet 읽는 시간은 같은 스레드에서 이어지는 ResultSet 이벤트로 센다.
+ *
+ * EXPLAIN은 바인딩 값을 채운 문장으로 같은 샤드에서 실행하고, 결과(와 실패 메시지)의 리터럴 값은 ?로 가려서 남긴다.
+ * 그래도 테이블/인덱스 구조는 보이므로 /actuator/slowqueries 는 기본으로 노출하지 않는다.
+ */
+@Slf4j
+public class SlowQueryListener extends SimpleJdbcEventListener {
+
+    private final SlowQueryRecorder recorder;
+    private final SlowQueryProperties properties;
+    private final ObjectProvider<DataSource> dataSource; //DataSource를 감쌀 때 이 빈이 쓰이므로 지연 조회
+    private final long thresholdNanos;
+    private final ExecutorService explainExecutor;
+    private final ThreadLocal<Pending> pending = new ThreadLocal<>();
+
+    public SlowQueryListener(SlowQueryRecorder recorder, SlowQueryProperties properties,
+                             ObjectProvider<DataSource> dataSource) {
+        this.recorder = recorder;
+        this.properties = properties;
+        this.dataSource = dataSource;
+        this.thresholdNanos = properties.getThreshold().toNanos();
+        //EXPLAIN 대기열이 차면 버린다 (지문마다 한번뿐이라 거의 차지 않는다)
+        this.explainExecutor = new ThreadPoolExecutor(1, 1, 0, TimeUnit.MILLISECONDS, new ArrayBlockingQueue<>(100),
+                r -> {
+                    Thread thread = new Thread(r, "slow-query-explain");
+                    thread.setDaemon(true);
+                    return thread;
+                }, new ThreadPoolExecutor.DiscardPolicy());
+    }
+
+    @Override
+    public void onAfterAnyExecute(StatementInformation info, long timeElapsedNanos, SQLException e) {
+        pending.remove();
+        if (timeElapsedNanos < thresholdNanos) {
+            return;
+        }
+        String sql = info.getSql();
+        if (sql == null || sql.regionMatches(true, 0, "explain", 0, 7)) {
+            return;
+        }
+        SlowQuery query = recorder.record(SqlFingerprint.of(sql), sql, timeElapsedNanos, e != null,
+                SlowQueryListener::caller);
+        if (query == null) {
+            return;
+        }
+        pending.set(new Pending(query, info));
+        if (properties.isExplain() && e == null && explainable(sql) && query.claimExplain()) {
+            String sqlWithValues = info.getSqlWithValues();
+            int shard = ShardContext.current();
+            explainExecutor.execute(() -> explain(query, sqlWithValues, shard));
+        }
+    }
+
+    @Override
+    public void onAfterExecuteUpdate(PreparedStatementInformation info, long timeElapsedNanos,
+                                     int rowCount, SQLException e) {
+        super.onAfterExecuteUpdate(info, timeElapsedNanos, rowCount, e);
+        addRows(rowCount, 0);
+    }
+
+    @Override
+    public void onAfterExecuteUpdate(StatementInformation info, long timeElapsedNanos, String sql, int rowCount,
+                                     SQLException e) {
+        super.onAfterExecuteUpdate(info, timeElapsedNanos, sql, rowCount, e);
+        addRows(rowCount, 0);
+    }
+
+    @Override
+    public void onAfterExecuteBatch(StatementInformation info, long timeElapsedNanos, int[] updateCounts, SQLException e) {
+        super.onAfterExecuteBatch(info, timeElapsedNanos, updateCounts, e);
+        long rows = 0;
+        if (updateCounts != null) {
+            for (int count : updateCounts) {
+                rows += Math.max(count, 0);
+            }
+        }
+        addRows(rows, 0);
+    }
+
+    @Override
+    public void onAfterResultSetNext(ResultSetInformation info, long timeElapsedNanos, boolean hasNext, SQLException e) {
+        Pending current = pending.get();
+        if (current != null && current.statement == info.getStatementInformation()) {
+            current.fetchNanos += timeElapsedNanos;
+            if (hasNext) {
+                current.rows++;
+            }
+        }
+    }
+
+    @Override
+    public void onAfterResultSetClose(ResultSetInformation info, SQLException e) {
+        Pending current = pending.get();
+        if (current != null && current.statement == info.getStatementInformation()) {
+            pending.remove();
+            current.query.addRows(current.rows, current.fetchNanos);
+        }
+    }
+
+    private void addRows(long rows, long fetchNanos) {
+        Pending current = pending.get();
+        if (current != null) {
+            pending.remove();
+            current.query.addRows(rows, fetchNanos);
+        }
+    }
+
+    private static boolean explainable(String sql) {
+        String head = sql.stripLeading().toLowerCase(Locale.ROOT);
+        return head.startsWith("select") || head.startsWith("with") || head.startsWith("update")
+                || head.startsWith("delete");
+    }
+
+    private void explain(SlowQuery query, String sqlWithValues, int shard) {
+        try (ShardContext.Scope ignored = ShardContext.bind(shard);
+             Connection connection = dataSource.getObject().getConnection();
+             Statement statement = connection.createStatement();
+             ResultSet rs = statement.executeQuery("EXPLAIN " + sqlWithValues)) {
+            StringJoiner plan = new StringJoiner("\n");
+            int columns = rs.getMetaData().getColumnCount();
+            while (rs.next()) {
+                for (int i = 1; i <= columns; i++) {
+                    plan.add(String.valueOf(rs.getObject(i)));
+                }
+            }
+            query.plan = SqlFingerprint.maskLiterals(plan.toString());
+        } catch (SQLException | RuntimeException ex) {
+            query.plan = "EXPLAIN failed: " + SqlFingerprint.maskLiterals(String.valueOf(ex.getMessage()));
+            log.debug("explain failed for {}", query.fingerprint, ex);
+        }
+    }
+
+    //스택에서 가장 가까운 리포지토리 (없으면 서비스/컨트롤러) 메서드 - 스프링 프록시 프레임은 건너뛴다
+    private static String caller() {
+        return StackWalker.getInstance().walk(frames -> frames
+                .filter(f -> f.getClassName().startsWith("jpabook.jpashop.")
+                        && !f.getClassName().startsWith("jpabook.jpashop.config.")
+                        && !f.getClassName().contains("$$"))
+                .map(f -> simpleName(f.getClassName()) + "." + methodName(f.getMethodName()) + ":" + f.getLineNumber())
+                .findFirst()
+                .orElse(null));
+    }
+
+    //람다 안에서 실행된 쿼리는 람다를 감싼 메서드로 (lambda$findAll$3 -> findAll, 샤드 조회 등)
+    private static String methodName(String name) {
+        if (!name.startsWith("lambda$")) {
+            return name;
+        }
+        int end = name.indexOf('$', "lambda$".length());
+        return end < 0 ? name : name.substring("lambda$".length(), end);
+    }
+
+    private static String simpleName(String className) {
+        return className.substring(className.lastIndexOf('.') + 1);
+    }
+
+    public void shutdown() {
+        explainExecutor.shutdownNow();
+    }
+
+    private static class Pending {
+        final SlowQuery query;
+        final StatementInformation statement;
+        long rows;
+        long fetchNanos;
+
+        Pending(SlowQuery query, StatementInformation statement) {
+            this.query = query;
+            this.statement = statement;
+        }
+    }
+}
@@ -0,0 +1,18 @@
+package jpabook.jpashop.config.jdbc;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+//jpashop.slow-query.* 설정 (application.yml 참고)
+@Getter @Setter
+@ConfigurationProperties(prefix = "jpashop.slow-query")
+public class SlowQueryProperties {
+
+    private boolean enabled = true;
+    private Duration threshold = Duration.ofMillis(10); //이보다 빠른 문장은 지문도 만들지 않는다
+    private int topN = 50; //보관하는 지문 수
+    private boolean explain = true; //처음 본 지문은 EXPLAIN 실행 계획을 같이 남긴다
+}
@@ -0,0 +1,105 @@
+package jpabook.jpashop.config.jdbc;
+
+import java.util.*;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * 느린 쿼리 상위 N개 보관소
+ * 크기가 고정된 배열(topN의 2배, 2의 거듭제곱) + 지문 해시로 자리를 찾는 개방 주소법. 자리는 CAS로만 바꾼다. (락 없음)
+ * - 같은 지문이 있으면 그 통계에 더한다.
+ * - 탐색 구간(8칸)에 빈 자리가 있으면 새로 넣는다.
+ * - 꽉 찼으면 구간에서 최대 시간이 가장 작은 것보다 느릴 때만 그 자리를 빼앗는다. 아니면 버린다.
+ * 경합 중에는 드물게 같은 지문이 두 칸에 들어가거나 갱신 하나가 빠질 수 있는데, 상위 목록을 만들 때 지문별로 합친다.
+ */
+public class SlowQueryRecorder {
+
+    private static final int PROBES = 8;
+
+    private final AtomicReferenceArray<SlowQuery> slots;
+    private final int mask;
+    private final int topN;
+    private final LongAdder dropped = new LongAdder();
+    private final LongAdder evicted = new LongAdder();
+
+    public SlowQueryRecorder(int topN) {
+        this.topN = topN;
+        int capacity = Integer.highestOneBit(Math.max(PROBES, topN * 2 - 1)) << 1;
+        this.slots = new AtomicReferenceArray<>(capacity);
+        this.mask = capacity - 1;
+    }
+
+    //보관된 통계를 돌려준다 (버려졌으면 null). caller는 새로 넣을 때만 계산한다 (스택 탐색 비용)
+    SlowQuery record(String fingerprint, String sql, long nanos, boolean failed, Supplier<String> caller) {
+        int hash = fingerprint.hashCode();
+        int start = hash ^ (hash >>> 16);
+        SlowQuery victim = null;
+        int victimIndex = -1;
+        for (int i = 0; i < PROBES; i++) {
+            int index = (start + i) & mask;
+            SlowQuery current = slots.get(index);
+            if (current == null) {
+                SlowQuery created = new SlowQuery(fingerprint, sql, caller.get());
+                created.add(nanos, failed);
+                if (slots.compareAndSet(index, null, created)) {
+                    return created;
+                }
+                current = slots.get(index); //다른 스레드가 먼저 넣었다
+                if (current == null) {
+                    continue;
+                }
+            }
+            if (current.fingerprint.equals(fingerprint)) {
+                current.add(nanos, failed);
+                return current;
+            }
+            if (victim == null || current.maxNanos() < victim.maxNanos()) {
+                victim = current;
+                victimIndex = index;
+            }
+        }
+        if (victim != null && nanos > victim.maxNanos()) {
+            SlowQuery created = new SlowQuery(fingerprint, sql, caller.get());
+            created.add(nanos, failed);
+            if (slots.compareAndSet(victimIndex, victim, created)) {
+                evicted.increment();
+                return created;
+            }
+        }
+        dropped.increment();
+        return null;
+    }
+
+    //최대 시간 순 상위 N개
+    public List<Map<String, Object>> top() {
+        Map<String, SlowQuery> byFingerprint = new HashMap<>();
+        for (int i = 0; i < slots.length(); i++) {
+            SlowQuery query = slots.get(i);
+            if (query != null) {
+                byFingerprint.merge(query.fingerprint, query, (a, b) -> a.maxNanos() >= b.maxNanos() ? a : b);
+            }
+        }
+        return byFingerprint.values().stream()
+                .sorted(Comparator.comparingLong(SlowQuery::maxNanos).reversed())
+                .limit(topN)
+                .map(SlowQuery::toMap)
+                .toList();
+    }
+
+    public long dropped() {
+        return dropped.sum();
+    }
+
+    public long evicted() {
+        return evicted.sum();
+    }
+
+    public void reset() {
+        for (int i = 0; i < slots.length(); i++) {
+            slots.set(i, null);
+        }
+        dropped.reset();
+        evicted.reset();
+    }
+}
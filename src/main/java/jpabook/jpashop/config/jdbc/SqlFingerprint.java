@@ -0,0 +1,31 @@
+package jpabook.jpashop.config.jdbc;
+
+import java.util.regex.Pattern;
+
+/**
+ * SQL 지문 - 값만 다른 같은 모양의 쿼리를 하나로 묶기 위한 정규화
+ * 문자열/숫자 리터럴 -> ?, in (?, ?, ...) -> in (?+), 공백/대소문자 통일
+ * 하이버네이트가 만드는 SQL은 대부분 ? 바인딩이라 in 목록 길이와 공백 정도만 달라진다.
+ */
+final class SqlFingerprint {
+
+    private static final Pattern STRING = Pattern.compile("'(?:[^']|'')*'");
+    private static final Pattern NUMBER = Pattern.compile("(?<![\\w.])-?\\d+(?:\\.\\d+)?(?![\\w.])");
+    private static final Pattern IN_LIST = Pattern.compile("(?i)\\bin\\s*\\(\\s*\\?(?:\\s*,\\s*\\?)*\\s*\\)");
+    private static final Pattern SPACES = Pattern.compile("\\s+");
+
+    private SqlFingerprint() {
+    }
+
+    static String of(String sql) {
+        String s = maskLiterals(sql);
+        s = IN_LIST.matcher(s).replaceAll("in (?+)");
+        return SPACES.matcher(s).replaceAll(" ").trim().toLowerCase();
+    }
+
+    //리터럴 값만 ?로 바꾸고 나머지는 그대로 둔다 (EXPLAIN 결과처럼 사람이 읽는 문장에서 값만 가릴 때)
+    static String maskLiterals(String sql) {
+        String s = STRING.matcher(sql).replaceAll("?");
+        return NUMBER.matcher(s).replaceAll("?");
+    }
+}
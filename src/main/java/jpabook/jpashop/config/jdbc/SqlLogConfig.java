@@ -0,0 +1,33 @@
+package jpabook.jpashop.config.jdbc;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.boot.logging.LoggingSystem;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * SQL 로그 모드 (jpashop.sql-log.mode)
+ * 운영은 SAMPLED, 로컬에서 문장을 전부 보고 싶으면 FULL.
+ * 링 버퍼가 넘쳐서 버린 로그 수는 sql.log.dropped 메트릭.
+ */
+@Configuration
+@EnableConfigurationProperties(SqlLogProperties.class)
+public class SqlLogConfig {
+
+    @Bean(destroyMethod = "shutdown")
+    public SampledSqlLogListener sampledSqlLogListener(SqlLogProperties properties, MeterRegistry registry) {
+        SampledSqlLogListener listener = new SampledSqlLogListener(properties);
+        FunctionCounter.builder("sql.log.dropped", listener, SampledSqlLogListener::dropped).register(registry);
+        return listener;
+    }
+
+    @Bean
+    public SqlLogging sqlLogging(SqlLogProperties properties, LoggingSystem loggingSystem,
+                                 SampledSqlLogListener sampledSqlLogListener) {
+        SqlLogging sqlLogging = new SqlLogging(loggingSystem, sampledSqlLogListener);
+        sqlLogging.switchTo(properties.getMode());
+        return sqlLogging;
+    }
+}
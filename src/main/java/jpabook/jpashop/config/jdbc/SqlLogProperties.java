@@ -0,0 +1,30 @@
+package jpabook.jpashop.config.jdbc;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+//jpashop.sql-log.* 설정 (application.yml 참고)
+@Getter @Setter
+@ConfigurationProperties(prefix = "jpashop.sql-log")
+public class SqlLogProperties {
+
+    private Mode mode = Mode.FULL;
+    private double sampleRate = 0.01; //느리지도 실패하지도 않은 문장 중 남길 비율
+    private Duration slowThreshold = Duration.ofMillis(100); //이보다 느리면 항상 남긴다
+    private Redaction redact = Redaction.STRINGS;
+    private int bufferSize = 8192; //링 버퍼 크기 (2의 거듭제곱으로 올림). 차면 버리고 센다
+
+    public enum Mode {
+        FULL, //기존처럼 org.hibernate.SQL debug + org.hibernate.type trace + p6spy 전부 (SqlLogging이 레벨을 켠다)
+        SAMPLED //위 로거를 끄고 SampledSqlLogListener가 샘플/느린/실패 문장만 비동기로 남긴다
+    }
+
+    public enum Redaction {
+        NONE, //바인딩 값 그대로
+        STRINGS, //문자 값만 '***' (이름, 주소 등)
+        ALL //숫자까지 전부 ?
+    }
+}
@@ -0,0 +1,84 @@
+package jpabook.jpashop.config.jdbc;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Consumer;
+
+/**
+ * 다중 생산자 / 단일 소비자 링 버퍼
+ * 요청 스레드는 자리 하나를 CAS로 잡아서 이벤트를 넣고 바로 돌아간다. (락, 대기, 포맷팅, I/O 없음)
+ * 버퍼가 차 있으면 기다리지 않고 버리고 dropped만 센다.
+ * 소비 스레드 하나가 순서대로 꺼내서 writer(로그 포맷팅 + 출력)를 호출한다. 비어 있으면 1ms씩 쉰다.
+ */
+@Slf4j
+class SqlLogRing<E> {
+
+    private final AtomicReferenceArray<E> slots;
+    private final int mask;
+    private final AtomicLong head = new AtomicLong(); //다음에 생산자가 잡을 번호
+    private final AtomicLong tail = new AtomicLong(); //다음에 소비자가 꺼낼 번호
+    private final LongAdder dropped = new LongAdder();
+    private final Consumer<E> writer;
+    private final Thread consumer;
+    private volatile boolean running = true;
+
+    SqlLogRing(int size, Consumer<E> writer, String threadName) {
+        int capacity = Integer.highestOneBit(Math.max(2, size - 1)) << 1;
+        this.slots = new AtomicReferenceArray<>(capacity);
+        this.mask = capacity - 1;
+        this.writer = writer;
+        this.consumer = new Thread(this::drain, threadName);
+        this.consumer.setDaemon(true);
+        this.consumer.start();
+    }
+
+    boolean offer(E event) {
+        while (true) {
+            long h = head.get();
+            if (h - tail.get() >= slots.length()) {
+                dropped.increment();
+                return false;
+            }
+            if (head.compareAndSet(h, h + 1)) {
+                slots.set((int) h & mask, event);
+                return true;
+            }
+        }
+    }
+
+    long dropped() {
+        return dropped.sum();
+    }
+
+    void close() {
+        running = false;
+        LockSupport.unpark(consumer);
+    }
+
+    private void drain() {
+        while (running || tail.get() < head.get()) {
+            long t = tail.get();
+            int index = (int) t & mask;
+            E event = slots.get(index);
+            if (event == null) {
+                if (!running) {
+                    break;
+                }
+                //비었거나, 생산자가 번호만 잡고 아직 넣지 않았다
+                LockSupport.parkNanos(1_000_000);
+                continue;
+            }
+            slots.set(index, null);
+            tail.lazySet(t + 1);
+            try {
+                writer.accept(event);
+            } catch (RuntimeException e) {
+                log.warn("sql log write failed", e);
+            }
+        }
+    }
+}
@@ -0,0 +1,59 @@
+package jpabook.jpashop.config.jdbc;
+
+import org.springframework.boot.logging.LogLevel;
+import org.springframework.boot.logging.LoggerConfiguration;
+import org.springframework.boot.logging.LoggingSystem;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * SQL 로그 모드 전환
+ * SAMPLED: 문장마다 찍던 로거(하이버네이트 SQL/바인딩, p6spy)를 WARN으로 올리고 샘플링 리스너를 켠다.
+ *          p6spy는 로거 레벨을 먼저 보고 꺼져 있으면 문장을 만들지 않으므로 비용이 거의 없다.
+ * FULL: 그 로거들을 예전 application.yml 값(SQL debug, type trace, p6spy info)으로 켜고 샘플링 리스너를 끈다.
+ *       설정 파일에 레벨을 직접 적은 로거는 그 레벨을 쓴다.
+ *
+ * 그래서 application.yml에는 SQL 로거 레벨을 두지 않는다. debug/trace를 적어 두면 이 빈이 뜰 때까지는
+ * 모드와 상관없이 문장마다 로그가 찍힌다.
+ */
+public class SqlLogging {
+
+    //문장마다 찍는 로거 -> FULL일 때 레벨
+    static final Map<String, LogLevel> VERBOSE_LOGGERS = Map.of(
+            "org.hibernate.SQL", LogLevel.DEBUG,
+            "org.hibernate.type", LogLevel.TRACE,
+            "org.hibernate.orm.jdbc.bind", LogLevel.INFO,
+            "p6spy", LogLevel.INFO);
+
+    private final LoggingSystem loggingSystem;
+    private final SampledSqlLogListener listener;
+    private final Map<String, LogLevel> configured = new HashMap<>();
+    private volatile SqlLogProperties.Mode mode = SqlLogProperties.Mode.FULL;
+
+    public SqlLogging(LoggingSystem loggingSystem, SampledSqlLogListener listener) {
+        this.loggingSystem = loggingSystem;
+        this.listener = listener;
+        for (String name : VERBOSE_LOGGERS.keySet()) {
+            LoggerConfiguration config = loggingSystem.getLoggerConfiguration(name);
+            if (config != null && config.getConfiguredLevel() != null) {
+                configured.put(name, config.getConfiguredLevel());
+            }
+        }
+    }
+
+    public SqlLogProperties.Mode mode() {
+        return mode;
+    }
+
+    public synchronized void switchTo(SqlLogProperties.Mode target) {
+        if (target == SqlLogProperties.Mode.SAMPLED) {
+            VERBOSE_LOGGERS.keySet().forEach(name -> loggingSystem.setLogLevel(name, LogLevel.WARN));
+            listener.setActive(true);
+        } else {
+            listener.setActive(false);
+            VERBOSE_LOGGERS.forEach((name, level) -> loggingSystem.setLogLevel(name, configured.getOrDefault(name, level)));
+        }
+        mode = target;
+    }
+}
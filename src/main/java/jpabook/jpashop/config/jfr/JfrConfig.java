@@ -0,0 +1,32 @@
+package jpabook.jpashop.config.jfr;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * 필요할 때만 켜는 JFR 프로파일링 (jpashop.jfr.enabled, 기본 꺼짐)
+ * 켜 두어도 /actuator/jfr로 녹화를 시작하기 전에는 JFR이 돌지 않는다.
+ * 녹화 시작과 .jfr 다운로드를 누구나 부를 수 있으면 안 되므로, 켤 때는 관리 포트나 인증 뒤에서만 jfr를 노출한다.
+ */
+@Configuration
+@EnableConfigurationProperties(JfrProperties.class)
+@ConditionalOnProperty(prefix = "jpashop.jfr", name = "enabled", havingValue = "true", matchIfMissing = false)
+public class JfrConfig {
+
+    @Bean(destroyMethod = "shutdown")
+    public JfrProfiler jfrProfiler(JfrProperties properties) {
+        return new JfrProfiler(properties);
+    }
+
+    @Bean
+    public JfrRequestFilter jfrRequestFilter(JfrProfiler profiler) {
+        return new JfrRequestFilter(profiler);
+    }
+
+    @Bean
+    public JfrEndpoint jfrEndpoint(JfrProfiler profiler) {
+        return new JfrEndpoint(profiler);
+    }
+}
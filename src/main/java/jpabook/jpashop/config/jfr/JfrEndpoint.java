@@ -0,0 +1,75 @@
+package jpabook.jpashop.config.jfr;
+
+import org.springframework.boot.actuate.endpoint.annotation.DeleteOperation;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.boot.actuate.endpoint.annotation.Selector;
+import org.springframework.boot.actuate.endpoint.annotation.WriteOperation;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.core.io.Resource;
+import org.springframework.lang.Nullable;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * /actuator/jfr
+ * POST {"seconds": 30}: JFR 녹화 시작 (maxDuration까지, 이미 녹화 중이면 그 녹화)
+ * GET: 녹화 목록, DELETE: 녹화 중인 것을 일찍 멈춤
+ * GET /{id}: 요약 - 엔드포인트/전략별 요청 수, 할당, 핫 메서드, 서비스/리포지토리의 락 경합
+ * GET /{id}/download: .jfr 파일 (JMC로 열면 된다)
+ */
+@Endpoint(id = "jfr")
+public class JfrEndpoint {
+
+    private final JfrProfiler profiler;
+
+    public JfrEndpoint(JfrProfiler profiler) {
+        this.profiler = profiler;
+    }
+
+    @WriteOperation
+    public Map<String, Object> start(@Nullable Long seconds) {
+        return profiler.start(seconds == null ? null : Duration.ofSeconds(seconds)).status();
+    }
+
+    @DeleteOperation
+    public Map<String, Object> stop() {
+        JfrProfiler.Session stopped = profiler.stop();
+        return stopped == null ? null : stopped.status();
+    }
+
+    @ReadOperation
+    public Map<String, Object> recordings() {
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("recording", profiler.isRecording());
+        List<Map<String, Object>> recordings = profiler.sessions().stream().map(JfrProfiler.Session::status).toList();
+        result.put("recordings", recordings);
+        return result;
+    }
+
+    @ReadOperation
+    public Map<String, Object> summary(@Selector long id) {
+        JfrProfiler.Session session = profiler.find(id);
+        if (session == null) {
+            return null;
+        }
+        if (!session.isFinished()) {
+            return session.status(); //녹화 중에는 상태만
+        }
+        Map<String, Object> result = new LinkedHashMap<>(session.status());
+        result.putAll(profiler.summary(session));
+        return result;
+    }
+
+    @ReadOperation
+    public Resource download(@Selector long id, @Selector String action) {
+        JfrProfiler.Session session = profiler.find(id);
+        if (session == null || !session.isFinished() || !"download".equals(action)) {
+            return null;
+        }
+        return new FileSystemResource(session.getFile());
+    }
+}
@@ -0,0 +1,211 @@
+package jpabook.jpashop.config.jfr;
+
+import jdk.jfr.Configuration;
+import jdk.jfr.FlightRecorder;
+import jdk.jfr.FlightRecorderListener;
+import jdk.jfr.Recording;
+import jdk.jfr.RecordingState;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.text.ParseException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 시간 제한이 있는 JFR 녹화
+ * 한번에 하나만 녹화한다. 녹화가 끝나면(duration이 지나거나 stop) .jfr 파일로 떨어지고, 요약은 처음 볼 때 한번 계산한다.
+ * 녹화하지 않을 때는 JFR이 꺼져 있고 필터도 volatile 값 하나만 본다.
+ */
+@Slf4j
+public class JfrProfiler {
+
+    private final JfrProperties properties;
+    private final AtomicLong sequence = new AtomicLong();
+    private final Map<Long, Session> sessions = new LinkedHashMap<>(); //시작 순서대로
+    private final FlightRecorderListener listener = new FlightRecorderListener() {
+        @Override
+        public void recordingStateChanged(Recording recording) {
+            Session running = current;
+            if (running != null && running.recording == recording && recording.getState() != RecordingState.RUNNING
+                    && recording.getState() != RecordingState.DELAYED && recording.getState() != RecordingState.NEW) {
+                current = null; //duration이 지나서 멈춘 경우도 여기로 온다
+            }
+        }
+    };
+
+    private volatile Session current;
+
+    public JfrProfiler(JfrProperties properties) {
+        this.properties = properties;
+        FlightRecorder.addListener(listener);
+    }
+
+    public boolean isRecording() {
+        return current != null;
+    }
+
+    //이미 녹화 중이면 그 녹화를 돌려준다
+    public synchronized Session start(Duration requested) {
+        Session running = current;
+        if (running != null) {
+            return running;
+        }
+        Duration duration = requested == null ? properties.getDefaultDuration() : requested;
+        if (duration.compareTo(properties.getMaxDuration()) > 0) {
+            duration = properties.getMaxDuration();
+        }
+        if (duration.isNegative() || duration.isZero()) {
+            throw new IllegalArgumentException("duration은 0보다 커야 합니다: " + duration);
+        }
+        long id = sequence.incrementAndGet();
+        try {
+            Path directory = Paths.get(properties.getDirectory());
+            Files.createDirectories(directory);
+            Path file = directory.resolve("jpashop-" + id + "-" + System.currentTimeMillis() + ".jfr");
+
+            //profile 설정을 바탕으로 필요한 이벤트만 조정한다
+            Recording recording = new Recording(Configuration.getConfiguration("profile"));
+            recording.setName("jpashop-" + id);
+            recording.enable("jdk.ObjectAllocationSample").with("throttle", "300/s");
+            recording.enable("jdk.ExecutionSample").withPeriod(properties.getExecutionSamplePeriod());
+            recording.enable("jdk.JavaMonitorEnter").withThreshold(properties.getLockThreshold()).withStackTrace();
+            recording.enable("jdk.ThreadPark").withThreshold(properties.getLockThreshold()).withStackTrace();
+            recording.enable(RequestEvent.class).withoutThreshold();
+            recording.setToDisk(true);
+            recording.setDestination(file);
+            recording.setDuration(duration);
+
+            Session session = new Session(id, recording, file, Instant.now(), duration);
+            sessions.put(id, session);
+            current = session;
+            recording.start();
+            evictOld();
+            log.info("jfr recording started: id={}, duration={}, file={}", id, duration, file);
+            return session;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } catch (ParseException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    //녹화 중인 것을 일찍 멈춘다 - 멈추면 destination에 파일이 써진다
+    public synchronized Session stop() {
+        Session running = current;
+        if (running == null) {
+            return null;
+        }
+        current = null;
+        if (running.recording.getState() == RecordingState.RUNNING) {
+            running.recording.stop();
+        }
+        return running;
+    }
+
+    public synchronized Session find(long id) {
+        return sessions.get(id);
+    }
+
+    public synchronized List<Session> sessions() {
+        return new ArrayList<>(sessions.values());
+    }
+
+    //요약은 녹화가 끝난 뒤에만 만들 수 있다 (한번 계산하면 들고 있는다)
+    public Map<String, Object> summary(Session session) {
+        synchronized (session) {
+            if (session.summary == null) {
+                try {
+                    session.summary = JfrSummary.summarize(session.file, properties.getTopN(), properties.getFocusPackages());
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }
+            return session.summary;
+        }
+    }
+
+    public void shutdown() {
+        FlightRecorder.removeListener(listener);
+        stop();
+        synchronized (this) {
+            sessions.values().forEach(session -> session.recording.close());
+        }
+    }
+
+    //keep개를 넘으면 끝난 녹화부터 파일까지 지운다
+    private void evictOld() {
+        var iterator = sessions.values().iterator();
+        while (sessions.size() > properties.getKeep() && iterator.hasNext()) {
+            Session oldest = iterator.next();
+            if (oldest == current) {
+                continue;
+            }
+            iterator.remove();
+            oldest.recording.close();
+            try {
+                Files.deleteIfExists(oldest.file);
+            } catch (IOException e) {
+                log.warn("jfr file delete failed: {}", oldest.file, e);
+            }
+        }
+    }
+
+    public static final class Session {
+        private final long id;
+        private final Recording recording;
+        private final Path file;
+        private final Instant startedAt;
+        private final Duration duration;
+        private Map<String, Object> summary;
+
+        Session(long id, Recording recording, Path file, Instant startedAt, Duration duration) {
+            this.id = id;
+            this.recording = recording;
+            this.file = file;
+            this.startedAt = startedAt;
+            this.duration = duration;
+        }
+
+        public long getId() {
+            return id;
+        }
+
+        public Path getFile() {
+            return file;
+        }
+
+        //파일이 다 써졌는지 (STOPPED 이후에만 다운로드/요약 가능)
+        public boolean isFinished() {
+            RecordingState state = recording.getState();
+            return (state == RecordingState.STOPPED || state == RecordingState.CLOSED) && Files.exists(file);
+        }
+
+        public Map<String, Object> status() {
+            Map<String, Object> status = new LinkedHashMap<>();
+            status.put("id", id);
+            status.put("state", recording.getState());
+            status.put("startedAt", startedAt);
+            status.put("durationSeconds", duration.toSeconds());
+            status.put("stopsAt", startedAt.plus(duration));
+            status.put("file", file.getFileName().toString());
+            if (isFinished()) {
+                try {
+                    status.put("sizeBytes", Files.size(file));
+                } catch (IOException ignored) {
+                    //지워지는 중
+                }
+            }
+            return status;
+        }
+    }
+}
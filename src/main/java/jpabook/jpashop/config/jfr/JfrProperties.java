@@ -0,0 +1,26 @@
+package jpabook.jpashop.config.jfr;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+//jpashop.jfr.* 설정 (application.yml 참고)
+@Getter @Setter
+@ConfigurationProperties(prefix = "jpashop.jfr")
+public class JfrProperties {
+
+    private boolean enabled = true;
+    private String directory = "./jfr"; //.jfr 파일을 저장할 디렉토리
+    private Duration defaultDuration = Duration.ofSeconds(30);
+    private Duration maxDuration = Duration.ofMinutes(5); //요청한 시간이 더 길어도 여기서 자른다
+    private int keep = 5; //남겨둘 녹화 파일 수 - 넘으면 오래된 것부터 지운다
+    private int topN = 20;
+    private Duration executionSamplePeriod = Duration.ofMillis(10);
+    private Duration lockThreshold = Duration.ofMillis(1); //이보다 짧은 락 대기는 기록하지 않는다
+    //핫 메서드/락 경합을 볼 애플리케이션 코드 (스택에서 처음 나오는 이 패키지의 프레임으로 묶는다)
+    private List<String> focusPackages = new ArrayList<>(List.of("jpabook.jpashop.service", "jpabook.jpashop.repository"));
+}
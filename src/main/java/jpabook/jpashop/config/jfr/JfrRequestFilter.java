@@ -0,0 +1,87 @@
+package jpabook.jpashop.config.jfr;
+
+import jakarta.servlet.AsyncEvent;
+import jakarta.servlet.AsyncListener;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.servlet.HandlerMapping;
+
+import java.io.IOException;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * 녹화 중인 동안만 요청마다 RequestEvent를 남긴다 - 평소에는 volatile 읽기 한번
+ * 비동기 요청(POST /graphql 등)은 첫 디스패치가 돌아와도 응답이 끝나지 않았으므로 AsyncListener.onComplete에서 닫는다.
+ * (그때는 이벤트가 완료시킨 스레드로 남아서, 요약에서 첫 디스패치 스레드의 샘플만 이 요청에 붙는다)
+ */
+class JfrRequestFilter extends OncePerRequestFilter {
+
+    private static final Pattern STRATEGY = Pattern.compile("/(v\\d+(?:\\.\\d+)?)(?:/|$)");
+
+    private final JfrProfiler profiler;
+
+    JfrRequestFilter(JfrProfiler profiler) {
+        this.profiler = profiler;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        if (!profiler.isRecording()) {
+            filterChain.doFilter(request, response);
+            return;
+        }
+        RequestEvent event = new RequestEvent();
+        event.begin();
+        try {
+            filterChain.doFilter(request, response);
+        } finally {
+            if (request.isAsyncStarted()) {
+                request.getAsyncContext().addListener(new AsyncListener() {
+                    //에러, 타임아웃 뒤에도 onComplete는 항상 불린다
+                    @Override
+                    public void onComplete(AsyncEvent asyncEvent) {
+                        commit(event, request, response);
+                    }
+
+                    @Override
+                    public void onTimeout(AsyncEvent asyncEvent) {
+                    }
+
+                    @Override
+                    public void onError(AsyncEvent asyncEvent) {
+                    }
+
+                    @Override
+                    public void onStartAsync(AsyncEvent asyncEvent) {
+                    }
+                });
+            } else {
+                commit(event, request, response);
+            }
+        }
+    }
+
+    private static void commit(RequestEvent event, HttpServletRequest request, HttpServletResponse response) {
+        event.end();
+        if (event.shouldCommit()) {
+            //매핑 패턴은 디스패치가 끝난 뒤에 요청 속성으로 남는다
+            Object pattern = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+            String endpoint = pattern != null ? pattern.toString() : request.getRequestURI();
+            event.method = request.getMethod();
+            event.endpoint = endpoint;
+            event.strategy = strategyOf(endpoint);
+            event.status = response.getStatus();
+            event.commit();
+        }
+    }
+
+    static String strategyOf(String endpoint) {
+        Matcher matcher = STRATEGY.matcher(endpoint);
+        return matcher.find() ? matcher.group(1) : "";
+    }
+}
@@ -0,0 +1,278 @@
+package jpabook.jpashop.config.jfr;
+
+import jdk.jfr.consumer.RecordedClass;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordedFrame;
+import jdk.jfr.consumer.RecordedMethod;
+import jdk.jfr.consumer.RecordedStackTrace;
+import jdk.jfr.consumer.RecordedThread;
+import jdk.jfr.consumer.RecordingFile;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * .jfr 파일 요약
+ * 1번째로 읽으면서 요청 이벤트(jpashop.Request)를 스레드별 구간으로 모으고,
+ * 2번째로 읽으면서 할당 샘플/실행 샘플/락 대기를 같은 스레드, 같은 시간의 요청 엔드포인트에 붙인다.
+ * 할당 바이트는 jdk.ObjectAllocationSample의 weight 합이라 추정치다.
+ * 스택은 JFR 기본 깊이(64)까지만 남으므로, 깊은 하이버네이트 호출 아래의 서비스/리포지토리 프레임은 빠질 수 있다.
+ */
+final class JfrSummary {
+
+    private static final String NO_REQUEST = "(no request)";
+
+    private JfrSummary() {
+    }
+
+    static Map<String, Object> summarize(Path file, int topN, List<String> focusPackages) throws IOException {
+        Map<Long, List<Interval>> requestsByThread = new HashMap<>();
+        Map<String, EndpointStats> endpoints = new LinkedHashMap<>();
+        try (RecordingFile recording = new RecordingFile(file)) {
+            while (recording.hasMoreEvents()) {
+                RecordedEvent event = recording.readEvent();
+                if (!event.getEventType().getName().equals("jpashop.Request") || event.getThread() == null) {
+                    continue;
+                }
+                String endpoint = event.getString("method") + " " + event.getString("endpoint");
+                EndpointStats stats = endpoints.computeIfAbsent(endpoint,
+                        key -> new EndpointStats(event.getString("strategy")));
+                stats.record(event.getDuration());
+                requestsByThread.computeIfAbsent(event.getThread().getJavaThreadId(), key -> new ArrayList<>())
+                        .add(new Interval(nanos(event.getStartTime()), nanos(event.getEndTime()), endpoint));
+            }
+        }
+        requestsByThread.values().forEach(list -> list.sort(Comparator.comparingLong(Interval::start)));
+
+        Map<String, Long> allocationByType = new HashMap<>();
+        Map<String, Long> selfSamples = new HashMap<>();
+        Map<String, Long> focusSamples = new HashMap<>();
+        Map<String, LockStats> locks = new HashMap<>();
+        long executionSamples = 0;
+        try (RecordingFile recording = new RecordingFile(file)) {
+            while (recording.hasMoreEvents()) {
+                RecordedEvent event = recording.readEvent();
+                switch (event.getEventType().getName()) {
+                    case "jdk.ObjectAllocationSample" -> {
+                        long weight = event.getLong("weight");
+                        String type = className(event.getClass("objectClass"));
+                        allocationByType.merge(type, weight, Long::sum);
+                        EndpointStats stats = endpoints.get(endpointAt(requestsByThread, event.getThread(), event.getStartTime()));
+                        if (stats != null) {
+                            stats.allocatedBytes += weight;
+                            stats.allocationByType.merge(type, weight, Long::sum);
+                        }
+                    }
+                    case "jdk.ExecutionSample" -> {
+                        RecordedStackTrace stackTrace = event.getStackTrace();
+                        if (stackTrace == null || stackTrace.getFrames().isEmpty()) {
+                            continue;
+                        }
+                        executionSamples++;
+                        selfSamples.merge(methodName(stackTrace.getFrames().get(0).getMethod()), 1L, Long::sum);
+                        String focus = focusFrame(stackTrace, focusPackages);
+                        if (focus != null) {
+                            focusSamples.merge(focus, 1L, Long::sum);
+                        }
+                        EndpointStats stats = endpoints.get(endpointAt(requestsByThread,
+                                event.getThread("sampledThread"), event.getStartTime()));
+                        if (stats != null) {
+                            stats.samples++;
+                            if (focus != null) {
+                                stats.focusSamples.merge(focus, 1L, Long::sum);
+                            }
+                        }
+                    }
+                    case "jdk.JavaMonitorEnter", "jdk.ThreadPark" -> {
+                        //서비스/리포지토리 코드에서 기다린 것만 본다
+                        String focus = focusFrame(event.getStackTrace(), focusPackages);
+                        if (focus == null) {
+                            continue;
+                        }
+                        boolean monitor = event.getEventType().getName().equals("jdk.JavaMonitorEnter");
+                        String on = className(event.getClass(monitor ? "monitorClass" : "parkedClass"));
+                        String endpoint = endpointAt(requestsByThread, event.getThread(), event.getStartTime());
+                        locks.computeIfAbsent(focus + "|" + on + "|" + monitor, key -> new LockStats(focus, on,
+                                        monitor ? "monitor" : "park", endpoint == null ? NO_REQUEST : endpoint))
+                                .record(event.getDuration());
+                    }
+                    default -> {
+                    }
+                }
+            }
+        }
+
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("file", file.getFileName().toString());
+        result.put("executionSamples", executionSamples);
+        result.put("requests", endpoints.entrySet().stream()
+                .sorted(Map.Entry.comparingByValue(Comparator.comparingLong((EndpointStats s) -> s.totalNanos).reversed()))
+                .map(entry -> entry.getValue().toMap(entry.getKey(), topN))
+                .toList());
+        result.put("allocationByType", top(allocationByType, topN, "type", "bytes"));
+        result.put("hotMethods", top(selfSamples, topN, "method", "samples"));
+        result.put("hotFocusMethods", top(focusSamples, topN, "method", "samples"));
+        result.put("lockContention", locks.values().stream()
+                .sorted(Comparator.comparingLong((LockStats s) -> s.totalNanos).reversed())
+                .limit(topN)
+                .map(LockStats::toMap)
+                .toList());
+        return result;
+    }
+
+    //그 시각에 그 스레드가 처리하던 요청 (구간은 시작 시각 순)
+    private static String endpointAt(Map<Long, List<Interval>> requestsByThread, RecordedThread thread, Instant time) {
+        if (thread == null) {
+            return null;
+        }
+        List<Interval> intervals = requestsByThread.get(thread.getJavaThreadId());
+        if (intervals == null) {
+            return null;
+        }
+        long at = nanos(time);
+        int low = 0;
+        int high = intervals.size() - 1;
+        int found = -1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            if (intervals.get(mid).start() <= at) {
+                found = mid;
+                low = mid + 1;
+            } else {
+                high = mid - 1;
+            }
+        }
+        return found >= 0 && at <= intervals.get(found).end() ? intervals.get(found).endpoint() : null;
+    }
+
+    //스택에서 처음 나오는(가장 안쪽) 관심 패키지 프레임
+    private static String focusFrame(RecordedStackTrace stackTrace, List<String> focusPackages) {
+        if (stackTrace == null) {
+            return null;
+        }
+        for (RecordedFrame frame : stackTrace.getFrames()) {
+            if (frame.getMethod() == null || frame.getMethod().getType() == null) {
+                continue;
+            }
+            String type = frame.getMethod().getType().getName();
+            for (String focusPackage : focusPackages) {
+                if (type.startsWith(focusPackage)) {
+                    return methodName(frame.getMethod()) + ":" + frame.getLineNumber();
+                }
+            }
+        }
+        return null;
+    }
+
+    private static String methodName(RecordedMethod method) {
+        if (method == null) {
+            return "(unknown)";
+        }
+        return className(method.getType()) + "." + method.getName();
+    }
+
+    private static String className(RecordedClass type) {
+        return type == null ? "(unknown)" : type.getName();
+    }
+
+    private static long nanos(Instant instant) {
+        return instant.getEpochSecond() * 1_000_000_000L + instant.getNano();
+    }
+
+    private static List<Map<String, Object>> top(Map<String, Long> counts, int topN, String keyName, String valueName) {
+        return counts.entrySet().stream()
+                .sorted(Map.Entry.<String, Long>comparingByValue().reversed())
+                .limit(topN)
+                .map(entry -> {
+                    Map<String, Object> row = new LinkedHashMap<>();
+                    row.put(keyName, entry.getKey());
+                    row.put(valueName, entry.getValue());
+                    return row;
+                })
+                .toList();
+    }
+
+    private record Interval(long start, long end, String endpoint) {
+    }
+
+    private static final class EndpointStats {
+        final String strategy;
+        long count;
+        long totalNanos;
+        long maxNanos;
+        long allocatedBytes;
+        long samples;
+        final Map<String, Long> allocationByType = new HashMap<>();
+        final Map<String, Long> focusSamples = new HashMap<>();
+
+        EndpointStats(String strategy) {
+            this.strategy = strategy;
+        }
+
+        void record(Duration duration) {
+            long nanos = duration.toNanos();
+            count++;
+            totalNanos += nanos;
+            maxNanos = Math.max(maxNanos, nanos);
+        }
+
+        Map<String, Object> toMap(String endpoint, int topN) {
+            Map<String, Object> row = new LinkedHashMap<>();
+            row.put("endpoint", endpoint);
+            row.put("strategy", strategy);
+            row.put("count", count);
+            row.put("avgMillis", count == 0 ? 0 : totalNanos / count / 1_000_000.0);
+            row.put("maxMillis", maxNanos / 1_000_000.0);
+            row.put("allocatedBytes", allocatedBytes);
+            row.put("allocatedBytesPerRequest", count == 0 ? 0 : allocatedBytes / count);
+            row.put("samples", samples);
+            row.put("allocationByType", top(allocationByType, topN, "type", "bytes"));
+            row.put("hotFocusMethods", top(focusSamples, topN, "method", "samples"));
+            return row;
+        }
+    }
+
+    private static final class LockStats {
+        final String site;
+        final String on;
+        final String kind;
+        final String endpoint; //처음 본 요청 엔드포인트
+        long count;
+        long totalNanos;
+        long maxNanos;
+
+        LockStats(String site, String on, String kind, String endpoint) {
+            this.site = site;
+            this.on = on;
+            this.kind = kind;
+            this.endpoint = endpoint;
+        }
+
+        void record(Duration duration) {
+            long nanos = duration.toNanos();
+            count++;
+            totalNanos += nanos;
+            maxNanos = Math.max(maxNanos, nanos);
+        }
+
+        Map<String, Object> toMap() {
+            Map<String, Object> row = new LinkedHashMap<>();
+            row.put("site", site);
+            row.put("kind", kind);
+            row.put("on", on);
+            row.put("endpoint", endpoint);
+            row.put("count", count);
+            row.put("totalMillis", totalNanos / 1_000_000.0);
+            row.put("maxMillis", maxNanos / 1_000_000.0);
+            return row;
+        }
+    }
+}
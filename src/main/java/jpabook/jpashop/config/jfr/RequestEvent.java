@@ -0,0 +1,33 @@
+package jpabook.jpashop.config.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * HTTP 요청 하나 (JfrRequestFilter가 녹화 중일 때만 만든다)
+ * 같은 스레드에서 이 이벤트 시간 안에 찍힌 할당/샘플/락 이벤트를 이 요청의 엔드포인트로 묶는다.
+ * JMC에서도 jpashop 카테고리로 보인다.
+ */
+@Name("jpashop.Request")
+@Label("HTTP Request")
+@Category("jpashop")
+@Description("요청 엔드포인트와 조회 전략(v3.1, v5 ...)")
+@StackTrace(false)
+public class RequestEvent extends Event {
+
+    @Label("Method")
+    String method;
+
+    @Label("Endpoint")
+    String endpoint; //매핑 패턴 (/api/v3.1/orders, /api/orders/{orderId})
+
+    @Label("Strategy")
+    String strategy; //패턴의 버전 (v3.1, v5), 없으면 빈 문자열
+
+    @Label("Status")
+    int status;
+}
@@ -0,0 +1,53 @@
+package jpabook.jpashop.config.jpa;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.integrator.spi.Integrator;
+import org.hibernate.jpa.boot.spi.IntegratorProvider;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 연관별 배치 페치 크기 측정/조정
+ * 전역 default_batch_fetch_size 하나로는 연관마다 실제로 몇 건씩 지연 로딩되는지 알 수 없어서
+ * jpashop.batch-fetch.instrument=true 면 연관별 지연 로딩 횟수와 배치 크기를 재고 (LazyLoadStats)
+ * jpashop.batch-fetch.adaptive=true 면 시작할 때 연관별 크기(설정 또는 저장된 추천값)를 적용한다.
+ *
+ * 하이버네이트는 세션 팩토리를 만든 뒤에는 배치 크기를 바꿀 수 없어서 추천값은 다음 시작 때 적용된다.
+ * 운영 순서: instrument로 트래픽을 받아 보고 -> /actuator/batchfetch 확인 -> POST로 저장 -> adaptive로 재시작
+ */
+@Configuration
+@EnableConfigurationProperties(BatchFetchProperties.class)
+public class BatchFetchConfig {
+
+    @Bean
+    public LazyLoadStats lazyLoadStats(BatchFetchProperties properties, MeterRegistry registry) {
+        return new LazyLoadStats(registry, properties.getMinSize(), properties.getMaxSize());
+    }
+
+    @Bean
+    public HibernatePropertiesCustomizer batchFetchIntegrator(BatchFetchProperties properties, LazyLoadStats stats) {
+        Map<FetchAssociation, Integer> sizes = properties.isAdaptive() ? BatchFetchSizes.resolve(properties) : Map.of();
+        LazyLoadListener listener = properties.isInstrument() ? new LazyLoadListener(stats) : null;
+        IntegratorProvider provider = () -> List.<Integrator>of(new BatchFetchIntegrator(sizes, listener));
+        return hibernateProperties -> hibernateProperties.put("hibernate.integrator_provider", provider);
+    }
+
+    @Bean
+    @ConditionalOnProperty(prefix = "jpashop.batch-fetch", name = "instrument", havingValue = "true")
+    public LazyLoadRequestFilter lazyLoadRequestFilter(LazyLoadStats stats) {
+        return new LazyLoadRequestFilter(stats);
+    }
+
+    @Bean
+    public BatchFetchEndpoint batchFetchEndpoint(EntityManagerFactory emf, BatchFetchProperties properties,
+                                                 LazyLoadStats stats) {
+        return new BatchFetchEndpoint(emf, properties, stats);
+    }
+}
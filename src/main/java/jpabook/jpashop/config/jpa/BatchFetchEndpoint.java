@@ -0,0 +1,75 @@
+package jpabook.jpashop.config.jpa;
+
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.metamodel.MappingMetamodel;
+import org.springframework.boot.actuate.endpoint.annotation.DeleteOperation;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.boot.actuate.endpoint.annotation.WriteOperation;
+
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * /actuator/batchfetch
+ * GET: 연관별 현재 배치 크기, 측정값, 추천 크기
+ * POST: 추천 크기를 recommendations-file에 저장 (adaptive 모드로 다시 시작하면 적용된다)
+ * DELETE: 측정값 초기화
+ */
+@Endpoint(id = "batchfetch")
+public class BatchFetchEndpoint {
+
+    private final EntityManagerFactory emf;
+    private final BatchFetchProperties properties;
+    private final LazyLoadStats stats;
+
+    public BatchFetchEndpoint(EntityManagerFactory emf, BatchFetchProperties properties, LazyLoadStats stats) {
+        this.emf = emf;
+        this.properties = properties;
+        this.stats = stats;
+    }
+
+    @ReadOperation
+    public Map<String, Object> batchFetch() {
+        SessionFactoryImplementor sessionFactory = emf.unwrap(SessionFactoryImplementor.class);
+        MappingMetamodel metamodel = sessionFactory.getMappingMetamodel();
+        Map<String, Object> associations = new LinkedHashMap<>();
+        for (FetchAssociation association : FetchAssociation.values()) {
+            Map<String, Object> info = new LinkedHashMap<>();
+            info.put("current", association.collection()
+                    ? metamodel.getCollectionDescriptor(association.target()).getBatchSize()
+                    : metamodel.getEntityDescriptor(association.target()).getBatchSize());
+            info.put("recommended", stats.recommend(association));
+            info.putAll(stats.snapshot(association));
+            associations.put(association.key(), info);
+        }
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("defaultBatchFetchSize", sessionFactory.getSessionFactoryOptions().getDefaultBatchFetchSize());
+        result.put("instrument", properties.isInstrument());
+        result.put("adaptive", properties.isAdaptive());
+        result.put("associations", associations);
+        return result;
+    }
+
+    @WriteOperation
+    public Map<String, Integer> save() {
+        Map<FetchAssociation, Integer> sizes = new EnumMap<>(FetchAssociation.class);
+        for (FetchAssociation association : FetchAssociation.values()) {
+            Integer recommended = stats.recommend(association);
+            if (recommended != null) {
+                sizes.put(association, recommended);
+            }
+        }
+        BatchFetchSizes.save(properties.getRecommendationsFile(), sizes);
+        Map<String, Integer> saved = new LinkedHashMap<>();
+        sizes.forEach((association, size) -> saved.put(association.key(), size));
+        return saved;
+    }
+
+    @DeleteOperation
+    public void reset() {
+        stats.reset();
+    }
+}
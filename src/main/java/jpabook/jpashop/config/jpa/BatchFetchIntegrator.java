@@ -0,0 +1,52 @@
+package jpabook.jpashop.config.jpa;
+
+import org.hibernate.boot.Metadata;
+import org.hibernate.boot.spi.BootstrapContext;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.event.service.spi.EventListenerRegistry;
+import org.hibernate.integrator.spi.Integrator;
+import org.hibernate.mapping.Collection;
+import org.hibernate.mapping.PersistentClass;
+import org.hibernate.service.spi.SessionFactoryServiceRegistry;
+
+import java.util.Map;
+
+/**
+ * 세션 팩토리를 만들 때 끼어들어서
+ * - 연관별 배치 크기를 매핑 정보에 넣는다. (@BatchSize를 붙인 것과 같다. 퍼시스턴서가 만들어지기 전이라 여기서만 바꿀 수 있다)
+ * - 측정 모드면 지연 로딩 리스너를 등록한다.
+ */
+class BatchFetchIntegrator implements Integrator {
+
+    private final Map<FetchAssociation, Integer> sizes;
+    private final LazyLoadListener listener; //측정 안 하면 null
+
+    BatchFetchIntegrator(Map<FetchAssociation, Integer> sizes, LazyLoadListener listener) {
+        this.sizes = sizes;
+        this.listener = listener;
+    }
+
+    @Override
+    public void integrate(Metadata metadata, BootstrapContext bootstrapContext, SessionFactoryImplementor sessionFactory) {
+        sizes.forEach((association, size) -> {
+            if (association.collection()) {
+                Collection binding = metadata.getCollectionBinding(association.target());
+                if (binding != null) {
+                    binding.setBatchSize(size);
+                }
+            } else {
+                PersistentClass binding = metadata.getEntityBinding(association.target());
+                if (binding != null) {
+                    binding.setBatchSize(size);
+                }
+            }
+        });
+        if (listener != null) {
+            listener.register(sessionFactory.getServiceRegistry().getService(EventListenerRegistry.class));
+        }
+    }
+
+    @Override
+    public void disintegrate(SessionFactoryImplementor sessionFactory, SessionFactoryServiceRegistry serviceRegistry) {
+    }
+}
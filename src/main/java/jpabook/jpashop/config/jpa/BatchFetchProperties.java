@@ -0,0 +1,22 @@
+package jpabook.jpashop.config.jpa;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.nio.file.Path;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+//jpashop.batch-fetch.* 설정 (application.yml 참고)
+@Getter @Setter
+@ConfigurationProperties(prefix = "jpashop.batch-fetch")
+public class BatchFetchProperties {
+
+    private boolean instrument; //연관별 지연 로딩 횟수/배치 크기 측정 (이벤트 리스너 등록)
+    private boolean adaptive; //true면 시작할 때 연관별 배치 크기를 적용 (sizes > 추천값 파일 순)
+    private Map<String, Integer> sizes = new LinkedHashMap<>(); //연관별 고정 크기 (키: Order.orderItems 등)
+    private Path recommendationsFile = Path.of("./batch-fetch-sizes.properties"); //actuator에서 저장한 추천값
+    private int minSize = 16;
+    private int maxSize = 1000;
+}
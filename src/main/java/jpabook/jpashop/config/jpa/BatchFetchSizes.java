@@ -0,0 +1,62 @@
+package jpabook.jpashop.config.jpa;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.Properties;
+
+/**
+ * 연관별 배치 크기 (Order.orderItems=64 형식의 properties 파일)
+ * actuator(batchfetch)에서 추천값을 저장하고, adaptive 모드로 시작할 때 읽어서 적용한다.
+ */
+final class BatchFetchSizes {
+
+    private BatchFetchSizes() {
+    }
+
+    //adaptive 모드에서 적용할 크기 - 파일의 추천값 위에 설정(sizes)을 덮어쓴다
+    static Map<FetchAssociation, Integer> resolve(BatchFetchProperties properties) {
+        Map<FetchAssociation, Integer> sizes = new EnumMap<>(FetchAssociation.class);
+        Path file = properties.getRecommendationsFile();
+        if (file != null && Files.exists(file)) {
+            Properties saved = new Properties();
+            try (Reader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+                saved.load(reader);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            saved.stringPropertyNames().forEach(key -> put(sizes, key, Integer.parseInt(saved.getProperty(key).trim()), properties));
+        }
+        properties.getSizes().forEach((key, size) -> put(sizes, key, size, properties));
+        return sizes;
+    }
+
+    static void save(Path file, Map<FetchAssociation, Integer> sizes) {
+        Properties properties = new Properties();
+        sizes.forEach((association, size) -> properties.setProperty(association.key(), String.valueOf(size)));
+        try {
+            Path tmp = file.resolveSibling(file.getFileName() + ".tmp");
+            try (Writer writer = Files.newBufferedWriter(tmp, StandardCharsets.UTF_8)) {
+                properties.store(writer, "jpashop batch fetch sizes (jpashop.batch-fetch.adaptive=true 일 때 시작 시 적용)");
+            }
+            Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static void put(Map<FetchAssociation, Integer> sizes, String key, int size, BatchFetchProperties properties) {
+        FetchAssociation association = FetchAssociation.ofKey(key);
+        if (association == null) {
+            throw new IllegalArgumentException("unknown batch fetch association: " + key);
+        }
+        sizes.put(association, Math.max(1, Math.min(size, properties.getMaxSize())));
+    }
+}
@@ -0,0 +1,66 @@
+package jpabook.jpashop.config.jpa;
+
+/**
+ * 배치 크기를 따로 측정/조정하는 지연 로딩 연관
+ * 컬렉션은 컬렉션 role로 구분한다.
+ * ToOne은 프록시 초기화 시점에 어느 연관에서 왔는지 하이버네이트가 알려주지 않아서 대상 엔티티로 구분한다.
+ * (지금 매핑에서 Item/Member/Delivery 프록시는 사실상 각각 OrderItem.item / Order.member / Order.delivery 에서만 생긴다)
+ * 배치 크기도 ToOne은 대상 엔티티 단위(@BatchSize를 클래스에 붙이는 것과 같음)로 적용된다.
+ */
+public enum FetchAssociation {
+
+    ORDER_ORDER_ITEMS("Order.orderItems", true, "jpabook.jpashop.domain.Order.orderItems"),
+    CATEGORY_CHILD("Category.child", true, "jpabook.jpashop.domain.Category.child"),
+    ORDER_ITEM_ITEM("OrderItem.item", false, "jpabook.jpashop.domain.item.Item"),
+    ORDER_MEMBER("Order.member", false, "jpabook.jpashop.domain.Member"),
+    ORDER_DELIVERY("Order.delivery", false, "jpabook.jpashop.domain.Delivery");
+
+    private final String key;
+    private final boolean collection;
+    private final String target; //컬렉션 role 또는 대상 루트 엔티티 이름
+
+    FetchAssociation(String key, boolean collection, String target) {
+        this.key = key;
+        this.collection = collection;
+        this.target = target;
+    }
+
+    public String key() {
+        return key;
+    }
+
+    public boolean collection() {
+        return collection;
+    }
+
+    public String target() {
+        return target;
+    }
+
+    public static FetchAssociation ofKey(String key) {
+        for (FetchAssociation association : values()) {
+            if (association.key.equals(key)) {
+                return association;
+            }
+        }
+        return null;
+    }
+
+    public static FetchAssociation ofCollectionRole(String role) {
+        for (FetchAssociation association : values()) {
+            if (association.collection && association.target.equals(role)) {
+                return association;
+            }
+        }
+        return null;
+    }
+
+    public static FetchAssociation ofEntity(String rootEntityName) {
+        for (FetchAssociation association : values()) {
+            if (!association.collection && association.target.equals(rootEntityName)) {
+                return association;
+            }
+        }
+        return null;
+    }
+}
@@ -0,0 +1,148 @@
+package jpabook.jpashop.config.jpa;
+
+import org.hibernate.event.service.spi.EventListenerRegistry;
+import org.hibernate.event.spi.*;
+import org.hibernate.persister.entity.EntityPersister;
+
+/**
+ * 지연 로딩 측정용 하이버네이트 이벤트 리스너
+ * 하이버네이트 리스너에는 "전/후"가 따로 없어서 기본 리스너 앞(prepend)에서 측정을 시작하고 뒤(append)에서 끝낸다.
+ *
+ * - 프록시 초기화(ToOne): LoadEvent(IMMEDIATE_LOAD). 그 사이에 올라온 같은 엔티티 수(PostLoad)가 배치 크기
+ * - 컬렉션 초기화: InitializeCollectionEvent. 그 사이에 초기화된 같은 role 컬렉션 수가 배치 크기
+ *   (영속성 컨텍스트의 컬렉션 목록을 전/후로 세므로 측정을 켰을 때만 등록한다)
+ *
+ * 지연 로딩 중에 또 지연 로딩이 일어나면 바깥 것만 잰다.
+ * 로딩 중 예외로 끝 리스너가 불리지 않으면 측정이 남는데, 다른 세션에서 새로 시작할 때 버린다.
+ */
+class LazyLoadListener {
+
+    private final LazyLoadStats stats;
+    private final ThreadLocal<Measure> current = new ThreadLocal<>();
+
+    LazyLoadListener(LazyLoadStats stats) {
+        this.stats = stats;
+    }
+
+    void register(EventListenerRegistry registry) {
+        registry.prependListeners(EventType.LOAD, new BeginLoad());
+        registry.appendListeners(EventType.LOAD, new EndLoad());
+        registry.prependListeners(EventType.INIT_COLLECTION, new BeginCollection());
+        registry.appendListeners(EventType.INIT_COLLECTION, new EndCollection());
+        registry.appendListeners(EventType.POST_LOAD, new CountPostLoad());
+    }
+
+    private void begin(Object session, FetchAssociation association, long before) {
+        Measure measure = current.get();
+        if (measure != null && measure.session == session) {
+            measure.depth++;
+            return;
+        }
+        current.set(new Measure(session, association, before));
+    }
+
+    private Measure end() {
+        Measure measure = current.get();
+        if (measure == null) {
+            return null;
+        }
+        if (measure.depth > 0) {
+            measure.depth--;
+            return null;
+        }
+        current.remove();
+        return measure;
+    }
+
+    private static String rootEntityName(LoadEvent event) {
+        EntityPersister persister = event.getSession().getFactory().getMappingMetamodel()
+                .findEntityDescriptor(event.getEntityClassName());
+        return persister == null ? null : persister.getRootEntityName();
+    }
+
+    private static long initializedCollections(InitializeCollectionEvent event, String role) {
+        long[] count = {0};
+        event.getSession().getPersistenceContextInternal().forEachCollectionEntry((collection, entry) -> {
+            if (role.equals(entry.getRole()) && collection.wasInitialized()) {
+                count[0]++;
+            }
+        }, false);
+        return count[0];
+    }
+
+    private class BeginLoad implements LoadEventListener {
+        @Override
+        public void onLoad(LoadEvent event, LoadType loadType) {
+            if (loadType != IMMEDIATE_LOAD) {
+                return;
+            }
+            FetchAssociation association = FetchAssociation.ofEntity(rootEntityName(event));
+            if (association != null) {
+                begin(event.getSession(), association, 0);
+            }
+        }
+    }
+
+    private class EndLoad implements LoadEventListener {
+        @Override
+        public void onLoad(LoadEvent event, LoadType loadType) {
+            if (loadType != IMMEDIATE_LOAD || FetchAssociation.ofEntity(rootEntityName(event)) == null) {
+                return;
+            }
+            Measure measure = end();
+            if (measure != null) {
+                stats.record(measure.association, Math.max(1, measure.count));
+            }
+        }
+    }
+
+    private class CountPostLoad implements PostLoadEventListener {
+        @Override
+        public void onPostLoad(PostLoadEvent event) {
+            Measure measure = current.get();
+            if (measure != null && !measure.association.collection()
+                    && measure.association.target().equals(event.getPersister().getRootEntityName())) {
+                measure.count++;
+            }
+        }
+    }
+
+    private class BeginCollection implements InitializeCollectionEventListener {
+        @Override
+        public void onInitializeCollection(InitializeCollectionEvent event) {
+            FetchAssociation association = FetchAssociation.ofCollectionRole(event.getCollection().getRole());
+            if (association != null) {
+                begin(event.getSession(), association, initializedCollections(event, association.target()));
+            }
+        }
+    }
+
+    private class EndCollection implements InitializeCollectionEventListener {
+        @Override
+        public void onInitializeCollection(InitializeCollectionEvent event) {
+            FetchAssociation association = FetchAssociation.ofCollectionRole(event.getCollection().getRole());
+            if (association == null) {
+                return;
+            }
+            Measure measure = end();
+            if (measure != null) {
+                long loaded = initializedCollections(event, association.target()) - measure.before;
+                stats.record(association, Math.max(1, loaded));
+            }
+        }
+    }
+
+    private static class Measure {
+        final Object session;
+        final FetchAssociation association;
+        final long before;
+        long count;
+        int depth;
+
+        Measure(Object session, FetchAssociation association, long before) {
+            this.session = session;
+            this.association = association;
+            this.before = before;
+        }
+    }
+}
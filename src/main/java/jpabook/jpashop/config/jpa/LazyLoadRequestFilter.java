@@ -0,0 +1,30 @@
+package jpabook.jpashop.config.jpa;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+
+//요청 하나 동안의 지연 로딩을 모아서 연관별 요청당 횟수/건수로 기록한다
+class LazyLoadRequestFilter extends OncePerRequestFilter {
+
+    private final LazyLoadStats stats;
+
+    LazyLoadRequestFilter(LazyLoadStats stats) {
+        this.stats = stats;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        stats.beginRequest();
+        try {
+            filterChain.doFilter(request, response);
+        } finally {
+            stats.endRequest();
+        }
+    }
+}
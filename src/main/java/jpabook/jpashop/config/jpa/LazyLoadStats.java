@@ -0,0 +1,144 @@
+package jpabook.jpashop.config.jpa;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 연관별 지연 로딩 통계
+ * - 지연 로딩 한번(= SQL 한번)에 실제로 몇 건이 같이 올라왔는지 (배치 크기)
+ * - 요청 하나에서 지연 로딩이 몇 번 일어났고 모두 몇 건을 올렸는지
+ *
+ * 요청 단위 집계는 LazyLoadRequestFilter가 begin/end로 감싼 스레드에서만 한다. (스케줄 작업 등은 배치 크기만 센다)
+ * 추천 배치 크기 = 요청 하나가 그 연관으로 올린 최대 건수를 2의 거듭제곱으로 올림한 값 (min-size ~ max-size)
+ * 요청 하나의 지연 로딩이 SQL 한번으로 끝나는 가장 작은 크기다.
+ *
+ * 메트릭: jpa.lazy.batch.size(지연 로딩 한번에 올린 건수), jpa.lazy.inits.per.request - association 태그
+ */
+public class LazyLoadStats {
+
+    private final Map<FetchAssociation, Counters> counters = new EnumMap<>(FetchAssociation.class);
+    private final ThreadLocal<long[][]> request = new ThreadLocal<>(); //[연관][지연 로딩 횟수, 올린 건수]
+    private final int minSize;
+    private final int maxSize;
+
+    public LazyLoadStats(MeterRegistry registry, int minSize, int maxSize) {
+        this.minSize = minSize;
+        this.maxSize = maxSize;
+        for (FetchAssociation association : FetchAssociation.values()) {
+            counters.put(association, new Counters(registry, association));
+        }
+    }
+
+    public void beginRequest() {
+        request.set(new long[FetchAssociation.values().length][2]);
+    }
+
+    public void endRequest() {
+        long[][] tally = request.get();
+        request.remove();
+        if (tally == null) {
+            return;
+        }
+        for (FetchAssociation association : FetchAssociation.values()) {
+            long[] t = tally[association.ordinal()];
+            if (t[0] > 0) {
+                counters.get(association).request(t[0], t[1]);
+            }
+        }
+    }
+
+    //지연 로딩 한번 - loaded는 그 SQL로 초기화된 엔티티/컬렉션 수
+    public void record(FetchAssociation association, long loaded) {
+        counters.get(association).init(loaded);
+        long[][] tally = request.get();
+        if (tally != null) {
+            tally[association.ordinal()][0]++;
+            tally[association.ordinal()][1] += loaded;
+        }
+    }
+
+    public void reset() {
+        counters.values().forEach(Counters::reset);
+    }
+
+    //데이터가 없으면 null
+    public Integer recommend(FetchAssociation association) {
+        long needed = counters.get(association).maxLoadedPerRequest.get();
+        if (needed == 0) {
+            return null;
+        }
+        int size = Integer.highestOneBit((int) Math.min(needed, maxSize)); //needed 이하 최대 2의 거듭제곱
+        if (size < needed) {
+            size <<= 1;
+        }
+        return Math.max(minSize, Math.min(size, maxSize));
+    }
+
+    public Map<String, Object> snapshot(FetchAssociation association) {
+        Counters c = counters.get(association);
+        long inits = c.inits.sum();
+        long requests = c.requests.sum();
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("lazyInits", inits);
+        result.put("loaded", c.loaded.sum());
+        result.put("avgBatch", inits == 0 ? 0 : (double) c.loaded.sum() / inits);
+        result.put("maxBatch", c.maxBatch.get());
+        result.put("requests", requests);
+        result.put("avgInitsPerRequest", requests == 0 ? 0 : (double) c.requestInits.sum() / requests);
+        result.put("maxInitsPerRequest", c.maxInitsPerRequest.get());
+        result.put("maxLoadedPerRequest", c.maxLoadedPerRequest.get());
+        return result;
+    }
+
+    private static class Counters {
+        final LongAdder inits = new LongAdder();
+        final LongAdder loaded = new LongAdder();
+        final AtomicLong maxBatch = new AtomicLong();
+        final LongAdder requests = new LongAdder(); //지연 로딩이 한번이라도 있었던 요청 수
+        final LongAdder requestInits = new LongAdder();
+        final AtomicLong maxInitsPerRequest = new AtomicLong();
+        final AtomicLong maxLoadedPerRequest = new AtomicLong();
+        final DistributionSummary batchSize;
+        final DistributionSummary initsPerRequest;
+
+        Counters(MeterRegistry registry, FetchAssociation association) {
+            batchSize = DistributionSummary.builder("jpa.lazy.batch.size")
+                    .tag("association", association.key())
+                    .register(registry);
+            initsPerRequest = DistributionSummary.builder("jpa.lazy.inits.per.request")
+                    .tag("association", association.key())
+                    .register(registry);
+        }
+
+        void init(long count) {
+            inits.increment();
+            loaded.add(count);
+            maxBatch.accumulateAndGet(count, Math::max);
+            batchSize.record(count);
+        }
+
+        void request(long initCount, long loadedCount) {
+            requests.increment();
+            requestInits.add(initCount);
+            maxInitsPerRequest.accumulateAndGet(initCount, Math::max);
+            maxLoadedPerRequest.accumulateAndGet(loadedCount, Math::max);
+            initsPerRequest.record(initCount);
+        }
+
+        void reset() {
+            inits.reset();
+            loaded.reset();
+            maxBatch.set(0);
+            requests.reset();
+            requestInits.reset();
+            maxInitsPerRequest.set(0);
+            maxLoadedPerRequest.set(0);
+        }
+    }
+}
@@ -0,0 +1,135 @@
+package jpabook.jpashop.config.shard;
+
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.function.BiFunction;
+import java.util.function.Supplier;
+
+/**
+ * 주문 애그리거트(orders, order_item, delivery) 샤드 라우팅 / scatter-gather 조회
+ *
+ * - 쓰기: member_id로 샤드를 정한다. (memberId % 샤드 수)
+ * - 주문 id로 찾기: id에 샤드 번호가 들어 있으므로 (ShardedIdGenerator) 그 샤드 하나만 본다. (orderId % 샤드 수)
+ * - 조회: 모든 샤드에 같은 쿼리를 병렬로 보내고, 결과를 정렬 기준대로 합친다.
+ * - keyset 페이징: 각 샤드에서 "마지막 키 이후 limit건"을 가져와 합친 뒤 앞에서 limit건만 자른다.
+ *   정렬 기준은 주문 id처럼 전체에서 유일해야 한다. 같은 값이 여러 샤드에 있으면 페이지 경계에서 빠지거나 겹친다.
+ * - offset 페이징: 각 샤드에서 앞에서부터 offset + limit건을 가져와 합친 뒤 offset부터 limit건을 자른다.
+ *   샤드마다 앞 페이지를 모두 읽으므로 뒤 페이지일수록 비싸다. (깊은 페이지는 keyset 페이징을 쓴다)
+ * - 샤드 쿼리는 다른 스레드의 영속성 컨텍스트에서 실행되므로 돌려받은 엔티티는 준영속이다. 필요한 연관은 그 안에서 읽어 둔다.
+ *
+ * 샤드가 1개(기본)면 스레드/트랜잭션을 새로 만들지 않고 호출한 스레드에서 그대로 실행한다.
+ *
+ * 샤드 구성
+ * - 스키마: ddl-auto가 create면 모든 샤드에 만든다. (ShardSchemaExporter)
+ * - 회원/상품: 엔티티 매핑상 Order가 Member, Item을 직접 참조하므로 모든 샤드에 같은 id로 복사한다. (ShardReplicator)
+ *   원본은 0번 샤드이고, 재고는 샤드마다 나눠 가진다. (ShardStocks)
+ */
+public class OrderShards {
+
+    private final int count;
+    private final ExecutorService executor;
+    private final TransactionTemplate readOnlyTx;
+
+    public OrderShards(int count, ExecutorService executor, PlatformTransactionManager transactionManager) {
+        this.count = count;
+        this.executor = executor;
+        this.readOnlyTx = new TransactionTemplate(transactionManager);
+        this.readOnlyTx.setReadOnly(true);
+        this.readOnlyTx.setPropagationBehavior(TransactionTemplate.PROPAGATION_REQUIRES_NEW);
+    }
+
+    public int count() {
+        return count;
+    }
+
+    public int shardOf(Long memberId) {
+        return (int) Math.floorMod(memberId, (long) count);
+    }
+
+    //주문 애그리거트 id(주문, 주문 상품, 배송)에 들어 있는 샤드 번호
+    public int shardOfId(Long orderId) {
+        return (int) Math.floorMod(orderId, (long) count);
+    }
+
+    //회원이 속한 샤드로 이후 커넥션을 보낸다
+    public ShardContext.Scope bindMember(Long memberId) {
+        return ShardContext.bind(shardOf(memberId));
+    }
+
+    //주문이 있는 샤드로 이후 커넥션을 보낸다
+    public ShardContext.Scope bindOrder(Long orderId) {
+        return ShardContext.bind(shardOfId(orderId));
+    }
+
+    //회원이 속한 샤드 하나에서만 조회 (샤딩을 안 쓰면 그냥 실행)
+    public <T> T onMemberShard(Long memberId, Supplier<T> query) {
+        return onShard(count == 1 ? 0 : shardOf(memberId), query);
+    }
+
+    //주문이 있는 샤드 하나에서만 조회
+    public <T> T onOrderShard(Long orderId, Supplier<T> query) {
+        return onShard(count == 1 ? 0 : shardOfId(orderId), query);
+    }
+
+    private <T> T onShard(int shard, Supplier<T> query) {
+        if (count == 1) {
+            return query.get();
+        }
+        try (ShardContext.Scope ignored = ShardContext.bind(shard)) {
+            return readOnlyTx.execute(status -> query.get());
+        }
+    }
+
+    //모든 샤드에서 조회해서 정렬 기준대로 합친다
+    public <T> List<T> scatter(Supplier<List<T>> query, Comparator<? super T> order) {
+        if (count == 1) {
+            return query.get();
+        }
+        List<T> merged = scatterEach(query);
+        merged.sort(order);
+        return merged;
+    }
+
+    //keyset 페이징 - 각 샤드가 limit건씩 가져오면, 합쳐서 앞에서 limit건이 전체의 다음 페이지다
+    public <T> List<T> scatterTop(Supplier<List<T>> query, Comparator<? super T> order, int limit) {
+        List<T> merged = scatter(query, order);
+        return merged.size() > limit ? new ArrayList<>(merged.subList(0, limit)) : merged;
+    }
+
+    //offset 페이징 - query는 (offset, limit)으로 한 샤드를 조회한다
+    public <T> List<T> scatterPage(BiFunction<Long, Integer, List<T>> query, Comparator<? super T> order,
+                                   long offset, int limit) {
+        if (count == 1) {
+            return query.apply(offset, limit);
+        }
+        int top = (int) Math.min(Integer.MAX_VALUE, offset + limit);
+        List<T> merged = scatter(() -> query.apply(0L, top), order);
+        if (merged.size() <= offset) {
+            return new ArrayList<>();
+        }
+        return new ArrayList<>(merged.subList((int) offset, Math.min(merged.size(), top)));
+    }
+
+    private <T> List<T> scatterEach(Supplier<List<T>> query) {
+        List<CompletableFuture<List<T>>> futures = new ArrayList<>();
+        for (int shard = 0; shard < count; shard++) {
+            int target = shard;
+            futures.add(CompletableFuture.supplyAsync(() -> {
+                try (ShardContext.Scope ignored = ShardContext.bind(target)) {
+                    return readOnlyTx.execute(status -> query.get());
+                }
+            }, executor));
+        }
+        List<T> merged = new ArrayList<>();
+        for (CompletableFuture<List<T>> future : futures) {
+            merged.addAll(future.join());
+        }
+        return merged;
+    }
+}
@@ -0,0 +1,37 @@
+package jpabook.jpashop.config.shard;
+
+/**
+ * 현재 스레드가 사용할 샤드 번호
+ * ShardRoutingDataSource가 커넥션을 얻는 시점에 이 값을 보고 샤드를 고른다.
+ * 지정하지 않으면 0번 샤드를 사용한다.
+ */
+public final class ShardContext {
+
+    private static final ThreadLocal<Integer> current = new ThreadLocal<>();
+
+    private ShardContext() {
+    }
+
+    public static int current() {
+        Integer shard = current.get();
+        return shard == null ? 0 : shard;
+    }
+
+    //try-with-resources로 사용해서 블록이 끝나면 이전 값으로 되돌린다
+    public static Scope bind(int shard) {
+        Integer previous = current.get();
+        current.set(shard);
+        return () -> {
+            if (previous == null) {
+                current.remove();
+            } else {
+                current.set(previous);
+            }
+        };
+    }
+
+    public interface Scope extends AutoCloseable {
+        @Override
+        void close();
+    }
+}
@@ -0,0 +1,39 @@
+package jpabook.jpashop.config.shard;
+
+import com.zaxxer.hikari.HikariDataSource;
+
+import javax.sql.DataSource;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 샤드별 커넥션 풀 (키: 샤드 번호)
+ * 풀을 DataSource 빈으로 등록하지 않으므로 (p6spy가 풀마다 감싸지 않도록) 종료할 때 여기서 닫는다.
+ */
+public class ShardDataSources implements AutoCloseable {
+
+    private final List<HikariDataSource> pools;
+
+    public ShardDataSources(List<HikariDataSource> pools) {
+        this.pools = List.copyOf(pools);
+    }
+
+    public Map<Object, Object> targets() {
+        Map<Object, Object> targets = new LinkedHashMap<>();
+        for (int i = 0; i < pools.size(); i++) {
+            targets.put(i, pools.get(i));
+        }
+        return Collections.unmodifiableMap(targets);
+    }
+
+    public DataSource shard(int shard) {
+        return pools.get(shard);
+    }
+
+    @Override
+    public void close() {
+        pools.forEach(HikariDataSource::close);
+    }
+}
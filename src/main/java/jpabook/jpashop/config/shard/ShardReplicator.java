@@ -0,0 +1,176 @@
+package jpabook.jpashop.config.shard;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.persistence.EntityManagerFactory;
+import jpabook.jpashop.domain.Member;
+import jpabook.jpashop.domain.item.Item;
+import jpabook.jpashop.repository.ItemRepository;
+import jpabook.jpashop.service.AfterCommit;
+import lombok.extern.slf4j.Slf4j;
+import org.hibernate.SessionFactory;
+import org.hibernate.StatelessSession;
+import org.hibernate.Transaction;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.function.Consumer;
+
+/**
+ * 회원/상품을 0번이 아닌 샤드에 복사한다.
+ * 주문은 회원 샤드에 쓰고 Order -> Member, OrderItem -> Item 참조(FK)가 있으므로 모든 샤드에 같은 id로 있어야 한다.
+ * 원본은 0번 샤드이고, 원본 트랜잭션이 커밋된 뒤에 샤드마다 upsert 한다.
+ * 샤드마다 MAX_ATTEMPTS번까지 다시 시도하고, 그래도 실패한 샤드가 있으면 나머지 샤드까지 마친 뒤
+ * shard.replication.failures 지표를 올리고 예외를 던져서 호출한 요청이 실패를 알 수 있게 한다. (원본은 이미 커밋됐다)
+ *
+ * 재고는 샤드마다 나눠 가진다. (ShardStocks)
+ * - 새 상품은 전체 재고를 샤드 수로 나눠서 넣는다.
+ * - 수정하는 상품은 지금 샤드 재고의 합과 새 전체 재고의 차이만 샤드마다 더하거나 뺀다. 덮어쓰지 않으므로 그동안 팔린 수량이 남는다.
+ * 샤드가 1개(기본)면 아무것도 하지 않는다.
+ */
+@Slf4j
+public class ShardReplicator {
+
+    static final int MAX_ATTEMPTS = 3;
+
+    private final int count;
+    private final EntityManagerFactory emf;
+    private final ItemRepository itemRepository;
+    private final ShardStocks shardStocks;
+    private final MeterRegistry registry;
+
+    public ShardReplicator(int count, EntityManagerFactory emf, ItemRepository itemRepository,
+                           ShardStocks shardStocks, MeterRegistry registry) {
+        this.count = count;
+        this.emf = emf;
+        this.itemRepository = itemRepository;
+        this.shardStocks = shardStocks;
+        this.registry = registry;
+    }
+
+    //회원 가입/수정 트랜잭션 안에서 호출한다
+    public void replicate(Member member) {
+        if (count == 1) {
+            return;
+        }
+        AfterCommit.run(() -> eachShard(session -> session.upsert(member)));
+    }
+
+    /**
+     * 상품 저장/수정 트랜잭션 안에서, 상품을 persist 하거나 DB에 쓰기 전에 호출한다. 상품의 재고는 새 전체 재고다.
+     * 상품의 재고를 0번 샤드에 쓸 값으로 바꾸고, 커밋 후 나머지 샤드에 각자의 몫(새 상품)이나 증감(수정)으로 복사한다.
+     * 0번 샤드에 없는 상품(롤백됐거나 수정 대상이 없던 상품)은 복사하지 않는다.
+     */
+    public void replicateItems(List<? extends Item> items) {
+        if (count == 1 || items.isEmpty()) {
+            return;
+        }
+        //id가 없으면 새 상품, 있으면 지금 샤드별 재고에서 새 전체 재고까지의 증감
+        Map<Long, int[]> current = shardStocks.byShard(items.stream()
+                .map(Item::getId).filter(Objects::nonNull).toList());
+        int[][] stocks = new int[items.size()][];
+        boolean[] created = new boolean[items.size()];
+        for (int i = 0; i < items.size(); i++) {
+            Item item = items.get(i);
+            int[] before = item.getId() == null ? null : current.get(item.getId());
+            created[i] = before == null;
+            stocks[i] = created[i] ? shares(item.getStockQuantity()) : shardStocks.split(before, item.getStockQuantity());
+            item.setStockQuantity(created[i] ? stocks[i][0] : before[0] + stocks[i][0]);
+        }
+        AfterCommit.run(() -> {
+            Set<Long> saved = savedItemIds(items);
+            eachShard(session -> {
+                int shard = ShardContext.current();
+                Set<Long> existing = itemIds(session, items);
+                List<Item> inserts = new ArrayList<>();
+                List<Integer> insertStocks = new ArrayList<>();
+                List<Item> updates = new ArrayList<>();
+                List<Integer> stockDeltas = new ArrayList<>();
+                for (int i = 0; i < items.size(); i++) {
+                    Item item = items.get(i);
+                    if (!saved.contains(item.getId())) {
+                        continue;
+                    }
+                    if (existing.contains(item.getId())) {
+                        updates.add(item);
+                        stockDeltas.add(created[i] ? 0 : stocks[i][shard]);
+                    } else {
+                        inserts.add(item);
+                        insertStocks.add(Math.max(stocks[i][shard], 0));
+                    }
+                }
+                session.doWork(connection -> {
+                    itemRepository.insertAll(connection, inserts, toArray(insertStocks));
+                    itemRepository.updateAll(connection, updates, toArray(stockDeltas));
+                });
+            });
+        });
+    }
+
+    private int[] shares(int total) {
+        int[] shares = new int[count];
+        for (int shard = 0; shard < count; shard++) {
+            shares[shard] = shardStocks.share(total, shard);
+        }
+        return shares;
+    }
+
+    private static int[] toArray(List<Integer> values) {
+        return values.stream().mapToInt(Integer::intValue).toArray();
+    }
+
+    private Set<Long> savedItemIds(List<? extends Item> items) {
+        try (ShardContext.Scope ignored = ShardContext.bind(0);
+             StatelessSession session = emf.unwrap(SessionFactory.class).openStatelessSession()) {
+            return itemIds(session, items);
+        }
+    }
+
+    private Set<Long> itemIds(StatelessSession session, List<? extends Item> items) {
+        List<Long> ids = items.stream().map(Item::getId).toList();
+        return new HashSet<>(session.createSelectionQuery("select i.id from Item i where i.id in :ids", Long.class)
+                .setParameter("ids", ids)
+                .getResultList());
+    }
+
+    private void eachShard(Consumer<StatelessSession> work) {
+        List<Integer> failed = new ArrayList<>();
+        for (int shard = 1; shard < count; shard++) {
+            if (!replicateWithRetry(shard, work)) {
+                failed.add(shard);
+                registry.counter("shard.replication.failures", "shard", String.valueOf(shard)).increment();
+            }
+        }
+        if (!failed.isEmpty()) {
+            throw new IllegalStateException("샤드 복사에 실패했습니다. shards=" + failed);
+        }
+    }
+
+    private boolean replicateWithRetry(int shard, Consumer<StatelessSession> work) {
+        SessionFactory sessionFactory = emf.unwrap(SessionFactory.class);
+        for (int attempt = 1; attempt <= MAX_ATTEMPTS; attempt++) {
+            try (ShardContext.Scope ignored = ShardContext.bind(shard);
+                 StatelessSession session = sessionFactory.openStatelessSession()) {
+                Transaction tx = session.beginTransaction();
+                try {
+                    work.accept(session);
+                    tx.commit();
+                    return true;
+                } catch (RuntimeException e) {
+                    tx.rollback();
+                    throw e;
+                }
+            } catch (RuntimeException e) {
+                if (attempt == MAX_ATTEMPTS) {
+                    log.error("shard replication failed: shard={}, attempts={}", shard, attempt, e);
+                } else {
+                    log.warn("shard replication retry: shard={}, attempt={}", shard, attempt, e);
+                }
+            }
+        }
+        return false;
+    }
+}
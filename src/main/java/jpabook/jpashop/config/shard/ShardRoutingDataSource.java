@@ -0,0 +1,12 @@
+package jpabook.jpashop.config.shard;
+
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+
+//ShardContext에 지정된 샤드로 커넥션을 보낸다
+public class ShardRoutingDataSource extends AbstractRoutingDataSource {
+
+    @Override
+    protected Object determineCurrentLookupKey() {
+        return ShardContext.current();
+    }
+}
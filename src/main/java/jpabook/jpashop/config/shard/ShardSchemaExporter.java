@@ -0,0 +1,46 @@
+package jpabook.jpashop.config.shard;
+
+import jakarta.persistence.EntityManagerFactory;
+import lombok.extern.slf4j.Slf4j;
+import org.hibernate.SessionFactory;
+import org.hibernate.cfg.AvailableSettings;
+import org.hibernate.internal.util.config.ConfigurationHelper;
+import org.hibernate.relational.SchemaManager;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+
+import java.util.Map;
+
+/**
+ * 0번이 아닌 샤드에도 스키마를 만든다.
+ * Hibernate의 ddl-auto는 기본 커넥션(0번 샤드)에만 적용되므로, EntityManagerFactory가 만들어지면
+ * 나머지 샤드를 하나씩 바인딩해서 같은 매핑(주문, 보관, 롤업, 멱등키, 아웃박스 테이블 등)을 다시 내보낸다.
+ * create/create-drop일 때만 동작한다. (update/validate는 운영 마이그레이션 도구로 샤드마다 맞춘다)
+ */
+@Slf4j
+public class ShardSchemaExporter implements BeanPostProcessor {
+
+    @Override
+    public Object postProcessAfterInitialization(Object bean, String beanName) {
+        if (bean instanceof EntityManagerFactory emf) {
+            export(emf);
+        }
+        return bean;
+    }
+
+    private void export(EntityManagerFactory emf) {
+        Map<String, Object> properties = emf.getProperties();
+        int count = ConfigurationHelper.getInt(ShardedIdGenerator.SHARD_COUNT, properties, 1);
+        String action = String.valueOf(properties.get(AvailableSettings.HBM2DDL_AUTO));
+        if (count == 1 || !(action.equals("create") || action.equals("create-drop"))) {
+            return;
+        }
+        SchemaManager schemaManager = emf.unwrap(SessionFactory.class).getSchemaManager();
+        for (int shard = 1; shard < count; shard++) {
+            try (ShardContext.Scope ignored = ShardContext.bind(shard)) {
+                schemaManager.dropMappedObjects(true);
+                schemaManager.exportMappedObjects(true);
+            }
+            log.info("exported schema to shard {}", shard);
+        }
+    }
+}
@@ -0,0 +1,174 @@
+package jpabook.jpashop.config.shard;
+
+import jakarta.persistence.EntityManagerFactory;
+import lombok.extern.slf4j.Slf4j;
+import org.hibernate.SessionFactory;
+import org.hibernate.StatelessSession;
+import org.hibernate.Transaction;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * 샤드마다 나눠 가진 상품 재고
+ * 주문은 회원 샤드의 재고만 줄이므로 전체 재고를 샤드마다 복사하면 샤드 수만큼 더 팔린다. 그래서 재고를 샤드마다 나눠 둔다.
+ * - 화면/API에 보이는 재고는 모든 샤드 재고의 합이다. (totals)
+ * - 전체 재고를 바꾸면 지금 합과의 차이만 샤드마다 나눠서 더하거나 뺀다. 샤드마다 그동안 팔린 수량은 그대로 남는다. (split)
+ * - 회원 샤드의 재고가 모자라면 주문 전에 다른 샤드에서 모자란 만큼 옮겨 온다. (borrow)
+ *   다른 샤드에서 빼는 쪽을 먼저 커밋하므로 옮기는 도중에는 전체 합이 잠깐 적게 보일 뿐 더 팔리지는 않는다.
+ * 샤드가 1개(기본)면 아무것도 하지 않는다.
+ */
+@Slf4j
+public class ShardStocks {
+
+    private final int count;
+    private final EntityManagerFactory emf;
+
+    public ShardStocks(int count, EntityManagerFactory emf) {
+        this.count = count;
+        this.emf = emf;
+    }
+
+    public boolean isSharded() {
+        return count > 1;
+    }
+
+    //상품별 모든 샤드 재고의 합 (0번 샤드에 없는 상품은 빠진다)
+    public Map<Long, Integer> totals(Collection<Long> itemIds) {
+        Map<Long, Integer> totals = new HashMap<>();
+        byShard(itemIds).forEach((itemId, stocks) -> {
+            int total = 0;
+            for (int stock : stocks) {
+                total += stock;
+            }
+            totals.put(itemId, total);
+        });
+        return totals;
+    }
+
+    //상품별 샤드 재고 [샤드 번호] - 커밋된 값을 읽는다 (0번 샤드에 없는 상품은 빠진다)
+    public Map<Long, int[]> byShard(Collection<Long> itemIds) {
+        Map<Long, int[]> result = new HashMap<>();
+        if (itemIds.isEmpty()) {
+            return result;
+        }
+        for (int shard = 0; shard < count; shard++) {
+            List<Object[]> rows = onShard(shard, session -> session.createSelectionQuery(
+                            "select i.id, i.stockQuantity from Item i where i.id in :ids", Object[].class)
+                    .setParameter("ids", itemIds)
+                    .getResultList());
+            for (Object[] row : rows) {
+                int[] stocks = shard == 0 ? result.computeIfAbsent((Long) row[0], id -> new int[count])
+                        : result.get((Long) row[0]);
+                if (stocks != null) {
+                    stocks[shard] = (Integer) row[1];
+                }
+            }
+        }
+        return result;
+    }
+
+    //새 상품의 전체 재고 total 중 샤드 shard의 몫 - total / N에 나머지는 앞 샤드부터 1개씩
+    public int share(int total, int shard) {
+        return total / count + (shard < total % count ? 1 : 0);
+    }
+
+    /**
+     * 샤드별 재고 current의 합이 total이 되도록 샤드마다 더할 값
+     * 늘릴 때는 늘어난 만큼을 share()로 나누고, 줄일 때는 줄어든 만큼을 share()로 나눠 빼되
+     * 샤드에 남은 재고보다 많이 뺄 수는 없으므로 모자란 만큼은 재고가 남은 샤드에서 마저 뺀다.
+     */
+    public int[] split(int[] current, int total) {
+        int[] deltas = new int[count];
+        int sum = 0;
+        for (int stock : current) {
+            sum += stock;
+        }
+        int change = total - sum;
+        if (change >= 0) {
+            for (int shard = 0; shard < count; shard++) {
+                deltas[shard] = share(change, shard);
+            }
+            return deltas;
+        }
+        int remaining = -change;
+        for (int shard = 0; shard < count; shard++) {
+            int taken = Math.min(share(-change, shard), current[shard]);
+            deltas[shard] = -taken;
+            remaining -= taken;
+        }
+        for (int shard = 0; shard < count && remaining > 0; shard++) {
+            int taken = Math.min(remaining, current[shard] + deltas[shard]);
+            deltas[shard] -= taken;
+            remaining -= taken;
+        }
+        return deltas;
+    }
+
+    /**
+     * 회원 샤드 shard에 상품 재고가 quantity보다 적으면 다른 샤드에서 모자란 만큼 옮겨 온다.
+     * 주문 트랜잭션이 재고를 읽기 전에 호출한다. 샤드마다 자기 트랜잭션으로 "빼기 -> 더하기" 순서로 커밋하고,
+     * 더하기가 실패하면 뺀 만큼 돌려준다. 다 옮겨 와도 모자라면 주문이 재고 부족으로 실패한다.
+     */
+    public void borrow(Long itemId, int shard, int quantity) {
+        if (count == 1) {
+            return;
+        }
+        int[] stocks = byShard(List.of(itemId)).get(itemId);
+        if (stocks == null || stocks[shard] >= quantity) {
+            return;
+        }
+        int needed = quantity - stocks[shard];
+        for (int donor = 0; donor < count && needed > 0; donor++) {
+            int moved = Math.min(needed, stocks[donor]);
+            if (donor == shard || moved <= 0 || addStock(donor, itemId, -moved) == 0) {
+                continue; //그 사이 다른 주문이 가져갔으면 다음 샤드
+            }
+            try {
+                addStock(shard, itemId, moved);
+            } catch (RuntimeException e) {
+                giveBack(donor, itemId, moved);
+                throw e;
+            }
+            needed -= moved;
+        }
+    }
+
+    private void giveBack(int donor, Long itemId, int moved) {
+        try {
+            addStock(donor, itemId, moved);
+        } catch (RuntimeException e) {
+            log.error("shard stock give back failed: shard={}, itemId={}, quantity={}", donor, itemId, moved, e);
+        }
+    }
+
+    //샤드 하나의 재고 증감 - 재고가 음수가 되는 감소는 하지 않고 0을 반환한다
+    private int addStock(int shard, Long itemId, int quantity) {
+        return onShard(shard, session -> {
+            Transaction tx = session.beginTransaction();
+            try {
+                int updated = session.createMutationQuery("update Item i" +
+                                " set i.stockQuantity = i.stockQuantity + :quantity" +
+                                " where i.id = :id and i.stockQuantity + :quantity >= 0")
+                        .setParameter("quantity", quantity)
+                        .setParameter("id", itemId)
+                        .executeUpdate();
+                tx.commit();
+                return updated;
+            } catch (RuntimeException e) {
+                tx.rollback();
+                throw e;
+            }
+        });
+    }
+
+    private <T> T onShard(int shard, Function<StatelessSession, T> work) {
+        try (ShardContext.Scope ignored = ShardContext.bind(shard);
+             StatelessSession session = emf.unwrap(SessionFactory.class).openStatelessSession()) {
+            return work.apply(session);
+        }
+    }
+}
@@ -0,0 +1,16 @@
+package jpabook.jpashop.config.shard;
+
+import org.hibernate.annotations.IdGeneratorType;
+
+import java.lang.annotation.Retention;
+import java.lang.annotation.Target;
+
+import static java.lang.annotation.ElementType.FIELD;
+import static java.lang.annotation.RetentionPolicy.RUNTIME;
+
+//회원 샤드에 쓰는 테이블(주문 애그리거트, 아웃박스, 멱등키)의 id - 샤드 번호를 담아서 샤드끼리 겹치지 않게 만든다 (ShardedIdGenerator)
+@IdGeneratorType(ShardedIdGenerator.class)
+@Retention(RUNTIME)
+@Target(FIELD)
+public @interface ShardedId {
+}
@@ -0,0 +1,62 @@
+package jpabook.jpashop.config.shard;
+
+import org.hibernate.MappingException;
+import org.hibernate.engine.config.spi.ConfigurationService;
+import org.hibernate.engine.spi.SharedSessionContractImplementor;
+import org.hibernate.id.IntegralDataTypeHolder;
+import org.hibernate.id.enhanced.AccessCallback;
+import org.hibernate.id.enhanced.SequenceStyleGenerator;
+import org.hibernate.internal.util.config.ConfigurationHelper;
+import org.hibernate.service.ServiceRegistry;
+import org.hibernate.type.Type;
+
+import java.util.Properties;
+
+/**
+ * 샤드 번호를 담은 id 생성기 (주문, 주문 상품, 배송, 아웃박스, 멱등키)
+ * id = 샤드 시퀀스 값 * 샤드 수 + 샤드 번호
+ *
+ * - 시퀀스는 샤드마다 따로 있어서 값이 겹치지만, 샤드 번호를 섞으므로 id는 전체에서 유일하다.
+ *   (샤드를 합쳐서 id로 정렬/keyset 페이징해도 같은 id가 두 번 나오지 않는다)
+ * - pooled 옵티마이저가 메모리에 받아둔 시퀀스 구간도 샤드마다 따로 둔다. (구간을 공유하면 다른 샤드의 시퀀스 값을 쓰게 된다)
+ * - id만 알아도 샤드를 알 수 있다. (OrderShards.shardOfId)
+ * - 샤드가 1개면 시퀀스 값 그대로다.
+ *
+ * 샤드 수는 ShardingConfig가 hibernate 설정(jpashop.shard_count)으로 넘겨준다.
+ * 샤드 수를 바꾸면 기존 id의 샤드 계산이 틀려지므로, 샤드를 늘릴 때는 데이터를 옮기면서 id도 다시 매겨야 한다.
+ */
+public class ShardedIdGenerator extends SequenceStyleGenerator {
+
+    public static final String SHARD_COUNT = "jpashop.shard_count";
+
+    private int shardCount = 1;
+
+    @Override
+    public void configure(Type type, Properties parameters, ServiceRegistry serviceRegistry) throws MappingException {
+        super.configure(type, parameters, serviceRegistry);
+        shardCount = ConfigurationHelper.getInt(SHARD_COUNT,
+                serviceRegistry.requireService(ConfigurationService.class).getSettings(), 1);
+    }
+
+    @Override
+    public Object generate(SharedSessionContractImplementor session, Object object) {
+        if (shardCount == 1) {
+            return super.generate(session, object);
+        }
+        int shard = ShardContext.current();
+        AccessCallback callback = getDatabaseStructure().buildCallback(session);
+        //옵티마이저는 테넌트 식별자마다 구간을 따로 관리한다
+        long sequence = ((Number) getOptimizer().generate(new AccessCallback() {
+            @Override
+            public IntegralDataTypeHolder getNextValue() {
+                return callback.getNextValue();
+            }
+
+            @Override
+            public String getTenantIdentifier() {
+                return "shard-" + shard;
+            }
+        })).longValue();
+        return sequence * shardCount + shard;
+    }
+}
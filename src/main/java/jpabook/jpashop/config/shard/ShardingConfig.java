@@ -0,0 +1,130 @@
+package jpabook.jpashop.config.shard;
+
+import com.zaxxer.hikari.HikariDataSource;
+import io.micrometer.core.instrument.MeterRegistry;
+import jpabook.jpashop.config.datasource.DecoratorExclusion;
+import jpabook.jpashop.repository.ItemRepository;
+import org.hibernate.cfg.AvailableSettings;
+import org.hibernate.resource.jdbc.spi.PhysicalConnectionHandlingMode;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.boot.jdbc.DataSourceBuilder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import jakarta.persistence.EntityManagerFactory;
+import javax.sql.DataSource;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * 주문 샤딩 설정
+ * jpashop.sharding.enabled=true 이면 jpashop.sharding.shards 목록으로 샤드별 커넥션 풀을 만든다.
+ * (로컬에서는 H2 파일 DB 여러 개로 대신한다. 읽기/쓰기 분리 설정과 동시에 켤 수는 없다.)
+ *
+ * 커넥션은 트랜잭션이 끝날 때마다 돌려준다. OSIV로 요청 하나가 EntityManager 하나를 쓰면
+ * 앞 트랜잭션이 얻은 샤드 커넥션으로 뒤 트랜잭션까지 실행되기 때문이다.
+ */
+@Configuration
+@EnableConfigurationProperties(ShardingProperties.class)
+public class ShardingConfig {
+
+    @Bean(destroyMethod = "shutdown")
+    public ExecutorService shardQueryExecutor(ShardingProperties properties) {
+        return Executors.newFixedThreadPool(Math.max(1, properties.getParallelism()), r -> {
+            Thread thread = new Thread(r, "shard-query");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @Bean
+    public OrderShards orderShards(ShardingProperties properties, ExecutorService shardQueryExecutor,
+                                   PlatformTransactionManager transactionManager) {
+        return new OrderShards(shardCount(properties), shardQueryExecutor, transactionManager);
+    }
+
+    @Bean
+    public ShardStocks shardStocks(ShardingProperties properties, EntityManagerFactory emf) {
+        return new ShardStocks(shardCount(properties), emf);
+    }
+
+    @Bean
+    public ShardReplicator shardReplicator(ShardingProperties properties, EntityManagerFactory emf,
+                                           ItemRepository itemRepository, ShardStocks shardStocks,
+                                           MeterRegistry registry) {
+        return new ShardReplicator(shardCount(properties), emf, itemRepository, shardStocks, registry);
+    }
+
+    @Bean(destroyMethod = "close")
+    @ConditionalOnProperty(prefix = "jpashop.sharding", name = "enabled", havingValue = "true")
+    public ShardDataSources shardDataSources(ShardingProperties properties, DataSourceProperties dataSourceProperties) {
+        List<HikariDataSource> pools = new ArrayList<>();
+        List<ShardingProperties.Shard> shards = properties.getShards();
+        for (int i = 0; i < shards.size(); i++) {
+            ShardingProperties.Shard shard = shards.get(i);
+            HikariDataSource dataSource = DataSourceBuilder.create()
+                    .type(HikariDataSource.class)
+                    .driverClassName(dataSourceProperties.determineDriverClassName())
+                    .url(shard.getUrl())
+                    .username(shard.getUsername() != null ? shard.getUsername() : dataSourceProperties.determineUsername())
+                    .password(shard.getPassword() != null ? shard.getPassword() : dataSourceProperties.determinePassword())
+                    .build();
+            dataSource.setPoolName("shard-" + i);
+            pools.add(dataSource);
+        }
+        return new ShardDataSources(pools);
+    }
+
+    //p6spy는 이 빈을 감싸므로 SQL 로그는 실제로 고른 샤드의 커넥션에서 남는다
+    @Bean
+    @ConditionalOnProperty(prefix = "jpashop.sharding", name = "enabled", havingValue = "true")
+    public ShardRoutingDataSource shardRoutingDataSource(ShardDataSources shardDataSources) {
+        ShardRoutingDataSource routing = new ShardRoutingDataSource();
+        routing.setTargetDataSources(shardDataSources.targets());
+        routing.setDefaultTargetDataSource(shardDataSources.shard(0));
+        return routing;
+    }
+
+    //트랜잭션 시작 이후 메서드 안에서 샤드를 정해도 되도록 실제 커넥션은 첫 쿼리 시점에 얻는다
+    @Bean
+    @Primary
+    @ConditionalOnProperty(prefix = "jpashop.sharding", name = "enabled", havingValue = "true")
+    public DataSource dataSource(@Qualifier("shardRoutingDataSource") DataSource shardRoutingDataSource) {
+        return new LazyConnectionDataSourceProxy(shardRoutingDataSource);
+    }
+
+    @Bean
+    @ConditionalOnProperty(prefix = "jpashop.sharding", name = "enabled", havingValue = "true")
+    public static DecoratorExclusion shardDataSourceDecoratorExclusion() {
+        return new DecoratorExclusion("dataSource");
+    }
+
+    @Bean
+    @ConditionalOnProperty(prefix = "jpashop.sharding", name = "enabled", havingValue = "true")
+    public HibernatePropertiesCustomizer shardingHibernateProperties(ShardingProperties properties) {
+        return hibernateProperties -> {
+            hibernateProperties.put(ShardedIdGenerator.SHARD_COUNT, shardCount(properties));
+            hibernateProperties.put(AvailableSettings.CONNECTION_HANDLING,
+                    PhysicalConnectionHandlingMode.DELAYED_ACQUISITION_AND_RELEASE_AFTER_TRANSACTION);
+        };
+    }
+
+    @Bean
+    @ConditionalOnProperty(prefix = "jpashop.sharding", name = "enabled", havingValue = "true")
+    public static ShardSchemaExporter shardSchemaExporter() {
+        return new ShardSchemaExporter();
+    }
+
+    private static int shardCount(ShardingProperties properties) {
+        return properties.isEnabled() ? Math.max(1, properties.getShards().size()) : 1;
+    }
+}
@@ -0,0 +1,25 @@
+package jpabook.jpashop.config.shard;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.util.ArrayList;
+import java.util.List;
+
+//jpashop.sharding.* 설정 (application.yml 참고)
+@Getter @Setter
+@ConfigurationProperties(prefix = "jpashop.sharding")
+public class ShardingProperties {
+
+    private boolean enabled; //false면 샤드 1개(기존 spring.datasource)로 동작
+    private int parallelism = 4; //scatter-gather 조회 스레드 수
+    private List<Shard> shards = new ArrayList<>();
+
+    @Getter @Setter
+    public static class Shard {
+        private String url;
+        private String username;
+        private String password;
+    }
+}
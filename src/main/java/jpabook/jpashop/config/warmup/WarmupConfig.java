@@ -0,0 +1,33 @@
+package jpabook.jpashop.config.warmup;
+
+import jpabook.jpashop.config.datasource.ReplicaLagMonitor;
+import jpabook.jpashop.config.shard.OrderShards;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.ApplicationContext;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import javax.sql.DataSource;
+
+/**
+ * 시작 워밍업 (jpashop.warmup.enabled=true)
+ * 쿠버네티스 readiness 프로브는 /actuator/health/readiness 를 보면 된다. (management.endpoint.health.probes.enabled)
+ */
+@Configuration
+@EnableConfigurationProperties(WarmupProperties.class)
+@ConditionalOnProperty(prefix = "jpashop.warmup", name = "enabled", havingValue = "true")
+public class WarmupConfig {
+
+    @Bean
+    public WarmupRunner warmupRunner(WarmupProperties properties, ApplicationContext context, DataSource dataSource,
+                                     OrderShards orderShards, ObjectProvider<ReplicaLagMonitor> replicaLagMonitor) {
+        return new WarmupRunner(properties, context, dataSource, orderShards, replicaLagMonitor);
+    }
+
+    @Bean
+    public WarmupEndpoint warmupEndpoint(WarmupRunner warmupRunner) {
+        return new WarmupEndpoint(warmupRunner);
+    }
+}
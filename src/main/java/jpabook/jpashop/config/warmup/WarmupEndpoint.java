@@ -0,0 +1,20 @@
+package jpabook.jpashop.config.warmup;
+
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+
+//GET /actuator/warmup - 마지막 워밍업 결과 (워밍업 중이면 null)
+@Endpoint(id = "warmup")
+public class WarmupEndpoint {
+
+    private final WarmupRunner warmupRunner;
+
+    public WarmupEndpoint(WarmupRunner warmupRunner) {
+        this.warmupRunner = warmupRunner;
+    }
+
+    @ReadOperation
+    public WarmupReport warmup() {
+        return warmupRunner.getReport();
+    }
+}
@@ -0,0 +1,28 @@
+package jpabook.jpashop.config.warmup;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+//jpashop.warmup.* 설정 (application.yml 참고)
+@Getter @Setter
+@ConfigurationProperties(prefix = "jpashop.warmup")
+public class WarmupProperties {
+
+    private boolean enabled; //false면 바로 트래픽을 받는다
+    private List<String> paths = new ArrayList<>(List.of( //GET만. 호출할 조회 API (쿼리스트링 포함, limit/size가 있는 페이지 조회만)
+            "/api/v3.1/orders?limit=20",
+            "/api/v5.1/orders?limit=20",
+            "/api/v5.1/orders?limit=20&fields=orderId,orderStatus",
+            "/api/v5/simple-orders?size=20"));
+    private int iterations = 300; //경로마다 호출 횟수
+    private int concurrency = 4; //동시에 부르는 스레드 수 (커넥션 풀 크기 이하로)
+    private Duration timeLimit = Duration.ofSeconds(60); //넘으면 남은 호출은 건너뛰고 트래픽을 받는다
+    private int poolFill = 10; //샤드(DataSource)마다 미리 열어둘 커넥션 수
+    private int window = 20; //안정 상태 판단에 쓰는 연속 호출 수
+    private double tolerance = 0.2; //구간 중앙값이 마지막 구간 중앙값의 (1 + tolerance) 안이면 안정 상태
+}
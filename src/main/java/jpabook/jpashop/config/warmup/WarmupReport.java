@@ -0,0 +1,65 @@
+package jpabook.jpashop.config.warmup;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * 워밍업 결과
+ * 워밍업의 첫 호출들이 워밍업이 없을 때 배포 직후 실제 요청이 겪는 지연이고,
+ * 마지막 구간이 워밍업을 마친 뒤(= 트래픽을 받기 시작할 때)의 지연이다.
+ */
+@Data
+public class WarmupReport {
+
+    private long poolFillMillis;
+    private long totalMillis;
+    private boolean timedOut;
+    private List<PathResult> paths = new ArrayList<>();
+
+    @Data
+    @AllArgsConstructor
+    public static class PathResult {
+        private String path;
+        private int calls;
+        private int errors;
+        private double firstCallMillis; //콜드 스타트 첫 호출
+        private double coldMedianMillis; //처음 window 호출 중앙값 (워밍업 없음)
+        private double warmMedianMillis; //마지막 window 호출 중앙값 (워밍업 후)
+        private int callsToSteadyState; //구간 중앙값이 안정 상태에 들어온 첫 호출 번호 (-1: 못 들어옴)
+        private double millisToSteadyState; //그때까지 걸린 누적 호출 시간
+    }
+
+    //호출 순서대로의 지연(ms)으로 결과를 만든다
+    static PathResult summarize(String path, double[] latencies, int errors, int window, double tolerance) {
+        int n = latencies.length;
+        if (n == 0) {
+            return new PathResult(path, 0, errors, 0, 0, 0, -1, 0);
+        }
+        int w = Math.max(1, Math.min(window, n));
+        double cold = median(latencies, 0, w);
+        double warm = median(latencies, n - w, n);
+        int steady = -1;
+        double elapsed = 0;
+        double elapsedAtSteady = 0;
+        for (int start = 0; start + w <= n; start++) {
+            if (median(latencies, start, start + w) <= warm * (1 + tolerance)) {
+                steady = start;
+                elapsedAtSteady = elapsed;
+                break;
+            }
+            elapsed += latencies[start];
+        }
+        return new PathResult(path, n, errors, latencies[0], cold, warm, steady, elapsedAtSteady);
+    }
+
+    private static double median(double[] values, int from, int to) {
+        double[] copy = Arrays.copyOfRange(values, from, to);
+        Arrays.sort(copy);
+        int mid = copy.length / 2;
+        return copy.length % 2 == 1 ? copy[mid] : (copy[mid - 1] + copy[mid]) / 2;
+    }
+}
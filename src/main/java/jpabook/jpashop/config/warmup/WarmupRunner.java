@@ -0,0 +1,176 @@
+package jpabook.jpashop.config.warmup;
+
+import jpabook.jpashop.config.datasource.ReplicaLagMonitor;
+import jpabook.jpashop.config.shard.OrderShards;
+import jpabook.jpashop.config.shard.ShardContext;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ApplicationContext;
+import org.springframework.web.client.RestClient;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * 배포 직후 워밍업
+ * 스프링 부트는 ApplicationRunner가 모두 끝난 뒤에 readiness를 ACCEPTING_TRAFFIC으로 바꾸므로
+ * 여기서 워밍업을 끝까지 돌리는 동안 /actuator/health/readiness 는 OUT_OF_SERVICE이고 로드밸런서가 트래픽을 보내지 않는다.
+ * (웹 서버는 이미 떠 있어서 자기 자신에게 HTTP로 호출할 수 있다)
+ *
+ * 1. 커넥션 풀 채우기 - 풀(샤드, 또는 읽기/쓰기 분리 중이면 primary와 복제본)마다 poolFill개 커넥션을 동시에 빌렸다가 돌려준다.
+ * 2. 조회 API 호출 - 설정한 경로를 iterations번씩 concurrency 스레드로 호출한다.
+ *    경로는 limit/size가 있는 페이지 조회만 쓴다. (전체 주문을 올리는 경로를 iterations번 부르면 시작이 DB 전체 스캔이 된다)
+ *    readiness 전의 요청은 부하 제한(AdmissionControlFilter)을 거치지 않으므로 콜드 지연으로 한도가 줄지 않는다.
+ *    컨트롤러 -> 리포지토리 JPQL(하이버네이트 쿼리 플랜 캐시에 컴파일돼서 남는다) -> DTO 변환 -> Jackson 직렬화까지
+ *    실제 요청과 같은 경로를 타므로 JIT도 그 경로를 기준으로 컴파일된다.
+ *    (@NamedQuery는 하이버네이트가 시작할 때 이미 검사/컴파일한다. 이 프로젝트는 대부분 문자열 JPQL이라 호출로 컴파일시킨다)
+ *
+ * 워밍업이 실패해도 시작은 막지 않는다. 결과는 로그와 /actuator/warmup 에 남긴다.
+ */
+@Slf4j
+public class WarmupRunner implements ApplicationRunner {
+
+    private final WarmupProperties properties;
+    private final ApplicationContext context;
+    private final DataSource dataSource;
+    private final OrderShards orderShards;
+    private final ObjectProvider<ReplicaLagMonitor> replicaLagMonitor;
+    private volatile WarmupReport report;
+
+    public WarmupRunner(WarmupProperties properties, ApplicationContext context, DataSource dataSource,
+                        OrderShards orderShards, ObjectProvider<ReplicaLagMonitor> replicaLagMonitor) {
+        this.properties = properties;
+        this.context = context;
+        this.dataSource = dataSource;
+        this.orderShards = orderShards;
+        this.replicaLagMonitor = replicaLagMonitor;
+    }
+
+    public WarmupReport getReport() {
+        return report;
+    }
+
+    @Override
+    public void run(ApplicationArguments args) {
+        WarmupReport result = new WarmupReport();
+        long start = System.nanoTime();
+        long deadline = start + properties.getTimeLimit().toNanos();
+
+        long poolStart = System.nanoTime();
+        ReplicaLagMonitor replicas = replicaLagMonitor.getIfAvailable();
+        if (replicas != null) {
+            //읽기/쓰기 분리 중이면 트랜잭션 밖에서 얻는 커넥션은 모두 primary로 가므로 풀마다 직접 채운다
+            fillPool("primary", replicas.primaryDataSource());
+            replicas.replicaDataSources().forEach(this::fillPool);
+        } else {
+            for (int shard = 0; shard < orderShards.count(); shard++) {
+                try (ShardContext.Scope ignored = ShardContext.bind(shard)) {
+                    fillPool("shard-" + shard, dataSource);
+                }
+            }
+        }
+        result.setPoolFillMillis((System.nanoTime() - poolStart) / 1_000_000);
+
+        if (context instanceof WebServerApplicationContext web && web.getWebServer() != null) {
+            RestClient client = RestClient.create("http://localhost:" + web.getWebServer().getPort());
+            ExecutorService executor = Executors.newFixedThreadPool(Math.max(1, properties.getConcurrency()));
+            try {
+                for (String path : properties.getPaths()) {
+                    result.getPaths().add(callPath(client, executor, path, deadline));
+                }
+            } finally {
+                executor.shutdownNow();
+            }
+        }
+        result.setTimedOut(System.nanoTime() > deadline);
+        result.setTotalMillis((System.nanoTime() - start) / 1_000_000);
+        this.report = result;
+
+        log.info("warm-up finished in {} ms (pool fill {} ms{})", result.getTotalMillis(), result.getPoolFillMillis(),
+                result.isTimedOut() ? ", time limit reached" : "");
+        for (WarmupReport.PathResult path : result.getPaths()) {
+            log.info("warm-up {} calls={} errors={} first={} ms cold p50={} ms warm p50={} ms steady after {} calls ({} ms)",
+                    path.getPath(), path.getCalls(), path.getErrors(), round(path.getFirstCallMillis()),
+                    round(path.getColdMedianMillis()), round(path.getWarmMedianMillis()),
+                    path.getCallsToSteadyState(), round(path.getMillisToSteadyState()));
+        }
+    }
+
+    private void fillPool(String name, DataSource pool) {
+        try {
+            fillPool(pool, properties.getPoolFill());
+        } catch (SQLException | RuntimeException e) {
+            log.warn("warm-up pool fill failed on {}", name, e);
+        }
+    }
+
+    //커넥션을 동시에 들고 있어야 풀이 그만큼 새로 만든다
+    private static void fillPool(DataSource pool, int count) throws SQLException {
+        List<Connection> held = new ArrayList<>();
+        try {
+            for (int i = 0; i < count; i++) {
+                Connection connection = pool.getConnection();
+                held.add(connection);
+                try (Statement statement = connection.createStatement()) {
+                    statement.execute("select 1"); //지연 커넥션 프록시면 여기서 실제 커넥션을 얻는다
+                }
+            }
+        } finally {
+            for (Connection connection : held) {
+                connection.close();
+            }
+        }
+    }
+
+    private WarmupReport.PathResult callPath(RestClient client, ExecutorService executor, String path, long deadline) {
+        int iterations = properties.getIterations();
+        double[] latencies = new double[iterations];
+        Arrays.fill(latencies, Double.NaN);
+        List<Future<Boolean>> futures = new ArrayList<>();
+        for (int i = 0; i < iterations; i++) {
+            int index = i;
+            futures.add(executor.submit(() -> {
+                if (System.nanoTime() > deadline) {
+                    return true; //시간 초과 - 건너뜀
+                }
+                long begin = System.nanoTime();
+                try {
+                    client.get().uri(path).retrieve().toBodilessEntity();
+                    return true;
+                } catch (RuntimeException e) {
+                    return false;
+                } finally {
+                    latencies[index] = (System.nanoTime() - begin) / 1_000_000.0;
+                }
+            }));
+        }
+        int errors = 0;
+        for (Future<Boolean> future : futures) {
+            try {
+                if (!future.get()) {
+                    errors++;
+                }
+            } catch (Exception e) {
+                errors++;
+            }
+        }
+        //건너뛴 호출을 빼고 호출 순서대로
+        double[] done = Arrays.stream(latencies).filter(l -> !Double.isNaN(l)).toArray();
+        return WarmupReport.summarize(path, done, errors, properties.getWindow(), properties.getTolerance());
+    }
+
+    private static String round(double millis) {
+        return String.format("%.1f", millis);
+    }
+}
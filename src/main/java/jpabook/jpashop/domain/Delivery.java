@@ -1,6 +1,7 @@
 package jpabook.jpashop.domain;
 
 import jakarta.persistence.*;
+import jpabook.jpashop.config.shard.ShardedId;
 import lombok.Getter;
 import lombok.Setter;
 import org.springframework.boot.autoconfigure.amqp.RabbitConnectionDetails;
@@ -10,7 +11,7 @@ import org.springframework.boot.autoconfigure.amqp.RabbitConnectionDetails;
 @Setter
 public class Delivery {
 
-    @Id @GeneratedValue
+    @Id @ShardedId
     @Column(name = "delivery_id")
     private Long id;
 
@@ -9,6 +9,7 @@ import java.util.List;
 
 @Entity
 @Getter @Setter
+@Table(indexes = @Index(name = "idx_member_name", columnList = "name")) //이름으로 회원/주문 검색
 public class Member {
 
     @Id @GeneratedValue
@@ -1,6 +1,7 @@
 package jpabook.jpashop.domain;
 
 import jakarta.persistence.*;
+import jpabook.jpashop.config.shard.ShardedId;
 import lombok.AccessLevel;
 import lombok.Getter;
 import lombok.NoArgsConstructor;
@@ -13,10 +14,17 @@ import java.util.List;
 @Entity
 @Getter
 @Setter
-@Table(name = "orders")
+//검색 조건(OrderRepository.findAll(OrderSearch, Pageable))에 맞춘 인덱스
+//상태 + 주문일시 정렬, 회원별 + 주문일시, 주문일시 범위 검색
+@Table(name = "orders", indexes = {
+        @Index(name = "idx_orders_status_order_date", columnList = "status, order_date"),
+        @Index(name = "idx_orders_member_order_date", columnList = "member_id, order_date"),
+        @Index(name = "idx_orders_member_order_id", columnList = "member_id, order_id desc"), //회원별 주문 이력 keyset 페이징
+        @Index(name = "idx_orders_order_date", columnList = "order_date")
+})
 @NoArgsConstructor(access = AccessLevel.PROTECTED)
 public class Order {
-    @Id @GeneratedValue
+    @Id @ShardedId
     @Column(name = "order_id")
     private Long id;
 
@@ -37,6 +45,12 @@ public class Order {
     @Enumerated(EnumType.STRING)
     private OrderStatus status;
 
+    //이 주문의 마지막 아웃박스 이벤트 순번 - 주문 생성(OrderPlaced)이 1번
+    //이후 이벤트는 OrderRepository.nextEventSequence()로 DB에서 바로 올리므로 엔티티 변경 감지로는 덮어쓰지 않는다
+    @Column(name = "event_sequence", updatable = false)
+    @Setter(AccessLevel.NONE)
+    private long eventSequence = 1;
+
     //==연관관계 메서드==//
     private void setMember(Member member){
         this.member=member;
@@ -1,6 +1,7 @@
 package jpabook.jpashop.domain;
 
 import jakarta.persistence.*;
+import jpabook.jpashop.config.shard.ShardedId;
 import jpabook.jpashop.domain.item.Item;
 import lombok.AccessLevel;
 import lombok.Getter;
@@ -8,12 +9,13 @@ import lombok.NoArgsConstructor;
 import lombok.Setter;
 
 @Entity
-@Table(name = "order_item")
+//상품 조건으로 주문을 찾을 때(exists 서브쿼리) 사용하는 인덱스
+@Table(name = "order_item", indexes = @Index(name = "idx_order_item_item_order", columnList = "item_id, order_id"))
 @Getter
 @Setter
 @NoArgsConstructor(access = AccessLevel.PROTECTED)
 public class OrderItem {
-    @Id @GeneratedValue
+    @Id @ShardedId
     @Column(name = "order_item_id")
     private Long id;
 
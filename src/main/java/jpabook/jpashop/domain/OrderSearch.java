@@ -2,6 +2,10 @@ package jpabook.jpashop.domain;
 
 import lombok.Getter;
 import lombok.Setter;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.util.StringUtils;
+
+import java.time.LocalDateTime;
 
 //검색 조건 파라미터
 @Getter @Setter
@@ -9,4 +13,19 @@ public class OrderSearch {
 
     private String memberName; //회원의 이름
     private OrderStatus orderStatus; //주문 상태
+
+    @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME)
+    private LocalDateTime orderDateFrom; //주문 일시 시작 (이상)
+    @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME)
+    private LocalDateTime orderDateTo; //주문 일시 끝 (미만)
+
+    private Long itemId; //주문한 상품 ID
+    private String itemName; //주문한 상품 이름 (포함 검색)
+
+    //주문 상태 말고는 조건이 없는지 - 이 경우에는 count 쿼리 대신 카운터를 쓸 수 있다
+    public boolean hasOnlyStatusCondition() {
+        return !StringUtils.hasText(memberName)
+                && orderDateFrom == null && orderDateTo == null
+                && itemId == null && !StringUtils.hasText(itemName);
+    }
 }
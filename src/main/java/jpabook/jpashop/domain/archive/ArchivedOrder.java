@@ -0,0 +1,47 @@
+package jpabook.jpashop.domain.archive;
+
+import jakarta.persistence.*;
+import jpabook.jpashop.domain.Address;
+import jpabook.jpashop.domain.DeliveryStatus;
+import jpabook.jpashop.domain.OrderStatus;
+import lombok.AccessLevel;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * 보관(cold) 주문
+ * 오래되고 끝난 주문(취소 또는 배송완료)을 orders 테이블에서 옮겨 둔다. (OrderArchiver)
+ * 더 이상 바뀌지 않는 데이터라서 연관관계 없이 id만 들고, 배송 정보도 한 테이블에 펼쳐서 저장한다.
+ * 데이터는 네이티브 SQL로 옮기므로 이 엔티티는 테이블 생성과 조회에만 사용한다.
+ */
+@Entity
+@Getter
+@Table(name = "orders_archive", indexes = @Index(name = "idx_orders_archive_order_date", columnList = "order_date"))
+@NoArgsConstructor(access = AccessLevel.PROTECTED)
+public class ArchivedOrder {
+
+    @Id
+    @Column(name = "order_id")
+    private Long id; //원래 주문 id 그대로
+
+    @Column(name = "member_id")
+    private Long memberId;
+
+    @Column(name = "delivery_id")
+    private Long deliveryId;
+
+    private LocalDateTime orderDate;
+
+    @Enumerated(EnumType.STRING)
+    private OrderStatus status;
+
+    @Embedded
+    private Address address; //배송지
+
+    @Enumerated(EnumType.STRING)
+    private DeliveryStatus deliveryStatus;
+
+    private LocalDateTime archivedAt;
+}
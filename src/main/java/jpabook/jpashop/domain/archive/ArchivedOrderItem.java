@@ -0,0 +1,27 @@
+package jpabook.jpashop.domain.archive;
+
+import jakarta.persistence.*;
+import lombok.AccessLevel;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+
+//보관(cold) 주문 상품 - ArchivedOrder 참고
+@Entity
+@Getter
+@Table(name = "order_item_archive", indexes = @Index(name = "idx_order_item_archive_order", columnList = "order_id"))
+@NoArgsConstructor(access = AccessLevel.PROTECTED)
+public class ArchivedOrderItem {
+
+    @Id
+    @Column(name = "order_item_id")
+    private Long id;
+
+    @Column(name = "order_id")
+    private Long orderId;
+
+    @Column(name = "item_id")
+    private Long itemId;
+
+    private int orderPrice;
+    private int count;
+}
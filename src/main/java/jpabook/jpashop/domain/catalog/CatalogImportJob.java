@@ -0,0 +1,77 @@
+package jpabook.jpashop.domain.catalog;
+
+import jakarta.persistence.*;
+import lombok.AccessLevel;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * 상품 CSV 가져오기 작업
+ * processedLines는 청크와 같은 트랜잭션에서 갱신되는 체크포인트라서, 중간에 멈춘 작업은 이 줄 다음부터 다시 시작한다.
+ */
+@Entity
+@Getter
+@NoArgsConstructor(access = AccessLevel.PROTECTED)
+public class CatalogImportJob {
+
+    public enum Status {
+        RUNNING, COMPLETED, FAILED
+    }
+
+    @Id @GeneratedValue
+    @Column(name = "catalog_import_job_id")
+    private Long id;
+
+    private String fileName;
+
+    @Enumerated(EnumType.STRING)
+    private Status status;
+
+    private long processedLines; //처리가 끝난 데이터 줄 수 (헤더 제외)
+    private long created;
+    private long updated;
+    private long failed;
+
+    @Column(length = 1000)
+    private String lastError;
+
+    private LocalDateTime startedAt;
+    private LocalDateTime finishedAt;
+
+    public static CatalogImportJob start(String fileName) {
+        CatalogImportJob job = new CatalogImportJob();
+        job.fileName = fileName;
+        job.status = Status.RUNNING;
+        job.startedAt = LocalDateTime.now();
+        return job;
+    }
+
+    //청크 하나가 커밋될 때 같이 반영
+    public void checkpoint(long lines, long created, long updated, long failed, String lastError) {
+        this.processedLines += lines;
+        this.created += created;
+        this.updated += updated;
+        this.failed += failed;
+        if (lastError != null) {
+            this.lastError = lastError.length() > 1000 ? lastError.substring(0, 1000) : lastError;
+        }
+    }
+
+    public void resume() {
+        this.status = Status.RUNNING;
+        this.finishedAt = null;
+    }
+
+    public void complete() {
+        this.status = Status.COMPLETED;
+        this.finishedAt = LocalDateTime.now();
+    }
+
+    public void fail(String error) {
+        this.status = Status.FAILED;
+        this.finishedAt = LocalDateTime.now();
+        this.lastError = error != null && error.length() > 1000 ? error.substring(0, 1000) : error;
+    }
+}
@@ -0,0 +1,64 @@
+package jpabook.jpashop.domain.idempotency;
+
+import jakarta.persistence.*;
+import jpabook.jpashop.config.shard.ShardedId;
+import lombok.AccessLevel;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * 주문 생성 Idempotency-Key
+ * 주문과 같은 트랜잭션, 같은 샤드(회원 샤드)에 저장한다. 주문이 롤백되면 키도 같이 사라진다.
+ * 키는 회원마다 따로 본다. (다른 회원이 같은 키를 보내도 남의 주문이 나오지 않게)
+ */
+@Entity
+@Getter
+@Table(name = "order_idempotency_key",
+        uniqueConstraints = @UniqueConstraint(name = OrderIdempotencyKey.UNIQUE_CONSTRAINT, columnNames = {"member_id", "idempotency_key"}),
+        indexes = @Index(name = "idx_order_idempotency_expires", columnList = "expires_at"))
+@NoArgsConstructor(access = AccessLevel.PROTECTED)
+public class OrderIdempotencyKey {
+
+    public static final int MAX_KEY_LENGTH = 100;
+    public static final String UNIQUE_CONSTRAINT = "uk_order_idempotency_key";
+
+    @Id @ShardedId
+    @Column(name = "order_idempotency_key_id")
+    private Long id;
+
+    @Column(name = "member_id", nullable = false)
+    private Long memberId;
+
+    @Column(name = "idempotency_key", nullable = false, length = MAX_KEY_LENGTH)
+    private String key;
+
+    @Column(nullable = false, length = 100)
+    private String requestHash; //itemId:count - 같은 키로 다른 주문을 보내면 거절한다
+
+    private Long orderId; //키를 먼저 넣고 주문을 만든 뒤 채운다
+
+    private LocalDateTime createdAt;
+
+    @Column(name = "expires_at")
+    private LocalDateTime expiresAt;
+
+    public static OrderIdempotencyKey create(Long memberId, String key, String requestHash, LocalDateTime expiresAt) {
+        OrderIdempotencyKey idempotencyKey = new OrderIdempotencyKey();
+        idempotencyKey.memberId = memberId;
+        idempotencyKey.key = key;
+        idempotencyKey.requestHash = requestHash;
+        idempotencyKey.createdAt = LocalDateTime.now();
+        idempotencyKey.expiresAt = expiresAt;
+        return idempotencyKey;
+    }
+
+    public boolean isExpired(LocalDateTime now) {
+        return !expiresAt.isAfter(now);
+    }
+
+    public void complete(Long orderId) {
+        this.orderId = orderId;
+    }
+}
@@ -0,0 +1,52 @@
+package jpabook.jpashop.domain.outbox;
+
+import jakarta.persistence.*;
+import jpabook.jpashop.config.shard.ShardedId;
+import lombok.AccessLevel;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * 아웃박스 이벤트
+ * 주문 트랜잭션과 같은 트랜잭션에서 저장하고, OutboxRelay가 나중에 꺼내서 외부(창고, 분석)로 보낸다.
+ * publishedAt이 null이면 아직 안 보낸 이벤트다.
+ */
+@Entity
+@Getter
+@Table(name = "outbox_event", indexes = @Index(name = "idx_outbox_pending",
+        columnList = "published_at, aggregate_id, event_sequence"))
+@NoArgsConstructor(access = AccessLevel.PROTECTED)
+public class OutboxEvent {
+
+    @Id @ShardedId
+    @Column(name = "outbox_event_id")
+    private Long id;
+
+    private String aggregateType; //Order
+    private Long aggregateId; //주문 id
+    @Column(name = "event_sequence")
+    private long sequence; //주문 안에서의 순번 - 같은 주문의 이벤트는 이 순서대로 보낸다 (Order.eventSequence)
+    private String eventType; //OrderPlaced, OrderCancelled, DeliveryStatusChanged
+
+    @Column(length = 4000)
+    private String payload; //JSON
+
+    private LocalDateTime createdAt;
+
+    @Column(name = "published_at")
+    private LocalDateTime publishedAt;
+
+    public static OutboxEvent create(String aggregateType, Long aggregateId, long sequence, String eventType,
+                                     String payload) {
+        OutboxEvent event = new OutboxEvent();
+        event.aggregateType = aggregateType;
+        event.aggregateId = aggregateId;
+        event.sequence = sequence;
+        event.eventType = eventType;
+        event.payload = payload;
+        event.createdAt = LocalDateTime.now();
+        return event;
+    }
+}
@@ -0,0 +1,41 @@
+package jpabook.jpashop.domain.rollup;
+
+import jakarta.persistence.*;
+import lombok.AccessLevel;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+
+import java.io.Serializable;
+import java.time.LocalDate;
+
+/**
+ * 상품별 일 매출 롤업 (취소된 주문은 빠진 순매출)
+ * 주문/취소 트랜잭션 안에서 증감으로 갱신되고(SalesRollup), 네이티브 SQL로만 쓰므로 이 엔티티는 테이블 생성과 조회에만 사용한다.
+ */
+@Entity
+@Getter
+@IdClass(ItemDailySales.Key.class)
+@Table(name = "item_daily_sales", indexes = @Index(name = "idx_item_daily_sales_date_revenue", columnList = "sales_date, revenue"))
+@NoArgsConstructor(access = AccessLevel.PROTECTED)
+public class ItemDailySales {
+
+    @Id
+    @Column(name = "item_id")
+    private Long itemId;
+
+    @Id
+    @Column(name = "sales_date")
+    private LocalDate salesDate; //주문일
+
+    private long revenue;
+    private long units;
+    private long orderCount;
+
+    @EqualsAndHashCode
+    @NoArgsConstructor
+    public static class Key implements Serializable {
+        private Long itemId;
+        private LocalDate salesDate;
+    }
+}
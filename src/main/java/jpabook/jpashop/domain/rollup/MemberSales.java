@@ -0,0 +1,21 @@
+package jpabook.jpashop.domain.rollup;
+
+import jakarta.persistence.*;
+import lombok.AccessLevel;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+
+//회원별 누적 매출 롤업 (취소된 주문은 빠진 순매출)
+@Entity
+@Getter
+@Table(name = "member_sales", indexes = @Index(name = "idx_member_sales_revenue", columnList = "revenue"))
+@NoArgsConstructor(access = AccessLevel.PROTECTED)
+public class MemberSales {
+
+    @Id
+    @Column(name = "member_id")
+    private Long memberId;
+
+    private long revenue;
+    private long orderCount;
+}
@@ -0,0 +1,40 @@
+package jpabook.jpashop.domain.rollup;
+
+import jakarta.persistence.*;
+import jpabook.jpashop.domain.OrderStatus;
+import lombok.AccessLevel;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+
+import java.io.Serializable;
+
+/**
+ * 주문 상태별 주문 수 롤업 (hot 테이블의 주문만 - 보관하면 OrderArchiver가 뺀다)
+ * 주문 검색의 전체 건수(OrderStatusCounter)로도 쓴다.
+ * 모든 주문이 같은 상태 행을 갱신하면 그 행의 락에서 줄을 서므로, 상태마다 slot 행을 여러 개 두고
+ * 트랜잭션마다 아무 slot에나 더한다. 조회할 때 slot을 합친다. (SalesRollupRepository.STATUS_SLOTS)
+ */
+@Entity
+@Getter
+@IdClass(OrderStatusCount.Key.class)
+@Table(name = "order_status_count")
+@NoArgsConstructor(access = AccessLevel.PROTECTED)
+public class OrderStatusCount {
+
+    @Id
+    @Enumerated(EnumType.STRING)
+    private OrderStatus status;
+
+    @Id
+    private int slot;
+
+    private long orderCount;
+
+    @EqualsAndHashCode
+    @NoArgsConstructor
+    public static class Key implements Serializable {
+        private OrderStatus status;
+        private int slot;
+    }
+}
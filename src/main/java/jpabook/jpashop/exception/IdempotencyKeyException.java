@@ -0,0 +1,28 @@
+package jpabook.jpashop.exception;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.server.ResponseStatusException;
+
+//Idempotency-Key 요청 거절 - 스프링 MVC가 상태 코드로 응답한다
+public class IdempotencyKeyException extends ResponseStatusException {
+
+    private IdempotencyKeyException(HttpStatus status, String reason) {
+        super(status, reason);
+    }
+
+    //같은 키로 다른 내용(상품, 수량)의 주문을 보냈다
+    public static IdempotencyKeyException mismatch(String key) {
+        return new IdempotencyKeyException(HttpStatus.UNPROCESSABLE_ENTITY,
+                "Idempotency-Key already used for a different request: " + key);
+    }
+
+    //같은 키의 먼저 온 요청이 waitTimeout 안에 안 끝났다 - 잠시 뒤 다시 보내면 된다
+    public static IdempotencyKeyException inProgress(String key) {
+        return new IdempotencyKeyException(HttpStatus.CONFLICT,
+                "request with the same Idempotency-Key is still in progress: " + key);
+    }
+
+    public static IdempotencyKeyException invalid(String reason) {
+        return new IdempotencyKeyException(HttpStatus.BAD_REQUEST, reason);
+    }
+}
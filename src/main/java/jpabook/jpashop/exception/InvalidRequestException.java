@@ -0,0 +1,12 @@
+package jpabook.jpashop.exception;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.server.ResponseStatusException;
+
+//잘못된 요청 값(정렬 속성, 기간 등) - 스프링 MVC가 400으로 응답한다
+public class InvalidRequestException extends ResponseStatusException {
+
+    public InvalidRequestException(String reason) {
+        super(HttpStatus.BAD_REQUEST, reason);
+    }
+}
@@ -0,0 +1,60 @@
+package jpabook.jpashop.repository;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.LockModeType;
+import jakarta.persistence.TypedQuery;
+import jpabook.jpashop.domain.Delivery;
+import jpabook.jpashop.domain.DeliveryStatus;
+import jpabook.jpashop.domain.OrderStatus;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Repository
+@RequiredArgsConstructor
+public class DeliveryRepository {
+
+    private final EntityManager em;
+
+    public Delivery findOne(Long id) {
+        return em.find(Delivery.class, id);
+    }
+
+    //상태 변경 대상을 주문과 함께 한번에 조회하고, 변경이 끝날 때까지 다른 트랜잭션이 못 건드리게 락을 건다
+    public List<Delivery> findWithOrderForUpdate(List<Long> deliveryIds) {
+        return em.createQuery(
+                "select d from Delivery d join fetch d.order o where d.id in :ids", Delivery.class)
+                .setParameter("ids", deliveryIds)
+                .setLockMode(LockModeType.PESSIMISTIC_WRITE)
+                .getResultList();
+    }
+
+    //조건으로 고를 때 - 취소되지 않은 주문 중 status인 배송 id (id 순서 키셋)
+    public List<Long> findIdsByStatus(DeliveryStatus status, LocalDateTime orderedBefore, Long afterId, int limit) {
+        String jpql = "select d.id from Order o join o.delivery d" +
+                " where d.status = :status and o.status = :orderStatus and d.id > :afterId";
+        if (orderedBefore != null) {
+            jpql += " and o.orderDate < :orderedBefore";
+        }
+        TypedQuery<Long> query = em.createQuery(jpql + " order by d.id", Long.class)
+                .setParameter("status", status)
+                .setParameter("orderStatus", OrderStatus.ORDER)
+                .setParameter("afterId", afterId)
+                .setMaxResults(limit);
+        if (orderedBefore != null) {
+            query.setParameter("orderedBefore", orderedBefore);
+        }
+        return query.getResultList();
+    }
+
+    //벌크 업데이트 한번으로 상태 변경 - 현재 상태가 from인 것만 바꾼다
+    public int updateStatus(List<Long> deliveryIds, DeliveryStatus from, DeliveryStatus to) {
+        return em.createQuery("update Delivery d set d.status = :to where d.id in :ids and d.status = :from")
+                .setParameter("to", to)
+                .setParameter("from", from)
+                .setParameter("ids", deliveryIds)
+                .executeUpdate();
+    }
+}
@@ -1,11 +1,19 @@
 package jpabook.jpashop.repository;
 
 import jakarta.persistence.EntityManager;
+import jpabook.jpashop.domain.item.Album;
+import jpabook.jpashop.domain.item.Book;
 import jpabook.jpashop.domain.item.Item;
+import jpabook.jpashop.domain.item.Movie;
 import lombok.RequiredArgsConstructor;
+import org.hibernate.Session;
 import org.springframework.stereotype.Repository;
 
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
 import java.util.List;
+import java.util.function.IntUnaryOperator;
 
 @Repository
 @RequiredArgsConstructor
@@ -28,4 +36,73 @@ public class ItemRepository {
     public List<Item> findAll(){
         return em.createQuery("select i from Item i", Item.class).getResultList();
     }
+
+    //재고 증가를 벌크 업데이트 한번으로 (영속성 컨텍스트를 거치지 않는다)
+    public int addStock(Long itemId, int quantity) {
+        return em.createQuery("update Item i set i.stockQuantity = i.stockQuantity + :quantity where i.id = :id")
+                .setParameter("quantity", quantity)
+                .setParameter("id", itemId)
+                .executeUpdate();
+    }
+
+    /**
+     * 상품 일괄 수정 (CSV 가져오기용)
+     * merge는 수정 전에 상품마다 select를 하므로, 조회 없이 JDBC 배치 update 하나로 보낸다.
+     * 싱글 테이블이라 모든 타입이 같은 SQL을 쓰고, 해당 타입에 없는 컬럼은 null이 된다.
+     * 반환값은 상품별 수정 건수 - 없는 상품이거나 타입(dtype)이 다르면 0
+     */
+    public int[] updateAll(List<Item> items) {
+        return em.unwrap(Session.class).doReturningWork(connection -> updateAll(connection, items));
+    }
+
+    //다른 DB(샤드)에 같은 id로 상품 복사 (ShardReplicator) - persist는 id를 새로 만들어서 SQL로 넣는다
+    //재고는 그 샤드의 몫(stocks[i])으로 넣는다
+    public int[] insertAll(Connection connection, List<? extends Item> items, int[] stocks) throws SQLException {
+        return executeBatch(connection, "insert into item (name, price, stock_quantity," +
+                " author, isbn, artist, etc, director, actor, item_id, dtype)" +
+                " values (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)", items, i -> stocks[i]);
+    }
+
+    public int[] updateAll(Connection connection, List<? extends Item> items) throws SQLException {
+        return executeBatch(connection, "update item set name = ?, price = ?, stock_quantity = ?," +
+                " author = ?, isbn = ?, artist = ?, etc = ?, director = ?, actor = ?" +
+                " where item_id = ? and dtype = ?", items, i -> items.get(i).getStockQuantity());
+    }
+
+    //다른 DB(샤드)의 상품 수정 (ShardReplicator) - 재고는 덮어쓰지 않고 증감(stockDeltas[i])만 더해서 그 샤드에서 팔린 수량을 남긴다
+    public int[] updateAll(Connection connection, List<? extends Item> items, int[] stockDeltas) throws SQLException {
+        return executeBatch(connection, "update item set name = ?, price = ?," +
+                " stock_quantity = greatest(stock_quantity + ?, 0)," +
+                " author = ?, isbn = ?, artist = ?, etc = ?, director = ?, actor = ?" +
+                " where item_id = ? and dtype = ?", items, i -> stockDeltas[i]);
+    }
+
+    private int[] executeBatch(Connection connection, String sql, List<? extends Item> items,
+                               IntUnaryOperator stockAt) throws SQLException {
+        try (PreparedStatement ps = connection.prepareStatement(sql)) {
+            for (int i = 0; i < items.size(); i++) {
+                Item item = items.get(i);
+                ps.setString(1, item.getName());
+                ps.setInt(2, item.getPrice());
+                ps.setInt(3, stockAt.applyAsInt(i));
+                ps.setString(4, item instanceof Book book ? book.getAuthor() : null);
+                ps.setString(5, item instanceof Book book ? book.getIsbn() : null);
+                ps.setString(6, item instanceof Album album ? album.getArtist() : null);
+                ps.setString(7, item instanceof Album album ? album.getEtc() : null);
+                ps.setString(8, item instanceof Movie movie ? movie.getDirector() : null);
+                ps.setString(9, item instanceof Movie movie ? movie.getActor() : null);
+                ps.setLong(10, item.getId());
+                ps.setString(11, dtype(item));
+                ps.addBatch();
+            }
+            return ps.executeBatch();
+        }
+    }
+
+    private String dtype(Item item) {
+        if (item instanceof Book) return "B";
+        if (item instanceof Album) return "A";
+        if (item instanceof Movie) return "M";
+        throw new IllegalArgumentException("알 수 없는 상품 타입: " + item.getClass());
+    }
 }
@@ -1,23 +1,41 @@
 package jpabook.jpashop.repository;
 
+import com.querydsl.core.types.OrderSpecifier;
 import com.querydsl.core.types.dsl.BooleanExpression;
+import com.querydsl.jpa.JPAExpressions;
+import com.querydsl.jpa.JPQLQuery;
+import com.querydsl.jpa.impl.JPAQuery;
 import com.querydsl.jpa.impl.JPAQueryFactory;
 import jakarta.persistence.EntityManager;
+import jakarta.persistence.LockModeType;
 import jakarta.persistence.TypedQuery;
 import jakarta.persistence.criteria.*;
+import jpabook.jpashop.config.shard.OrderShards;
 import jpabook.jpashop.domain.*;
 import jpabook.jpashop.domain.Order;
+import jpabook.jpashop.domain.item.QItem;
+import jpabook.jpashop.exception.InvalidRequestException;
 import lombok.RequiredArgsConstructor;
+import org.hibernate.Hibernate;
+import org.hibernate.Session;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
 import org.springframework.stereotype.Repository;
 import org.springframework.util.StringUtils;
 
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.time.LocalDateTime;
 import java.util.ArrayList;
+import java.util.Comparator;
 import java.util.List;
 
 @Repository
 @RequiredArgsConstructor
 public class OrderRepository {
     public final EntityManager em;
+    private final OrderShards orderShards;
 
     public void save(Order order) {
         em.persist(order);
@@ -28,7 +46,13 @@ public class OrderRepository {
     }
 
     //검색 주문 조건
+    //샤딩 중이면 샤드마다 id 순으로 1000건씩 조회해서 합친 뒤 앞에서 1000건
     public List<Order> findAllByString(OrderSearch orderSearch) {
+        return orderShards.scatterTop(() -> loadGraph(findAllByStringOnShard(orderSearch)),
+                Comparator.comparing(Order::getId), 1000);
+    }
+
+    private List<Order> findAllByStringOnShard(OrderSearch orderSearch) {
         //QueryDSL을 통해 자바문법답게 쿼리를 만들 수 있으나,
         //아직 안배웠으므로, JPQL과 JPQL Criteria로 만족하자.
         //language=JPAQL
@@ -82,6 +106,7 @@ public class OrderRepository {
             criteria.add(name);
         }
         cq.where(cb.and(criteria.toArray(new Predicate[criteria.size()])));
+        cq.orderBy(cb.asc(o.get("id"))); //샤드별 결과를 같은 기준으로 합치기 위해
         TypedQuery<Order> query = em.createQuery(cq).setMaxResults(1000); //최대 1000건
         return query.getResultList();
     }
@@ -181,16 +206,25 @@ public class OrderRepository {
 
     //JPA 2편 섹션 3 - V3 용 OrderRepository 추가 코드
     //LAZY 그런거 상관없이 검색할 때 연관된 테이블을 한번에 다 긁어온다. fetch join 이니까
+    //조회 API 전용이라 읽기 전용으로 올린다 (변경 감지 스냅샷을 만들지 않는다 - ReadOnlyLoading 참고)
+    //샤딩 중이면 샤드별로 조회해서 합친다 (ToOne은 모두 fetch join이라 준영속이어도 DTO로 바꿀 수 있다)
     public List<Order> findAllWithMemberDelivery(){
-        return em.createQuery(
+        return orderShards.scatter(() -> em.createQuery(
                 "select o from Order o"+
                         " join fetch o.member m" +
                         " join fetch o.delivery d", Order.class
-        ).getResultList();
+        ).setHint(HibernateHints.HINT_READ_ONLY, true)
+                .getResultList(), Comparator.comparing(Order::getId));
     }
 
     //섹션 4의 V3용 메서드
+    //샤딩 중이면 샤드별로 조회해서 합친다. 연관 엔티티를 모두 fetch join 하므로 다른 스레드에서 읽은 엔티티도
+    //지연 로딩 없이 DTO로 변환할 수 있다.
     public List<Order> findAllWithItem() {
+        return orderShards.scatter(this::findAllWithItemOnShard, Comparator.comparing(Order::getId));
+    }
+
+    private List<Order> findAllWithItemOnShard() {
         return em.createQuery(
                 //사실 최신 Hibernate에서는 distinct 키워드가 필요 없다.
                 //실무에서는 QueryDSL로 매우 쉽게 만들 수 있다
@@ -199,18 +233,39 @@ public class OrderRepository {
                         " join fetch o.delivery d"+
                         " join fetch o.orderItems oi"+ // 데이터 양이 여기서 뻥튀기된다
                         " join fetch oi.item i", Order.class)
+                .setHint(HibernateHints.HINT_READ_ONLY, true)
                 .getResultList();
     }
 
     //섹션 4의 V3.1용 메서드
+    //샤딩 중이면 샤드마다 id 순으로 offset + limit건을 조회해서 합친 뒤 자른다 (OrderShards.scatterPage)
     public List<Order> findAllWithMemberDelivery(int offset, int limit){
-        return em.createQuery(
+        return orderShards.scatterPage((first, max) -> loadGraph(em.createQuery(
                 "select o from Order o"+
                         " join fetch o.member m"+
-                        " join fetch o.delivery d", Order.class)
-                .setFirstResult(offset)
-                .setMaxResults(limit)
-                .getResultList();
+                        " join fetch o.delivery d"+
+                        " order by o.id", Order.class)
+                .setHint(HibernateHints.HINT_READ_ONLY, true)
+                .setFirstResult(first.intValue())
+                .setMaxResults(max)
+                .getResultList()), Comparator.comparing(Order::getId), offset, limit);
+    }
+
+    /**
+     * 샤딩 중이면 샤드 쿼리가 다른 스레드의 영속성 컨텍스트에서 실행되어 돌려받은 주문은 준영속이다.
+     * 화면/API가 지연 로딩으로 읽는 연관(회원, 배송, 주문 상품, 상품)을 그 안에서 미리 읽어 둔다. (batch fetch size만큼 in 쿼리)
+     * 샤드가 1개면 호출한 쪽에서 지연 로딩하도록 그대로 둔다.
+     */
+    private List<Order> loadGraph(List<Order> orders) {
+        if (orderShards.count() == 1) {
+            return orders;
+        }
+        for (Order order : orders) {
+            Hibernate.initialize(order.getMember());
+            Hibernate.initialize(order.getDelivery());
+            order.getOrderItems().forEach(orderItem -> Hibernate.initialize(orderItem.getItem()));
+        }
+        return orders;
     }
 
     //QueryDSL 체험
@@ -221,10 +276,62 @@ public class OrderRepository {
         JPAQueryFactory query = new JPAQueryFactory(em);
 
         //굉장히 직관적인 문법. 게다가 컴파일 시점에 오류도 잡아준다.
-        return query.select(order).from(order)
+        return orderShards.scatterTop(() -> query.select(order).from(order)
                 .join(order.member,member)
-                .where(statusEq(orderSearch.getOrderStatus()), nameLike(orderSearch.getMemberName()))
-                .limit(1000).fetch();
+                .where(searchConditions(orderSearch))
+                .orderBy(order.id.asc())
+                .limit(1000).fetch(), Comparator.comparing(Order::getId), 1000);
+    }
+
+    /**
+     * 검색 + 정렬 + 페이징
+     * ToOne 관계(member, delivery)는 fetch join 해도 row가 늘어나지 않으니까 페이징이 가능하다.
+     * 상품 조건은 order_item을 조인하면 row가 늘어나므로 exists 서브쿼리로 건다.
+     * 정렬 가능한 속성: id, orderDate, status (그 외는 예외)
+     * 샤딩 중이면 샤드마다 같은 정렬로 offset + size건을 조회해서 합친 뒤 자른다. (OrderShards.scatterPage)
+     */
+    public List<Order> findAll(OrderSearch orderSearch, Pageable pageable){
+        QOrder order = QOrder.order;
+        OrderSpecifier<?>[] specifiers = orderSpecifiers(pageable.getSort());
+
+        return orderShards.scatterPage((offset, limit) -> new JPAQueryFactory(em).selectFrom(order)
+                .join(order.member, QMember.member).fetchJoin()
+                .join(order.delivery, QDelivery.delivery).fetchJoin()
+                .where(searchConditions(orderSearch))
+                .orderBy(specifiers)
+                .offset(offset)
+                .limit(limit)
+                .fetch(), orderComparator(pageable.getSort()), pageable.getOffset(), pageable.getPageSize());
+    }
+
+    //검색 조건에 맞는 정확한 전체 건수 - 샤딩 중이면 샤드별 건수의 합
+    public long count(OrderSearch orderSearch){
+        return orderShards.scatter(() -> List.of(countOnShard(orderSearch)), (a, b) -> 0).stream()
+                .mapToLong(Long::longValue)
+                .sum();
+    }
+
+    //회원 이름 조건이 있을 때만 member를 조인한다
+    private long countOnShard(OrderSearch orderSearch){
+        QOrder order = QOrder.order;
+        JPAQuery<Long> query = new JPAQueryFactory(em)
+                .select(order.count())
+                .from(order);
+        if(StringUtils.hasText(orderSearch.getMemberName())){
+            query.join(order.member, QMember.member);
+        }
+        Long count = query.where(searchConditions(orderSearch)).fetchOne();
+        return count == null ? 0 : count;
+    }
+
+    private BooleanExpression[] searchConditions(OrderSearch orderSearch){
+        return new BooleanExpression[]{
+                statusEq(orderSearch.getOrderStatus()),
+                nameLike(orderSearch.getMemberName()),
+                orderDateGoe(orderSearch.getOrderDateFrom()),
+                orderDateLt(orderSearch.getOrderDateTo()),
+                orderedItem(orderSearch.getItemId(), orderSearch.getItemName())
+        };
     }
 
     private BooleanExpression nameLike(String name) {
@@ -240,4 +347,137 @@ public class OrderRepository {
         }
         return QOrder.order.status.eq(statusCond);
     }
+
+    private BooleanExpression orderDateGoe(LocalDateTime from){
+        return from == null ? null : QOrder.order.orderDate.goe(from);
+    }
+
+    private BooleanExpression orderDateLt(LocalDateTime to){
+        return to == null ? null : QOrder.order.orderDate.lt(to);
+    }
+
+    //일괄 취소 대상 - 배송 상태까지 한번에 조회하고 취소가 끝날 때까지 락을 건다
+    public List<Order> findWithDeliveryForUpdate(List<Long> orderIds) {
+        return em.createQuery("select o from Order o join fetch o.delivery d where o.id in :ids", Order.class)
+                .setParameter("ids", orderIds)
+                .setLockMode(LockModeType.PESSIMISTIC_WRITE)
+                .getResultList();
+    }
+
+    //주문 상품을 엔티티로 올리지 않고 [주문 id, 상품 id, 주문 가격, 수량]만 조회
+    public List<Object[]> findOrderLines(List<Long> orderIds) {
+        return em.createQuery(
+                "select oi.order.id, oi.item.id, oi.orderPrice, oi.count from OrderItem oi" +
+                        " where oi.order.id in :ids order by oi.order.id, oi.id", Object[].class)
+                .setParameter("ids", orderIds)
+                .getResultList();
+    }
+
+    /**
+     * 주문의 다음 아웃박스 이벤트 순번
+     * 주문 row를 update 하면서 올리므로 같은 주문을 바꾸는 트랜잭션끼리는 row 락 순서(= 커밋 순서)대로 순번을 받는다.
+     * 어느 인스턴스가 저장했든 (이벤트 id는 인스턴스마다 할당 블록이 달라 순서가 뒤바뀔 수 있다) 순번은 주문 안에서 커밋 순서다.
+     * JPQL 벌크 update는 먼저 flush 해서 상품 재고 row 락을 롤업 MERGE보다 일찍 잡으므로 (주문 트랜잭션과 반대 순서라 교착)
+     * 롤업처럼 JDBC로 바로 실행한다. 같은 트랜잭션에서 만든 주문이라 아직 insert 전이면 그때만 flush 한다.
+     */
+    public long nextEventSequence(Long orderId) {
+        Long sequence = incrementEventSequence(orderId);
+        if (sequence == null) {
+            em.flush();
+            sequence = incrementEventSequence(orderId);
+        }
+        if (sequence == null) {
+            throw new IllegalStateException("존재하지 않는 주문입니다. orderId=" + orderId);
+        }
+        return sequence;
+    }
+
+    //주문 row가 없으면 null
+    private Long incrementEventSequence(Long orderId) {
+        return em.unwrap(Session.class).doReturningWork(connection -> {
+            try (PreparedStatement update = connection.prepareStatement(
+                         "update orders set event_sequence = event_sequence + 1 where order_id = ?");
+                 PreparedStatement select = connection.prepareStatement(
+                         "select event_sequence from orders where order_id = ?")) {
+                update.setLong(1, orderId);
+                if (update.executeUpdate() == 0) {
+                    return null;
+                }
+                select.setLong(1, orderId);
+                try (ResultSet rs = select.executeQuery()) {
+                    rs.next();
+                    return rs.getLong(1);
+                }
+            }
+        });
+    }
+
+    //벌크 업데이트 한번으로 취소 - 아직 주문 상태인 것만 바꾼다
+    public int cancelAll(List<Long> orderIds) {
+        return em.createQuery("update Order o set o.status = :cancel where o.id in :ids and o.status = :order")
+                .setParameter("cancel", OrderStatus.CANCEL)
+                .setParameter("order", OrderStatus.ORDER)
+                .setParameter("ids", orderIds)
+                .executeUpdate();
+    }
+
+    //해당 상품을 포함한 주문인지 - 상품 이름 조건이 있을 때만 item을 조인한다
+    private BooleanExpression orderedItem(Long itemId, String itemName){
+        if(itemId == null && !StringUtils.hasText(itemName)){
+            return null;
+        }
+        QOrderItem orderItem = QOrderItem.orderItem;
+        JPQLQuery<Integer> subQuery = JPAExpressions.selectOne()
+                .from(orderItem)
+                .where(orderItem.order.eq(QOrder.order),
+                        itemId == null ? null : orderItem.item.id.eq(itemId));
+        if(StringUtils.hasText(itemName)){
+            subQuery.join(orderItem.item, QItem.item)
+                    .where(QItem.item.name.contains(itemName));
+        }
+        return subQuery.exists();
+    }
+
+    private OrderSpecifier<?>[] orderSpecifiers(Sort sort){
+        List<OrderSpecifier<?>> specifiers = new ArrayList<>();
+        boolean sortedById = false;
+        for(Sort.Order sortOrder : sort){
+            com.querydsl.core.types.Order direction = sortOrder.isAscending()
+                    ? com.querydsl.core.types.Order.ASC : com.querydsl.core.types.Order.DESC;
+            switch (sortOrder.getProperty()) {
+                case "id" -> {
+                    specifiers.add(new OrderSpecifier<>(direction, QOrder.order.id));
+                    sortedById = true;
+                }
+                case "orderDate" -> specifiers.add(new OrderSpecifier<>(direction, QOrder.order.orderDate));
+                case "status" -> specifiers.add(new OrderSpecifier<>(direction, QOrder.order.status));
+                default -> throw new InvalidRequestException("정렬할 수 없는 속성입니다: " + sortOrder.getProperty());
+            }
+        }
+        //정렬 값이 같은 주문끼리 페이지마다 순서가 바뀌지 않도록 마지막에 id로 한번 더 정렬
+        if(!sortedById){
+            specifiers.add(QOrder.order.id.desc());
+        }
+        return specifiers.toArray(new OrderSpecifier<?>[0]);
+    }
+
+    //샤드별 결과를 합칠 때 쓰는 orderSpecifiers()와 같은 정렬 (DB처럼 null이 앞, 상태는 이름순)
+    private Comparator<Order> orderComparator(Sort sort){
+        Comparator<Order> comparator = (a, b) -> 0;
+        boolean sortedById = false;
+        for(Sort.Order sortOrder : sort){
+            Comparator<Order> next = switch (sortOrder.getProperty()) {
+                case "id" -> Comparator.comparing(Order::getId);
+                case "orderDate" -> Comparator.comparing(Order::getOrderDate, Comparator.nullsFirst(Comparator.naturalOrder()));
+                case "status" -> Comparator.comparing(o -> o.getStatus().name());
+                default -> throw new InvalidRequestException("정렬할 수 없는 속성입니다: " + sortOrder.getProperty());
+            };
+            sortedById |= sortOrder.getProperty().equals("id");
+            comparator = comparator.thenComparing(sortOrder.isAscending() ? next : next.reversed());
+        }
+        if(!sortedById){
+            comparator = comparator.thenComparing(Comparator.comparing(Order::getId).reversed());
+        }
+        return comparator;
+    }
 }
\ No newline at end of file
@@ -0,0 +1,115 @@
+package jpabook.jpashop.repository.archive;
+
+import jakarta.persistence.EntityManager;
+import jpabook.jpashop.domain.DeliveryStatus;
+import jpabook.jpashop.domain.OrderStatus;
+import jpabook.jpashop.repository.order.query.OrderItemQueryDto;
+import jpabook.jpashop.repository.order.query.OrderQueryDto;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * 주문 보관(archive) 레포
+ * hot 테이블(orders, order_item, delivery) -> cold 테이블(orders_archive, order_item_archive) 이동은
+ * 엔티티를 읽지 않고 insert ... select / delete 네이티브 SQL로 한번에 처리한다.
+ * (영속성 컨텍스트를 거치지 않으므로 호출하는 쪽에서 배치마다 트랜잭션을 나누고 em.clear() 한다.)
+ */
+@Repository
+@RequiredArgsConstructor
+public class OrderArchiveRepository {
+
+    private final EntityManager em;
+
+    //보관 대상 주문 id와 상태 - 주문일이 cutoff 이전이고, 취소되었거나 배송이 완료된 주문
+    public List<Object[]> findArchivableOrders(LocalDateTime cutoff, int limit) {
+        return em.createQuery(
+                "select o.id, o.status from Order o" +
+                        " join o.delivery d" +
+                        " where o.orderDate < :cutoff" +
+                        " and (o.status = :cancel or d.status = :comp)" +
+                        " order by o.id", Object[].class)
+                .setParameter("cutoff", cutoff)
+                .setParameter("cancel", OrderStatus.CANCEL)
+                .setParameter("comp", DeliveryStatus.COMP)
+                .setMaxResults(limit)
+                .getResultList();
+    }
+
+    //보관 테이블로 복사한 뒤 원본을 지운다. 반환값은 옮긴 주문 수
+    public int moveToArchive(List<Long> orderIds, LocalDateTime archivedAt) {
+        int moved = em.createNativeQuery(
+                "insert into orders_archive" +
+                        " (order_id, member_id, delivery_id, order_date, status," +
+                        " city, street, zipcode, delivery_status, archived_at)" +
+                        " select o.order_id, o.member_id, o.delivery_id, o.order_date, o.status," +
+                        " d.city, d.street, d.zipcode, d.status, :archivedAt" +
+                        " from orders o join delivery d on d.delivery_id = o.delivery_id" +
+                        " where o.order_id in (:orderIds)")
+                .setParameter("archivedAt", archivedAt)
+                .setParameter("orderIds", orderIds)
+                .executeUpdate();
+        em.createNativeQuery(
+                "insert into order_item_archive (order_item_id, order_id, item_id, order_price, count)" +
+                        " select order_item_id, order_id, item_id, order_price, count" +
+                        " from order_item where order_id in (:orderIds)")
+                .setParameter("orderIds", orderIds)
+                .executeUpdate();
+
+        //FK 순서대로 지운다: order_item -> orders -> delivery
+        em.createNativeQuery("delete from order_item where order_id in (:orderIds)")
+                .setParameter("orderIds", orderIds)
+                .executeUpdate();
+        em.createNativeQuery("delete from orders where order_id in (:orderIds)")
+                .setParameter("orderIds", orderIds)
+                .executeUpdate();
+        em.createNativeQuery("delete from delivery where delivery_id in" +
+                        " (select delivery_id from orders_archive where order_id in (:orderIds))")
+                .setParameter("orderIds", orderIds)
+                .executeUpdate();
+        return moved;
+    }
+
+    //보관 기간이 지난 보관 주문 id
+    public List<Long> findPurgeableOrderIds(LocalDateTime cutoff, int limit) {
+        return em.createQuery(
+                "select o.id from ArchivedOrder o where o.orderDate < :cutoff order by o.id", Long.class)
+                .setParameter("cutoff", cutoff)
+                .setMaxResults(limit)
+                .getResultList();
+    }
+
+    public int purge(List<Long> orderIds) {
+        em.createQuery("delete from ArchivedOrderItem oi where oi.orderId in :orderIds")
+                .setParameter("orderIds", orderIds)
+                .executeUpdate();
+        return em.createQuery("delete from ArchivedOrder o where o.id in :orderIds")
+                .setParameter("orderIds", orderIds)
+                .executeUpdate();
+    }
+
+    //보관 주문 단건 조회 - 회원/상품은 hot 테이블에 그대로 있으므로 id로 조인한다
+    public OrderQueryDto findOrderQueryDto(Long orderId) {
+        List<OrderQueryDto> result = em.createQuery(
+                "select new jpabook.jpashop.repository.order.query.OrderQueryDto" +
+                        "(o.id, m.name, o.orderDate, o.status, o.address)" +
+                        " from ArchivedOrder o, Member m" +
+                        " where m.id = o.memberId and o.id = :orderId", OrderQueryDto.class)
+                .setParameter("orderId", orderId)
+                .getResultList();
+        if (result.isEmpty()) {
+            return null;
+        }
+        OrderQueryDto order = result.get(0);
+        order.setOrderItems(em.createQuery(
+                "select new jpabook.jpashop.repository.order.query.OrderItemQueryDto" +
+                        "(oi.orderId, i.name, oi.orderPrice, oi.count)" +
+                        " from ArchivedOrderItem oi, Item i" +
+                        " where i.id = oi.itemId and oi.orderId = :orderId", OrderItemQueryDto.class)
+                .setParameter("orderId", orderId)
+                .getResultList());
+        return order;
+    }
+}
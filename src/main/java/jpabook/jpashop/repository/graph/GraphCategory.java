@@ -0,0 +1,5 @@
+package jpabook.jpashop.repository.graph;
+
+//GraphQL Category 노드 - 부모는 id만 (parent 필드도 DataLoader로 채운다)
+public record GraphCategory(Long id, String name, Long parentId) {
+}
@@ -0,0 +1,8 @@
+package jpabook.jpashop.repository.graph;
+
+import jpabook.jpashop.domain.Address;
+import jpabook.jpashop.domain.DeliveryStatus;
+
+//GraphQL Delivery 노드
+public record GraphDelivery(Long id, Address address, DeliveryStatus status) {
+}
@@ -0,0 +1,29 @@
+package jpabook.jpashop.repository.graph;
+
+import jpabook.jpashop.domain.item.Album;
+import jpabook.jpashop.domain.item.Book;
+import jpabook.jpashop.domain.item.Item;
+import jpabook.jpashop.domain.item.Movie;
+
+//GraphQL Item 노드 - 상품 종류별 필드는 해당 종류일 때만 값이 있다
+public record GraphItem(Long id, String type, String name, int price, int stockQuantity,
+                        String author, String isbn, String artist, String etc, String director, String actor) {
+
+    public static GraphItem from(Item item) {
+        if (item instanceof Book book) {
+            return new GraphItem(item.getId(), "BOOK", item.getName(), item.getPrice(), item.getStockQuantity(),
+                    book.getAuthor(), book.getIsbn(), null, null, null, null);
+        }
+        if (item instanceof Album album) {
+            return new GraphItem(item.getId(), "ALBUM", item.getName(), item.getPrice(), item.getStockQuantity(),
+                    null, null, album.getArtist(), album.getEtc(), null, null);
+        }
+        Movie movie = (Movie) item;
+        return new GraphItem(item.getId(), "MOVIE", item.getName(), item.getPrice(), item.getStockQuantity(),
+                null, null, null, null, movie.getDirector(), movie.getActor());
+    }
+
+    public GraphItem withStockQuantity(int stockQuantity) {
+        return new GraphItem(id, type, name, price, stockQuantity, author, isbn, artist, etc, director, actor);
+    }
+}
@@ -0,0 +1,7 @@
+package jpabook.jpashop.repository.graph;
+
+import jpabook.jpashop.domain.Address;
+
+//GraphQL Member 노드
+public record GraphMember(Long id, String name, Address address) {
+}
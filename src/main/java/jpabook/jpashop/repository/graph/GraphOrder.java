@@ -0,0 +1,9 @@
+package jpabook.jpashop.repository.graph;
+
+import jpabook.jpashop.domain.OrderStatus;
+
+import java.time.LocalDateTime;
+
+//GraphQL Order 노드 - 연관은 FK id만 들고 있고 실제 조회는 DataLoader가 모아서 한다
+public record GraphOrder(Long id, Long memberId, Long deliveryId, LocalDateTime orderDate, OrderStatus status) {
+}
@@ -0,0 +1,9 @@
+package jpabook.jpashop.repository.graph;
+
+//GraphQL OrderItem 노드
+public record GraphOrderItem(Long id, Long orderId, Long itemId, int orderPrice, int count) {
+
+    public int totalPrice() {
+        return orderPrice * count;
+    }
+}
@@ -0,0 +1,232 @@
+package jpabook.jpashop.repository.graph;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.TypedQuery;
+import jpabook.jpashop.config.shard.OrderShards;
+import jpabook.jpashop.config.shard.ShardStocks;
+import jpabook.jpashop.domain.OrderStatus;
+import jpabook.jpashop.domain.item.Item;
+import lombok.RequiredArgsConstructor;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.stream.Collectors;
+
+/**
+ * GraphQL(/graphql) 조회용 리포지토리
+ * 루트 목록 조회를 빼면 전부 "id 목록 -> in 쿼리 한번"이다. DataLoader가 요청 하나 안에서 같은 단계의 키를 모아서 부르므로
+ * 쿼리 중첩이 아무리 깊어도 연관 단계마다 SQL 한번만 나간다. (키가 1000개를 넘으면 DataLoader가 1000개씩 나눠 부른다)
+ * 엔티티 대신 FK id를 가진 DTO로 조회해서 지연 로딩이 끼어들 틈이 없다.
+ *
+ * 주문 애그리거트(orders, order_item, delivery)는 샤드에 나뉘어 있으므로 모든 샤드에 같은 in 쿼리를 보내서 합친다.
+ */
+@Repository
+@RequiredArgsConstructor
+public class ShopGraphRepository {
+
+    private final EntityManager em;
+    private final OrderShards orderShards;
+    private final ShardStocks shardStocks;
+
+    //주문 목록 (최신순 keyset 페이징)
+    public List<GraphOrder> findOrders(Long lastOrderId, int limit) {
+        return orderShards.scatterTop(() -> keyset(em.createQuery("select new" +
+                                " jpabook.jpashop.repository.graph.GraphOrder" +
+                                "(o.id, o.member.id, o.delivery.id, o.orderDate, o.status)" +
+                                " from Order o" +
+                                (lastOrderId == null ? "" : " where o.id < :lastId") +
+                                " order by o.id desc", GraphOrder.class), lastOrderId, limit)
+                        .getResultList(),
+                Comparator.comparing(GraphOrder::id).reversed(), limit);
+    }
+
+    public List<GraphOrder> findOrdersByIds(Collection<Long> orderIds) {
+        return orderShards.scatter(() -> em.createQuery("select new" +
+                                " jpabook.jpashop.repository.graph.GraphOrder" +
+                                "(o.id, o.member.id, o.delivery.id, o.orderDate, o.status)" +
+                                " from Order o" +
+                                " where o.id in :orderIds", GraphOrder.class)
+                        .setParameter("orderIds", orderIds)
+                        .getResultList(),
+                Comparator.comparing(GraphOrder::id));
+    }
+
+    /**
+     * 회원별 최근 주문 perMember건씩 (회원 여러 명을 쿼리 한번에)
+     * 회원마다 limit을 거는 건 JPQL로 한번에 표현이 안 돼서 row_number() 윈도우 함수를 쓰는 네이티브 쿼리로 조회한다.
+     * (member_id, order_id desc) 인덱스 순서대로 읽는다.
+     */
+    public Map<Long, List<GraphOrder>> findRecentOrdersByMemberIds(Collection<Long> memberIds, int perMember) {
+        List<GraphOrder> orders = orderShards.scatter(() -> {
+            @SuppressWarnings("unchecked")
+            List<Object[]> rows = em.createNativeQuery("select order_id, member_id, delivery_id, order_date, status" +
+                            " from (select o.order_id, o.member_id, o.delivery_id, o.order_date, o.status," +
+                            " row_number() over (partition by o.member_id order by o.order_id desc) as rn" +
+                            " from orders o where o.member_id in (:memberIds)) t" +
+                            " where t.rn <= :perMember")
+                    .setParameter("memberIds", memberIds)
+                    .setParameter("perMember", perMember)
+                    .getResultList();
+            return rows.stream().map(ShopGraphRepository::toOrder).toList();
+        }, Comparator.comparing(GraphOrder::id).reversed());
+        return orders.stream().collect(Collectors.groupingBy(GraphOrder::memberId));
+    }
+
+    /**
+     * 목록 조회의 keyset 조건
+     * "(:last is null or id < :last)"는 인덱스 범위 탐색을 막을 수 있어서 첫 페이지와 다음 페이지 쿼리를 나누고
+     * (OrderQueryRepository.findMemberOrdersBefore와 같은 방법) 다음 페이지일 때만 :lastId를 넣는다.
+     */
+    private static <T> TypedQuery<T> keyset(TypedQuery<T> query, Long lastId, int limit) {
+        if (lastId != null) {
+            query.setParameter("lastId", lastId);
+        }
+        return query.setMaxResults(limit);
+    }
+
+    private static GraphOrder toOrder(Object[] row) {
+        Object orderDate = row[3];
+        return new GraphOrder(
+                ((Number) row[0]).longValue(),
+                row[1] == null ? null : ((Number) row[1]).longValue(),
+                row[2] == null ? null : ((Number) row[2]).longValue(),
+                orderDate instanceof Timestamp ts ? ts.toLocalDateTime() : (LocalDateTime) orderDate,
+                row[4] == null ? null : OrderStatus.valueOf((String) row[4]));
+    }
+
+    public Map<Long, List<GraphOrderItem>> findOrderItemsByOrderIds(Collection<Long> orderIds) {
+        List<GraphOrderItem> orderItems = orderShards.scatter(() -> em.createQuery("select new" +
+                                " jpabook.jpashop.repository.graph.GraphOrderItem" +
+                                "(oi.id, oi.order.id, oi.item.id, oi.orderPrice, oi.count)" +
+                                " from OrderItem oi" +
+                                " where oi.order.id in :orderIds", GraphOrderItem.class)
+                        .setParameter("orderIds", orderIds)
+                        .getResultList(),
+                Comparator.comparing(GraphOrderItem::id));
+        return orderItems.stream().collect(Collectors.groupingBy(GraphOrderItem::orderId));
+    }
+
+    public List<GraphDelivery> findDeliveriesByIds(Collection<Long> deliveryIds) {
+        return orderShards.scatter(() -> em.createQuery("select new" +
+                                " jpabook.jpashop.repository.graph.GraphDelivery(d.id, d.address, d.status)" +
+                                " from Delivery d" +
+                                " where d.id in :deliveryIds", GraphDelivery.class)
+                        .setParameter("deliveryIds", deliveryIds)
+                        .getResultList(),
+                Comparator.comparing(GraphDelivery::id));
+    }
+
+    public List<GraphMember> findMembers(Long lastMemberId, int limit) {
+        return keyset(em.createQuery("select new" +
+                        " jpabook.jpashop.repository.graph.GraphMember(m.id, m.name, m.address)" +
+                        " from Member m" +
+                        (lastMemberId == null ? "" : " where m.id > :lastId") +
+                        " order by m.id", GraphMember.class), lastMemberId, limit)
+                .getResultList();
+    }
+
+    public List<GraphMember> findMembersByIds(Collection<Long> memberIds) {
+        return em.createQuery("select new" +
+                        " jpabook.jpashop.repository.graph.GraphMember(m.id, m.name, m.address)" +
+                        " from Member m" +
+                        " where m.id in :memberIds", GraphMember.class)
+                .setParameter("memberIds", memberIds)
+                .getResultList();
+    }
+
+    //상품은 종류별 필드 때문에 엔티티로 읽고 바로 DTO로 바꾼다 (읽기 전용이라 스냅샷은 남지 않는다)
+    public List<GraphItem> findItems(Long lastItemId, int limit) {
+        return withTotalStock(keyset(em.createQuery("select i from Item i" +
+                        (lastItemId == null ? "" : " where i.id > :lastId") +
+                        " order by i.id", Item.class), lastItemId, limit)
+                .setHint(HibernateHints.HINT_READ_ONLY, true)
+                .getResultList().stream()
+                .map(GraphItem::from)
+                .toList());
+    }
+
+    public List<GraphItem> findItemsByIds(Collection<Long> itemIds) {
+        return withTotalStock(em.createQuery("select i from Item i where i.id in :itemIds", Item.class)
+                .setParameter("itemIds", itemIds)
+                .setHint(HibernateHints.HINT_READ_ONLY, true)
+                .getResultList().stream()
+                .map(GraphItem::from)
+                .toList());
+    }
+
+    //카테고리에 속한 상품 - category_item 조인 한번으로 카테고리 여러 개를 채운다
+    public Map<Long, List<GraphItem>> findItemsByCategoryIds(Collection<Long> categoryIds) {
+        List<Object[]> rows = em.createQuery("select c.id, i from Category c" +
+                        " join c.items i" +
+                        " where c.id in :categoryIds" +
+                        " order by i.id", Object[].class)
+                .setParameter("categoryIds", categoryIds)
+                .setHint(HibernateHints.HINT_READ_ONLY, true)
+                .getResultList();
+        List<GraphItem> items = withTotalStock(rows.stream().map(row -> GraphItem.from((Item) row[1])).toList());
+        Map<Long, List<GraphItem>> result = new HashMap<>();
+        for (int i = 0; i < rows.size(); i++) {
+            result.computeIfAbsent((Long) rows.get(i)[0], id -> new ArrayList<>()).add(items.get(i));
+        }
+        return result;
+    }
+
+    //샤딩 중이면 재고를 모든 샤드 몫의 합으로 바꾼다 (0번 샤드에는 자기 몫만 있다)
+    private List<GraphItem> withTotalStock(List<GraphItem> items) {
+        if (!shardStocks.isSharded() || items.isEmpty()) {
+            return items;
+        }
+        Map<Long, Integer> totals = shardStocks.totals(items.stream().map(GraphItem::id).collect(Collectors.toSet()));
+        return items.stream()
+                .map(item -> item.withStockQuantity(totals.getOrDefault(item.id(), item.stockQuantity())))
+                .toList();
+    }
+
+    public List<GraphCategory> findRootCategories() {
+        return em.createQuery("select new" +
+                        " jpabook.jpashop.repository.graph.GraphCategory(c.id, c.name, c.parent.id)" +
+                        " from Category c" +
+                        " where c.parent is null" +
+                        " order by c.id", GraphCategory.class)
+                .getResultList();
+    }
+
+    public List<GraphCategory> findCategoriesByIds(Collection<Long> categoryIds) {
+        return em.createQuery("select new" +
+                        " jpabook.jpashop.repository.graph.GraphCategory(c.id, c.name, c.parent.id)" +
+                        " from Category c" +
+                        " where c.id in :categoryIds", GraphCategory.class)
+                .setParameter("categoryIds", categoryIds)
+                .getResultList();
+    }
+
+    public Map<Long, List<GraphCategory>> findCategoriesByParentIds(Collection<Long> parentIds) {
+        return em.createQuery("select new" +
+                        " jpabook.jpashop.repository.graph.GraphCategory(c.id, c.name, c.parent.id)" +
+                        " from Category c" +
+                        " where c.parent.id in :parentIds" +
+                        " order by c.id", GraphCategory.class)
+                .setParameter("parentIds", parentIds)
+                .getResultList().stream()
+                .collect(Collectors.groupingBy(GraphCategory::parentId));
+    }
+
+    //상품이 속한 카테고리 - 상품 여러 개를 category_item 조인 한번으로
+    public Map<Long, List<GraphCategory>> findCategoriesByItemIds(Collection<Long> itemIds) {
+        List<Object[]> rows = em.createQuery("select i.id, c.id, c.name, c.parent.id from Category c" +
+                        " join c.items i" +
+                        " where i.id in :itemIds" +
+                        " order by c.id", Object[].class)
+                .setParameter("itemIds", itemIds)
+                .getResultList();
+        Map<Long, List<GraphCategory>> result = new HashMap<>();
+        for (Object[] row : rows) {
+            result.computeIfAbsent((Long) row[0], id -> new ArrayList<>())
+                    .add(new GraphCategory((Long) row[1], (String) row[2], (Long) row[3]));
+        }
+        return result;
+    }
+}
@@ -0,0 +1,54 @@
+package jpabook.jpashop.repository.idempotency;
+
+import jakarta.persistence.EntityManager;
+import jpabook.jpashop.domain.idempotency.OrderIdempotencyKey;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+@RequiredArgsConstructor
+public class OrderIdempotencyKeyRepository {
+
+    private final EntityManager em;
+
+    //키 행을 바로 flush해서 다른 인스턴스의 같은 키 요청이 unique 제약에서 기다리게 한다
+    public void saveAndFlush(OrderIdempotencyKey idempotencyKey) {
+        em.persist(idempotencyKey);
+        em.flush();
+    }
+
+    //만료 여부는 호출하는 쪽에서 본다 (만료됐지만 아직 안 지워진 행도 unique 제약에는 걸리므로)
+    public Optional<OrderIdempotencyKey> find(Long memberId, String key) {
+        return em.createQuery(
+                "select k from OrderIdempotencyKey k where k.memberId = :memberId and k.key = :key",
+                        OrderIdempotencyKey.class)
+                .setParameter("memberId", memberId)
+                .setParameter("key", key)
+                .getResultStream()
+                .findFirst();
+    }
+
+    public void delete(OrderIdempotencyKey idempotencyKey) {
+        em.remove(idempotencyKey);
+        em.flush();
+    }
+
+    //만료된 키 정리 (limit건씩)
+    public int deleteExpired(LocalDateTime now, int limit) {
+        List<Long> ids = em.createQuery(
+                "select k.id from OrderIdempotencyKey k where k.expiresAt <= :now order by k.expiresAt", Long.class)
+                .setParameter("now", now)
+                .setMaxResults(limit)
+                .getResultList();
+        if (ids.isEmpty()) {
+            return 0;
+        }
+        return em.createQuery("delete from OrderIdempotencyKey k where k.id in :ids")
+                .setParameter("ids", ids)
+                .executeUpdate();
+    }
+}
@@ -0,0 +1,19 @@
+package jpabook.jpashop.repository.item.query;
+
+import lombok.Data;
+
+//상품 목록 화면/API용 DTO - 하위 타입(Book, Album, Movie) 컬럼은 가져오지 않는다
+@Data
+public class ItemQueryDto {
+    private Long id;
+    private String name;
+    private int price;
+    private int stockQuantity;
+
+    public ItemQueryDto(Long id, String name, int price, int stockQuantity) {
+        this.id = id;
+        this.name = name;
+        this.price = price;
+        this.stockQuantity = stockQuantity;
+    }
+}
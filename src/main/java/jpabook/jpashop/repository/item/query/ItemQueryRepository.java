@@ -0,0 +1,40 @@
+package jpabook.jpashop.repository.item.query;
+
+import jakarta.persistence.EntityManager;
+import lombok.RequiredArgsConstructor;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.SliceImpl;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+//상품 목록 조회 전용 레포 - 엔티티를 영속성 컨텍스트에 올리지 않고 DTO로 바로 조회한다
+@Repository
+@RequiredArgsConstructor
+public class ItemQueryRepository {
+
+    private final EntityManager em;
+
+    /**
+     * 상품 목록 페이지 조회
+     * 화면에 필요한 id, 이름, 가격, 재고만 select 한다.
+     * count 쿼리 대신 limit + 1건을 조회해서 다음 페이지가 있는지만 판단한다. (Slice)
+     */
+    public Slice<ItemQueryDto> findItemQueryDtos(int page, int size) {
+        List<ItemQueryDto> content = em.createQuery(
+                "select new jpabook.jpashop.repository.item.query.ItemQueryDto" +
+                        "(i.id, i.name, i.price, i.stockQuantity)" +
+                        " from Item i" +
+                        " order by i.id", ItemQueryDto.class)
+                .setFirstResult(page * size)
+                .setMaxResults(size + 1)
+                .getResultList();
+
+        boolean hasNext = content.size() > size;
+        if (hasNext) {
+            content = content.subList(0, size);
+        }
+        return new SliceImpl<>(content, PageRequest.of(page, size), hasNext);
+    }
+}
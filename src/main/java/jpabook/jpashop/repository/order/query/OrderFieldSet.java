@@ -0,0 +1,111 @@
+package jpabook.jpashop.repository.order.query;
+
+import com.querydsl.core.types.Expression;
+import jpabook.jpashop.domain.QDelivery;
+import jpabook.jpashop.domain.QMember;
+import jpabook.jpashop.domain.QOrder;
+import jpabook.jpashop.domain.QOrderItem;
+import jpabook.jpashop.domain.item.QItem;
+import jpabook.jpashop.exception.InvalidRequestException;
+import lombok.Getter;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * ?fields= 로 고른 필드를 필요한 만큼의 select 절과 조인으로 바꾼 것
+ * 필드 이름은 V5 응답(OrderQueryDto)과 같고, 주문 상품 필드는 "orderItems.itemName"처럼 쓴다. ("orderItems.*" = 전부)
+ * - member는 name, delivery는 address, item은 orderItems.itemName을 요청했을 때만 조인한다.
+ * - 주문 상품 필드를 하나도 요청하지 않으면 주문 상품 쿼리 자체를 실행하지 않는다.
+ * 필드 집합을 정렬해서 키로 쓰므로 캐시 크기는 가능한 조합 수(2^8)를 넘지 않는다.
+ * (QueryDSL 경로 객체는 불변이라 여러 요청이 같이 써도 된다)
+ */
+@Getter
+public final class OrderFieldSet {
+
+    private static final QOrder order = QOrder.order;
+    private static final QOrderItem orderItem = QOrderItem.orderItem;
+
+    //응답에 나가는 순서
+    private static final Map<String, Expression<?>> ORDER_FIELDS = new LinkedHashMap<>();
+    private static final Map<String, Expression<?>> ITEM_FIELDS = new LinkedHashMap<>();
+
+    static {
+        ORDER_FIELDS.put("orderId", order.id);
+        ORDER_FIELDS.put("name", QMember.member.name);
+        ORDER_FIELDS.put("orderDate", order.orderDate);
+        ORDER_FIELDS.put("orderStatus", order.status);
+        ORDER_FIELDS.put("address", QDelivery.delivery.address);
+        ITEM_FIELDS.put("itemName", QItem.item.name);
+        ITEM_FIELDS.put("orderPrice", orderItem.orderPrice);
+        ITEM_FIELDS.put("count", orderItem.count);
+    }
+
+    private static final Map<String, OrderFieldSet> cache = new ConcurrentHashMap<>();
+
+    private final Map<String, Expression<?>> orderFields; //요청한 주문 필드
+    private final Map<String, Expression<?>> itemFields; //요청한 주문 상품 필드 (비어 있으면 주문 상품 조회 안 함)
+    private final boolean joinMember;
+    private final boolean joinDelivery;
+    private final boolean joinItem;
+
+    private OrderFieldSet(List<String> fields) {
+        orderFields = new LinkedHashMap<>();
+        itemFields = new LinkedHashMap<>();
+        ORDER_FIELDS.forEach((name, expression) -> {
+            if (fields.contains(name)) {
+                orderFields.put(name, expression);
+            }
+        });
+        boolean allItems = fields.contains("orderItems") || fields.contains("orderItems.*");
+        ITEM_FIELDS.forEach((name, expression) -> {
+            if (allItems || fields.contains("orderItems." + name)) {
+                itemFields.put(name, expression);
+            }
+        });
+        joinMember = orderFields.containsKey("name");
+        joinDelivery = orderFields.containsKey("address");
+        joinItem = itemFields.containsKey("itemName");
+    }
+
+    /**
+     * "orderId,orderStatus" 같은 요청 값을 해석한다. 모르는 필드면 InvalidRequestException (400)
+     * 같은 필드 집합이면 순서가 달라도 같은 객체를 돌려준다.
+     */
+    public static OrderFieldSet of(String fields) {
+        List<String> names = new ArrayList<>();
+        for (String name : fields.split(",")) {
+            String trimmed = name.trim();
+            if (trimmed.isEmpty()) {
+                continue;
+            }
+            if (!isKnown(trimmed)) {
+                throw new InvalidRequestException("알 수 없는 필드입니다: " + trimmed);
+            }
+            if (!names.contains(trimmed)) {
+                names.add(trimmed);
+            }
+        }
+        if (names.isEmpty()) {
+            throw new InvalidRequestException("fields가 비어 있습니다.");
+        }
+        String[] sorted = names.toArray(new String[0]);
+        Arrays.sort(sorted);
+        return cache.computeIfAbsent(String.join(",", sorted), key -> new OrderFieldSet(names));
+    }
+
+    public boolean hasItemFields() {
+        return !itemFields.isEmpty();
+    }
+
+    private static boolean isKnown(String name) {
+        if (ORDER_FIELDS.containsKey(name) || name.equals("orderItems") || name.equals("orderItems.*")) {
+            return true;
+        }
+        return name.startsWith("orderItems.") && ITEM_FIELDS.containsKey(name.substring("orderItems.".length()));
+    }
+}
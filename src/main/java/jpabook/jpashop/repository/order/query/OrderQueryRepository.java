@@ -1,9 +1,13 @@
 package jpabook.jpashop.repository.order.query;
 
 import jakarta.persistence.EntityManager;
+import jakarta.persistence.TypedQuery;
+import jpabook.jpashop.config.shard.OrderShards;
+import jpabook.jpashop.repository.archive.OrderArchiveRepository;
 import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Repository;
 
+import java.util.Comparator;
 import java.util.List;
 import java.util.Map;
 import java.util.stream.Collectors;
@@ -14,6 +18,8 @@ import java.util.stream.Collectors;
 public class OrderQueryRepository {
 
     private final EntityManager em;
+    private final OrderShards orderShards;
+    private final OrderArchiveRepository orderArchiveRepository;
 
     /**
      * V4용 메서드들 DTO 직접 조회
@@ -38,6 +44,32 @@ public class OrderQueryRepository {
         return result;
     }
 
+    /**
+     * 주문 단건 조회
+     * 오래된 주문은 보관 테이블로 옮겨지므로(OrderArchiver) hot 테이블에 없으면 보관 테이블에서 찾는다.
+     * 주문과 보관 주문은 모두 주문 id에 들어 있는 샤드에 있다.
+     * 없으면 null
+     */
+    public OrderQueryDto findOrderQueryDto(Long orderId) {
+        return orderShards.onOrderShard(orderId, () -> {
+            List<OrderQueryDto> result = em.createQuery("select new" +
+                            " jpabook.jpashop.repository.order.query.OrderQueryDto" +
+                            "(o.id, m.name, o.orderDate, o.status, d.address)" +
+                            " from Order o" +
+                            " join o.member m" +
+                            " join o.delivery d" +
+                            " where o.id = :orderId", OrderQueryDto.class)
+                    .setParameter("orderId", orderId)
+                    .getResultList();
+            if (result.isEmpty()) {
+                return orderArchiveRepository.findOrderQueryDto(orderId);
+            }
+            OrderQueryDto order = result.get(0);
+            order.setOrderItems(findOrderItems(orderId));
+            return order;
+        });
+    }
+
     /**
      * orderItems 빼고 조회
      * JPQL에서 컬렉션을 바로 넣을 수가 없다. 바로 new를 통해 집어넣을 수밖에 없기 때문이다.
@@ -75,9 +107,70 @@ public class OrderQueryRepository {
      * 데이터를 한꺼번에 처리할 때 사용하는 방식이다.
      */
     public List<OrderQueryDto> findAllByDto_optimization() {
-        //toOne 코드를 한번에 조회 (이건 V4와 동일)
-        List<OrderQueryDto> result = findOrders();
+        //샤딩 중이면 샤드마다 1+1 쿼리를 병렬로 실행하고 주문 id 순으로 합친다
+        return orderShards.scatter(() -> withOrderItems(findOrders()),
+                Comparator.comparing(OrderQueryDto::getOrderId));
+    }
+
+    /**
+     * keyset 페이징 버전 (V5 + 페이징)
+     * offset 대신 "마지막으로 받은 주문 id보다 작은 것"을 최신순으로 limit건 조회한다.
+     * 샤드마다 limit건씩 가져와서 합친 뒤 다시 limit건으로 자르면 전체 기준 다음 페이지가 된다.
+     */
+    public List<OrderQueryDto> findAllByDto_keyset(Long lastOrderId, int limit) {
+        return orderShards.scatterTop(() -> withOrderItems(findOrdersBefore(lastOrderId, limit)),
+                Comparator.comparing(OrderQueryDto::getOrderId).reversed(), limit);
+    }
+
+    private List<OrderQueryDto> findOrdersBefore(Long lastOrderId, int limit) {
+        return em.createQuery("select new" +
+                        " jpabook.jpashop.repository.order.query.OrderQueryDto" +
+                        "(o.id, m.name, o.orderDate, o.status, d.address)" +
+                        " from Order o" +
+                        " join o.member m" +
+                        " join o.delivery d" +
+                        " where (:lastOrderId is null or o.id < :lastOrderId)" +
+                        " order by o.id desc", OrderQueryDto.class)
+                .setParameter("lastOrderId", lastOrderId)
+                .setMaxResults(limit)
+                .getResultList();
+    }
+
+    /**
+     * 회원별 주문 이력 (최신순 keyset 페이징)
+     * member.getOrders()를 초기화하면 주문 전체를 올리므로, (member_id, order_id desc) 인덱스를 타는 DTO 조회로 한 페이지만 읽고
+     * 주문 상품도 그 페이지의 주문 id로만 in 쿼리 한번에 채운다. 회원의 주문이 아무리 많아도 읽는 양은 limit에 비례한다.
+     * 회원의 주문은 모두 회원 샤드에 있으므로 그 샤드 하나만 조회한다.
+     */
+    public List<OrderQueryDto> findMemberOrders(Long memberId, Long lastOrderId, int limit) {
+        return orderShards.onMemberShard(memberId, () -> withOrderItems(findMemberOrdersBefore(memberId, lastOrderId, limit)));
+    }
+
+    private List<OrderQueryDto> findMemberOrdersBefore(Long memberId, Long lastOrderId, int limit) {
+        //"is null or" 조건은 인덱스 범위 탐색을 막을 수 있어서 첫 페이지와 다음 페이지 쿼리를 나눈다
+        String jpql = "select new" +
+                " jpabook.jpashop.repository.order.query.OrderQueryDto" +
+                "(o.id, m.name, o.orderDate, o.status, d.address)" +
+                " from Order o" +
+                " join o.member m" +
+                " join o.delivery d" +
+                " where m.id = :memberId" +
+                (lastOrderId == null ? "" : " and o.id < :lastOrderId") +
+                " order by o.id desc";
+        TypedQuery<OrderQueryDto> query = em.createQuery(jpql, OrderQueryDto.class)
+                .setParameter("memberId", memberId)
+                .setMaxResults(limit);
+        if (lastOrderId != null) {
+            query.setParameter("lastOrderId", lastOrderId);
+        }
+        return query.getResultList();
+    }
 
+    //V5의 컬렉션 조회 부분 - 주문 목록의 orderItems를 쿼리 한번으로 채운다
+    private List<OrderQueryDto> withOrderItems(List<OrderQueryDto> result) {
+        if (result.isEmpty()) {
+            return result;
+        }
         //루프 대신에 쿼리를 통해 한방에 가져오기 위해서 Map을 사용한 것이다.
         //이후 해당 주문의 ID들에 대한
         //orderItem 컬렉션을 Map으로 최적화 한 뒤에 orderItems로 삽입
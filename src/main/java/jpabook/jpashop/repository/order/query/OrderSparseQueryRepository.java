@@ -0,0 +1,107 @@
+package jpabook.jpashop.repository.order.query;
+
+import com.querydsl.core.Tuple;
+import com.querydsl.core.types.Expression;
+import com.querydsl.jpa.impl.JPAQuery;
+import com.querydsl.jpa.impl.JPAQueryFactory;
+import jakarta.persistence.EntityManager;
+import jpabook.jpashop.config.shard.OrderShards;
+import jpabook.jpashop.domain.QDelivery;
+import jpabook.jpashop.domain.QMember;
+import jpabook.jpashop.domain.QOrder;
+import jpabook.jpashop.domain.QOrderItem;
+import jpabook.jpashop.domain.item.QItem;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Repository;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * ?fields= 요청용 주문 조회 (OrderFieldSet 참고)
+ * 주문은 keyset(최신순)으로 한 페이지만, 주문 상품은 요청했을 때만 그 페이지의 주문 id로 in 쿼리 한번
+ */
+@Repository
+@RequiredArgsConstructor
+public class OrderSparseQueryRepository {
+
+    private final EntityManager em;
+    private final OrderShards orderShards;
+
+    //전체 주문 (V5.1)
+    public List<SparseOrder> findOrders(OrderFieldSet fields, Long lastOrderId, int limit) {
+        return orderShards.scatterTop(() -> withOrderItems(fields, findPage(fields, null, lastOrderId, limit)),
+                Comparator.comparing(SparseOrder::getOrderId).reversed(), limit);
+    }
+
+    //회원별 주문 이력
+    public List<SparseOrder> findMemberOrders(OrderFieldSet fields, Long memberId, Long lastOrderId, int limit) {
+        return orderShards.onMemberShard(memberId,
+                () -> withOrderItems(fields, findPage(fields, memberId, lastOrderId, limit)));
+    }
+
+    private List<SparseOrder> findPage(OrderFieldSet fields, Long memberId, Long lastOrderId, int limit) {
+        QOrder order = QOrder.order;
+        List<Expression<?>> select = new ArrayList<>();
+        select.add(order.id);
+        select.addAll(fields.getOrderFields().values());
+
+        JPAQuery<Tuple> query = new JPAQueryFactory(em)
+                .select(select.toArray(new Expression<?>[0]))
+                .from(order);
+        //요청한 필드에 필요한 조인만
+        if (fields.isJoinMember()) {
+            query.join(order.member, QMember.member);
+        }
+        if (fields.isJoinDelivery()) {
+            query.join(order.delivery, QDelivery.delivery);
+        }
+        List<Tuple> rows = query
+                .where(memberId == null ? null : order.member.id.eq(memberId),
+                        lastOrderId == null ? null : order.id.lt(lastOrderId))
+                .orderBy(order.id.desc())
+                .limit(limit)
+                .fetch();
+
+        List<SparseOrder> result = new ArrayList<>(rows.size());
+        for (Tuple row : rows) {
+            SparseOrder sparse = new SparseOrder(row.get(order.id));
+            fields.getOrderFields().forEach((name, expression) -> sparse.getFields().put(name, row.get(expression)));
+            result.add(sparse);
+        }
+        return result;
+    }
+
+    private List<SparseOrder> withOrderItems(OrderFieldSet fields, List<SparseOrder> orders) {
+        if (!fields.hasItemFields() || orders.isEmpty()) {
+            return orders;
+        }
+        QOrderItem orderItem = QOrderItem.orderItem;
+        List<Expression<?>> select = new ArrayList<>();
+        select.add(orderItem.order.id);
+        select.addAll(fields.getItemFields().values());
+
+        JPAQuery<Tuple> query = new JPAQueryFactory(em)
+                .select(select.toArray(new Expression<?>[0]))
+                .from(orderItem);
+        if (fields.isJoinItem()) {
+            query.join(orderItem.item, QItem.item);
+        }
+        List<Tuple> rows = query
+                .where(orderItem.order.id.in(orders.stream().map(SparseOrder::getOrderId).toList()))
+                .fetch();
+
+        Map<Long, List<Map<String, Object>>> itemsByOrder = new HashMap<>();
+        for (Tuple row : rows) {
+            Map<String, Object> item = new LinkedHashMap<>();
+            fields.getItemFields().forEach((name, expression) -> item.put(name, row.get(expression)));
+            itemsByOrder.computeIfAbsent(row.get(orderItem.order.id), id -> new ArrayList<>()).add(item);
+        }
+        orders.forEach(o -> o.getFields().put("orderItems", itemsByOrder.getOrDefault(o.getOrderId(), List.of())));
+        return orders;
+    }
+}
@@ -0,0 +1,27 @@
+package jpabook.jpashop.repository.order.query;
+
+import com.fasterxml.jackson.annotation.JsonAnyGetter;
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import lombok.Getter;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+//?fields= 응답 한 건 - 요청한 필드만 JSON에 나간다
+@Getter
+public class SparseOrder {
+
+    @JsonIgnore
+    private final Long orderId; //페이징, 샤드 병합용 (요청하지 않으면 응답에는 안 나간다)
+
+    private final Map<String, Object> fields = new LinkedHashMap<>();
+
+    public SparseOrder(Long orderId) {
+        this.orderId = orderId;
+    }
+
+    @JsonAnyGetter
+    public Map<String, Object> getFields() {
+        return fields;
+    }
+}
@@ -1,17 +1,26 @@
 package jpabook.jpashop.repository.order.simplequery;
 
 import jakarta.persistence.EntityManager;
+import jpabook.jpashop.config.shard.OrderShards;
 import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Repository;
 
+import java.util.Comparator;
 import java.util.List;
 
 @Repository
 @RequiredArgsConstructor
 public class OrderSimpleQueryRepository {
     public final EntityManager em;
+    private final OrderShards orderShards;
 
+    //샤딩 중이면 모든 샤드에서 조회해서 주문 id 순으로 합친다
     public List<OrderSimpleQueryDto> findOrderDtos(){
+        return orderShards.scatter(this::findOrderDtosOnShard,
+                Comparator.comparing(OrderSimpleQueryDto::getOrderId));
+    }
+
+    private List<OrderSimpleQueryDto> findOrderDtosOnShard(){
         //검색 결과를 DTO로 반환할 때 new를 사용한다.
         return em.createQuery("select new jpabook.jpashop.repository.order.simplequery.OrderSimpleQueryDto" +
                 "(o.id, m.name, o.orderDate, o.status, d.address)" +
@@ -0,0 +1,62 @@
+package jpabook.jpashop.repository.outbox;
+
+import jakarta.persistence.EntityManager;
+import jpabook.jpashop.domain.outbox.OutboxEvent;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Repository
+@RequiredArgsConstructor
+public class OutboxEventRepository {
+
+    private final EntityManager em;
+
+    public void save(OutboxEvent event) {
+        em.persist(event);
+    }
+
+    /**
+     * 아직 안 보낸 이벤트를 주문별 순번 순서대로
+     * 이벤트 id 순서는 저장 순서가 아니다. (인스턴스마다 id 할당 블록이 달라서 A에서 저장한 OrderPlaced가 51번,
+     * 뒤이어 B에서 저장한 OrderCancelled가 3번일 수 있다) 그래서 주문 안에서의 순번(sequence)으로 정렬한다.
+     * 순번 k+1은 k가 커밋된 뒤에야 받을 수 있으므로, 보이는 이벤트만으로 정렬해도 앞 순번을 건너뛰지 않는다.
+     */
+    public List<OutboxEvent> findPending(int limit) {
+        return em.createQuery(
+                "select e from OutboxEvent e where e.publishedAt is null order by e.aggregateId, e.sequence",
+                        OutboxEvent.class)
+                .setMaxResults(limit)
+                .getResultList();
+    }
+
+    public long countPending() {
+        return em.createQuery("select count(e) from OutboxEvent e where e.publishedAt is null", Long.class)
+                .getSingleResult();
+    }
+
+    //벌크 업데이트 한번으로 보낸 것으로 표시
+    public int markPublished(List<Long> ids, LocalDateTime publishedAt) {
+        return em.createQuery("update OutboxEvent e set e.publishedAt = :publishedAt where e.id in :ids")
+                .setParameter("publishedAt", publishedAt)
+                .setParameter("ids", ids)
+                .executeUpdate();
+    }
+
+    //보낸 지 오래된 이벤트 정리 (limit건씩)
+    public int deletePublishedBefore(LocalDateTime cutoff, int limit) {
+        List<Long> ids = em.createQuery(
+                "select e.id from OutboxEvent e where e.publishedAt < :cutoff order by e.id", Long.class)
+                .setParameter("cutoff", cutoff)
+                .setMaxResults(limit)
+                .getResultList();
+        if (ids.isEmpty()) {
+            return 0;
+        }
+        return em.createQuery("delete from OutboxEvent e where e.id in :ids")
+                .setParameter("ids", ids)
+                .executeUpdate();
+    }
+}
@@ -0,0 +1,101 @@
+package jpabook.jpashop.repository.report;
+
+import jakarta.persistence.EntityManager;
+import lombok.RequiredArgsConstructor;
+import org.hibernate.Session;
+import org.springframework.stereotype.Repository;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+@Repository
+@RequiredArgsConstructor
+public class SalesReportRepository {
+
+    private final EntityManager em;
+
+    //기간 안 주문의 [최소 id, 최대 id] - 보관된 주문 포함, 주문이 없으면 null
+    public long[] findOrderIdRange(LocalDateTime from, LocalDateTime to) {
+        long[] hot = toRange(em.createQuery(
+                "select min(o.id), max(o.id) from Order o" +
+                        " where o.orderDate >= :from and o.orderDate < :to", Object[].class)
+                .setParameter("from", from)
+                .setParameter("to", to)
+                .getSingleResult());
+        long[] archived = toRange(em.createQuery(
+                "select min(o.id), max(o.id) from ArchivedOrder o" +
+                        " where o.orderDate >= :from and o.orderDate < :to", Object[].class)
+                .setParameter("from", from)
+                .setParameter("to", to)
+                .getSingleResult());
+        if (hot == null || archived == null) {
+            return hot == null ? archived : hot;
+        }
+        return new long[]{Math.min(hot[0], archived[0]), Math.max(hot[1], archived[1])};
+    }
+
+    private long[] toRange(Object[] range) {
+        return range[0] == null ? null : new long[]{(Long) range[0], (Long) range[1]};
+    }
+
+    /**
+     * 주문 id 범위 안의 주문 상품을 전진 전용 커서로 한 행씩 넘긴다.
+     * 엔티티도 결과 리스트도 만들지 않으므로 행 수와 상관없이 메모리는 fetchSize만큼만 쓴다.
+     * 주문 id 순서로 넘기므로 받는 쪽에서 주문이 바뀌는 지점을 알 수 있다.
+     *
+     * 보관된 주문(OrderArchiver)도 union all로 같이 읽는다. 보관 작업은 insert와 delete를 한 트랜잭션에서 하므로
+     * 쿼리 하나로 읽으면 옮겨지는 중인 주문도 두 번 세거나 빠뜨리지 않는다.
+     */
+    public void scan(long fromOrderId, long toOrderId, LocalDateTime from, LocalDateTime to,
+                     int fetchSize, SalesRowHandler handler) {
+        String sql = "select oi.order_id, oi.item_id, i.dtype, oi.order_price, oi.count, o.order_date, o.status" +
+                " from order_item oi" +
+                " join orders o on o.order_id = oi.order_id" +
+                " join item i on i.item_id = oi.item_id" +
+                " where o.order_id between ? and ? and o.order_date >= ? and o.order_date < ?" +
+                " union all" +
+                " select oi.order_id, oi.item_id, i.dtype, oi.order_price, oi.count, o.order_date, o.status" +
+                " from order_item_archive oi" +
+                " join orders_archive o on o.order_id = oi.order_id" +
+                " join item i on i.item_id = oi.item_id" +
+                " where o.order_id between ? and ? and o.order_date >= ? and o.order_date < ?" +
+                " order by 1";
+        em.unwrap(Session.class).doWork(connection -> {
+            try (PreparedStatement ps = connection.prepareStatement(sql,
+                    ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY)) {
+                ps.setFetchSize(fetchSize);
+                for (int offset = 0; offset <= 4; offset += 4) {
+                    ps.setLong(offset + 1, fromOrderId);
+                    ps.setLong(offset + 2, toOrderId);
+                    ps.setTimestamp(offset + 3, Timestamp.valueOf(from));
+                    ps.setTimestamp(offset + 4, Timestamp.valueOf(to));
+                }
+                try (ResultSet rs = ps.executeQuery()) {
+                    while (rs.next()) {
+                        handler.row(rs.getLong(1), rs.getLong(2), rs.getString(3).charAt(0), rs.getInt(4),
+                                rs.getInt(5), rs.getTimestamp(6).toLocalDateTime().toLocalDate().toEpochDay(),
+                                rs.getString(7));
+                    }
+                }
+            }
+        });
+    }
+
+    //상위 상품 이름 - 한번에 조회
+    public Map<Long, String> findItemNames(List<Long> itemIds) {
+        Map<Long, String> names = new HashMap<>();
+        if (itemIds.isEmpty()) {
+            return names;
+        }
+        em.createQuery("select i.id, i.name from Item i where i.id in :ids", Object[].class)
+                .setParameter("ids", itemIds)
+                .getResultList()
+                .forEach(row -> names.put((Long) row[0], (String) row[1]));
+        return names;
+    }
+}
@@ -0,0 +1,7 @@
+package jpabook.jpashop.repository.report;
+
+//주문 상품 한 행 - 객체를 만들지 않고 원시 타입으로 넘긴다
+@FunctionalInterface
+public interface SalesRowHandler {
+    void row(long orderId, long itemId, char dtype, int orderPrice, int count, long epochDay, String status);
+}
@@ -0,0 +1,268 @@
+package jpabook.jpashop.repository.rollup;
+
+import jakarta.persistence.EntityManager;
+import jpabook.jpashop.domain.OrderStatus;
+import lombok.RequiredArgsConstructor;
+import org.hibernate.Session;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Connection;
+import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Savepoint;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * 매출 롤업 테이블
+ * 증감은 MERGE(있으면 더하고 없으면 넣는다)를 JDBC 배치로 보낸다. (테이블마다 배치 한번)
+ * 없는 키를 두 트랜잭션이 동시에 처음 넣으면 둘 다 "없음"으로 보고 insert 해서 한쪽이 중복 키로 실패한다.
+ * 그때는 세이브포인트로 그 배치만 되돌리고 다시 보낸다. 다시 보낼 때는 먼저 들어간 행이 보여서 update가 된다.
+ */
+@Repository
+@RequiredArgsConstructor
+public class SalesRollupRepository {
+
+    public static final int STATUS_SLOTS = 16; //상태마다 나눠 쓰는 행 수 (OrderStatusCount)
+    private static final int MAX_ATTEMPTS = 5;
+    private static final String DUPLICATE_KEY = "23505";
+
+    private final EntityManager em;
+
+    //[상품 id, 주문일] -> [매출, 수량, 주문 수]
+    public void addItemDailySales(Map<? extends ItemDayKey, long[]> deltas) {
+        batch("merge into item_daily_sales t" +
+                        " using (values (cast(? as bigint), cast(? as date), cast(? as bigint), cast(? as bigint), cast(? as bigint)))" +
+                        " s(item_id, sales_date, revenue, units, order_count)" +
+                        " on t.item_id = s.item_id and t.sales_date = s.sales_date" +
+                        " when matched then update set revenue = t.revenue + s.revenue, units = t.units + s.units," +
+                        " order_count = t.order_count + s.order_count" +
+                        " when not matched then insert (item_id, sales_date, revenue, units, order_count)" +
+                        " values (s.item_id, s.sales_date, s.revenue, s.units, s.order_count)",
+                deltas, (ps, key, sums) -> {
+                    ps.setLong(1, key.itemId());
+                    ps.setDate(2, Date.valueOf(key.day()));
+                    ps.setLong(3, sums[0]);
+                    ps.setLong(4, sums[1]);
+                    ps.setLong(5, sums[2]);
+                });
+    }
+
+    //회원 id -> [매출, 주문 수]
+    public void addMemberSales(Map<Long, long[]> deltas) {
+        batch("merge into member_sales t" +
+                        " using (values (cast(? as bigint), cast(? as bigint), cast(? as bigint)))" +
+                        " s(member_id, revenue, order_count)" +
+                        " on t.member_id = s.member_id" +
+                        " when matched then update set revenue = t.revenue + s.revenue, order_count = t.order_count + s.order_count" +
+                        " when not matched then insert (member_id, revenue, order_count)" +
+                        " values (s.member_id, s.revenue, s.order_count)",
+                deltas, (ps, memberId, sums) -> {
+                    ps.setLong(1, memberId);
+                    ps.setLong(2, sums[0]);
+                    ps.setLong(3, sums[1]);
+                });
+    }
+
+    //상태마다 slot 행 중 하나에 더한다 - 한 트랜잭션의 상태들은 같은 slot에 (상태 순서로 갱신되므로 데드락이 없다)
+    public void addOrderStatusCounts(Map<OrderStatus, Long> deltas) {
+        int slot = ThreadLocalRandom.current().nextInt(STATUS_SLOTS);
+        batch("merge into order_status_count t" +
+                        " using (values (cast(? as varchar), cast(? as integer), cast(? as bigint))) s(status, slot, order_count)" +
+                        " on t.status = s.status and t.slot = s.slot" +
+                        " when matched then update set order_count = t.order_count + s.order_count" +
+                        " when not matched then insert (status, slot, order_count) values (s.status, s.slot, s.order_count)",
+                deltas, (ps, status, count) -> {
+                    ps.setString(1, status.name());
+                    ps.setInt(2, slot);
+                    ps.setLong(3, count);
+                });
+    }
+
+    //날짜의 매출 상위 상품 [상품 id, 상품명, 매출, 수량, 주문 수]
+    public List<Object[]> findTopItems(LocalDate day, int limit) {
+        return em.createQuery(
+                "select s.itemId, i.name, s.revenue, s.units, s.orderCount" +
+                        " from ItemDailySales s, Item i where i.id = s.itemId and s.salesDate = :day" +
+                        " order by s.revenue desc, s.itemId", Object[].class)
+                .setParameter("day", day)
+                .setMaxResults(limit)
+                .getResultList();
+    }
+
+    //날짜의 전체 상품 매출 (샤드별로 읽어서 합칠 때)
+    public List<Object[]> findItemSales(LocalDate day) {
+        return em.createQuery(
+                "select s.itemId, i.name, s.revenue, s.units, s.orderCount" +
+                        " from ItemDailySales s, Item i where i.id = s.itemId and s.salesDate = :day", Object[].class)
+                .setParameter("day", day)
+                .getResultList();
+    }
+
+    //[매출, 주문 수] - 주문이 없는 회원이면 null
+    public Object[] findMemberSales(Long memberId) {
+        List<Object[]> result = em.createQuery(
+                "select s.revenue, s.orderCount from MemberSales s where s.memberId = :memberId", Object[].class)
+                .setParameter("memberId", memberId)
+                .getResultList();
+        return result.isEmpty() ? null : result.get(0);
+    }
+
+    //[상태, 주문 수] - slot을 합친다
+    public List<Object[]> findOrderStatusCounts() {
+        return em.createQuery("select s.status, sum(s.orderCount) from OrderStatusCount s group by s.status",
+                        Object[].class)
+                .getResultList();
+    }
+
+    /**
+     * 주문 테이블에서 처음부터 다시 계산 (보관 테이블 포함)
+     * 지우고 다시 넣으면 그 사이에 커밋된 주문의 증감이 지워지거나 두 번 들어갈 수 있어서, 테이블마다 문장 하나로
+     * "주문에서 계산한 값 - 지금 롤업 값"을 구해서 그 차이만 MERGE로 더한다.
+     * 문장 하나는 같은 시점의 주문과 롤업을 읽고, 주문과 그 증감은 한 트랜잭션으로 커밋되므로
+     * 도중에 들어온 주문의 증감은 차이에 들어가지 않고 롤업에 그대로 남는다. (주문을 받는 중에 돌려도 된다)
+     * 단 MERGE는 시작 시점 값으로 차이를 구한 뒤 행 락을 기다리므로, 그 사이 커밋된 증감이 있으면 차이가 어긋난다.
+     * 그래서 테이블마다 먼저 롤업 행을 모두 잠가서 진행 중인 주문이 커밋된 뒤에 차이를 구한다.
+     * 주문도 같은 테이블 순서(상품 -> 회원 -> 상태)로 롤업을 갱신하므로 잠그는 순서가 엇갈리지 않는다.
+     * 보관 기간이 지나 지워진(purge) 주문은 다시 계산할 수 없어서 롤업에서도 빠진다.
+     * 상태별 수는 hot 테이블(orders)의 주문만 센다. (보관하면 OrderArchiver가 같은 트랜잭션에서 뺀다)
+     */
+    public void rebuild() {
+        String orders = "(select order_id, member_id, order_date, status from orders" +
+                " union all select order_id, member_id, order_date, status from orders_archive)";
+        String orderItems = "(select order_id, item_id, order_price, count from order_item" +
+                " union all select order_id, item_id, order_price, count from order_item_archive)";
+
+        lockAll("item_daily_sales");
+        execute("merge into item_daily_sales t using (" +
+                " select item_id, sales_date, cast(sum(revenue) as bigint) revenue, cast(sum(units) as bigint) units," +
+                " cast(sum(order_count) as bigint) order_count from (" +
+                " select oi.item_id, cast(o.order_date as date) sales_date, sum(oi.order_price * oi.count) revenue," +
+                " sum(oi.count) units, count(distinct o.order_id) order_count" +
+                " from " + orders + " o join " + orderItems + " oi on oi.order_id = o.order_id" +
+                " where o.status = 'ORDER'" +
+                " group by oi.item_id, cast(o.order_date as date)" +
+                " union all select item_id, sales_date, -revenue, -units, -order_count from item_daily_sales) d" +
+                " group by item_id, sales_date" +
+                " having sum(revenue) <> 0 or sum(units) <> 0 or sum(order_count) <> 0) s" +
+                " on t.item_id = s.item_id and t.sales_date = s.sales_date" +
+                " when matched then update set revenue = t.revenue + s.revenue, units = t.units + s.units," +
+                " order_count = t.order_count + s.order_count" +
+                " when not matched then insert (item_id, sales_date, revenue, units, order_count)" +
+                " values (s.item_id, s.sales_date, s.revenue, s.units, s.order_count)");
+
+        lockAll("member_sales");
+        execute("merge into member_sales t using (" +
+                " select member_id, cast(sum(revenue) as bigint) revenue, cast(sum(order_count) as bigint) order_count from (" +
+                " select o.member_id, sum(oi.order_price * oi.count) revenue, count(distinct o.order_id) order_count" +
+                " from " + orders + " o join " + orderItems + " oi on oi.order_id = o.order_id" +
+                " where o.status = 'ORDER'" +
+                " group by o.member_id" +
+                " union all select member_id, -revenue, -order_count from member_sales) d" +
+                " group by member_id" +
+                " having sum(revenue) <> 0 or sum(order_count) <> 0) s" +
+                " on t.member_id = s.member_id" +
+                " when matched then update set revenue = t.revenue + s.revenue, order_count = t.order_count + s.order_count" +
+                " when not matched then insert (member_id, revenue, order_count)" +
+                " values (s.member_id, s.revenue, s.order_count)");
+
+        //상태별 차이는 0번 slot에 더한다
+        lockAll("order_status_count");
+        execute("merge into order_status_count t using (" +
+                " select status, cast(sum(order_count) as bigint) order_count from (" +
+                " select o.status, count(*) order_count from orders o group by o.status" +
+                " union all select status, -order_count from order_status_count) d" +
+                " group by status" +
+                " having sum(order_count) <> 0) s" +
+                " on t.status = s.status and t.slot = 0" +
+                " when matched then update set order_count = t.order_count + s.order_count" +
+                " when not matched then insert (status, slot, order_count) values (s.status, 0, s.order_count)");
+    }
+
+    //테이블의 롤업 행을 모두 잠근다 - 그 행을 갱신 중인 트랜잭션이 끝날 때까지 기다린다
+    private void lockAll(String table) {
+        em.unwrap(Session.class).doWork(connection -> {
+            try (PreparedStatement ps = connection.prepareStatement("select 1 from " + table + " for update");
+                 ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    //다 읽어야 모든 행이 잠긴다
+                }
+            }
+        });
+    }
+
+    private void execute(String sql) {
+        em.unwrap(Session.class).doWork(connection -> retryOnDuplicateKey(connection, () -> {
+            try (PreparedStatement ps = connection.prepareStatement(sql)) {
+                ps.executeUpdate();
+            }
+        }));
+    }
+
+    private <K, V> void batch(String sql, Map<? extends K, V> rows, RowBinder<K, V> binder) {
+        if (rows.isEmpty()) {
+            return;
+        }
+        em.unwrap(Session.class).doWork(connection -> retryOnDuplicateKey(connection, () -> {
+            try (PreparedStatement ps = connection.prepareStatement(sql)) {
+                for (Map.Entry<? extends K, V> row : rows.entrySet()) {
+                    binder.bind(ps, row.getKey(), row.getValue());
+                    ps.addBatch();
+                }
+                ps.executeBatch();
+            }
+        }));
+    }
+
+    //MERGE가 처음 넣는 키에서 다른 트랜잭션과 부딪히면 이 작업만 되돌리고 다시 보낸다
+    private void retryOnDuplicateKey(Connection connection, SqlWork work) throws SQLException {
+        for (int attempt = 1; ; attempt++) {
+            Savepoint savepoint = connection.setSavepoint();
+            try {
+                work.execute();
+                connection.releaseSavepoint(savepoint);
+                return;
+            } catch (SQLException e) {
+                connection.rollback(savepoint);
+                if (attempt >= MAX_ATTEMPTS || !isDuplicateKey(e)) {
+                    throw e;
+                }
+            }
+        }
+    }
+
+    private boolean isDuplicateKey(SQLException e) {
+        for (Throwable cause = e; cause != null; cause = cause.getCause()) {
+            if (cause instanceof SQLException sql && DUPLICATE_KEY.equals(sql.getSQLState())) {
+                return true;
+            }
+        }
+        for (SQLException next = e.getNextException(); next != null; next = next.getNextException()) {
+            if (DUPLICATE_KEY.equals(next.getSQLState())) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    //롤업 키 (SalesDelta.ItemDay)
+    public interface ItemDayKey {
+        Long itemId();
+
+        LocalDate day();
+    }
+
+    @FunctionalInterface
+    private interface RowBinder<K, V> {
+        void bind(PreparedStatement ps, K key, V value) throws SQLException;
+    }
+
+    @FunctionalInterface
+    private interface SqlWork {
+        void execute() throws SQLException;
+    }
+}
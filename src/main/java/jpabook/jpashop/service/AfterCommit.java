@@ -0,0 +1,28 @@
+package jpabook.jpashop.service;
+
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * 트랜잭션이 커밋된 이후에 실행할 작업 등록
+ * 캐시 무효화, 버전 증가처럼 "DB에 반영된 다음"에 일어나야 하는 일에 사용한다.
+ * 롤백되면 실행되지 않고, 트랜잭션 밖에서 호출하면 바로 실행한다.
+ */
+public final class AfterCommit {
+
+    private AfterCommit() {
+    }
+
+    public static void run(Runnable task) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            task.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                task.run();
+            }
+        });
+    }
+}
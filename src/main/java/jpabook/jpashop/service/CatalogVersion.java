@@ -0,0 +1,17 @@
+package jpabook.jpashop.service;
+
+import org.springframework.data.domain.Pageable;
+import org.springframework.stereotype.Component;
+
+/**
+ * 상품 카탈로그 버전
+ * 상품 등록/수정, 주문/취소로 재고가 바뀔 때 증가한다. 상품 목록의 ETag로 사용한다.
+ */
+@Component
+public class CatalogVersion extends ChangeVersion {
+
+    //pageable은 ItemService.itemPageRequest로 맞춘 값
+    public String etag(Pageable pageable) {
+        return buildEtag("items", pageable.getPageNumber(), pageable.getPageSize());
+    }
+}
@@ -0,0 +1,37 @@
+package jpabook.jpashop.service;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 데이터 변경 버전 (ETag 생성용)
+ * 데이터가 바뀔 때마다 1씩 증가하고, 버전이 같으면 조회 결과도 같다고 보고
+ * DB 조회 없이 304 Not Modified로 응답할 수 있게 해준다.
+ *
+ * 커밋 전에 버전을 올리면 다른 요청이 "새 버전 + 옛 데이터"를 캐시할 수 있기 때문에
+ * 트랜잭션이 커밋된 이후에 버전을 올린다.
+ */
+public abstract class ChangeVersion {
+
+    //재시작하면 버전이 0부터 다시 시작하므로, 이전 프로세스의 ETag와 겹치지 않도록 기동 시각을 섞는다
+    private final long bootId = System.currentTimeMillis();
+    private final AtomicLong version = new AtomicLong();
+
+    public long current() {
+        return version.get();
+    }
+
+    public void increase() {
+        AfterCommit.run(version::incrementAndGet);
+    }
+
+    //조회 파라미터마다 내용이 다르므로 파라미터까지 ETag에 포함한다
+    protected String buildEtag(String prefix, Object... params) {
+        StringBuilder sb = new StringBuilder("\"").append(prefix)
+                .append('-').append(bootId)
+                .append('-').append(current());
+        for (Object param : params) {
+            sb.append('-').append(param);
+        }
+        return sb.append('"').toString();
+    }
+}
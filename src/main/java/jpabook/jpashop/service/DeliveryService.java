@@ -0,0 +1,148 @@
+package jpabook.jpashop.service;
+
+import jakarta.persistence.EntityManager;
+import jpabook.jpashop.config.shard.OrderShards;
+import jpabook.jpashop.config.shard.ShardContext;
+import jpabook.jpashop.domain.Delivery;
+import jpabook.jpashop.domain.DeliveryStatus;
+import jpabook.jpashop.domain.OrderStatus;
+import jpabook.jpashop.exception.InvalidRequestException;
+import jpabook.jpashop.repository.DeliveryRepository;
+import jpabook.jpashop.service.DeliveryTransitionResult.Outcome;
+import jpabook.jpashop.service.outbox.OrderEventOutbox;
+import org.hibernate.Session;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+/**
+ * 배송 상태 일괄 변경
+ * 배송을 하나씩 조회해서 변경 감지로 바꾸면 배송마다 update가 나간다.
+ * 여기서는 CHUNK_SIZE건씩 끊어서 (락 걸고 조회 1번 + 벌크 update 1번)으로 바꾸고, 청크마다 커밋한다.
+ */
+@Service
+public class DeliveryService {
+
+    static final int CHUNK_SIZE = 1000;
+
+    private final DeliveryRepository deliveryRepository;
+    private final OrderEventOutbox orderEventOutbox;
+    private final OrderVersion orderVersion;
+    private final OrderShards orderShards;
+    private final EntityManager em;
+    private final TransactionTemplate tx;
+
+    public DeliveryService(DeliveryRepository deliveryRepository, OrderEventOutbox orderEventOutbox,
+                           OrderVersion orderVersion, OrderShards orderShards, EntityManager em,
+                           PlatformTransactionManager transactionManager) {
+        this.deliveryRepository = deliveryRepository;
+        this.orderEventOutbox = orderEventOutbox;
+        this.orderVersion = orderVersion;
+        this.orderShards = orderShards;
+        this.em = em;
+        this.tx = new TransactionTemplate(transactionManager);
+    }
+
+    //배송 id 목록으로 변경 - 요청한 id 순서대로 결과를 돌려준다
+    public List<DeliveryTransitionResult> transition(List<Long> deliveryIds, DeliveryStatus from, DeliveryStatus to) {
+        validate(from, to);
+        if (deliveryIds == null || deliveryIds.isEmpty()) {
+            throw new InvalidRequestException("변경할 배송 id가 없습니다.");
+        }
+        List<Long> ids = deliveryIds.stream().distinct().toList();
+        Map<Long, Outcome> outcomes = new HashMap<>();
+        for (int i = 0; i < ids.size(); i += CHUNK_SIZE) {
+            List<Long> chunk = ids.subList(i, Math.min(i + CHUNK_SIZE, ids.size()));
+            //배송 id에 샤드 번호가 들어 있으므로 샤드별로 나눠서 그 샤드에서만 처리한다 (샤딩을 안 쓰면 1번)
+            Map<Integer, List<Long>> byShard = chunk.stream().collect(Collectors.groupingBy(orderShards::shardOfId));
+            byShard.forEach((shard, shardIds) -> {
+                try (ShardContext.Scope ignored = ShardContext.bind(shard)) {
+                    tx.executeWithoutResult(status -> outcomes.putAll(transitionChunk(shardIds, from, to)));
+                }
+            });
+        }
+        return ids.stream()
+                .map(id -> new DeliveryTransitionResult(id, outcomes.getOrDefault(id, Outcome.NOT_FOUND)))
+                .toList();
+    }
+
+    //조건으로 변경 - 취소되지 않은 주문 중 배송 상태가 from인 것을 (orderedBefore 이전 주문만) 최대 limit건
+    public List<DeliveryTransitionResult> transitionAll(DeliveryStatus from, DeliveryStatus to,
+                                                        LocalDateTime orderedBefore, int limit) {
+        validate(from, to);
+        List<DeliveryTransitionResult> results = new ArrayList<>();
+        for (int shard = 0; shard < orderShards.count() && results.size() < limit; shard++) {
+            try (ShardContext.Scope ignored = ShardContext.bind(shard)) {
+                long afterId = 0L;
+                while (results.size() < limit) {
+                    int size = Math.min(CHUNK_SIZE, limit - results.size());
+                    long cursor = afterId;
+                    Map<Long, Outcome> chunk = tx.execute(status -> {
+                        List<Long> ids = deliveryRepository.findIdsByStatus(from, orderedBefore, cursor, size);
+                        return ids.isEmpty() ? Map.<Long, Outcome>of() : transitionChunk(ids, from, to);
+                    });
+                    if (chunk == null || chunk.isEmpty()) {
+                        break;
+                    }
+                    chunk.entrySet().stream()
+                            .sorted(Map.Entry.comparingByKey())
+                            .forEach(e -> results.add(new DeliveryTransitionResult(e.getKey(), e.getValue())));
+                    afterId = chunk.keySet().stream().mapToLong(Long::longValue).max().getAsLong();
+                }
+            }
+        }
+        return results;
+    }
+
+    //청크 하나 처리 (트랜잭션 안에서) - 찾은 배송만 결과에 담는다
+    private Map<Long, Outcome> transitionChunk(List<Long> deliveryIds, DeliveryStatus from, DeliveryStatus to) {
+        Map<Long, Outcome> outcomes = new HashMap<>();
+        List<Delivery> targets = new ArrayList<>();
+        for (Delivery delivery : deliveryRepository.findWithOrderForUpdate(deliveryIds)) {
+            if (delivery.getOrder().getStatus() == OrderStatus.CANCEL) {
+                outcomes.put(delivery.getId(), Outcome.ORDER_CANCELED);
+            } else if (delivery.getStatus() != from) {
+                outcomes.put(delivery.getId(), Outcome.STATUS_MISMATCH);
+            } else {
+                targets.add(delivery);
+            }
+        }
+        if (targets.isEmpty()) {
+            return outcomes;
+        }
+        //청크의 아웃박스 이벤트 insert를 JDBC 배치로 묶는다
+        Session session = em.unwrap(Session.class);
+        session.setJdbcBatchSize(CHUNK_SIZE);
+
+        //락을 잡고 있으므로 targets는 전부 바뀐다
+        deliveryRepository.updateStatus(targets.stream().map(Delivery::getId).toList(), from, to);
+
+        //벌크 update는 영속성 컨텍스트를 거치지 않는다.
+        //clear하면 호출한 쪽 엔티티까지 준영속이 되므로, 올라와 있는 배송에만 새 상태를 반영하고
+        //읽기 전용을 켰다 끄는 방법으로 스냅샷을 다시 떠서 변경 감지로 update가 또 나가지 않게 한다.
+        for (Delivery delivery : targets) {
+            session.setReadOnly(delivery, true);
+            delivery.setStatus(to);
+            session.setReadOnly(delivery, false);
+
+            orderEventOutbox.deliveryStatusChanged(delivery.getOrder().getId(), delivery.getId(), from, to);
+            outcomes.put(delivery.getId(), Outcome.UPDATED);
+        }
+        orderVersion.increase(); //주문 조회 API ETag 갱신
+        return outcomes;
+    }
+
+    //배송 상태는 앞으로만 (READY -> COMP) 바꿀 수 있다
+    private void validate(DeliveryStatus from, DeliveryStatus to) {
+        if (from == null || to == null || from.compareTo(to) >= 0) {
+            throw new InvalidRequestException("배송 상태는 앞으로만 바꿀 수 있습니다. from=" + from + ", to=" + to);
+        }
+    }
+}
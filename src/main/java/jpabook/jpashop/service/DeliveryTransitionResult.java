@@ -0,0 +1,20 @@
+package jpabook.jpashop.service;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+//배송 상태 일괄 변경의 배송 id별 결과
+@Data
+@AllArgsConstructor
+public class DeliveryTransitionResult {
+
+    public enum Outcome {
+        UPDATED, //변경됨
+        NOT_FOUND, //없는 배송
+        STATUS_MISMATCH, //현재 상태가 from이 아님 (이미 바뀌었거나 다른 상태)
+        ORDER_CANCELED //취소된 주문의 배송
+    }
+
+    private Long deliveryId;
+    private Outcome outcome;
+}
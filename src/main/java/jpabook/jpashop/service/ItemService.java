@@ -1,23 +1,39 @@
 package jpabook.jpashop.service;
 
+import jpabook.jpashop.config.shard.ShardReplicator;
+import jpabook.jpashop.config.shard.ShardStocks;
 import jpabook.jpashop.domain.item.Item;
 import jpabook.jpashop.repository.ItemRepository;
+import jpabook.jpashop.repository.item.query.ItemQueryDto;
+import jpabook.jpashop.repository.item.query.ItemQueryRepository;
 import lombok.RequiredArgsConstructor;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Slice;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.util.List;
+import java.util.Map;
 
 @Service
 @Transactional(readOnly = true)
 @RequiredArgsConstructor
 public class ItemService {
 
+    private static final int MAX_PAGE_SIZE = 500;
+
     private final ItemRepository itemRepository;
+    private final ItemQueryRepository itemQueryRepository;
+    private final CatalogVersion catalogVersion;
+    private final OrderVersion orderVersion;
+    private final ShardReplicator shardReplicator;
+    private final ShardStocks shardStocks;
 
     @Transactional
     public long saveItem(Item item){
+        shardReplicator.replicateItems(List.of(item)); //재고를 샤드마다 나눈다
         itemRepository.save(item);
+        catalogVersion.increase(); //상품 목록 ETag 갱신
         return item.getId();
     }
 
@@ -25,11 +41,37 @@ public class ItemService {
         return itemRepository.findAll();
     }
 
+    //상품 목록 페이지 - 엔티티 대신 DTO로 필요한 컬럼만 조회
+    //샤딩 중이면 재고는 모든 샤드 몫의 합으로 바꾼다 (0번 샤드에는 자기 몫만 있다)
+    public Slice<ItemQueryDto> findItemPage(int page, int size){
+        PageRequest pageRequest = itemPageRequest(page, size);
+        Slice<ItemQueryDto> items = itemQueryRepository.findItemQueryDtos(pageRequest.getPageNumber(), pageRequest.getPageSize());
+        if (shardStocks.isSharded() && items.hasContent()) {
+            Map<Long, Integer> totals = shardStocks.totals(items.map(ItemQueryDto::getId).getContent());
+            items.forEach(item -> item.setStockQuantity(totals.getOrDefault(item.getId(), item.getStockQuantity())));
+        }
+        return items;
+    }
+
+    //요청 값을 실제로 조회하는 페이지로 맞춘다 - ETag도 이 값으로 만들어야 같은 페이지가 같은 ETag를 갖는다 (size=500, 9999)
+    public static PageRequest itemPageRequest(int page, int size){
+        return PageRequest.of(Math.max(page, 0), Math.min(Math.max(size, 1), MAX_PAGE_SIZE));
+    }
+
     public Item findOne(Long itemId){
         return itemRepository.findOne(itemId);
     }
 
+    //화면에 보여주고 수정 폼에 채울 전체 재고 - 샤딩 중이면 모든 샤드 몫의 합
+    public int findTotalStock(Long itemId){
+        if (!shardStocks.isSharded()) {
+            return itemRepository.findOne(itemId).getStockQuantity();
+        }
+        return shardStocks.totals(List.of(itemId)).getOrDefault(itemId, 0);
+    }
+
     //영속성 컨텍스트가 알아서 UPDATE 쿼리를 날려주도록 바꿔주기
+    //stockQuantity는 전체 재고다. 샤딩 중이면 지금 합과의 차이만 샤드마다 반영한다 (ShardReplicator)
     @Transactional
     public void updateItem(Long id, String name, int price, int stockQuantity) {
         //@Transaction안에서 조회하니까 Transaction commit 시점에 UPDATE 쿼리가 나갈 수 있다.
@@ -38,5 +80,8 @@ public class ItemService {
         item.setName(name);
         item.setPrice(price);
         item.setStockQuantity(stockQuantity);
+        shardReplicator.replicateItems(List.of(item));
+        catalogVersion.increase();
+        orderVersion.increase(); //주문 조회 API에 상품명이 포함되니까
     }
 }
@@ -0,0 +1,84 @@
+package jpabook.jpashop.service;
+
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.function.Supplier;
+
+/**
+ * 회원 목록 응답 캐시
+ * 회원은 거의 바뀌지 않으므로 직렬화한 응답 바이트(JSON, Smile, CBOR)를 그대로 보관했다가 돌려준다.
+ * (캐시 히트 시에는 엔티티 조회, DTO 변환, JSON 변환이 모두 생략된다.)
+ *
+ * - 크기 제한: 키 개수를 MAX_ENTRIES로 제한하고, 넘치면 가장 오래 안 쓴 키부터 버린다. (LRU)
+ * - 스탬피드 방지: 같은 키를 동시에 요청하면 한 요청만 조회하고 나머지는 그 결과를 기다린다.
+ * - 무효화: MemberService.join, update가 커밋된 이후에 전부 비운다.
+ */
+@Component
+public class MemberListCache {
+
+    private static final int MAX_ENTRIES = 16;
+
+    //값은 "조회가 끝나면 채워지는" future - 조회 중인 키도 맵에 들어가 있어야 중복 조회를 막을 수 있다
+    private final Map<String, CompletableFuture<byte[]>> cache =
+            new LinkedHashMap<>(MAX_ENTRIES, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<String, CompletableFuture<byte[]>> eldest) {
+                    return size() > MAX_ENTRIES;
+                }
+            };
+
+    public byte[] get(String key, Supplier<byte[]> loader) {
+        CompletableFuture<byte[]> future;
+        boolean loading = false;
+        synchronized (cache) {
+            future = cache.get(key);
+            if (future == null) {
+                future = new CompletableFuture<>();
+                cache.put(key, future);
+                loading = true;
+            }
+        }
+        if (loading) {
+            load(key, future, loader);
+        }
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw e;
+        }
+    }
+
+    private void load(String key, CompletableFuture<byte[]> future, Supplier<byte[]> loader) {
+        try {
+            future.complete(loader.get());
+        } catch (RuntimeException e) {
+            //실패한 결과는 캐시에 남기지 않는다
+            synchronized (cache) {
+                cache.remove(key, future);
+            }
+            future.completeExceptionally(e);
+        }
+    }
+
+    /**
+     * 트랜잭션 안에서 호출되면 커밋 이후에 비운다.
+     * 커밋 전에 비우면 그 사이에 다른 요청이 옛 데이터를 다시 캐시에 넣을 수 있기 때문이다.
+     * 조회 중이던 future도 맵에서 빠지므로, 무효화 이후의 요청은 새로 조회한다.
+     */
+    public void invalidate() {
+        AfterCommit.run(this::clear);
+    }
+
+    private void clear() {
+        synchronized (cache) {
+            cache.clear();
+        }
+    }
+}
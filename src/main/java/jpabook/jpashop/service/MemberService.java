@@ -1,5 +1,6 @@
 package jpabook.jpashop.service;
 
+import jpabook.jpashop.config.shard.ShardReplicator;
 import jpabook.jpashop.domain.Member;
 import jpabook.jpashop.repository.MemberRepository;
 import jpabook.jpashop.repository.MemberRepositoryOld;
@@ -20,6 +21,9 @@ public class MemberService {
     //변경 불가능한 안전한 객체 생성 가능
     //private final MemberRepositoryOld memberRepository;
     private final MemberRepository memberRepository;
+    private final OrderVersion orderVersion;
+    private final MemberListCache memberListCache;
+    private final ShardReplicator shardReplicator;
 
     /*
     회원 가입
@@ -29,6 +33,8 @@ public class MemberService {
     public Long join(Member member){
         validateDuplicateMember(member);
         memberRepository.save(member);
+        shardReplicator.replicate(member); //주문 샤드마다 회원 복사
+        memberListCache.invalidate(); //회원 목록 캐시 무효화
         return member.getId();
     }
     private void validateDuplicateMember(Member member){
@@ -55,5 +61,8 @@ public class MemberService {
     public void update(Long id, String name) {
         Member member = memberRepository.findById(id).get();
         member.setName(name);
+        shardReplicator.replicate(member);
+        orderVersion.increase(); //주문 조회 API에 회원 이름이 포함되니까
+        memberListCache.invalidate();
     }
 }
@@ -0,0 +1,170 @@
+package jpabook.jpashop.service;
+
+import jakarta.persistence.EntityManager;
+import jpabook.jpashop.config.shard.OrderShards;
+import jpabook.jpashop.config.shard.ShardContext;
+import jpabook.jpashop.domain.DeliveryStatus;
+import jpabook.jpashop.domain.Order;
+import jpabook.jpashop.domain.OrderStatus;
+import jpabook.jpashop.domain.item.Item;
+import jpabook.jpashop.exception.InvalidRequestException;
+import jpabook.jpashop.repository.ItemRepository;
+import jpabook.jpashop.repository.OrderRepository;
+import jpabook.jpashop.service.OrderCancelResult.Outcome;
+import jpabook.jpashop.service.outbox.OrderEventOutbox;
+import jpabook.jpashop.service.outbox.OrderEvents;
+import jpabook.jpashop.service.rollup.SalesDelta;
+import jpabook.jpashop.service.rollup.SalesRollup;
+import org.hibernate.Hibernate;
+import org.hibernate.Session;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.stream.Collectors;
+
+/**
+ * 주문 일괄 취소 (사기 주문 정리, 공급사 장애 등)
+ * OrderService.cancelOrder를 반복하면 주문마다 주문 상품과 상품을 지연 로딩하고, 같은 상품 재고를 여러 번 update 한다.
+ * 여기서는 CHUNK_SIZE건씩 끊어서 한 트랜잭션에서
+ * - 주문과 배송 상태를 락 걸고 한번에 조회해서 취소 가능한지 판단하고
+ * - 주문 상품은 [상품 id, 수량]만 조회해서 상품별로 수량을 합친 뒤 상품마다 update 한번으로 재고를 되돌리고
+ * - 주문 상태는 벌크 update 한번으로 바꾼다.
+ * 샤딩 중이면 청크를 주문 id의 샤드별로 나눠서 그 샤드에서만 처리한다.
+ */
+@Service
+public class OrderBulkCancelService {
+
+    static final int CHUNK_SIZE = 500;
+
+    private final OrderRepository orderRepository;
+    private final ItemRepository itemRepository;
+    private final OrderEventOutbox orderEventOutbox;
+    private final SalesRollup salesRollup;
+    private final CatalogVersion catalogVersion;
+    private final OrderVersion orderVersion;
+    private final OrderShards orderShards;
+    private final EntityManager em;
+    private final TransactionTemplate tx;
+
+    public OrderBulkCancelService(OrderRepository orderRepository, ItemRepository itemRepository,
+                                  OrderEventOutbox orderEventOutbox, SalesRollup salesRollup,
+                                  CatalogVersion catalogVersion, OrderVersion orderVersion, OrderShards orderShards,
+                                  EntityManager em, PlatformTransactionManager transactionManager) {
+        this.orderRepository = orderRepository;
+        this.itemRepository = itemRepository;
+        this.orderEventOutbox = orderEventOutbox;
+        this.salesRollup = salesRollup;
+        this.catalogVersion = catalogVersion;
+        this.orderVersion = orderVersion;
+        this.orderShards = orderShards;
+        this.em = em;
+        this.tx = new TransactionTemplate(transactionManager);
+    }
+
+    //요청한 주문 id 순서대로 결과를 돌려준다. 청크마다 커밋하므로 실패하면 앞 청크까지는 반영되어 있다.
+    public List<OrderCancelResult> cancelOrders(List<Long> orderIds) {
+        if (orderIds == null || orderIds.isEmpty()) {
+            throw new InvalidRequestException("취소할 주문 id가 없습니다.");
+        }
+        List<Long> ids = orderIds.stream().distinct().toList();
+        Map<Long, Outcome> outcomes = new HashMap<>();
+        for (int i = 0; i < ids.size(); i += CHUNK_SIZE) {
+            List<Long> chunk = ids.subList(i, Math.min(i + CHUNK_SIZE, ids.size()));
+            //주문 id에 샤드 번호가 들어 있으므로 샤드별로 나눠서 그 샤드에서만 처리한다 (샤딩을 안 쓰면 1번)
+            Map<Integer, List<Long>> byShard = chunk.stream().collect(Collectors.groupingBy(orderShards::shardOfId));
+            byShard.forEach((shard, shardIds) -> {
+                try (ShardContext.Scope ignored = ShardContext.bind(shard)) {
+                    tx.executeWithoutResult(status -> outcomes.putAll(cancelChunk(shardIds)));
+                }
+            });
+        }
+        return ids.stream()
+                .map(id -> new OrderCancelResult(id, outcomes.getOrDefault(id, Outcome.NOT_FOUND)))
+                .toList();
+    }
+
+    private Map<Long, Outcome> cancelChunk(List<Long> orderIds) {
+        Map<Long, Outcome> outcomes = new HashMap<>();
+        List<Order> targets = new ArrayList<>();
+        for (Order order : orderRepository.findWithDeliveryForUpdate(orderIds)) {
+            if (order.getStatus() == OrderStatus.CANCEL) {
+                outcomes.put(order.getId(), Outcome.ALREADY_CANCELED);
+            } else if (order.getDelivery().getStatus() == DeliveryStatus.COMP) {
+                outcomes.put(order.getId(), Outcome.DELIVERED);
+            } else {
+                targets.add(order);
+            }
+        }
+        if (targets.isEmpty()) {
+            return outcomes;
+        }
+        List<Long> targetIds = targets.stream().map(Order::getId).toList();
+        //청크의 아웃박스 이벤트 insert를 JDBC 배치로 묶는다
+        em.unwrap(Session.class).setJdbcBatchSize(CHUNK_SIZE);
+
+        //상품별로 되돌릴 수량을 합친다 (상품 id 순서로 update 해서 동시에 도는 취소끼리 데드락이 나지 않게)
+        Map<Long, Integer> restock = new TreeMap<>();
+        Map<Long, List<OrderEvents.Line>> lines = new HashMap<>();
+        for (Object[] row : orderRepository.findOrderLines(targetIds)) {
+            Long orderId = (Long) row[0];
+            Long itemId = (Long) row[1];
+            int count = (Integer) row[3];
+            restock.merge(itemId, count, Integer::sum);
+            lines.computeIfAbsent(orderId, id -> new ArrayList<>())
+                    .add(new OrderEvents.Line(itemId, (Integer) row[2], count));
+        }
+        restock.forEach((itemId, quantity) -> {
+            if (itemRepository.addStock(itemId, quantity) != 1) {
+                throw new IllegalStateException("재고를 되돌릴 상품이 없습니다. itemId=" + itemId);
+            }
+        });
+        //락을 잡고 있으므로 targets는 전부 바뀐다
+        orderRepository.cancelAll(targetIds);
+
+        syncPersistenceContext(targets, restock);
+        SalesDelta rollup = new SalesDelta(); //청크 전체의 롤업 증감을 모아서 한번에 반영
+        for (Order order : targets) {
+            List<OrderEvents.Line> orderLines = lines.getOrDefault(order.getId(), List.of());
+            orderEventOutbox.orderCancelled(order.getId(), order.getMember().getId(), orderLines);
+            rollup.order(order.getMember().getId(), order.getOrderDate().toLocalDate(), -1, orderLines.stream()
+                    .map(line -> new SalesDelta.OrderLine(line.getItemId(),
+                            (long) line.getOrderPrice() * line.getCount(), line.getCount()))
+                    .toList());
+            outcomes.put(order.getId(), Outcome.CANCELED);
+        }
+        rollup.status(OrderStatus.ORDER, -targets.size());
+        rollup.status(OrderStatus.CANCEL, targets.size());
+        salesRollup.apply(rollup);
+        catalogVersion.increase(); //재고가 바뀌었으니 상품 목록 ETag 갱신
+        orderVersion.increase();
+        return outcomes;
+    }
+
+    /**
+     * 벌크 update는 영속성 컨텍스트를 거치지 않으므로, 이미 올라와 있는 주문과 상품에만 바뀐 값을 반영한다.
+     * 읽기 전용을 켰다 끄면 스냅샷을 다시 뜨므로 변경 감지로 update가 또 나가지 않는다. (DeliveryService와 같은 방법)
+     * 상품은 getReference로 찾아서 아직 로딩되지 않은 프록시면 그대로 둔다. (나중에 로딩할 때 DB의 새 값을 읽는다)
+     */
+    private void syncPersistenceContext(List<Order> orders, Map<Long, Integer> restock) {
+        Session session = em.unwrap(Session.class);
+        for (Order order : orders) {
+            session.setReadOnly(order, true);
+            order.setStatus(OrderStatus.CANCEL);
+            session.setReadOnly(order, false);
+        }
+        restock.forEach((itemId, quantity) -> {
+            Item item = session.getReference(Item.class, itemId);
+            if (Hibernate.isInitialized(item)) {
+                session.setReadOnly(item, true);
+                item.addStock(quantity);
+                session.setReadOnly(item, false);
+            }
+        });
+    }
+}
@@ -0,0 +1,20 @@
+package jpabook.jpashop.service;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+//주문 일괄 취소의 주문 id별 결과
+@Data
+@AllArgsConstructor
+public class OrderCancelResult {
+
+    public enum Outcome {
+        CANCELED, //취소됨
+        NOT_FOUND, //없는 주문
+        ALREADY_CANCELED, //이미 취소된 주문
+        DELIVERED //배송완료되어 취소 불가
+    }
+
+    private Long orderId;
+    private Outcome outcome;
+}
@@ -1,12 +1,20 @@
 package jpabook.jpashop.service;
 
+import jpabook.jpashop.config.shard.OrderShards;
+import jpabook.jpashop.config.shard.ShardContext;
+import jpabook.jpashop.config.shard.ShardStocks;
 import jpabook.jpashop.domain.*;
 import jpabook.jpashop.domain.item.Item;
 import jpabook.jpashop.repository.ItemRepository;
 import jpabook.jpashop.repository.MemberRepository;
 import jpabook.jpashop.repository.MemberRepositoryOld;
 import jpabook.jpashop.repository.OrderRepository;
+import jpabook.jpashop.service.outbox.OrderEventOutbox;
+import jpabook.jpashop.service.rollup.SalesRollup;
 import lombok.RequiredArgsConstructor;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.support.PageableExecutionUtils;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
@@ -20,42 +28,83 @@ public class OrderService {
     private final MemberRepository memberRepository;
 //    private final MemberRepositoryOld memberRepository;
     private final OrderRepository orderRepository;
+    private final CatalogVersion catalogVersion;
+    private final OrderVersion orderVersion;
+    private final OrderStatusCounter orderStatusCounter;
+    private final OrderShards orderShards;
+    private final OrderEventOutbox orderEventOutbox;
+    private final SalesRollup salesRollup;
+    private final ShardStocks shardStocks;
 
     //신규 주문
     //주문과 배달 정보 생성 후 아이디 반환
+    //샤딩을 켜면 회원이 속한 샤드에 저장된다 (커넥션은 첫 쿼리 시점에 얻으므로 메서드 안에서 샤드를 정해도 된다)
     @Transactional
     public Long order(Long memberId, Long itemId, int count){
-        //회원과 아이템 정보를 DB에서 찾는다
-        Member member = memberRepository.findById(memberId).get();
-        Item item = itemRepository.findOne(itemId);
+        //회원 샤드의 재고 몫이 모자라면 다른 샤드에서 옮겨 온다 (샤딩을 안 쓰면 아무것도 안 한다)
+        shardStocks.borrow(itemId, orderShards.shardOf(memberId), count);
+        try (ShardContext.Scope ignored = orderShards.bindMember(memberId)) {
+            //회원과 아이템 정보를 DB에서 찾는다
+            Member member = memberRepository.findById(memberId).get();
+            Item item = itemRepository.findOne(itemId);
 
-        //배송 정보를 생성한다.
-        Delivery delivery = new Delivery();
-        delivery.setAddress(member.getAddress());
-        delivery.setStatus(DeliveryStatus.READY);
+            //배송 정보를 생성한다.
+            Delivery delivery = new Delivery();
+            delivery.setAddress(member.getAddress());
+            delivery.setStatus(DeliveryStatus.READY);
 
-        //주문 상품 생성 - 기본 생성자는 protected로 만들어서 다른 방법으로 만들 수 없도록 강제한다
-        OrderItem orderItem = OrderItem.createOrderItem(item,item.getPrice(),count);
-        //주문 생성 - createOrder 안에 재고 수량 정리가 들어있다.
-        Order order = Order.createOrder(member,delivery,orderItem);
+            //주문 상품 생성 - 기본 생성자는 protected로 만들어서 다른 방법으로 만들 수 없도록 강제한다
+            OrderItem orderItem = OrderItem.createOrderItem(item,item.getPrice(),count);
+            //주문 생성 - createOrder 안에 재고 수량 정리가 들어있다.
+            Order order = Order.createOrder(member,delivery,orderItem);
 
-        orderRepository.save(order);
-        //Order 엔티티에 있는 Casecade 옵션 때문에 OrderItem과 Delivery 객체가 자동으로 Cascade 된다
-        return order.getId();
+            orderRepository.save(order);
+            catalogVersion.increase(); //재고가 바뀌었으니 상품 목록 ETag도 갱신
+            orderVersion.increase(); //주문 조회 API ETag 갱신
+            orderEventOutbox.orderPlaced(order); //주문과 같은 트랜잭션으로 이벤트 저장
+            salesRollup.orderPlaced(order); //매출 롤업과 상태별 건수도 같은 트랜잭션에서 증감
+            //Order 엔티티에 있는 Casecade 옵션 때문에 OrderItem과 Delivery 객체가 자동으로 Cascade 된다
+            return order.getId();
+        }
     }
 
     //주문 취소
+    //샤딩 중이면 주문 id에 들어 있는 샤드로 간다
     @Transactional
     public void cancelOrder(Long orderId){
-        //주문 엔티티 조회
-        Order order = orderRepository.findOne(orderId);
-        //주문 취소
-        order.cancel();
+        try (ShardContext.Scope ignored = orderShards.bindOrder(orderId)) {
+            //주문 엔티티 조회
+            Order order = orderRepository.findOne(orderId);
+            if (order == null) {
+                throw new IllegalStateException("존재하지 않는 주문입니다.");
+            }
+            //주문 취소
+            order.cancel();
+            orderEventOutbox.orderCancelled(order);
+            salesRollup.orderCancelled(order);
+            catalogVersion.increase(); //취소로 재고가 복구되었으니 상품 목록 ETag도 갱신
+            orderVersion.increase();
+        }
     }
 
     public List<Order> findOrders(OrderSearch orderSearch) {
         return orderRepository.findAllByString(orderSearch);
     }
+
+    //주문 검색 + 페이징
+    //첫 페이지가 size보다 적게 나오는 등 전체 건수를 알 수 있으면 count 자체를 생략한다 (PageableExecutionUtils)
+    public Page<Order> searchOrders(OrderSearch orderSearch, Pageable pageable) {
+        List<Order> content = orderRepository.findAll(orderSearch, pageable);
+        return PageableExecutionUtils.getPage(content, pageable, () -> countOrders(orderSearch));
+    }
+
+    //조건이 없거나 상태 조건만 있으면 카운터 값, 그 외에는 정확한 count 쿼리
+    public long countOrders(OrderSearch orderSearch) {
+        if (orderSearch.hasOnlyStatusCondition()) {
+            return orderStatusCounter.count(orderSearch.getOrderStatus());
+        }
+        return orderRepository.count(orderSearch);
+    }
 }
 /*
 주문 서비스는 주문 엔티티와 주문 상품 엔티티의 비즈니스 로직을 활용해서
@@ -0,0 +1,30 @@
+package jpabook.jpashop.service;
+
+import jpabook.jpashop.domain.OrderStatus;
+import jpabook.jpashop.service.rollup.SalesRollupQuery;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+
+/**
+ * 주문 상태별 건수 카운터
+ * 조건 없는 검색이나 상태만 거는 검색은 검색마다 count 쿼리를 날리는 대신 이 값을 사용한다.
+ * 값은 상태별 롤업(order_status_count)이다. 주문/취소/일괄 취소/보관이 같은 트랜잭션에서 더하고 빼므로
+ * 커밋되면 바로 맞는 값이 보이고, 읽을 때는 상태마다 slot 몇 행만 합친다. (샤딩 중이면 샤드 합계)
+ */
+@Component
+@RequiredArgsConstructor
+public class OrderStatusCounter {
+
+    private final SalesRollupQuery salesRollupQuery;
+
+    //status가 null이면 전체 건수
+    public long count(OrderStatus status) {
+        Map<OrderStatus, Long> counts = salesRollupQuery.orderStatusCounts();
+        if (status == null) {
+            return counts.values().stream().mapToLong(Long::longValue).sum();
+        }
+        return counts.getOrDefault(status, 0L);
+    }
+}
@@ -0,0 +1,16 @@
+package jpabook.jpashop.service;
+
+import org.springframework.stereotype.Component;
+
+/**
+ * 주문 데이터 버전
+ * 주문 생성/취소, 배송 상태 변경 시 증가한다. 주문 조회 API의 ETag로 사용한다.
+ * 회원별로 나누지 않고 전체 주문에 대해 하나의 버전만 관리한다. (목록 API가 전체 주문을 보여주니까)
+ */
+@Component
+public class OrderVersion extends ChangeVersion {
+
+    public String etag(String endpoint, Object... params) {
+        return buildEtag("orders-" + endpoint, params);
+    }
+}
@@ -0,0 +1,44 @@
+package jpabook.jpashop.service;
+
+import jakarta.persistence.EntityManager;
+import org.hibernate.Session;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.function.Supplier;
+
+/**
+ * 조회 전용 로딩
+ * 하이버네이트는 엔티티를 올릴 때 변경 감지용 스냅샷(로딩 시점 값 배열)을 같이 보관하는데, 읽기 전용 엔티티는 이걸 남기지 않는다.
+ * fetch join으로 큰 그래프를 올리는 조회 API에서는 엔티티 힙 사용량이 거의 절반이 된다.
+ *
+ * readOnly 트랜잭션을 새로 시작하면 스프링(HibernateJpaDialect)이 세션을 기본 읽기 전용 + FlushMode.MANUAL로 바꾼다.
+ * 이미 트랜잭션 안이라 참여만 하는 경우에도 읽기 전용이 되도록 세션 설정을 직접 켜고 끝나면 되돌린다.
+ * 지연 로딩되는 컬렉션까지 읽기 전용으로 올라오게 DTO 변환까지 loader 안에서 해야 한다.
+ */
+@Component
+public class ReadOnlyLoading {
+
+    private final EntityManager em;
+    private final TransactionTemplate readOnlyTx;
+
+    public ReadOnlyLoading(EntityManager em, PlatformTransactionManager transactionManager) {
+        this.em = em;
+        this.readOnlyTx = new TransactionTemplate(transactionManager);
+        this.readOnlyTx.setReadOnly(true);
+    }
+
+    public <T> T load(Supplier<T> loader) {
+        return readOnlyTx.execute(status -> {
+            Session session = em.unwrap(Session.class);
+            boolean previous = session.isDefaultReadOnly();
+            session.setDefaultReadOnly(true);
+            try {
+                return loader.get();
+            } finally {
+                session.setDefaultReadOnly(previous);
+            }
+        });
+    }
+}
@@ -0,0 +1,21 @@
+package jpabook.jpashop.service.archive;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+//jpashop.archive.* 설정 (application.yml 참고)
+@Getter @Setter
+@ConfigurationProperties(prefix = "jpashop.archive")
+public class OrderArchiveProperties {
+
+    private boolean enabled;
+    private Duration age = Duration.ofDays(90); //이보다 오래된 끝난 주문을 보관 테이블로 옮긴다
+    private int batchSize = 500; //트랜잭션 하나에서 옮길 주문 수 (락을 짧게 잡기 위해 작게)
+    private Duration pause = Duration.ofMillis(100); //배치 사이 쉬는 시간
+    private int maxBatchesPerRun = 1000; //한번 실행에서 처리할 최대 배치 수
+    private boolean purgeEnabled; //보관 테이블에서도 지울지
+    private Duration purgeAge = Duration.ofDays(365 * 5);
+}
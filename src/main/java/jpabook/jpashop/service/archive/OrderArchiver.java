@@ -0,0 +1,131 @@
+package jpabook.jpashop.service.archive;
+
+import jakarta.persistence.EntityManager;
+import jpabook.jpashop.config.shard.OrderShards;
+import jpabook.jpashop.config.shard.ShardContext;
+import jpabook.jpashop.repository.archive.OrderArchiveRepository;
+import jpabook.jpashop.domain.OrderStatus;
+import jpabook.jpashop.service.OrderVersion;
+import jpabook.jpashop.service.rollup.SalesDelta;
+import jpabook.jpashop.service.rollup.SalesRollup;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.function.Supplier;
+
+/**
+ * 주문 보관 작업 (hot -> cold)
+ * jpashop.archive.interval 마다 오래되고 끝난 주문을 보관 테이블로 옮긴다.
+ * 한 트랜잭션에서 batchSize건씩만 옮기고 바로 커밋해서 orders 테이블 락을 오래 잡지 않는다.
+ * purgeEnabled면 보관 기간이 지난 보관 주문도 같은 방식으로 지운다.
+ *
+ * 목록 API는 hot 테이블만 보고, 단건 조회는 보관 테이블까지 찾아본다. (OrderQueryRepository.findOrderQueryDto)
+ * 샤딩 중이면 샤드마다 차례로 돈다. 보관 테이블도 주문과 같은 샤드에 있다.
+ */
+@Slf4j
+@Component
+@EnableConfigurationProperties(OrderArchiveProperties.class)
+@ConditionalOnProperty(prefix = "jpashop.archive", name = "enabled", havingValue = "true")
+public class OrderArchiver {
+
+    private final OrderArchiveRepository orderArchiveRepository;
+    private final OrderShards orderShards;
+    private final SalesRollup salesRollup;
+    private final OrderVersion orderVersion;
+    private final OrderArchiveProperties properties;
+    private final EntityManager em;
+    private final TransactionTemplate tx;
+
+    public OrderArchiver(OrderArchiveRepository orderArchiveRepository, OrderShards orderShards,
+                         SalesRollup salesRollup, OrderVersion orderVersion, OrderArchiveProperties properties, EntityManager em,
+                         PlatformTransactionManager transactionManager) {
+        this.orderArchiveRepository = orderArchiveRepository;
+        this.orderShards = orderShards;
+        this.salesRollup = salesRollup;
+        this.orderVersion = orderVersion;
+        this.properties = properties;
+        this.em = em;
+        this.tx = new TransactionTemplate(transactionManager);
+    }
+
+    @Scheduled(fixedDelayString = "${jpashop.archive.interval:PT10M}",
+            initialDelayString = "${jpashop.archive.interval:PT10M}")
+    public void run() {
+        int archived = archive();
+        int purged = properties.isPurgeEnabled() ? purge() : 0;
+        if (archived > 0 || purged > 0) {
+            log.info("order archive: archived={}, purged={}", archived, purged);
+        }
+    }
+
+    public int archive() {
+        LocalDateTime cutoff = LocalDateTime.now().minus(properties.getAge());
+        int total = 0;
+        for (int shard = 0; shard < orderShards.count(); shard++) {
+            total += inBatches(shard, () -> archiveBatch(cutoff));
+        }
+        return total;
+    }
+
+    private int archiveBatch(LocalDateTime cutoff) {
+        List<Object[]> targets = orderArchiveRepository.findArchivableOrders(cutoff, properties.getBatchSize());
+        if (targets.isEmpty()) {
+            return 0;
+        }
+        List<Long> orderIds = targets.stream().map(row -> (Long) row[0]).toList();
+        int moved = orderArchiveRepository.moveToArchive(orderIds, LocalDateTime.now());
+        em.clear(); //벌크 연산은 영속성 컨텍스트를 거치지 않으므로 비워준다
+
+        //목록(hot 테이블)에서 빠졌으니 상태별 건수에서 같은 트랜잭션으로 빼고 주문 버전(ETag)도 올린다
+        //매출 롤업은 보관한 주문도 계속 포함하므로 상태별 건수만 뺀다
+        SalesDelta delta = new SalesDelta();
+        targets.forEach(row -> delta.status((OrderStatus) row[1], -1));
+        salesRollup.apply(delta);
+        orderVersion.increase();
+        return moved;
+    }
+
+    public int purge() {
+        LocalDateTime cutoff = LocalDateTime.now().minus(properties.getPurgeAge());
+        int total = 0;
+        for (int shard = 0; shard < orderShards.count(); shard++) {
+            total += inBatches(shard, () -> {
+                List<Long> orderIds = orderArchiveRepository.findPurgeableOrderIds(cutoff, properties.getBatchSize());
+                return orderIds.isEmpty() ? 0 : orderArchiveRepository.purge(orderIds);
+            });
+        }
+        return total;
+    }
+
+    //샤드 하나에서 배치(트랜잭션 하나)를 처리할 것이 없을 때까지 반복한다
+    private int inBatches(int shard, Supplier<Integer> batch) {
+        int total = 0;
+        for (int i = 0; i < properties.getMaxBatchesPerRun(); i++) {
+            Integer done;
+            try (ShardContext.Scope ignored = ShardContext.bind(shard)) {
+                done = tx.execute(status -> batch.get());
+            }
+            if (done == null || done == 0) {
+                break;
+            }
+            total += done;
+            pause();
+        }
+        return total;
+    }
+
+    private void pause() {
+        try {
+            Thread.sleep(properties.getPause().toMillis());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
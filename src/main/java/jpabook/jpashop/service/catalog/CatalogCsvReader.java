@@ -0,0 +1,134 @@
+package jpabook.jpashop.service.catalog;
+
+import jpabook.jpashop.domain.item.Album;
+import jpabook.jpashop.domain.item.Book;
+import jpabook.jpashop.domain.item.Item;
+import jpabook.jpashop.domain.item.Movie;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 상품 CSV를 한 줄씩 읽는다. (파일 전체를 메모리에 올리지 않는다)
+ * 첫 줄은 헤더이고 컬럼 순서는 자유롭다.
+ *   id,dtype,name,price,stock_quantity,author,isbn,artist,etc,director,actor
+ * id가 비어 있으면 신규 상품, 있으면 그 상품을 수정한다. dtype은 B(책), A(앨범), M(영화)
+ * 큰따옴표로 감싼 값과 "" 이스케이프를 지원한다. (값 안의 줄바꿈은 지원하지 않는다)
+ */
+class CatalogCsvReader implements Closeable {
+
+    private static final List<String> REQUIRED = List.of("dtype", "name", "price", "stock_quantity");
+
+    private final BufferedReader reader;
+    private final Map<String, Integer> columns = new HashMap<>();
+
+    CatalogCsvReader(BufferedReader reader) throws IOException {
+        this.reader = reader;
+        String header = reader.readLine();
+        if (header == null) {
+            throw new IllegalArgumentException("빈 파일입니다.");
+        }
+        List<String> names = split(header.replace("\uFEFF", "")); //BOM 제거
+        for (int i = 0; i < names.size(); i++) {
+            columns.put(names.get(i).trim().toLowerCase(), i);
+        }
+        for (String required : REQUIRED) {
+            if (!columns.containsKey(required)) {
+                throw new IllegalArgumentException("필수 컬럼이 없습니다: " + required);
+            }
+        }
+    }
+
+    //다음 데이터 줄 (파일 끝이면 null)
+    String nextLine() throws IOException {
+        return reader.readLine();
+    }
+
+    //이미 처리한 줄을 건너뛴다 (체크포인트부터 다시 시작할 때)
+    void skip(long lines) throws IOException {
+        for (long i = 0; i < lines && reader.readLine() != null; i++) {
+        }
+    }
+
+    //한 줄을 상품으로 - 형식이 잘못되면 IllegalArgumentException
+    Item toItem(String line) {
+        List<String> fields = split(line);
+        Item item = switch (value(fields, "dtype")) {
+            case "B" -> {
+                Book book = new Book();
+                book.setAuthor(value(fields, "author"));
+                book.setIsbn(value(fields, "isbn"));
+                yield book;
+            }
+            case "A" -> {
+                Album album = new Album();
+                album.setArtist(value(fields, "artist"));
+                album.setEtc(value(fields, "etc"));
+                yield album;
+            }
+            case "M" -> {
+                Movie movie = new Movie();
+                movie.setDirector(value(fields, "director"));
+                movie.setActor(value(fields, "actor"));
+                yield movie;
+            }
+            default -> throw new IllegalArgumentException("알 수 없는 dtype: " + value(fields, "dtype"));
+        };
+        String id = value(fields, "id");
+        item.setId(id == null ? null : Long.valueOf(id));
+        item.setName(value(fields, "name"));
+        item.setPrice(Integer.parseInt(value(fields, "price")));
+        item.setStockQuantity(Integer.parseInt(value(fields, "stock_quantity")));
+        if (item.getName() == null || item.getPrice() < 0 || item.getStockQuantity() < 0) {
+            throw new IllegalArgumentException("name은 필수이고 price, stock_quantity는 0 이상이어야 합니다.");
+        }
+        return item;
+    }
+
+    private String value(List<String> fields, String column) {
+        Integer index = columns.get(column);
+        if (index == null || index >= fields.size()) {
+            return null;
+        }
+        String value = fields.get(index).trim();
+        return value.isEmpty() ? null : value;
+    }
+
+    static List<String> split(String line) {
+        List<String> fields = new ArrayList<>();
+        StringBuilder field = new StringBuilder();
+        boolean quoted = false;
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (quoted) {
+                if (c == '"' && i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                    field.append('"');
+                    i++;
+                } else if (c == '"') {
+                    quoted = false;
+                } else {
+                    field.append(c);
+                }
+            } else if (c == '"') {
+                quoted = true;
+            } else if (c == ',') {
+                fields.add(field.toString());
+                field.setLength(0);
+            } else {
+                field.append(c);
+            }
+        }
+        fields.add(field.toString());
+        return fields;
+    }
+
+    @Override
+    public void close() throws IOException {
+        reader.close();
+    }
+}
@@ -0,0 +1,14 @@
+package jpabook.jpashop.service.catalog;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+//jpashop.catalog-import.* 설정 (application.yml 참고)
+@Getter @Setter
+@ConfigurationProperties(prefix = "jpashop.catalog-import")
+public class CatalogImportProperties {
+
+    private String directory = "./catalog-import"; //가져올 파일을 두는 곳 (이 밖의 경로는 읽지 않는다)
+    private int chunkSize = 1000; //트랜잭션 하나에서 처리할 줄 수 (= JDBC 배치 크기)
+}
@@ -0,0 +1,209 @@
+package jpabook.jpashop.service.catalog;
+
+import jakarta.annotation.PreDestroy;
+import jakarta.persistence.EntityManager;
+import jpabook.jpashop.config.shard.ShardReplicator;
+import jpabook.jpashop.domain.catalog.CatalogImportJob;
+import jpabook.jpashop.domain.item.Item;
+import jpabook.jpashop.exception.InvalidRequestException;
+import jpabook.jpashop.repository.ItemRepository;
+import jpabook.jpashop.service.CatalogVersion;
+import jpabook.jpashop.service.OrderVersion;
+import lombok.extern.slf4j.Slf4j;
+import org.hibernate.Session;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.InvalidPathException;
+import java.nio.file.Path;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * 상품 CSV 가져오기 (야간 카탈로그 파일, 수십만~백만 줄)
+ * ItemService.saveItem은 수정할 때 merge가 상품마다 select를 하므로 쓰지 않는다.
+ * - 파일은 한 줄씩 읽고 chunkSize줄마다 트랜잭션 하나로 처리한 뒤 영속성 컨텍스트를 비운다. (힙 사용량 일정)
+ * - 신규 상품은 persist 후 flush (JDBC 배치 insert), 수정은 조회 없이 JDBC 배치 update (ItemRepository.updateAll)
+ * - 청크를 커밋할 때 작업의 체크포인트(processedLines)도 같이 커밋하므로, 멈춘 작업은 resume으로 이어서 한다.
+ * - 샤딩 중이면 커밋 후 상품을 다른 샤드에 복사하고 재고는 샤드마다 나눈다. (ShardReplicator)
+ * 작업은 별도 스레드 하나에서 차례로 돌고, 진행 상황은 CatalogImportJob으로 조회한다.
+ */
+@Slf4j
+@Service
+@EnableConfigurationProperties(CatalogImportProperties.class)
+public class CatalogImporter {
+
+    private final ItemRepository itemRepository;
+    private final CatalogVersion catalogVersion;
+    private final OrderVersion orderVersion;
+    private final CatalogImportProperties properties;
+    private final ShardReplicator shardReplicator;
+    private final EntityManager em;
+    private final TransactionTemplate tx;
+    private final ExecutorService executor = Executors.newSingleThreadExecutor(r -> new Thread(r, "catalog-import"));
+    private final Set<Long> running = ConcurrentHashMap.newKeySet();
+
+    public CatalogImporter(ItemRepository itemRepository, CatalogVersion catalogVersion, OrderVersion orderVersion,
+                           CatalogImportProperties properties, ShardReplicator shardReplicator, EntityManager em,
+                           PlatformTransactionManager transactionManager) {
+        this.itemRepository = itemRepository;
+        this.catalogVersion = catalogVersion;
+        this.orderVersion = orderVersion;
+        this.properties = properties;
+        this.shardReplicator = shardReplicator;
+        this.em = em;
+        this.tx = new TransactionTemplate(transactionManager);
+    }
+
+    //가져오기 시작 - 파일은 directory 안에 있어야 한다 (없으면 400)
+    public CatalogImportJob start(String fileName) {
+        Path file = resolve(fileName);
+        CatalogImportJob job = tx.execute(status -> {
+            CatalogImportJob created = CatalogImportJob.start(fileName);
+            em.persist(created);
+            return created;
+        });
+        submit(job.getId(), file);
+        return job;
+    }
+
+    //실패했거나 서버가 내려가서 멈춘 작업을 체크포인트부터 다시 시작
+    public CatalogImportJob resume(Long jobId) {
+        if (running.contains(jobId)) {
+            throw new IllegalStateException("이미 진행 중인 작업입니다.");
+        }
+        CatalogImportJob job = tx.execute(status -> {
+            CatalogImportJob found = em.find(CatalogImportJob.class, jobId);
+            if (found == null) {
+                throw new IllegalArgumentException("존재하지 않는 작업입니다.");
+            }
+            if (found.getStatus() == CatalogImportJob.Status.COMPLETED) {
+                throw new IllegalStateException("이미 끝난 작업입니다.");
+            }
+            found.resume();
+            return found;
+        });
+        submit(jobId, resolve(job.getFileName()));
+        return job;
+    }
+
+    public CatalogImportJob findJob(Long jobId) {
+        return tx.execute(status -> em.find(CatalogImportJob.class, jobId));
+    }
+
+    private void submit(Long jobId, Path file) {
+        running.add(jobId);
+        executor.submit(() -> {
+            try {
+                run(jobId, file);
+            } finally {
+                running.remove(jobId);
+            }
+        });
+    }
+
+    void run(Long jobId, Path file) {
+        try (CatalogCsvReader reader = new CatalogCsvReader(Files.newBufferedReader(file, StandardCharsets.UTF_8))) {
+            long processed = tx.execute(status -> em.find(CatalogImportJob.class, jobId).getProcessedLines());
+            reader.skip(processed);
+
+            List<String> lines = new ArrayList<>(properties.getChunkSize());
+            String line;
+            while ((line = reader.nextLine()) != null) {
+                lines.add(line);
+                if (lines.size() == properties.getChunkSize()) {
+                    importChunk(jobId, reader, lines, processed);
+                    processed += lines.size();
+                    lines.clear();
+                }
+            }
+            if (!lines.isEmpty()) {
+                importChunk(jobId, reader, lines, processed);
+            }
+            tx.executeWithoutResult(status -> em.find(CatalogImportJob.class, jobId).complete());
+            log.info("catalog import completed: jobId={}, file={}", jobId, file.getFileName());
+        } catch (Exception e) {
+            log.warn("catalog import failed: jobId={}, file={}", jobId, file.getFileName(), e);
+            tx.executeWithoutResult(status -> em.find(CatalogImportJob.class, jobId).fail(e.toString()));
+        }
+    }
+
+    //청크 하나 = 트랜잭션 하나 (상품 insert/update + 체크포인트)
+    private void importChunk(Long jobId, CatalogCsvReader reader, List<String> lines, long firstLine) {
+        tx.executeWithoutResult(status -> {
+            em.unwrap(Session.class).setJdbcBatchSize(properties.getChunkSize());
+            List<Item> creates = new ArrayList<>();
+            List<Item> updates = new ArrayList<>();
+            long failed = 0;
+            String lastError = null;
+            for (int i = 0; i < lines.size(); i++) {
+                if (lines.get(i).isBlank()) {
+                    continue;
+                }
+                try {
+                    Item item = reader.toItem(lines.get(i));
+                    (item.getId() == null ? creates : updates).add(item);
+                } catch (IllegalArgumentException e) {
+                    failed++;
+                    lastError = "line " + (firstLine + i + 2) + ": " + e.getMessage(); //헤더 포함 파일 줄 번호
+                }
+            }
+
+            //DB에 쓰기 전에 재고를 샤드마다 나눈다 - 새 상품은 몫으로, 수정은 지금 합과의 차이만 (커밋 후 다른 샤드에 복사)
+            shardReplicator.replicateItems(creates);
+            shardReplicator.replicateItems(updates);
+            creates.forEach(em::persist);
+            em.flush();
+            long updated = 0;
+            if (!updates.isEmpty()) {
+                int[] counts = itemRepository.updateAll(updates);
+                for (int i = 0; i < counts.length; i++) {
+                    if (counts[i] > 0 || counts[i] == Statement.SUCCESS_NO_INFO) {
+                        updated++;
+                    } else {
+                        failed++;
+                        lastError = "item_id=" + updates.get(i).getId() + ": 없는 상품이거나 타입이 다릅니다.";
+                    }
+                }
+            }
+
+            em.find(CatalogImportJob.class, jobId)
+                    .checkpoint(lines.size(), creates.size(), updated, failed, lastError);
+            em.flush();
+            em.clear();
+
+            catalogVersion.increase(); //상품 목록 ETag 갱신
+            if (updated > 0) {
+                orderVersion.increase(); //주문 조회 API에 상품 이름이 나가므로
+            }
+        });
+    }
+
+    private Path resolve(String fileName) {
+        Path directory = Path.of(properties.getDirectory()).toAbsolutePath().normalize();
+        Path file;
+        try {
+            file = directory.resolve(fileName).normalize();
+        } catch (InvalidPathException e) {
+            throw new InvalidRequestException("파일 이름이 잘못되었습니다: " + fileName);
+        }
+        if (!file.startsWith(directory) || !Files.isRegularFile(file)) {
+            throw new InvalidRequestException("가져올 파일이 없습니다: " + fileName);
+        }
+        return file;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow(); //진행 중이던 작업은 마지막 체크포인트부터 resume 할 수 있다
+    }
+}
@@ -0,0 +1,13 @@
+package jpabook.jpashop.service.idempotency;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+//Idempotency-Key 주문 결과 - replayed면 새로 주문하지 않고 처음 만든 주문 id를 돌려준 것
+@Data
+@AllArgsConstructor
+public class IdempotentOrderResult {
+
+    private Long orderId;
+    private boolean replayed;
+}
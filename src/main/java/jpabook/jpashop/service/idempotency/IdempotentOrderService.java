@@ -0,0 +1,236 @@
+package jpabook.jpashop.service.idempotency;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jpabook.jpashop.config.shard.OrderShards;
+import jpabook.jpashop.config.shard.ShardContext;
+import jpabook.jpashop.domain.idempotency.OrderIdempotencyKey;
+import jpabook.jpashop.exception.IdempotencyKeyException;
+import jpabook.jpashop.repository.idempotency.OrderIdempotencyKeyRepository;
+import jpabook.jpashop.service.OrderService;
+import lombok.extern.slf4j.Slf4j;
+import org.hibernate.exception.ConstraintViolationException;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.PessimisticLockingFailureException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.Locale;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Idempotency-Key로 주문 생성
+ * 같은 키로 다시 오면 재고를 건드리지 않고 처음 만든 주문 id를 돌려준다.
+ *
+ * 1. 메모리 - 같은 인스턴스에 동시에 온 요청은 먼저 온 요청이 끝나길 기다렸다가 그 결과를 받는다.
+ *    끝난 결과는 localTtl 동안 들고 있어서 재시도가 DB까지 가지 않는다.
+ * 2. DB - 키 행을 주문과 같은 트랜잭션에서 먼저 insert + flush한다.
+ *    다른 인스턴스에 같은 키가 동시에 오면 unique 제약에서 기다리다가 중복 키로 실패하고, 커밋된 결과를 다시 읽는다.
+ *    주문이 실패(재고 부족 등)하면 키도 같이 롤백되므로 같은 키로 다시 시도할 수 있다.
+ */
+@Slf4j
+@Service
+@EnableConfigurationProperties(OrderIdempotencyProperties.class)
+public class IdempotentOrderService {
+
+    private final OrderService orderService;
+    private final OrderIdempotencyKeyRepository repository;
+    private final OrderShards orderShards;
+    private final OrderIdempotencyProperties properties;
+    private final TransactionTemplate tx;
+
+    private final ConcurrentHashMap<LocalKey, Local> local = new ConcurrentHashMap<>();
+    private final Counter replayedLocal;
+    private final Counter replayedDb;
+
+    public IdempotentOrderService(OrderService orderService, OrderIdempotencyKeyRepository repository,
+                                  OrderShards orderShards, OrderIdempotencyProperties properties,
+                                  PlatformTransactionManager transactionManager, MeterRegistry meterRegistry) {
+        this.orderService = orderService;
+        this.repository = repository;
+        this.orderShards = orderShards;
+        this.properties = properties;
+        this.tx = new TransactionTemplate(transactionManager);
+        this.replayedLocal = meterRegistry.counter("order.idempotency.replayed", "tier", "local");
+        this.replayedDb = meterRegistry.counter("order.idempotency.replayed", "tier", "db");
+        Gauge.builder("order.idempotency.local.size", local, ConcurrentHashMap::size).register(meterRegistry);
+    }
+
+    public IdempotentOrderResult order(String key, Long memberId, Long itemId, int count) {
+        validate(key);
+        LocalKey localKey = new LocalKey(memberId, key);
+        String requestHash = itemId + ":" + count;
+        long deadline = System.nanoTime() + properties.getWaitTimeout().toNanos();
+
+        while (true) {
+            if (local.size() >= properties.getLocalMaxSize()) {
+                //메모리가 꽉 차면 DB만 본다 (동시에 온 같은 키는 unique 제약이 막는다)
+                return place(key, requestHash, memberId, itemId, count);
+            }
+            Local mine = new Local(requestHash);
+            Local existing = local.putIfAbsent(localKey, mine);
+            if (existing == null) {
+                return placeAndRemember(localKey, mine, key, requestHash, memberId, itemId, count);
+            }
+            if (existing.isExpired(System.nanoTime())) {
+                local.remove(localKey, existing);
+                continue;
+            }
+            if (!existing.requestHash.equals(requestHash)) {
+                throw IdempotencyKeyException.mismatch(key);
+            }
+            Long orderId = await(existing, key, deadline);
+            if (orderId != null) {
+                replayedLocal.increment();
+                return new IdempotentOrderResult(orderId, true);
+            }
+            //먼저 온 요청이 실패했다 - 키가 저장되지 않았으니 이 요청이 다시 시도한다
+        }
+    }
+
+    private IdempotentOrderResult placeAndRemember(LocalKey localKey, Local mine, String key, String requestHash,
+                                                   Long memberId, Long itemId, int count) {
+        try {
+            IdempotentOrderResult result = place(key, requestHash, memberId, itemId, count);
+            mine.expiresAt = System.nanoTime() + properties.getLocalTtl().toNanos();
+            mine.future.complete(result.getOrderId());
+            return result;
+        } catch (RuntimeException e) {
+            local.remove(localKey, mine);
+            mine.future.completeExceptionally(e);
+            throw e;
+        }
+    }
+
+    private IdempotentOrderResult place(String key, String requestHash, Long memberId, Long itemId, int count) {
+        //키는 주문과 같은 샤드에 저장한다 - 트랜잭션 시작 전에 샤드를 정해야 같은 커넥션을 쓴다
+        try (ShardContext.Scope ignored = orderShards.bindMember(memberId)) {
+            try {
+                return tx.execute(status -> placeInTransaction(key, requestHash, memberId, itemId, count));
+            } catch (DataIntegrityViolationException e) {
+                if (!isDuplicateKey(e)) {
+                    throw e; //키가 아닌 다른 제약 위반은 재시도 대상이 아니다
+                }
+                //다른 인스턴스가 같은 키로 먼저 커밋했다 - 그 결과를 돌려준다
+                return tx.execute(status -> replay(key, requestHash, memberId));
+            } catch (PessimisticLockingFailureException e) {
+                //먼저 온 요청의 트랜잭션이 아직 안 끝났다
+                throw IdempotencyKeyException.inProgress(key);
+            }
+        }
+    }
+
+    //(회원, 키) unique 제약 위반인지 - 제약 이름은 DB마다 대소문자/스키마가 붙는 모양이 달라서 포함 여부로 본다
+    private static boolean isDuplicateKey(DataIntegrityViolationException e) {
+        for (Throwable cause = e; cause != null; cause = cause.getCause()) {
+            if (cause instanceof ConstraintViolationException violation && violation.getConstraintName() != null
+                    && violation.getConstraintName().toLowerCase(Locale.ROOT)
+                    .contains(OrderIdempotencyKey.UNIQUE_CONSTRAINT)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private IdempotentOrderResult placeInTransaction(String key, String requestHash, Long memberId, Long itemId, int count) {
+        LocalDateTime now = LocalDateTime.now();
+        Optional<OrderIdempotencyKey> found = repository.find(memberId, key);
+        if (found.isPresent()) {
+            OrderIdempotencyKey existing = found.get();
+            if (!existing.isExpired(now)) {
+                return replayed(existing, key, requestHash);
+            }
+            repository.delete(existing); //만료됐지만 아직 cleanup 전인 키
+        }
+        OrderIdempotencyKey idempotencyKey = OrderIdempotencyKey.create(memberId, key, requestHash, now.plus(properties.getTtl()));
+        repository.saveAndFlush(idempotencyKey);
+        Long orderId = orderService.order(memberId, itemId, count); //같은 트랜잭션에 참여
+        idempotencyKey.complete(orderId);
+        return new IdempotentOrderResult(orderId, false);
+    }
+
+    private IdempotentOrderResult replay(String key, String requestHash, Long memberId) {
+        return repository.find(memberId, key)
+                .filter(existing -> !existing.isExpired(LocalDateTime.now()))
+                .map(existing -> replayed(existing, key, requestHash))
+                .orElseThrow(() -> IdempotencyKeyException.inProgress(key));
+    }
+
+    private IdempotentOrderResult replayed(OrderIdempotencyKey existing, String key, String requestHash) {
+        if (!existing.getRequestHash().equals(requestHash)) {
+            throw IdempotencyKeyException.mismatch(key);
+        }
+        if (existing.getOrderId() == null) {
+            throw IdempotencyKeyException.inProgress(key);
+        }
+        replayedDb.increment();
+        return new IdempotentOrderResult(existing.getOrderId(), true);
+    }
+
+    //먼저 온 요청의 주문 id, 실패했으면 null
+    private Long await(Local existing, String key, long deadline) {
+        try {
+            return existing.future.get(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+        } catch (ExecutionException e) {
+            return null;
+        } catch (TimeoutException e) {
+            throw IdempotencyKeyException.inProgress(key);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw IdempotencyKeyException.inProgress(key);
+        }
+    }
+
+    private static void validate(String key) {
+        if (key.isBlank() || key.length() > OrderIdempotencyKey.MAX_KEY_LENGTH) {
+            throw IdempotencyKeyException.invalid(
+                    "Idempotency-Key는 1자 이상 " + OrderIdempotencyKey.MAX_KEY_LENGTH + "자 이하여야 합니다.");
+        }
+    }
+
+    //만료된 키를 메모리와 샤드마다 작은 배치로 지운다
+    @Scheduled(fixedDelayString = "${jpashop.idempotency.cleanup-interval:PT10M}",
+            initialDelayString = "${jpashop.idempotency.cleanup-interval:PT10M}")
+    public void cleanup() {
+        long nowNanos = System.nanoTime();
+        local.entrySet().removeIf(entry -> entry.getValue().isExpired(nowNanos));
+
+        LocalDateTime now = LocalDateTime.now();
+        for (int shard = 0; shard < orderShards.count(); shard++) {
+            try (ShardContext.Scope ignored = ShardContext.bind(shard)) {
+                Integer deleted;
+                do {
+                    deleted = tx.execute(status -> repository.deleteExpired(now, properties.getCleanupBatchSize()));
+                } while (deleted != null && deleted == properties.getCleanupBatchSize());
+            }
+        }
+    }
+
+    private record LocalKey(Long memberId, String key) {
+    }
+
+    private static final class Local {
+        final String requestHash;
+        final CompletableFuture<Long> future = new CompletableFuture<>();
+        volatile long expiresAt; //System.nanoTime() 기준, 끝난 뒤에 정해진다
+
+        Local(String requestHash) {
+            this.requestHash = requestHash;
+        }
+
+        //진행 중인 요청은 만료되지 않는다 (실패한 요청은 바로 지워진다)
+        boolean isExpired(long nowNanos) {
+            return future.isDone() && nowNanos - expiresAt >= 0;
+        }
+    }
+}
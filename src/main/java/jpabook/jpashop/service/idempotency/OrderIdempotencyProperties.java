@@ -0,0 +1,19 @@
+package jpabook.jpashop.service.idempotency;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+//jpashop.idempotency.* 설정 (application.yml 참고)
+@Getter @Setter
+@ConfigurationProperties(prefix = "jpashop.idempotency")
+public class OrderIdempotencyProperties {
+
+    private Duration ttl = Duration.ofHours(24); //DB에 키를 남겨둘 기간 - 이 안에 같은 키로 오면 처음 결과를 돌려준다
+    private Duration localTtl = Duration.ofMinutes(10); //메모리에 결과를 들고 있을 기간 (재시도는 보통 몇 초 안에 온다)
+    private int localMaxSize = 100_000; //메모리에 들고 있을 최대 키 수 - 넘으면 DB만 본다
+    private Duration waitTimeout = Duration.ofSeconds(10); //같은 키로 동시에 온 요청이 먼저 온 요청을 기다리는 시간
+    private int cleanupBatchSize = 1000;
+}
@@ -0,0 +1,22 @@
+package jpabook.jpashop.service.outbox;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+//같은 프로세스 안의 @EventListener(OutboxMessage)로 보낸다 (기본 싱크)
+@Component
+@RequiredArgsConstructor
+@ConditionalOnProperty(prefix = "jpashop.outbox", name = "sink", havingValue = "event", matchIfMissing = true)
+public class ApplicationEventOutboxSink implements OutboxSink {
+
+    private final ApplicationEventPublisher publisher;
+
+    @Override
+    public void publish(List<OutboxMessage> messages) {
+        messages.forEach(publisher::publishEvent);
+    }
+}
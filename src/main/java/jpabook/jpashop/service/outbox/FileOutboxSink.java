@@ -0,0 +1,46 @@
+package jpabook.jpashop.service.outbox;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+
+//로컬 파일에 JSON 한 줄씩 덧붙인다 (외부 메시지 브로커 대용)
+@Component
+@ConditionalOnProperty(prefix = "jpashop.outbox", name = "sink", havingValue = "file")
+public class FileOutboxSink implements OutboxSink {
+
+    private final ObjectMapper objectMapper;
+    private final Path file;
+
+    public FileOutboxSink(ObjectMapper objectMapper,
+                          @Value("${jpashop.outbox.file:./outbox-events.jsonl}") String file) {
+        this.objectMapper = objectMapper;
+        this.file = Path.of(file);
+    }
+
+    @Override
+    public synchronized void publish(List<OutboxMessage> messages) throws IOException {
+        StringBuilder lines = new StringBuilder();
+        for (OutboxMessage message : messages) {
+            lines.append(objectMapper.writeValueAsString(message)).append('\n');
+        }
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.APPEND)) {
+            ByteBuffer buffer = ByteBuffer.wrap(lines.toString().getBytes(StandardCharsets.UTF_8));
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            //디스크에 내려간 뒤에야 보낸 것으로 표시할 수 있다
+            channel.force(false);
+        }
+    }
+}
@@ -0,0 +1,64 @@
+package jpabook.jpashop.service.outbox;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jpabook.jpashop.domain.DeliveryStatus;
+import jpabook.jpashop.domain.Order;
+import jpabook.jpashop.domain.outbox.OutboxEvent;
+import jpabook.jpashop.repository.OrderRepository;
+import jpabook.jpashop.repository.outbox.OutboxEventRepository;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+/**
+ * 주문 이벤트를 아웃박스 테이블에 기록한다.
+ * 반드시 주문을 변경하는 트랜잭션 안에서 호출해야 한다. (주문 변경과 이벤트 저장이 함께 커밋/롤백)
+ */
+@Component
+@RequiredArgsConstructor
+public class OrderEventOutbox {
+
+    private static final String AGGREGATE_TYPE = "Order";
+
+    private final OutboxEventRepository outboxEventRepository;
+    private final OrderRepository orderRepository;
+    private final ObjectMapper objectMapper;
+
+    //주문 생성 이벤트는 항상 1번 (Order.eventSequence의 초기값)
+    public void orderPlaced(Order order) {
+        append(order.getId(), order.getEventSequence(), OrderEvents.ORDER_PLACED, new OrderEvents.OrderPlaced(
+                order.getId(), order.getMember().getId(), order.getOrderDate(), lines(order)));
+    }
+
+    public void orderCancelled(Order order) {
+        orderCancelled(order.getId(), order.getMember().getId(), lines(order));
+    }
+
+    //주문 상품을 엔티티로 올리지 않은 경우 (일괄 취소)
+    public void orderCancelled(Long orderId, Long memberId, List<OrderEvents.Line> orderItems) {
+        append(orderId, orderRepository.nextEventSequence(orderId), OrderEvents.ORDER_CANCELLED,
+                new OrderEvents.OrderCancelled(orderId, memberId, orderItems));
+    }
+
+    public void deliveryStatusChanged(Long orderId, Long deliveryId, DeliveryStatus from, DeliveryStatus to) {
+        append(orderId, orderRepository.nextEventSequence(orderId), OrderEvents.DELIVERY_STATUS_CHANGED,
+                new OrderEvents.DeliveryStatusChanged(orderId, deliveryId, from, to));
+    }
+
+    private List<OrderEvents.Line> lines(Order order) {
+        return order.getOrderItems().stream()
+                .map(oi -> new OrderEvents.Line(oi.getItem().getId(), oi.getOrderPrice(), oi.getCount()))
+                .toList();
+    }
+
+    private void append(Long orderId, long sequence, String eventType, Object event) {
+        try {
+            outboxEventRepository.save(OutboxEvent.create(AGGREGATE_TYPE, orderId, sequence, eventType,
+                    objectMapper.writeValueAsString(event)));
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("이벤트 직렬화 실패: " + eventType, e);
+        }
+    }
+}
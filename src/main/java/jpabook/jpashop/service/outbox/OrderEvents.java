@@ -0,0 +1,53 @@
+package jpabook.jpashop.service.outbox;
+
+import jpabook.jpashop.domain.DeliveryStatus;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+//아웃박스로 내보내는 주문 도메인 이벤트 (payload로 JSON 직렬화된다)
+public final class OrderEvents {
+
+    public static final String ORDER_PLACED = "OrderPlaced";
+    public static final String ORDER_CANCELLED = "OrderCancelled";
+    public static final String DELIVERY_STATUS_CHANGED = "DeliveryStatusChanged";
+
+    private OrderEvents() {
+    }
+
+    @Getter
+    @AllArgsConstructor
+    public static class OrderPlaced {
+        private Long orderId;
+        private Long memberId;
+        private LocalDateTime orderDate;
+        private List<Line> orderItems;
+    }
+
+    @Getter
+    @AllArgsConstructor
+    public static class OrderCancelled {
+        private Long orderId;
+        private Long memberId;
+        private List<Line> orderItems; //재고가 복구된 상품과 수량
+    }
+
+    @Getter
+    @AllArgsConstructor
+    public static class DeliveryStatusChanged {
+        private Long orderId;
+        private Long deliveryId;
+        private DeliveryStatus from;
+        private DeliveryStatus to;
+    }
+
+    @Getter
+    @AllArgsConstructor
+    public static class Line {
+        private Long itemId;
+        private int orderPrice;
+        private int count;
+    }
+}
@@ -0,0 +1,29 @@
+package jpabook.jpashop.service.outbox;
+
+import jpabook.jpashop.domain.outbox.OutboxEvent;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+import java.time.LocalDateTime;
+
+/**
+ * 싱크로 보내는 메시지
+ * 최소 한번 전달(at-least-once)이므로 받는 쪽은 id로 중복을 걸러야 한다.
+ * 같은 주문의 이벤트 순서는 id가 아니라 sequence다.
+ */
+@Data
+@AllArgsConstructor
+public class OutboxMessage {
+    private Long id;
+    private String aggregateType;
+    private Long aggregateId;
+    private long sequence;
+    private String eventType;
+    private String payload;
+    private LocalDateTime createdAt;
+
+    public static OutboxMessage from(OutboxEvent event) {
+        return new OutboxMessage(event.getId(), event.getAggregateType(), event.getAggregateId(),
+                event.getSequence(), event.getEventType(), event.getPayload(), event.getCreatedAt());
+    }
+}
@@ -0,0 +1,119 @@
+package jpabook.jpashop.service.outbox;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jpabook.jpashop.config.shard.OrderShards;
+import jpabook.jpashop.config.shard.ShardContext;
+import jpabook.jpashop.domain.outbox.OutboxEvent;
+import jpabook.jpashop.repository.outbox.OutboxEventRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 아웃박스 릴레이
+ * 보내지 않은 이벤트를 주문별 순번(sequence) 순서대로 batchSize건씩 읽어 싱크로 보내고, 보낸 뒤에 벌크 업데이트로 표시한다.
+ * (이벤트 id는 인스턴스마다 할당 블록이 달라 저장 순서와 다르다 - OutboxEventRepository.findPending)
+ * 보낸 뒤 표시 전에 죽으면 다음 실행에서 다시 보내므로 최소 한번 전달이다. (받는 쪽에서 id로 중복 제거)
+ * 보내다 실패하면 그 샤드는 거기서 멈추고 다음 실행에서 같은 배치부터 다시 보낸다. (순서 보장)
+ *
+ * 릴레이는 기본으로 꺼져 있고, 인스턴스 하나에서만 켜야 한다. (여러 대에서 돌면 같은 이벤트를 중복으로 보낸다)
+ */
+@Slf4j
+@Component
+@EnableConfigurationProperties(OutboxRelayProperties.class)
+@ConditionalOnProperty(prefix = "jpashop.outbox.relay", name = "enabled", havingValue = "true")
+public class OutboxRelay {
+
+    private final OutboxEventRepository outboxEventRepository;
+    private final OutboxSink sink;
+    private final OrderShards orderShards;
+    private final OutboxRelayProperties properties;
+    private final TransactionTemplate tx;
+
+    private final Timer lag;
+    private final Counter published;
+    private final AtomicLong pending = new AtomicLong();
+
+    public OutboxRelay(OutboxEventRepository outboxEventRepository, OutboxSink sink, OrderShards orderShards,
+                       OutboxRelayProperties properties, PlatformTransactionManager transactionManager,
+                       MeterRegistry meterRegistry) {
+        this.outboxEventRepository = outboxEventRepository;
+        this.sink = sink;
+        this.orderShards = orderShards;
+        this.properties = properties;
+        this.tx = new TransactionTemplate(transactionManager);
+        //이벤트 저장 시각부터 싱크로 보낼 때까지 걸린 시간
+        this.lag = Timer.builder("outbox.relay.lag").publishPercentiles(0.5, 0.99).register(meterRegistry);
+        this.published = meterRegistry.counter("outbox.relay.published");
+        Gauge.builder("outbox.relay.pending", pending, AtomicLong::get).register(meterRegistry);
+    }
+
+    @Scheduled(fixedDelayString = "${jpashop.outbox.relay.interval:PT1S}")
+    public void run() {
+        long remaining = 0;
+        //주문과 같은 샤드에 이벤트가 저장되므로 샤드마다 따로 보낸다 (샤딩을 안 쓰면 1개)
+        for (int shard = 0; shard < orderShards.count(); shard++) {
+            try (ShardContext.Scope ignored = ShardContext.bind(shard)) {
+                relay();
+                Long count = tx.execute(status -> outboxEventRepository.countPending());
+                remaining += count == null ? 0 : count;
+            }
+        }
+        pending.set(remaining);
+    }
+
+    public int relay() {
+        int total = 0;
+        for (int i = 0; i < properties.getMaxBatchesPerRun(); i++) {
+            List<OutboxEvent> batch = tx.execute(status -> outboxEventRepository.findPending(properties.getBatchSize()));
+            if (batch == null || batch.isEmpty()) {
+                break;
+            }
+            try {
+                sink.publish(batch.stream().map(OutboxMessage::from).toList());
+            } catch (Exception e) {
+                log.warn("outbox relay failed: firstId={}, size={}", batch.get(0).getId(), batch.size(), e);
+                break;
+            }
+            LocalDateTime now = LocalDateTime.now();
+            List<Long> ids = batch.stream().map(OutboxEvent::getId).toList();
+            tx.executeWithoutResult(status -> outboxEventRepository.markPublished(ids, now));
+
+            batch.forEach(event -> lag.record(Duration.between(event.getCreatedAt(), now)));
+            published.increment(batch.size());
+            total += batch.size();
+            if (batch.size() < properties.getBatchSize()) {
+                break;
+            }
+        }
+        return total;
+    }
+
+    //보낸 지 retention이 지난 이벤트를 작은 배치로 지운다
+    @Scheduled(fixedDelayString = "${jpashop.outbox.relay.cleanup-interval:PT1H}",
+            initialDelayString = "${jpashop.outbox.relay.cleanup-interval:PT1H}")
+    public void cleanup() {
+        LocalDateTime cutoff = LocalDateTime.now().minus(properties.getRetention());
+        for (int shard = 0; shard < orderShards.count(); shard++) {
+            try (ShardContext.Scope ignored = ShardContext.bind(shard)) {
+                Integer deleted;
+                do {
+                    deleted = tx.execute(status ->
+                            outboxEventRepository.deletePublishedBefore(cutoff, properties.getCleanupBatchSize()));
+                } while (deleted != null && deleted == properties.getCleanupBatchSize());
+            }
+        }
+    }
+}
@@ -0,0 +1,19 @@
+package jpabook.jpashop.service.outbox;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+//jpashop.outbox.relay.* 설정 (application.yml 참고)
+@Getter @Setter
+@ConfigurationProperties(prefix = "jpashop.outbox.relay")
+public class OutboxRelayProperties {
+
+    private boolean enabled; //기본은 꺼짐 - 릴레이를 돌릴 인스턴스 하나에서만 켠다
+    private int batchSize = 200; //한번에 읽어서 보낼 이벤트 수
+    private int maxBatchesPerRun = 50; //밀려 있을 때 한번 실행에서 연달아 보낼 최대 배치 수
+    private Duration retention = Duration.ofDays(7); //보낸 이벤트를 남겨둘 기간
+    private int cleanupBatchSize = 1000;
+}
@@ -0,0 +1,11 @@
+package jpabook.jpashop.service.outbox;
+
+import java.util.List;
+
+/**
+ * 아웃박스 이벤트를 내보낼 곳
+ * 배치 전체를 순서대로 보내고, 하나라도 실패하면 예외를 던진다. (배치 전체를 나중에 다시 보낸다)
+ */
+public interface OutboxSink {
+    void publish(List<OutboxMessage> messages) throws Exception;
+}
@@ -0,0 +1,85 @@
+package jpabook.jpashop.service.report;
+
+import jpabook.jpashop.domain.OrderStatus;
+import jpabook.jpashop.repository.report.SalesRowHandler;
+
+import java.util.Arrays;
+
+/**
+ * 파티션 하나의 집계 결과
+ * 행은 주문 id 순서로 들어오므로, 주문이 바뀌는 지점에서 주문 수를 센다.
+ * (같은 주문에 같은 상품/타입이 여러 줄 있어도 주문 수는 한번만 센다)
+ */
+final class SalesPartial implements SalesRowHandler {
+
+    private static final OrderStatus[] STATUSES = OrderStatus.values();
+
+    final SalesStats byItem = new SalesStats(1024);
+    final SalesStats byType = new SalesStats(4); //키: dtype 문자
+    final SalesStats byDay = new SalesStats(64); //키: epoch day
+    final SalesStats byStatus = new SalesStats(4); //키: OrderStatus ordinal
+    long rows;
+    long orders;
+    long revenue;
+    long units;
+
+    private long currentOrder = Long.MIN_VALUE;
+    private long[] orderItems = new long[8]; //현재 주문에서 이미 센 상품
+    private int orderItemCount;
+    private int orderTypes; //현재 주문에서 이미 센 타입 (비트)
+
+    @Override
+    public void row(long orderId, long itemId, char dtype, int orderPrice, int count, long epochDay, String status) {
+        boolean newOrder = orderId != currentOrder;
+        if (newOrder) {
+            currentOrder = orderId;
+            orderItemCount = 0;
+            orderTypes = 0;
+            orders++;
+        }
+        long lineRevenue = (long) orderPrice * count;
+        byItem.add(itemId, lineRevenue, count, firstInOrder(itemId) ? 1 : 0);
+        int typeBit = 1 << (dtype - 'A');
+        byType.add(dtype, lineRevenue, count, (orderTypes & typeBit) == 0 ? 1 : 0);
+        orderTypes |= typeBit;
+        byDay.add(epochDay, lineRevenue, count, newOrder ? 1 : 0);
+        byStatus.add(statusOrdinal(status), lineRevenue, count, newOrder ? 1 : 0);
+        rows++;
+        revenue += lineRevenue;
+        units += count;
+    }
+
+    SalesPartial merge(SalesPartial other) {
+        byItem.merge(other.byItem);
+        byType.merge(other.byType);
+        byDay.merge(other.byDay);
+        byStatus.merge(other.byStatus);
+        rows += other.rows;
+        orders += other.orders;
+        revenue += other.revenue;
+        units += other.units;
+        return this;
+    }
+
+    private boolean firstInOrder(long itemId) {
+        for (int i = 0; i < orderItemCount; i++) {
+            if (orderItems[i] == itemId) {
+                return false;
+            }
+        }
+        if (orderItemCount == orderItems.length) {
+            orderItems = Arrays.copyOf(orderItems, orderItemCount * 2);
+        }
+        orderItems[orderItemCount++] = itemId;
+        return true;
+    }
+
+    private static int statusOrdinal(String status) {
+        for (OrderStatus candidate : STATUSES) {
+            if (candidate.name().equals(status)) {
+                return candidate.ordinal();
+            }
+        }
+        throw new IllegalStateException("알 수 없는 주문 상태: " + status);
+    }
+}
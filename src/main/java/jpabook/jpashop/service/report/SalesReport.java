@@ -0,0 +1,45 @@
+package jpabook.jpashop.service.report;
+
+import jpabook.jpashop.domain.OrderStatus;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+import java.time.LocalDate;
+import java.util.List;
+
+//매출 리포트 결과 (매출 = 주문 가격 * 수량, 취소 주문은 byStatus에서 따로 볼 수 있다)
+@Data
+@AllArgsConstructor
+public class SalesReport {
+
+    private LocalDate from;
+    private LocalDate to;
+    private long rows; //읽은 주문 상품 행 수
+    private long orders;
+    private long revenue;
+    private long units;
+    private long elapsedMillis;
+    private List<Line<String>> byType; //Book, Album, Movie
+    private List<Line<LocalDate>> byDay;
+    private List<Line<OrderStatus>> byStatus;
+    private List<ItemLine> topItems; //매출 순 상위 상품
+
+    @Data
+    @AllArgsConstructor
+    public static class Line<K> {
+        private K key;
+        private long revenue;
+        private long units;
+        private long orders;
+    }
+
+    @Data
+    @AllArgsConstructor
+    public static class ItemLine {
+        private Long itemId;
+        private String name;
+        private long revenue;
+        private long units;
+        private long orders;
+    }
+}
@@ -0,0 +1,147 @@
+package jpabook.jpashop.service.report;
+
+import jakarta.annotation.PreDestroy;
+import jpabook.jpashop.config.shard.OrderShards;
+import jpabook.jpashop.config.shard.ShardContext;
+import jpabook.jpashop.domain.OrderStatus;
+import jpabook.jpashop.repository.report.SalesReportRepository;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * 매출 리포트 엔진
+ * 엔티티를 올려서 Order.getTotalPrice()로 합치면 주문 수만큼 메모리를 쓴다.
+ * 여기서는 기간 안 주문의 id 범위를 여러 파티션으로 나누고, 파티션마다
+ * order_item + orders + item 조인 결과를 전진 전용 커서로 읽으면서 원시 타입 누적기(SalesStats)에 바로 더한다.
+ * 파티션은 전용 fork/join 풀에서 병렬로 돌고 부분 결과를 합친다.
+ * 보관 테이블로 옮겨진 주문도 같은 주문 id 범위로 같이 읽는다. (보관 기간이 지나 지워진 주문은 빠진다)
+ * 메모리는 행 수와 상관없이 (상품 수 + 일 수) * 파티션 수에 비례한다.
+ */
+@Service
+@EnableConfigurationProperties(SalesReportProperties.class)
+public class SalesReportEngine {
+
+    private final SalesReportRepository salesReportRepository;
+    private final OrderShards orderShards;
+    private final SalesReportProperties properties;
+    private final TransactionTemplate readOnlyTx;
+    private final ForkJoinPool pool;
+
+    public SalesReportEngine(SalesReportRepository salesReportRepository, OrderShards orderShards,
+                             SalesReportProperties properties, PlatformTransactionManager transactionManager) {
+        this.salesReportRepository = salesReportRepository;
+        this.orderShards = orderShards;
+        this.properties = properties;
+        this.readOnlyTx = new TransactionTemplate(transactionManager);
+        this.readOnlyTx.setReadOnly(true);
+        this.readOnlyTx.setPropagationBehavior(TransactionTemplate.PROPAGATION_REQUIRES_NEW);
+        this.pool = new ForkJoinPool(properties.getParallelism());
+    }
+
+    //[from, to] 기간 (둘 다 포함)
+    public SalesReport run(LocalDate from, LocalDate to, int topItems) {
+        long start = System.currentTimeMillis();
+        LocalDateTime fromTime = from.atStartOfDay();
+        LocalDateTime toTime = to.plusDays(1).atStartOfDay();
+
+        List<Partition> partitions = new ArrayList<>();
+        for (int shard = 0; shard < orderShards.count(); shard++) {
+            try (ShardContext.Scope ignored = ShardContext.bind(shard)) {
+                long[] range = readOnlyTx.execute(status -> salesReportRepository.findOrderIdRange(fromTime, toTime));
+                if (range != null) {
+                    split(shard, range[0], range[1], partitions);
+                }
+            }
+        }
+
+        SalesPartial total = pool.submit(() -> partitions.parallelStream()
+                        .map(partition -> scan(partition, fromTime, toTime))
+                        .reduce(SalesPartial::merge)
+                        .orElseGet(SalesPartial::new))
+                .join();
+        return toReport(total, from, to, topItems, System.currentTimeMillis() - start);
+    }
+
+    private void split(int shard, long minId, long maxId, List<Partition> partitions) {
+        int count = properties.getParallelism() * properties.getPartitionsPerThread();
+        long step = Math.max((maxId - minId) / count + 1, 1);
+        for (long from = minId; from <= maxId; from += step) {
+            partitions.add(new Partition(shard, from, Math.min(from + step - 1, maxId)));
+        }
+    }
+
+    //파티션 하나 - 자기 커넥션, 자기 트랜잭션에서 읽는다
+    private SalesPartial scan(Partition partition, LocalDateTime from, LocalDateTime to) {
+        try (ShardContext.Scope ignored = ShardContext.bind(partition.shard())) {
+            return readOnlyTx.execute(status -> {
+                SalesPartial partial = new SalesPartial();
+                salesReportRepository.scan(partition.fromOrderId(), partition.toOrderId(), from, to,
+                        properties.getFetchSize(), partial);
+                return partial;
+            });
+        }
+    }
+
+    private SalesReport toReport(SalesPartial total, LocalDate from, LocalDate to, int topItems, long elapsed) {
+        List<SalesReport.Line<String>> byType = new ArrayList<>();
+        total.byType.forEach((key, revenue, units, orders) ->
+                byType.add(new SalesReport.Line<>(typeName((char) key), revenue, units, orders)));
+
+        List<SalesReport.Line<LocalDate>> byDay = new ArrayList<>();
+        total.byDay.forEach((key, revenue, units, orders) ->
+                byDay.add(new SalesReport.Line<>(LocalDate.ofEpochDay(key), revenue, units, orders)));
+        byDay.sort(Comparator.comparing(SalesReport.Line::getKey));
+
+        List<SalesReport.Line<OrderStatus>> byStatus = new ArrayList<>();
+        total.byStatus.forEach((key, revenue, units, orders) ->
+                byStatus.add(new SalesReport.Line<>(OrderStatus.values()[(int) key], revenue, units, orders)));
+
+        //상위 N개만 힙으로 고른다 (전체 상품을 정렬하지 않는다)
+        PriorityQueue<SalesReport.ItemLine> top = new PriorityQueue<>(
+                Comparator.comparingLong(SalesReport.ItemLine::getRevenue));
+        total.byItem.forEach((key, revenue, units, orders) -> {
+            if (top.size() < topItems) {
+                top.add(new SalesReport.ItemLine(key, null, revenue, units, orders));
+            } else if (!top.isEmpty() && top.peek().getRevenue() < revenue) {
+                top.poll();
+                top.add(new SalesReport.ItemLine(key, null, revenue, units, orders));
+            }
+        });
+        List<SalesReport.ItemLine> topList = new ArrayList<>(top);
+        topList.sort(Comparator.comparingLong(SalesReport.ItemLine::getRevenue).reversed());
+        Map<Long, String> names = readOnlyTx.execute(status -> salesReportRepository.findItemNames(
+                topList.stream().map(SalesReport.ItemLine::getItemId).toList()));
+        topList.forEach(line -> line.setName(names.get(line.getItemId())));
+
+        return new SalesReport(from, to, total.rows, total.orders, total.revenue, total.units, elapsed,
+                byType, byDay, byStatus, topList);
+    }
+
+    private String typeName(char dtype) {
+        return switch (dtype) {
+            case 'B' -> "Book";
+            case 'A' -> "Album";
+            case 'M' -> "Movie";
+            default -> String.valueOf(dtype);
+        };
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        pool.shutdownNow();
+    }
+
+    private record Partition(int shard, long fromOrderId, long toOrderId) {
+    }
+}
@@ -0,0 +1,68 @@
+package jpabook.jpashop.service.report;
+
+import jakarta.annotation.PreDestroy;
+import jpabook.jpashop.exception.InvalidRequestException;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDate;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * 매출 리포트 비동기 작업
+ * 요청하면 작업 id를 바로 돌려주고, 리포트는 한번에 하나씩 차례로 만든다. (엔진 자체가 커넥션을 여러 개 쓰므로)
+ * 결과는 최근 maxJobs개만 메모리에 보관한다.
+ */
+@Slf4j
+@Component
+public class SalesReportJobs {
+
+    private final SalesReportEngine engine;
+    private final ExecutorService executor = Executors.newSingleThreadExecutor(r -> new Thread(r, "sales-report"));
+    private final Map<String, CompletableFuture<SalesReport>> jobs;
+
+    public SalesReportJobs(SalesReportEngine engine, SalesReportProperties properties) {
+        this.engine = engine;
+        int maxJobs = properties.getMaxJobs();
+        this.jobs = new LinkedHashMap<>(maxJobs, 0.75f, false) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, CompletableFuture<SalesReport>> eldest) {
+                return size() > maxJobs;
+            }
+        };
+    }
+
+    public String submit(LocalDate from, LocalDate to, int topItems) {
+        if (from.isAfter(to)) {
+            throw new InvalidRequestException("from은 to보다 늦을 수 없습니다.");
+        }
+        String jobId = UUID.randomUUID().toString();
+        CompletableFuture<SalesReport> future = CompletableFuture.supplyAsync(() -> engine.run(from, to, topItems), executor);
+        future.whenComplete((report, e) -> {
+            if (e != null) {
+                log.warn("sales report failed: jobId={}", jobId, e);
+            }
+        });
+        synchronized (jobs) {
+            jobs.put(jobId, future);
+        }
+        return jobId;
+    }
+
+    //없는 작업이면 null
+    public CompletableFuture<SalesReport> find(String jobId) {
+        synchronized (jobs) {
+            return jobs.get(jobId);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+}
@@ -0,0 +1,16 @@
+package jpabook.jpashop.service.report;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+//jpashop.report.* 설정 (application.yml 참고)
+@Getter @Setter
+@ConfigurationProperties(prefix = "jpashop.report")
+public class SalesReportProperties {
+
+    private int parallelism = Runtime.getRuntime().availableProcessors(); //동시에 읽는 파티션 수 (= 동시에 쓰는 커넥션 수)
+    private int partitionsPerThread = 4; //주문 id 범위를 parallelism * partitionsPerThread개로 나눈다
+    private int fetchSize = 1000; //커서가 DB에서 한번에 가져오는 행 수
+    private int maxJobs = 20; //결과를 보관하는 리포트 작업 수 (넘치면 오래된 것부터 버린다)
+}
@@ -0,0 +1,99 @@
+package jpabook.jpashop.service.report;
+
+import java.util.Arrays;
+
+/**
+ * long 키 -> (매출, 수량, 주문 수) 누적기
+ * 행마다 Long 박싱이나 Map.Entry를 만들지 않도록 열린 주소법 배열로 구현했다.
+ * 크기는 행 수가 아니라 키 개수(상품 수, 일 수)에만 비례한다. 스레드 안전하지 않으므로 파티션마다 하나씩 쓰고 merge 한다.
+ */
+final class SalesStats {
+
+    private static final long EMPTY = Long.MIN_VALUE; //키로 쓰지 않는 값
+
+    interface Visitor {
+        void accept(long key, long revenue, long units, long orders);
+    }
+
+    private long[] keys;
+    private long[] revenue;
+    private long[] units;
+    private long[] orders;
+    private int size;
+
+    SalesStats() {
+        this(64);
+    }
+
+    SalesStats(int expected) {
+        int capacity = Integer.highestOneBit(Math.max(expected * 2 - 1, 16)) << 1;
+        keys = new long[capacity];
+        Arrays.fill(keys, EMPTY);
+        revenue = new long[capacity];
+        units = new long[capacity];
+        orders = new long[capacity];
+    }
+
+    void add(long key, long revenue, long units, long orders) {
+        int slot = slot(key);
+        this.revenue[slot] += revenue;
+        this.units[slot] += units;
+        this.orders[slot] += orders;
+    }
+
+    void merge(SalesStats other) {
+        other.forEach(this::add);
+    }
+
+    int size() {
+        return size;
+    }
+
+    void forEach(Visitor visitor) {
+        for (int i = 0; i < keys.length; i++) {
+            if (keys[i] != EMPTY) {
+                visitor.accept(keys[i], revenue[i], units[i], orders[i]);
+            }
+        }
+    }
+
+    //키가 있는 칸, 없으면 새로 만든 칸
+    private int slot(long key) {
+        int mask = keys.length - 1;
+        int i = mix(key) & mask;
+        while (keys[i] != EMPTY) {
+            if (keys[i] == key) {
+                return i;
+            }
+            i = (i + 1) & mask;
+        }
+        if ((size + 1) * 2 > keys.length) { //채움률 50%를 넘으면 두 배로
+            grow();
+            return slot(key);
+        }
+        keys[i] = key;
+        size++;
+        return i;
+    }
+
+    private void grow() {
+        long[] oldKeys = keys, oldRevenue = revenue, oldUnits = units, oldOrders = orders;
+        int capacity = keys.length << 1;
+        keys = new long[capacity];
+        Arrays.fill(keys, EMPTY);
+        revenue = new long[capacity];
+        units = new long[capacity];
+        orders = new long[capacity];
+        size = 0;
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldKeys[i] != EMPTY) {
+                add(oldKeys[i], oldRevenue[i], oldUnits[i], oldOrders[i]);
+            }
+        }
+    }
+
+    private static int mix(long key) {
+        long h = key * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32));
+    }
+}
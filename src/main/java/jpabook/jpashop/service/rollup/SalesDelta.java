@@ -0,0 +1,72 @@
+package jpabook.jpashop.service.rollup;
+
+import jpabook.jpashop.domain.OrderStatus;
+import jpabook.jpashop.repository.rollup.SalesRollupRepository;
+
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.EnumMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+/**
+ * 롤업에 더할 증감분
+ * 여러 주문의 증감을 키별로 먼저 합쳐서 키마다 SQL 한번만 나가게 한다. (일괄 취소 등)
+ * 키 순서(TreeMap)로 반영해서 동시에 도는 트랜잭션끼리 데드락이 나지 않게 한다.
+ */
+public class SalesDelta {
+
+    public record ItemDay(Long itemId, LocalDate day)
+            implements SalesRollupRepository.ItemDayKey, Comparable<ItemDay> {
+        @Override
+        public int compareTo(ItemDay other) {
+            int compared = itemId.compareTo(other.itemId);
+            return compared != 0 ? compared : day.compareTo(other.day);
+        }
+    }
+
+    //주문 상품 한 줄의 매출과 수량
+    public record OrderLine(Long itemId, long revenue, long units) {
+    }
+
+    final Map<ItemDay, long[]> items = new TreeMap<>(); //[매출, 수량, 주문 수]
+    final Map<Long, long[]> members = new TreeMap<>(); //[매출, 주문 수]
+    final Map<OrderStatus, Long> statuses = new EnumMap<>(OrderStatus.class);
+
+    /**
+     * 주문 하나를 더하거나(sign = 1) 뺀다(sign = -1). 상품/회원 롤업만 바꾸고 상태별 수는 status로 따로 바꾼다.
+     * 같은 주문에 같은 상품이 여러 줄이어도 상품의 주문 수는 한번만 센다.
+     */
+    public void order(Long memberId, LocalDate day, int sign, Collection<OrderLine> lines) {
+        long revenue = 0;
+        Set<Long> counted = new HashSet<>();
+        for (OrderLine line : lines) {
+            item(line.itemId(), day, sign * line.revenue(), sign * line.units(), counted.add(line.itemId()) ? sign : 0);
+            revenue += line.revenue();
+        }
+        member(memberId, sign * revenue, sign);
+    }
+
+    public void item(Long itemId, LocalDate day, long revenue, long units, long orders) {
+        long[] sums = items.computeIfAbsent(new ItemDay(itemId, day), key -> new long[3]);
+        sums[0] += revenue;
+        sums[1] += units;
+        sums[2] += orders;
+    }
+
+    public void member(Long memberId, long revenue, long orders) {
+        long[] sums = members.computeIfAbsent(memberId, key -> new long[2]);
+        sums[0] += revenue;
+        sums[1] += orders;
+    }
+
+    public void status(OrderStatus status, long orders) {
+        statuses.merge(status, orders, Long::sum);
+    }
+
+    public boolean isEmpty() {
+        return items.isEmpty() && members.isEmpty() && statuses.isEmpty();
+    }
+}
@@ -0,0 +1,49 @@
+package jpabook.jpashop.service.rollup;
+
+import jpabook.jpashop.domain.Order;
+import jpabook.jpashop.domain.OrderStatus;
+import jpabook.jpashop.repository.rollup.SalesRollupRepository;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+/**
+ * 매출 롤업 갱신
+ * 주문/취소와 같은 트랜잭션에서 증감만 반영하므로 대시보드 조회는 롤업 테이블 몇 행만 읽는다.
+ * (주문 상세를 스캔하지 않는다 - 처음부터 다시 계산하려면 SalesRollupRebuilder)
+ */
+@Component
+@RequiredArgsConstructor
+public class SalesRollup {
+
+    private final SalesRollupRepository salesRollupRepository;
+
+    public void orderPlaced(Order order) {
+        SalesDelta delta = new SalesDelta();
+        delta.order(order.getMember().getId(), order.getOrderDate().toLocalDate(), 1, lines(order));
+        delta.status(OrderStatus.ORDER, 1);
+        apply(delta);
+    }
+
+    public void orderCancelled(Order order) {
+        SalesDelta delta = new SalesDelta();
+        delta.order(order.getMember().getId(), order.getOrderDate().toLocalDate(), -1, lines(order));
+        delta.status(OrderStatus.ORDER, -1);
+        delta.status(OrderStatus.CANCEL, 1);
+        apply(delta);
+    }
+
+    //여러 주문의 증감을 모아서 한번에 반영 - 테이블마다 JDBC 배치 한번
+    public void apply(SalesDelta delta) {
+        salesRollupRepository.addItemDailySales(delta.items);
+        salesRollupRepository.addMemberSales(delta.members);
+        salesRollupRepository.addOrderStatusCounts(delta.statuses);
+    }
+
+    private List<SalesDelta.OrderLine> lines(Order order) {
+        return order.getOrderItems().stream()
+                .map(oi -> new SalesDelta.OrderLine(oi.getItem().getId(), oi.getTotalPrice(), oi.getCount()))
+                .toList();
+    }
+}
@@ -0,0 +1,99 @@
+package jpabook.jpashop.service.rollup;
+
+import jpabook.jpashop.config.shard.OrderShards;
+import jpabook.jpashop.domain.OrderStatus;
+import jpabook.jpashop.repository.rollup.SalesRollupRepository;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 매출 롤업 조회 (대시보드용)
+ * 샤딩 중이면 같은 키의 롤업이 여러 샤드에 나뉘어 있으므로 샤드별로 읽어서 합친다.
+ */
+@Service
+@Transactional(readOnly = true)
+@RequiredArgsConstructor
+public class SalesRollupQuery {
+
+    private final SalesRollupRepository salesRollupRepository;
+    private final OrderShards orderShards;
+
+    //날짜의 매출 상위 상품
+    public List<ItemSales> topItems(LocalDate day, int limit) {
+        if (orderShards.count() == 1) {
+            return salesRollupRepository.findTopItems(day, limit).stream().map(this::itemSales).toList();
+        }
+        Map<Long, ItemSales> merged = new LinkedHashMap<>();
+        orderShards.scatter(() -> salesRollupRepository.findItemSales(day), (a, b) -> 0).forEach(row -> {
+            ItemSales sales = itemSales(row);
+            merged.merge(sales.getItemId(), sales, (a, b) -> new ItemSales(a.getItemId(), a.getName(),
+                    a.getRevenue() + b.getRevenue(), a.getUnits() + b.getUnits(), a.getOrderCount() + b.getOrderCount()));
+        });
+        return merged.values().stream()
+                .sorted(Comparator.comparingLong(ItemSales::getRevenue).reversed()
+                        .thenComparing(ItemSales::getItemId))
+                .limit(limit)
+                .toList();
+    }
+
+    //회원 누적 매출 (주문이 없으면 0)
+    public MemberSalesDto memberSales(Long memberId) {
+        long revenue = 0;
+        long orderCount = 0;
+        for (Object[] row : orderShards.scatter(() -> listOf(salesRollupRepository.findMemberSales(memberId)),
+                (a, b) -> 0)) {
+            revenue += (Long) row[0];
+            orderCount += (Long) row[1];
+        }
+        return new MemberSalesDto(memberId, revenue, orderCount);
+    }
+
+    //주문 상태별 주문 수 (보관된 주문 제외)
+    public Map<OrderStatus, Long> orderStatusCounts() {
+        Map<OrderStatus, Long> counts = new EnumMap<>(OrderStatus.class);
+        orderShards.scatter(salesRollupRepository::findOrderStatusCounts, (a, b) -> 0)
+                .forEach(row -> counts.merge((OrderStatus) row[0], (Long) row[1], Long::sum));
+        return counts;
+    }
+
+    private List<Object[]> listOf(Object[] row) {
+        List<Object[]> rows = new ArrayList<>();
+        if (row != null) {
+            rows.add(row);
+        }
+        return rows;
+    }
+
+    private ItemSales itemSales(Object[] row) {
+        return new ItemSales((Long) row[0], (String) row[1], (Long) row[2], (Long) row[3], (Long) row[4]);
+    }
+
+    @Data
+    @AllArgsConstructor
+    public static class ItemSales {
+        private Long itemId;
+        private String name;
+        private long revenue;
+        private long units;
+        private long orderCount;
+    }
+
+    @Data
+    @AllArgsConstructor
+    public static class MemberSalesDto {
+        private Long memberId;
+        private long revenue;
+        private long orderCount;
+    }
+}
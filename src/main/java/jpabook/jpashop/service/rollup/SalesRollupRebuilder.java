@@ -0,0 +1,42 @@
+package jpabook.jpashop.service.rollup;
+
+import jpabook.jpashop.config.shard.OrderShards;
+import jpabook.jpashop.config.shard.ShardContext;
+import jpabook.jpashop.repository.rollup.SalesRollupRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * 매출 롤업을 주문 테이블에서 처음부터 다시 계산한다.
+ * 롤업을 처음 만들 때나 값이 어긋났을 때 API로 돌리고, jpashop.rollup.rebuild-cron을 주면 주기적으로도 돌린다. (기본은 꺼짐)
+ */
+@Slf4j
+@Component
+public class SalesRollupRebuilder {
+
+    private final SalesRollupRepository salesRollupRepository;
+    private final OrderShards orderShards;
+    private final TransactionTemplate tx;
+
+    public SalesRollupRebuilder(SalesRollupRepository salesRollupRepository, OrderShards orderShards,
+                                PlatformTransactionManager transactionManager) {
+        this.salesRollupRepository = salesRollupRepository;
+        this.orderShards = orderShards;
+        this.tx = new TransactionTemplate(transactionManager);
+    }
+
+    @Scheduled(cron = "${jpashop.rollup.rebuild-cron:-}")
+    public void rebuild() {
+        long start = System.currentTimeMillis();
+        //롤업은 주문과 같은 샤드에 쌓이므로 샤드마다 다시 계산한다
+        for (int shard = 0; shard < orderShards.count(); shard++) {
+            try (ShardContext.Scope ignored = ShardContext.bind(shard)) {
+                tx.executeWithoutResult(status -> salesRollupRepository.rebuild());
+            }
+        }
+        log.info("sales rollup rebuilt in {} ms", System.currentTimeMillis() - start);
+    }
+}
@@ -1,19 +1,25 @@
 package jpabook.jpashop.web;
 
 import jpabook.jpashop.domain.item.Book;
+import jpabook.jpashop.repository.item.query.ItemQueryDto;
+import jpabook.jpashop.service.CatalogVersion;
 import jpabook.jpashop.service.ItemService;
 import lombok.RequiredArgsConstructor;
+import org.springframework.data.domain.Slice;
 import org.springframework.stereotype.Controller;
 import org.springframework.ui.Model;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.ModelAttribute;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.context.request.WebRequest;
 
 @Controller
 @RequiredArgsConstructor
 public class ItemController {
     private final ItemService itemService;
+    private final CatalogVersion catalogVersion;
 
     //상품 등록//
     @GetMapping(value="/items/new")
@@ -38,9 +44,17 @@ public class ItemController {
 
     //상품 목록 조회//
     @GetMapping(value = "/items")
-    private String list(Model model){
+    public String list(@RequestParam(value = "page", defaultValue = "0") int page,
+                       @RequestParam(value = "size", defaultValue = "20") int size,
+                       WebRequest webRequest, Model model){
+        //카탈로그 버전이 그대로면 브라우저가 가진 화면을 그대로 쓰라고 304를 보낸다 (DB 조회 X)
+        if(webRequest.checkNotModified(catalogVersion.etag(ItemService.itemPageRequest(page, size)))){
+            return null;
+        }
         //서비스에서 상품을 조회에 모델에 얹어준다
-        model.addAttribute("items", itemService.findItems());
+        Slice<ItemQueryDto> items = itemService.findItemPage(page, size);
+        model.addAttribute("items", items.getContent());
+        model.addAttribute("page", items);
         return "items/itemList";
     }
 
@@ -53,7 +67,7 @@ public class ItemController {
         form.setId(item.getId());
         form.setName(item.getName());
         form.setPrice(item.getPrice());
-        form.setStockQuantity(item.getStockQuantity());
+        form.setStockQuantity(itemService.findTotalStock(itemId)); //샤딩 중이면 모든 샤드 몫의 합
         form.setAuthor(item.getAuthor());
         form.setIsbn(item.getIsbn());
 
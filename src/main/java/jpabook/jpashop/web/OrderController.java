@@ -1,5 +1,6 @@
 package jpabook.jpashop.web;
 
+import jpabook.jpashop.config.admission.MemberOrderRateLimiter;
 import jpabook.jpashop.domain.Member;
 import jpabook.jpashop.domain.Order;
 import jpabook.jpashop.domain.OrderSearch;
@@ -7,12 +8,14 @@ import jpabook.jpashop.domain.item.Item;
 import jpabook.jpashop.service.ItemService;
 import jpabook.jpashop.service.MemberService;
 import jpabook.jpashop.service.OrderService;
+import jpabook.jpashop.service.idempotency.IdempotentOrderService;
 import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Controller;
 import org.springframework.ui.Model;
 import org.springframework.web.bind.annotation.*;
 
 import java.util.List;
+import java.util.UUID;
 
 @Controller
 @RequiredArgsConstructor
@@ -20,6 +23,8 @@ public class OrderController {
     private final OrderService orderService;
     private final MemberService memberService;
     private final ItemService itemService;
+    private final MemberOrderRateLimiter memberOrderRateLimiter;
+    private final IdempotentOrderService idempotentOrderService;
 
     //상품 주문//
     @GetMapping(value="/order")
@@ -34,15 +39,26 @@ public class OrderController {
         List<Item> items = itemService.findItems();
         model.addAttribute("members", members);
         model.addAttribute("items", items);
+        //폼을 열 때마다 새 키 - Submit을 두 번 눌러도 주문은 하나만 생긴다
+        model.addAttribute("idempotencyKey", UUID.randomUUID().toString());
         return "order/orderForm";
     }
 
     @PostMapping(value="/order")
     //@RequestParam - form submit 방식. orderForm.html에 id로 선언된 변수 이름 지정
     public String order(@RequestParam("memberId") Long memberId, @RequestParam("itemId") Long itemId,
-                        @RequestParam("count") int count){
+                        @RequestParam("count") int count,
+                        @RequestParam(value = "idempotencyKey", required = false) String idempotencyKey,
+                        @RequestHeader(value = "Idempotency-Key", required = false) String idempotencyKeyHeader){
         //상품 정보를 받아 주문해야 하니까, 주문을 하기 위한 정보를 form에서 받아 실행한다
-        orderService.order(memberId, itemId, count);
+        memberOrderRateLimiter.acquire(memberId); //회원별 주문 속도 제한 - 넘으면 429
+        //모바일 클라이언트는 재시도할 때 Idempotency-Key 헤더를 보낸다 (브라우저 폼은 hidden 필드)
+        String key = idempotencyKeyHeader != null ? idempotencyKeyHeader : idempotencyKey;
+        if (key == null) {
+            orderService.order(memberId, itemId, count);
+        } else {
+            idempotentOrderService.order(key, memberId, itemId, count);
+        }
         return "redirect:/orders";
     }
     /*
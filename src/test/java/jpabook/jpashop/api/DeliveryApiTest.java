@@ -0,0 +1,37 @@
+package jpabook.jpashop.api;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+class DeliveryApiTest {
+
+    @Autowired
+    MockMvc mockMvc;
+
+    @Test
+    public void 잘못된_요청이면_400() throws Exception {
+        //빈 id 목록
+        transition("/api/deliveries/status", "{\"deliveryIds\":[],\"from\":\"READY\",\"to\":\"COMP\"}");
+        //id 목록 누락
+        transition("/api/deliveries/status", "{\"from\":\"READY\",\"to\":\"COMP\"}");
+        //뒤로 가는 변경
+        transition("/api/deliveries/status", "{\"deliveryIds\":[1],\"from\":\"COMP\",\"to\":\"READY\"}");
+        //상태 누락, limit 범위 밖
+        transition("/api/deliveries/status/bulk", "{\"from\":\"READY\"}");
+        transition("/api/deliveries/status/bulk", "{\"from\":\"READY\",\"to\":\"COMP\",\"limit\":0}");
+    }
+
+    private void transition(String url, String body) throws Exception {
+        mockMvc.perform(post(url).contentType(MediaType.APPLICATION_JSON).content(body))
+                .andExpect(status().isBadRequest());
+    }
+}
@@ -0,0 +1,91 @@
+package jpabook.jpashop.api;
+
+import jakarta.persistence.EntityManagerFactory;
+import jpabook.jpashop.domain.item.Book;
+import jpabook.jpashop.domain.item.Item;
+import jpabook.jpashop.service.ItemService;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.test.web.servlet.MockMvc;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+//카탈로그 버전은 커밋 이후에 올라가므로 테스트 트랜잭션 없이 실행한다
+@SpringBootTest(properties = "spring.jpa.properties.hibernate.generate_statistics=true")
+@AutoConfigureMockMvc
+class ItemConditionalGetTest {
+
+    @Autowired
+    MockMvc mockMvc;
+    @Autowired
+    ItemService itemService;
+    @Autowired
+    EntityManagerFactory emf;
+
+    @Test
+    public void 카탈로그버전이_같으면_304_DB조회없음() throws Exception {
+        for (String url : new String[]{"/api/items", "/items"}) {
+            //Given
+            String etag = etag(url, null);
+            Statistics statistics = emf.unwrap(SessionFactory.class).getStatistics();
+            long statements = statistics.getPrepareStatementCount();
+
+            //When, Then
+            mockMvc.perform(get(url).header(HttpHeaders.IF_NONE_MATCH, etag))
+                    .andExpect(status().isNotModified());
+            assertEquals(statements, statistics.getPrepareStatementCount(), url + " 304는 DB를 조회하지 않는다");
+        }
+    }
+
+    @Test
+    public void 상품_등록_수정하면_ETag_변경() throws Exception {
+        //Given
+        String before = etag("/api/items", null);
+
+        //When - 등록
+        Book book = new Book();
+        book.setName("JPA");
+        book.setPrice(10000);
+        book.setStockQuantity(10);
+        Long itemId = itemService.saveItem(book);
+
+        //Then - 이전 ETag로 물어보면 200과 새 ETag
+        String afterSave = etag("/api/items", before);
+        assertNotEquals(before, afterSave);
+
+        //When - 수정
+        Item item = itemService.findOne(itemId);
+        itemService.updateItem(itemId, "JPA2", item.getPrice(), item.getStockQuantity());
+
+        //Then
+        assertNotEquals(afterSave, etag("/api/items", afterSave));
+    }
+
+    @Test
+    public void 같은_페이지는_같은_ETag() throws Exception {
+        //size는 최대 500으로 잘리므로 500과 9999는 같은 페이지, 음수 page는 0페이지
+        assertEquals(etag("/api/items?size=500", null), etag("/api/items?size=9999", null));
+        assertEquals(etag("/api/items?page=0", null), etag("/api/items?page=-1", null));
+        assertNotEquals(etag("/api/items?size=10", null), etag("/api/items?size=20", null));
+    }
+
+    //200 응답의 ETag
+    private String etag(String url, String ifNoneMatch) throws Exception {
+        var request = get(url);
+        if (ifNoneMatch != null) {
+            request.header(HttpHeaders.IF_NONE_MATCH, ifNoneMatch);
+        }
+        String etag = mockMvc.perform(request)
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+        assertNotNull(etag);
+        return etag;
+    }
+}
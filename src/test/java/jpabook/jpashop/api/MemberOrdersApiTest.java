@@ -0,0 +1,100 @@
+package jpabook.jpashop.api;
+
+import jpabook.jpashop.domain.Member;
+import jpabook.jpashop.domain.item.Book;
+import jpabook.jpashop.service.ItemService;
+import jpabook.jpashop.service.MemberService;
+import jpabook.jpashop.service.OrderService;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.util.UUID;
+
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.hasSize;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+//API는 커밋된 주문을 읽으므로 테스트 트랜잭션 없이 실행한다. 테스트마다 새 회원을 쓴다
+@SpringBootTest
+@AutoConfigureMockMvc
+class MemberOrdersApiTest {
+
+    @Autowired
+    MockMvc mockMvc;
+    @Autowired
+    MemberService memberService;
+    @Autowired
+    ItemService itemService;
+    @Autowired
+    OrderService orderService;
+
+    @Test
+    public void 회원주문을_최신순으로_페이지를_넘긴다() throws Exception {
+        //Given - 주문 3건, 다른 회원 주문 1건
+        Long memberId = join();
+        Long itemId = saveBook();
+        Long first = orderService.order(memberId, itemId, 1);
+        Long second = orderService.order(memberId, itemId, 2);
+        Long third = orderService.order(memberId, itemId, 3);
+        orderService.order(join(), itemId, 1);
+
+        //When, Then - 2건씩
+        mockMvc.perform(get("/api/members/{id}/orders", memberId).param("limit", "2"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.data", hasSize(2)))
+                .andExpect(jsonPath("$.data[*].orderItems[0].count", contains(3, 2)))
+                .andExpect(jsonPath("$.nextOrderId").value(second));
+        mockMvc.perform(get("/api/members/{id}/orders", memberId).param("limit", "2")
+                        .param("lastOrderId", second.toString()))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.data", hasSize(1)))
+                .andExpect(jsonPath("$.data[0].orderItems[0].count").value(1))
+                .andExpect(jsonPath("$.nextOrderId").doesNotExist());
+
+        //필드를 골라도 같은 페이지
+        mockMvc.perform(get("/api/members/{id}/orders", memberId).param("limit", "2")
+                        .param("fields", "orderId"))
+                .andExpect(jsonPath("$.data[*].orderId", contains(third.intValue(), second.intValue())))
+                .andExpect(jsonPath("$.nextOrderId").value(second));
+        mockMvc.perform(get("/api/members/{id}/orders", memberId).param("limit", "2")
+                        .param("fields", "orderId").param("lastOrderId", second.toString()))
+                .andExpect(jsonPath("$.data[*].orderId", contains(first.intValue())))
+                .andExpect(jsonPath("$.nextOrderId").doesNotExist());
+    }
+
+    @Test
+    public void 딱_limit건이면_다음_페이지가_없다() throws Exception {
+        //Given
+        Long memberId = join();
+        Long itemId = saveBook();
+        orderService.order(memberId, itemId, 1);
+        orderService.order(memberId, itemId, 1);
+
+        //When, Then - 빈 페이지를 또 요청하지 않게 nextOrderId가 없다
+        mockMvc.perform(get("/api/members/{id}/orders", memberId).param("limit", "2"))
+                .andExpect(jsonPath("$.data", hasSize(2)))
+                .andExpect(jsonPath("$.nextOrderId").doesNotExist());
+        mockMvc.perform(get("/api/members/{id}/orders", join()))
+                .andExpect(jsonPath("$.data", hasSize(0)))
+                .andExpect(jsonPath("$.nextOrderId").doesNotExist());
+    }
+
+    private Long join() {
+        Member member = new Member();
+        member.setName("member-orders-" + UUID.randomUUID());
+        return memberService.join(member);
+    }
+
+    private Long saveBook() {
+        Book book = new Book();
+        book.setName("member-orders-book");
+        book.setPrice(1000);
+        book.setStockQuantity(100);
+        return itemService.saveItem(book);
+    }
+}
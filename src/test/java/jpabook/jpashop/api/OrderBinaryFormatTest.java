@@ -0,0 +1,93 @@
+package jpabook.jpashop.api;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import jpabook.jpashop.domain.Address;
+import jpabook.jpashop.domain.OrderStatus;
+import jpabook.jpashop.repository.order.query.OrderItemQueryDto;
+import jpabook.jpashop.repository.order.query.OrderQueryDto;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 주문 10,000건(V5 응답 모양)을 JSON, Smile, CBOR로 직렬화해서
+ * 바이너리 포맷이 더 작고, 다시 읽었을 때 JSON과 같은 내용인지 검증한다.
+ * 직렬화/역직렬화 시간은 포맷마다 워밍업 후 반복해서 평균을 잰다. 절대값은 환경마다 달라서 크기만 검사하고 시간은 메시지로 남긴다.
+ */
+class OrderBinaryFormatTest {
+
+    private static final int ORDER_COUNT = 10_000;
+    private static final int WARMUP = 20;
+    private static final int RUNS = 50;
+
+    @Test
+    public void 바이너리포맷이_더_작고_내용은_같다() throws Exception {
+        List<OrderQueryDto> orders = createOrders();
+        ObjectMapper jsonMapper = mapper(new ObjectMapper());
+        ObjectMapper smileMapper = mapper(new ObjectMapper(new SmileFactory()));
+        ObjectMapper cborMapper = mapper(new ObjectMapper(new CBORFactory()));
+
+        byte[] json = jsonMapper.writeValueAsBytes(orders);
+        byte[] smile = smileMapper.writeValueAsBytes(orders);
+        byte[] cbor = cborMapper.writeValueAsBytes(orders);
+
+        String report = report("json", jsonMapper, orders, json)
+                + ", " + report("smile", smileMapper, orders, smile)
+                + ", " + report("cbor", cborMapper, orders, cbor);
+        assertTrue(smile.length < json.length, "Smile이 JSON보다 작아야 한다 - " + report);
+        assertTrue(cbor.length < json.length, "CBOR가 JSON보다 작아야 한다 - " + report);
+
+        JsonNode expected = jsonMapper.readTree(json);
+        assertEquals(ORDER_COUNT, expected.size());
+        assertEquals(expected, smileMapper.readTree(smile), "Smile 내용이 JSON과 같아야 한다");
+        assertEquals(expected, cborMapper.readTree(cbor), "CBOR 내용이 JSON과 같아야 한다");
+    }
+
+    //"포맷 바이트, 쓰기 평균 ms, 읽기 평균 ms"
+    private String report(String format, ObjectMapper mapper, List<OrderQueryDto> orders, byte[] bytes)
+            throws Exception {
+        for (int i = 0; i < WARMUP; i++) {
+            mapper.writeValueAsBytes(orders);
+            mapper.readTree(bytes);
+        }
+        long start = System.nanoTime();
+        for (int i = 0; i < RUNS; i++) {
+            mapper.writeValueAsBytes(orders);
+        }
+        double writeMillis = (System.nanoTime() - start) / 1e6 / RUNS;
+        start = System.nanoTime();
+        for (int i = 0; i < RUNS; i++) {
+            mapper.readTree(bytes);
+        }
+        double readMillis = (System.nanoTime() - start) / 1e6 / RUNS;
+        return String.format("%s %d bytes write %.2fms read %.2fms", format, bytes.length, writeMillis, readMillis);
+    }
+
+    //스프링 부트 기본 설정과 같게 날짜를 문자열로 쓴다
+    private ObjectMapper mapper(ObjectMapper mapper) {
+        return mapper.registerModule(new JavaTimeModule())
+                .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
+    }
+
+    private List<OrderQueryDto> createOrders() {
+        List<OrderQueryDto> orders = new ArrayList<>();
+        LocalDateTime now = LocalDateTime.now();
+        for (long id = 1; id <= ORDER_COUNT; id++) {
+            List<OrderItemQueryDto> items = List.of(
+                    new OrderItemQueryDto(id, "JPA1 BOOK", 10000, 1),
+                    new OrderItemQueryDto(id, "JPA2 BOOK", 20000, 2));
+            orders.add(new OrderQueryDto(id, "user" + id, now.minusMinutes(id), OrderStatus.ORDER,
+                    new Address("서울", "street " + id, "1111"), items));
+        }
+        return orders;
+    }
+}
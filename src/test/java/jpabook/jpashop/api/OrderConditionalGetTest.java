@@ -0,0 +1,124 @@
+package jpabook.jpashop.api;
+
+import jakarta.persistence.EntityManagerFactory;
+import jpabook.jpashop.service.ItemService;
+import jpabook.jpashop.service.MemberService;
+import jpabook.jpashop.service.OrderService;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+//버전은 커밋 이후에 올라가므로 테스트 트랜잭션 없이 실행한다
+@SpringBootTest(properties = "spring.jpa.properties.hibernate.generate_statistics=true")
+@AutoConfigureMockMvc
+class OrderConditionalGetTest {
+
+    @Autowired
+    MockMvc mockMvc;
+    @Autowired
+    OrderService orderService;
+    @Autowired
+    MemberService memberService;
+    @Autowired
+    ItemService itemService;
+    @Autowired
+    OrderConditionalGet orderConditionalGet;
+    @Autowired
+    EntityManagerFactory emf;
+
+    @Test
+    public void 주문버전이_같으면_304_DB조회없음() throws Exception {
+        //Given
+        String etag = etag("/api/v3.1/orders", null);
+        Statistics statistics = emf.unwrap(SessionFactory.class).getStatistics();
+        long statements = statistics.getPrepareStatementCount();
+
+        //When, Then - 바뀐 것이 없으면 쿼리 없이 304
+        mockMvc.perform(get("/api/v3.1/orders").header(HttpHeaders.IF_NONE_MATCH, etag))
+                .andExpect(status().isNotModified());
+        assertEquals(statements, statistics.getPrepareStatementCount(), "304는 DB를 조회하지 않는다");
+        assertTrue(orderConditionalGet.notModifiedRatio() > 0, "304 비율 메트릭");
+    }
+
+    @Test
+    public void 주문_취소하면_ETag_변경() throws Exception {
+        //Given
+        String before = etag("/api/v4/simple-orders", null);
+        Long memberId = memberService.findMembers().get(0).getId();
+        Long itemId = itemService.findItems().get(0).getId();
+
+        //When - 주문
+        Long orderId = orderService.order(memberId, itemId, 1);
+
+        //Then - 이전 ETag로 물어보면 200과 새 ETag
+        String afterOrder = etag("/api/v4/simple-orders", before);
+        assertNotEquals(before, afterOrder);
+
+        //When - 취소
+        orderService.cancelOrder(orderId);
+
+        //Then
+        assertNotEquals(afterOrder, etag("/api/v4/simple-orders", afterOrder));
+    }
+
+    @Test
+    public void 응답포맷마다_ETag가_다르고_304에도_Vary() throws Exception {
+        //Given
+        String json = etag("/api/v5/orders", null);
+        String cbor = mockMvc.perform(get("/api/v5/orders").accept(MediaType.APPLICATION_CBOR))
+                .andExpect(status().isOk())
+                .andExpect(content().contentTypeCompatibleWith(MediaType.APPLICATION_CBOR))
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+
+        //Then - JSON 캐시의 ETag로 CBOR를 받아가면 안 된다
+        assertNotEquals(json, cbor);
+        mockMvc.perform(get("/api/v5/orders").accept(MediaType.APPLICATION_CBOR)
+                        .header(HttpHeaders.IF_NONE_MATCH, json))
+                .andExpect(status().isOk());
+        mockMvc.perform(get("/api/v5/orders").accept(MediaType.APPLICATION_CBOR)
+                        .header(HttpHeaders.IF_NONE_MATCH, cbor))
+                .andExpect(status().isNotModified())
+                .andExpect(header().string(HttpHeaders.VARY, HttpHeaders.ACCEPT));
+    }
+
+    @Test
+    public void q값이_높은_포맷의_ETag() throws Exception {
+        //Given - 헤더 순서는 CBOR가 먼저지만 q값은 JSON이 높다
+        String json = etag("/api/v5/orders", null);
+        String accept = "application/cbor;q=0.5, application/json;q=0.9";
+
+        //When
+        var response = mockMvc.perform(get("/api/v5/orders").header(HttpHeaders.ACCEPT, accept))
+                .andExpect(status().isOk())
+                .andExpect(content().contentTypeCompatibleWith(MediaType.APPLICATION_JSON))
+                .andReturn().getResponse();
+
+        //Then - 본문과 같은 JSON의 ETag
+        assertEquals(json, response.getHeader(HttpHeaders.ETAG));
+    }
+
+    //200 응답의 ETag
+    private String etag(String url, String ifNoneMatch) throws Exception {
+        var request = get(url);
+        if (ifNoneMatch != null) {
+            request.header(HttpHeaders.IF_NONE_MATCH, ifNoneMatch);
+        }
+        String etag = mockMvc.perform(request)
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+        assertNotNull(etag);
+        return etag;
+    }
+}
@@ -0,0 +1,79 @@
+package jpabook.jpashop.api;
+
+import jpabook.jpashop.domain.Member;
+import jpabook.jpashop.domain.item.Book;
+import jpabook.jpashop.service.ItemService;
+import jpabook.jpashop.service.MemberService;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+class OrderCreateApiTest {
+
+    @Autowired
+    MockMvc mockMvc;
+    @Autowired
+    MemberService memberService;
+    @Autowired
+    ItemService itemService;
+
+    @Test
+    public void 잘못된_요청이면_400() throws Exception {
+        //회원 누락, 수량 0
+        create("{\"itemId\":1,\"count\":1}");
+        create("{\"memberId\":1,\"itemId\":1,\"count\":0}");
+    }
+
+    @Test
+    public void 같은_Idempotency_Key로_다시_보내면_처음_주문() throws Exception {
+        //Given
+        Long memberId = createMember();
+        Long itemId = createBook();
+        String body = "{\"memberId\":" + memberId + ",\"itemId\":" + itemId + ",\"count\":2}";
+        String key = UUID.randomUUID().toString();
+        Number orderId = com.jayway.jsonpath.JsonPath.read(mockMvc.perform(post("/api/orders")
+                        .header("Idempotency-Key", key).contentType(MediaType.APPLICATION_JSON).content(body))
+                .andExpect(status().isCreated())
+                .andReturn().getResponse().getContentAsString(), "$.orderId");
+
+        //When, Then - 재시도는 200 + Idempotent-Replayed, 같은 주문
+        mockMvc.perform(post("/api/orders")
+                        .header("Idempotency-Key", key).contentType(MediaType.APPLICATION_JSON).content(body))
+                .andExpect(status().isOk())
+                .andExpect(header().string("Idempotent-Replayed", "true"))
+                .andExpect(jsonPath("$.orderId").value(orderId.longValue()));
+        assertEquals(8, itemService.findOne(itemId).getStockQuantity(), "재고는 한번만 감소");
+    }
+
+    private void create(String body) throws Exception {
+        mockMvc.perform(post("/api/orders").contentType(MediaType.APPLICATION_JSON).content(body))
+                .andExpect(status().isBadRequest());
+    }
+
+    private Long createMember() {
+        Member member = new Member();
+        member.setName("api-order-" + UUID.randomUUID());
+        return memberService.join(member);
+    }
+
+    private Long createBook() {
+        Book book = new Book();
+        book.setName("JPA");
+        book.setPrice(10000);
+        book.setStockQuantity(10);
+        return itemService.saveItem(book);
+    }
+}
@@ -0,0 +1,72 @@
+package jpabook.jpashop.api;
+
+import jpabook.jpashop.domain.OrderStatus;
+import jpabook.jpashop.service.ItemService;
+import jpabook.jpashop.service.MemberService;
+import jpabook.jpashop.service.OrderService;
+import jpabook.jpashop.service.OrderStatusCounter;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.web.servlet.MockMvc;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+//상태별 카운터는 커밋 이후에 갱신되므로 테스트 트랜잭션 없이 실행한다
+@SpringBootTest
+@AutoConfigureMockMvc
+class OrderSearchApiTest {
+
+    @Autowired
+    MockMvc mockMvc;
+    @Autowired
+    OrderService orderService;
+    @Autowired
+    MemberService memberService;
+    @Autowired
+    ItemService itemService;
+    @Autowired
+    OrderStatusCounter orderStatusCounter;
+
+    @Test
+    public void 정렬할수없는_속성이면_400() throws Exception {
+        mockMvc.perform(get("/api/v5/simple-orders").param("sort", "member.name,asc"))
+                .andExpect(status().isBadRequest());
+        mockMvc.perform(get("/api/v5/simple-orders").param("sort", "orderDate,desc"))
+                .andExpect(status().isOk());
+    }
+
+    @Test
+    public void 알수없는_필드면_400() throws Exception {
+        mockMvc.perform(get("/api/v5.1/orders").param("fields", "orderId,password"))
+                .andExpect(status().isBadRequest());
+        mockMvc.perform(get("/api/v5.1/orders").param("fields", " , "))
+                .andExpect(status().isBadRequest());
+        Long memberId = memberService.findMembers().get(0).getId();
+        mockMvc.perform(get("/api/members/{id}/orders", memberId).param("fields", "password"))
+                .andExpect(status().isBadRequest());
+        mockMvc.perform(get("/api/v5.1/orders").param("fields", "orderId"))
+                .andExpect(status().isOk());
+    }
+
+    @Test
+    public void 상태별_카운터는_DB_건수와_같다() throws Exception {
+        //Given
+        long before = orderStatusCounter.count(OrderStatus.ORDER);
+        long total = orderStatusCounter.count(null);
+        Long memberId = memberService.findMembers().get(0).getId();
+        Long itemId = itemService.findItems().get(0).getId();
+
+        //When - 주문하고 하나는 취소
+        orderService.order(memberId, itemId, 1);
+        Long cancelled = orderService.order(memberId, itemId, 1);
+        orderService.cancelOrder(cancelled);
+
+        //Then - 주문/취소와 같은 트랜잭션에서 상태별 롤업을 증감하므로 커밋되면 바로 맞는 건수가 보인다
+        assertEquals(before + 1, orderStatusCounter.count(OrderStatus.ORDER));
+        assertEquals(total + 2, orderStatusCounter.count(null));
+    }
+}
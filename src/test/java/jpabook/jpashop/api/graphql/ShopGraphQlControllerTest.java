@@ -0,0 +1,179 @@
+package jpabook.jpashop.api.graphql;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jpabook.jpashop.domain.Address;
+import jpabook.jpashop.domain.Category;
+import jpabook.jpashop.domain.Member;
+import jpabook.jpashop.domain.item.Book;
+import jpabook.jpashop.service.OrderService;
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.graphql.ExecutionGraphQlService;
+import org.springframework.graphql.test.tester.ExecutionGraphQlServiceTester;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 주문 -> 회원/배송/주문상품 -> 회원의 최근 주문/상품 -> 상품 카테고리 -> 부모 카테고리까지 중첩 조회
+ * 주문이 5건이든 50건이든 SQL 수는 연관 단계 수(8)로 같아야 한다.
+ */
+@SpringBootTest(properties = "spring.jpa.properties.hibernate.session_factory.statement_inspector="
+        + "jpabook.jpashop.api.graphql.ShopGraphQlControllerTest$SqlCapture")
+@Transactional
+class ShopGraphQlControllerTest {
+
+    private static final String QUERY = """
+            query($first: Int) {
+              orders(first: $first) {
+                id status
+                member { name recentOrders { id } }
+                delivery { status address { city } }
+                orderItems { count totalPrice item { name type categories { name parent { name } } } }
+              }
+            }""";
+
+    @PersistenceContext
+    EntityManager em;
+
+    @Autowired
+    OrderService orderService;
+    @Autowired
+    ExecutionGraphQlService graphQlService;
+
+    @Test
+    public void 중첩조회_N플러스1_없음() throws Exception {
+        //Given
+        createOrders(50);
+        ExecutionGraphQlServiceTester tester = ExecutionGraphQlServiceTester.create(graphQlService);
+
+        //When
+        int small = countSql(tester, 5);
+        int large = countSql(tester, 50);
+
+        //Then
+        assertEquals(small, large, "주문 건수와 상관없이 단계마다 한번");
+        assertTrue(large <= 8, "루트 1 + 연관 단계 7");
+    }
+
+    @Test
+    public void 목록은_after로_다음_페이지() throws Exception {
+        //Given
+        createOrders(5);
+        ExecutionGraphQlServiceTester tester = ExecutionGraphQlServiceTester.create(graphQlService);
+        List<String> firstPage = ids(tester, "orders", null);
+        List<String> items = ids(tester, "items", null);
+        List<String> members = ids(tester, "members", null);
+
+        //When, Then - 주문은 최신순, 회원과 상품은 id 순으로 이어진다
+        List<String> nextOrders = ids(tester, "orders", firstPage.get(1));
+        assertEquals(firstPage.get(2), nextOrders.get(0));
+        assertEquals(items.get(2), ids(tester, "items", items.get(1)).get(0));
+        assertEquals(members.get(2), ids(tester, "members", members.get(1)).get(0));
+    }
+
+    private List<String> ids(ExecutionGraphQlServiceTester tester, String field, String after) {
+        return tester.document("query($after: ID) { " + field + "(after: $after, first: 3) { id } }")
+                .variable("after", after)
+                .execute()
+                .path(field + "[*].id").entityList(String.class).get();
+    }
+
+    @Test
+    public void 쿼리_깊이_제한() throws Exception {
+        ExecutionGraphQlServiceTester tester = ExecutionGraphQlServiceTester.create(graphQlService);
+
+        List<String> sql = capture(() -> tester.document("{ orders { member { recentOrders { member { recentOrders"
+                        + " { member { recentOrders { member { name } } } } } } } } }")
+                .execute()
+                .errors().satisfy(errors -> assertFalse(errors.isEmpty(), "깊이 초과는 에러")));
+
+        assertTrue(sql.isEmpty(), "실행 전에 막혀서 SQL이 나가지 않는다");
+    }
+
+    private int countSql(ExecutionGraphQlServiceTester tester, int first) {
+        em.clear();
+        return capture(() -> tester.document(QUERY)
+                .variable("first", first)
+                .execute()
+                .path("orders").entityList(Object.class).hasSize(first)).size();
+    }
+
+    //이 테스트 스레드에서 나간 select만 모은다 (스케줄러 등 다른 스레드의 SQL은 빼고)
+    private List<String> capture(Runnable query) {
+        SqlCapture.start();
+        try {
+            query.run();
+            return SqlCapture.statements();
+        } finally {
+            SqlCapture.stop();
+        }
+    }
+
+    private void createOrders(int count) {
+        Category parent = new Category();
+        parent.setName("도서");
+        em.persist(parent);
+        List<Book> books = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            Category category = new Category();
+            category.setName("도서-" + i);
+            parent.addCategory(category);
+            Book book = new Book();
+            book.setName("책" + i);
+            book.setPrice(10000);
+            book.setStockQuantity(count);
+            category.getItems().add(book);
+            em.persist(book);
+            em.persist(category);
+            books.add(book);
+        }
+        List<Member> members = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            Member member = new Member();
+            member.setName("회원" + i);
+            member.setAddress(new Address("서울", "강가", "123-123"));
+            em.persist(member);
+            members.add(member);
+        }
+        for (int i = 0; i < count; i++) {
+            orderService.order(members.get(i % members.size()).getId(), books.get(i % books.size()).getId(), 1);
+        }
+        em.flush();
+        em.clear();
+    }
+
+    public static class SqlCapture implements StatementInspector {
+        private static final Queue<String> statements = new ConcurrentLinkedQueue<>();
+        private static volatile Thread capturing;
+
+        static void start() {
+            statements.clear();
+            capturing = Thread.currentThread();
+        }
+
+        static void stop() {
+            capturing = null;
+        }
+
+        static List<String> statements() {
+            return new ArrayList<>(statements);
+        }
+
+        @Override
+        public String inspect(String sql) {
+            if (Thread.currentThread() == capturing && sql.startsWith("select")) {
+                statements.add(sql);
+            }
+            return sql;
+        }
+    }
+}
@@ -0,0 +1,149 @@
+package jpabook.jpashop.config.admission;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import jpabook.jpashop.domain.Member;
+import jpabook.jpashop.domain.item.Book;
+import jpabook.jpashop.service.ItemService;
+import jpabook.jpashop.service.MemberService;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.availability.AvailabilityChangeEvent;
+import org.springframework.boot.availability.ReadinessState;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.ApplicationContext;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.ResultActions;
+
+import java.time.Duration;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+//read route는 latency-threshold 0ms - 받은 요청은 모두 느린 응답으로 보고 한도를 줄인다
+@SpringBootTest(properties = {
+        "jpashop.admission.enabled=true",
+        "jpashop.admission.routes.read.patterns[0]=GET /api/v5.1/orders",
+        "jpashop.admission.routes.read.initial-limit=10",
+        "jpashop.admission.routes.read.latency-threshold=0ms",
+        "jpashop.admission.bulk-rate.capacity=2"})
+@AutoConfigureMockMvc
+class AdmissionControlTest {
+
+    @Autowired
+    MockMvc mockMvc;
+    @Autowired
+    MeterRegistry registry;
+    @Autowired
+    ApplicationContext context;
+    @Autowired
+    MemberService memberService;
+    @Autowired
+    ItemService itemService;
+
+    @Test
+    public void 트래픽을_받기_전_요청은_한도에_반영하지_않는다() throws Exception {
+        //Given - 워밍업 중 (readiness OUT_OF_SERVICE)
+        double before = limit("read");
+        AvailabilityChangeEvent.publish(context, ReadinessState.REFUSING_TRAFFIC);
+        try {
+            //When
+            for (int i = 0; i < 5; i++) {
+                mockMvc.perform(get("/api/v5.1/orders?limit=1")).andExpect(status().isOk());
+            }
+
+            //Then
+            assertEquals(before, limit("read"), "워밍업 호출은 한도를 바꾸지 않는다");
+        } finally {
+            AvailabilityChangeEvent.publish(context, ReadinessState.ACCEPTING_TRAFFIC);
+        }
+
+        //트래픽을 받기 시작하면 느린 응답으로 한도가 준다
+        mockMvc.perform(get("/api/v5.1/orders?limit=1")).andExpect(status().isOk());
+        assertTrue(limit("read") < before);
+    }
+
+    @Test
+    public void 느린응답이_몰려도_한번만_줄인다() throws Exception {
+        //Given - 한도 10, 처리 중 5건
+        AdmissionProperties.Route route = new AdmissionProperties.Route();
+        route.setInitialLimit(10);
+        route.setLatencyThreshold(Duration.ofMillis(100));
+        route.setBackoff(0.5);
+        AimdLimiter limiter = new AimdLimiter(route);
+        long start = System.nanoTime();
+        int[] inflight = new int[5];
+        for (int i = 0; i < inflight.length; i++) {
+            inflight[i] = limiter.tryAcquire();
+        }
+
+        //When - 같이 처리 중이던 5건이 모두 1초 걸려서 끝남
+        for (int i = 0; i < inflight.length; i++) {
+            limiter.release(inflight[i], start, start + 1_000_000_000L + i, false);
+        }
+
+        //Then - 0.5^5가 아니라 한번만
+        assertEquals(5.0, limiter.limit());
+
+        //줄인 뒤에 시작한 요청이 또 느리면 다시 줄인다
+        long next = start + 2_000_000_000L;
+        limiter.release(limiter.tryAcquire(), next, next + 1_000_000_000L, true);
+        assertEquals(2.5, limiter.limit());
+        assertEquals(0, limiter.inflight());
+    }
+
+    @Test
+    public void 일괄작업은_호출자별로_속도제한() throws Exception {
+        //Given - 호출자별 2건까지 몰아서
+        for (int i = 0; i < 2; i++) {
+            bulkCancel("bulk-client").andExpect(status().isOk());
+        }
+
+        //When, Then - 세 번째는 429 + Retry-After, 다른 호출자는 그대로 받는다
+        bulkCancel("bulk-client")
+                .andExpect(status().isTooManyRequests())
+                .andExpect(header().exists(HttpHeaders.RETRY_AFTER));
+        bulkCancel("other-client").andExpect(status().isOk());
+        assertEquals(1.0, registry.get("admission.rejected").tag("route", "bulk").counter().count());
+    }
+
+    @Test
+    public void 회원별_주문_속도제한() throws Exception {
+        //Given - 회원별 5건까지 몰아서 (기본 capacity)
+        Member member = new Member();
+        member.setName("rate-" + UUID.randomUUID());
+        Long memberId = memberService.join(member);
+        Book book = new Book();
+        book.setName("JPA");
+        book.setPrice(10000);
+        book.setStockQuantity(100);
+        Long itemId = itemService.saveItem(book);
+        String body = "{\"memberId\": " + memberId + ", \"itemId\": " + itemId + ", \"count\": 1}";
+        for (int i = 0; i < 5; i++) {
+            mockMvc.perform(post("/api/orders").contentType(MediaType.APPLICATION_JSON).content(body))
+                    .andExpect(status().isCreated());
+        }
+
+        //When, Then
+        mockMvc.perform(post("/api/orders").contentType(MediaType.APPLICATION_JSON).content(body))
+                .andExpect(status().isTooManyRequests())
+                .andExpect(header().exists(HttpHeaders.RETRY_AFTER));
+    }
+
+    private ResultActions bulkCancel(String clientId) throws Exception {
+        return mockMvc.perform(post("/api/orders/cancel")
+                .header(MemberOrderRateLimiter.CLIENT_ID_HEADER, clientId)
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{\"orderIds\": [-1]}"));
+    }
+
+    private double limit(String route) {
+        return registry.get("admission.limit").tag("route", route).gauge().value();
+    }
+}
@@ -0,0 +1,97 @@
+package jpabook.jpashop.config.datasource;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import jpabook.jpashop.domain.Member;
+import jpabook.jpashop.service.MemberService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.orm.jpa.EntityManagerHolder;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+//복제본은 primary와 같은 메모리 DB를 가리킨다 (지연 없는 복제). 어디로 갔는지는 라우팅 카운터로 확인한다
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:routing;DB_CLOSE_DELAY=-1",
+        "spring.datasource.username=sa",
+        "jpashop.datasource.routing.enabled=true",
+        "jpashop.datasource.routing.lag-check=false",
+        "jpashop.datasource.routing.replicas[0].url=jdbc:h2:mem:routing;DB_CLOSE_DELAY=-1"
+})
+@AutoConfigureMockMvc
+class ReadWriteRoutingTest {
+
+    @Autowired
+    MockMvc mockMvc;
+    @Autowired
+    MemberService memberService;
+    @Autowired
+    EntityManagerFactory emf;
+    @Autowired
+    MeterRegistry registry;
+
+    @BeforeEach
+    void clearPin() {
+        RoutingContext.clear();
+    }
+
+    @Test
+    public void OSIV_읽기후_쓰기는_primary로_간다() {
+        //OSIV처럼 요청 동안 EntityManager 하나를 스레드에 묶어둔다
+        EntityManager em = emf.createEntityManager();
+        TransactionSynchronizationManager.bindResource(emf, new EntityManagerHolder(em));
+        try {
+            double replica = routed("replica-0");
+            memberService.findMembers();
+            assertTrue(routed("replica-0") > replica, "readOnly 트랜잭션은 복제본");
+
+            double primary = routed(ReadWriteRoutingDataSource.PRIMARY);
+            replica = routed("replica-0");
+            Member member = new Member();
+            member.setName("routing-osiv");
+            memberService.join(member);
+
+            //복제본 커넥션을 그대로 들고 있으면 쓰기가 복제본으로 간다
+            assertTrue(routed(ReadWriteRoutingDataSource.PRIMARY) > primary, "쓰기 트랜잭션은 primary");
+            assertEquals(replica, routed("replica-0"), "쓰기 트랜잭션이 복제본 커넥션을 쓰면 안 된다");
+        } finally {
+            TransactionSynchronizationManager.unbindResource(emf);
+            em.close();
+        }
+    }
+
+    @Test
+    public void 쓰기직후_같은_클라이언트만_primary에서_읽는다() throws Exception {
+        //Given - 클라이언트 a가 쓰기
+        mockMvc.perform(post("/api/v2/members").header(RoutingClientFilter.CLIENT_ID_HEADER, "a")
+                        .contentType(MediaType.APPLICATION_JSON).content("{\"name\":\"routing-pin\"}"))
+                .andExpect(status().isOk());
+
+        //When, Then - 요청이 끝나면 스레드 상태는 지워지지만 클라이언트 a는 primary에 고정된다
+        double primary = routed(ReadWriteRoutingDataSource.PRIMARY);
+        double replica = routed("replica-0");
+        mockMvc.perform(get("/api/v1/members").header(RoutingClientFilter.CLIENT_ID_HEADER, "a"))
+                .andExpect(status().isOk());
+        assertTrue(routed(ReadWriteRoutingDataSource.PRIMARY) > primary, "쓴 클라이언트는 primary에서 읽는다");
+        assertEquals(replica, routed("replica-0"));
+
+        //같은 스레드라도 다른 클라이언트는 복제본에서 읽는다
+        mockMvc.perform(get("/api/v1/members").header(RoutingClientFilter.CLIENT_ID_HEADER, "b"))
+                .andExpect(status().isOk());
+        assertTrue(routed("replica-0") > replica, "다른 클라이언트는 복제본에서 읽는다");
+    }
+
+    private double routed(String target) {
+        return registry.get("jpashop.datasource.route").tag("target", target).counter().count();
+    }
+}
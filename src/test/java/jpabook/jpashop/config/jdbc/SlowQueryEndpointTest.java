@@ -0,0 +1,90 @@
+package jpabook.jpashop.config.jdbc;
+
+import jpabook.jpashop.repository.MemberRepository;
+import jpabook.jpashop.repository.OrderRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+//threshold 0이면 모든 문장이 기록된다 - 지문으로 묶이고, 호출한 리포지토리 메서드와 실행 계획이 붙는지 본다
+@SpringBootTest(properties = "jpashop.slow-query.threshold=0ms")
+@Transactional
+class SlowQueryEndpointTest {
+
+    @Autowired
+    SlowQueryEndpoint slowQueryEndpoint;
+    @Autowired
+    OrderRepository orderRepository;
+    @Autowired
+    MemberRepository memberRepository;
+
+    @Test
+    public void 느린쿼리_지문별_기록() throws Exception {
+        //Given
+        slowQueryEndpoint.reset();
+
+        //When - offset/limit 값만 다른 같은 쿼리 세 번
+        for (int i = 0; i < 3; i++) {
+            orderRepository.findAllWithMemberDelivery(i + 1, 10); //offset 0이면 하이버네이트가 offset 절을 빼서 다른 문장이 된다
+        }
+
+        //Then
+        Map<String, Object> query = waitForPlan(findByCaller("OrderRepository.findAllWithMemberDelivery"));
+        assertEquals(3L, query.get("count"), "같은 지문으로 묶임");
+        assertNotNull(query.get("plan"), "처음 본 지문은 EXPLAIN");
+        assertEquals("select * from orders where order_id in (?+) and status = ?",
+                SqlFingerprint.of("SELECT *  FROM orders WHERE order_id IN (?, ?, ?) AND status = 'ORDER'"));
+    }
+
+    @Test
+    public void 실행계획의_값은_가린다() throws Exception {
+        //Given
+        slowQueryEndpoint.reset();
+
+        //When
+        memberRepository.findByName("secret-member");
+
+        //Then - EXPLAIN은 값을 채운 문장으로 실행하지만 남기는 계획에는 값이 없다
+        String fingerprint = queries().stream()
+                .map(q -> (String) q.get("fingerprint"))
+                .filter(f -> f.contains("from member") && f.contains(".name=?"))
+                .findFirst().orElseThrow();
+        String plan = (String) waitForPlan(fingerprint).get("plan");
+        assertFalse(plan.contains("secret-member"), plan);
+        assertTrue(plan.contains("?"), plan);
+    }
+
+    private String findByCaller(String caller) {
+        List<Map<String, Object>> queries = queries();
+        return queries.stream()
+                .filter(q -> String.valueOf(q.get("caller")).startsWith(caller))
+                .map(q -> (String) q.get("fingerprint"))
+                .findFirst()
+                .orElseThrow(() -> new AssertionError("no query from " + caller + ": " + queries));
+    }
+
+    private Map<String, Object> waitForPlan(String fingerprint) throws InterruptedException {
+        for (int i = 0; i < 50; i++) {
+            Map<String, Object> query = queries().stream()
+                    .filter(q -> fingerprint.equals(q.get("fingerprint")))
+                    .findFirst().orElseThrow();
+            if (query.get("plan") != null) {
+                return query;
+            }
+            Thread.sleep(100);
+        }
+        fail("EXPLAIN not captured");
+        return null;
+    }
+
+    @SuppressWarnings("unchecked")
+    private List<Map<String, Object>> queries() {
+        return (List<Map<String, Object>>) slowQueryEndpoint.slowQueries().get("queries");
+    }
+}
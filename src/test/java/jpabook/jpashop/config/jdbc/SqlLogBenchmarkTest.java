@@ -0,0 +1,116 @@
+package jpabook.jpashop.config.jdbc;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jpabook.jpashop.domain.Address;
+import jpabook.jpashop.domain.Member;
+import jpabook.jpashop.domain.item.Book;
+import jpabook.jpashop.repository.order.query.OrderQueryRepository;
+import jpabook.jpashop.service.OrderService;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.logging.LogLevel;
+import org.springframework.boot.logging.LoggingSystem;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.annotation.Transactional;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * FULL(org.hibernate.SQL debug + p6spy 문장마다 출력)과 SAMPLED의 처리량 비교
+ * 같은 조회(V5.1 keyset 20건, 쿼리 2번)를 모드마다 워밍업 후 반복해서 초당 호출 수를 잰다.
+ * 절대값은 환경마다 달라서 SAMPLED가 FULL보다 빠른지만 검사한다.
+ */
+@SpringBootTest
+@Transactional
+class SqlLogBenchmarkTest {
+
+    private static final int WARMUP = 300;
+    private static final int CALLS = 2000;
+
+    @PersistenceContext
+    EntityManager em;
+
+    @Autowired
+    OrderService orderService;
+    @Autowired
+    OrderQueryRepository orderQueryRepository;
+    @Autowired
+    SqlLogging sqlLogging;
+    @Autowired
+    SampledSqlLogListener sampledSqlLogListener;
+    @Autowired
+    LoggingSystem loggingSystem;
+
+    @Test
+    public void 로그모드별_처리량() throws Exception {
+        //Given
+        createOrders(100);
+        SqlLogProperties.Mode before = sqlLogging.mode();
+
+        try {
+            //When
+            double full = throughput(SqlLogProperties.Mode.FULL);
+            double sampled = throughput(SqlLogProperties.Mode.SAMPLED);
+
+            //Then
+            assertTrue(sampled > full, "sampled " + sampled + " calls/s, full " + full + " calls/s");
+            assertEquals(0, sampledSqlLogListener.dropped(), "1% 샘플은 링 버퍼를 넘치지 않는다");
+        } finally {
+            sqlLogging.switchTo(before);
+        }
+    }
+
+    @Test
+    public void 모드별_로그레벨과_값가리기() throws Exception {
+        SqlLogProperties.Mode before = sqlLogging.mode();
+        try {
+            //SAMPLED - 문장마다 찍는 로거를 끈다
+            sqlLogging.switchTo(SqlLogProperties.Mode.SAMPLED);
+            assertEquals(LogLevel.WARN, level("org.hibernate.SQL"));
+            assertEquals(LogLevel.WARN, level("p6spy"));
+
+            //FULL - 설정 파일(테스트는 org.hibernate.SQL debug)과 기본 레벨로 되돌린다
+            sqlLogging.switchTo(SqlLogProperties.Mode.FULL);
+            assertEquals(LogLevel.DEBUG, level("org.hibernate.SQL"));
+            assertEquals(LogLevel.TRACE, level("org.hibernate.type"));
+        } finally {
+            sqlLogging.switchTo(before);
+        }
+        assertEquals("select * from member where name = '***' and member_id = 1",
+                sampledSqlLogListener.redact("select * from member where name = 'kim' and member_id = 1"));
+    }
+
+    private LogLevel level(String logger) {
+        return loggingSystem.getLoggerConfiguration(logger).getEffectiveLevel();
+    }
+
+    private double throughput(SqlLogProperties.Mode mode) {
+        sqlLogging.switchTo(mode);
+        for (int i = 0; i < WARMUP; i++) {
+            orderQueryRepository.findAllByDto_keyset(null, 20);
+        }
+        long start = System.nanoTime();
+        for (int i = 0; i < CALLS; i++) {
+            orderQueryRepository.findAllByDto_keyset(null, 20);
+        }
+        return CALLS / ((System.nanoTime() - start) / 1e9);
+    }
+
+    private void createOrders(int count) {
+        Member member = new Member();
+        member.setName("회원1");
+        member.setAddress(new Address("서울", "강가", "123-123"));
+        em.persist(member);
+        Book book = new Book();
+        book.setName("JPA in Action");
+        book.setPrice(10000);
+        book.setStockQuantity(count);
+        em.persist(book);
+        for (int i = 0; i < count; i++) {
+            orderService.order(member.getId(), book.getId(), 1);
+        }
+        em.flush();
+        em.clear();
+    }
+}
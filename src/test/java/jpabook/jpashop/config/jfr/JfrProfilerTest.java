@@ -0,0 +1,85 @@
+package jpabook.jpashop.config.jfr;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+//기본은 꺼져 있으므로 켜서 테스트한다
+@SpringBootTest(properties = {"jpashop.jfr.enabled=true", "jpashop.jfr.directory=build/jfr-test"})
+class JfrProfilerTest {
+
+    @Autowired
+    JfrProfiler profiler;
+    @Autowired
+    JfrEndpoint endpoint;
+
+    @Test
+    public void 녹화_요약에_요청_엔드포인트_전략() throws Exception {
+        //Given - 녹화 전에는 필터가 이벤트를 만들지 않는다
+        assertFalse(profiler.isRecording());
+        JfrProfiler.Session session = profiler.start(Duration.ofSeconds(30));
+        assertTrue(profiler.isRecording());
+
+        //When - 필터가 남기는 것과 같은 요청 이벤트 안에서 할당
+        RequestEvent event = new RequestEvent();
+        event.begin();
+        List<byte[]> garbage = new ArrayList<>();
+        for (int i = 0; i < 2000; i++) {
+            garbage.add(new byte[1024]);
+        }
+        event.end();
+        event.method = "GET";
+        event.endpoint = "/api/v3.1/orders";
+        event.strategy = JfrRequestFilter.strategyOf(event.endpoint);
+        event.status = 200;
+        event.commit();
+        profiler.stop();
+
+        //Then
+        assertFalse(profiler.isRecording());
+        assertTrue(session.isFinished(), "멈추면 파일이 써진다");
+        Map<String, Object> summary = endpoint.summary(session.getId());
+        List<?> requests = (List<?>) summary.get("requests");
+        Map<?, ?> request = (Map<?, ?>) requests.get(0);
+        assertEquals("GET /api/v3.1/orders", request.get("endpoint"));
+        assertEquals("v3.1", request.get("strategy"));
+        assertEquals(1L, request.get("count"));
+        assertNotNull(endpoint.download(session.getId(), "download"));
+        assertEquals(2000, garbage.size());
+    }
+
+    @Test
+    public void 비동기_요청은_응답이_끝날때_기록() throws Exception {
+        //Given - 핸들러가 비동기를 시작하고 첫 디스패치가 바로 돌아오는 요청 (POST /graphql처럼)
+        JfrProfiler.Session session = profiler.start(Duration.ofSeconds(30));
+        JfrRequestFilter filter = new JfrRequestFilter(profiler);
+        MockHttpServletRequest request = new MockHttpServletRequest("POST", "/graphql");
+        request.setAsyncSupported(true);
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        filter.doFilter(request, response, (req, res) -> req.startAsync());
+
+        //When - 다른 스레드에서 200ms 뒤에 응답이 끝남
+        Thread.sleep(200);
+        response.setStatus(200);
+        request.getAsyncContext().complete();
+        profiler.stop();
+
+        //Then - 첫 디스패치가 아니라 응답이 끝날 때까지의 시간으로 한건
+        Map<String, Object> summary = endpoint.summary(session.getId());
+        Map<?, ?> recorded = ((List<?>) summary.get("requests")).stream()
+                .map(Map.class::cast)
+                .filter(r -> "POST /graphql".equals(r.get("endpoint")))
+                .findFirst().orElseThrow();
+        assertEquals(1L, recorded.get("count"));
+        assertTrue((Double) recorded.get("maxMillis") >= 200, "비동기 처리 시간까지 포함");
+    }
+}
@@ -0,0 +1,47 @@
+package jpabook.jpashop.config.jpa;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.web.servlet.MockMvc;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+//adaptive 모드로 시작하면 설정한 연관별 크기가 퍼시스턴서에 들어간다 (/actuator/batchfetch의 current)
+//추천값 파일은 없는 경로로 돌려서 작업 디렉터리의 파일이 섞이지 않게 한다
+@SpringBootTest(properties = {
+        "jpashop.batch-fetch.adaptive=true",
+        "jpashop.batch-fetch.sizes[Order.orderItems]=37",
+        "jpashop.batch-fetch.sizes[Order.member]=23",
+        "jpashop.batch-fetch.recommendations-file=build/batch-fetch-adaptive-test.properties",
+        "management.endpoints.web.exposure.include=batchfetch",
+        "management.endpoint.batchfetch.access=read-only"
+})
+@AutoConfigureMockMvc
+class BatchFetchAdaptiveTest {
+
+    @Autowired
+    MockMvc mockMvc;
+
+    @Test
+    public void 설정한_연관별_배치크기가_적용된다() throws Exception {
+        mockMvc.perform(get("/actuator/batchfetch"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.adaptive").value(true))
+                .andExpect(jsonPath("$.associations['Order.orderItems'].current").value(37))
+                .andExpect(jsonPath("$.associations['Order.member'].current").value(23));
+    }
+
+    @Test
+    public void 조회만_열면_저장과_초기화는_막힌다() throws Exception {
+        mockMvc.perform(post("/actuator/batchfetch"))
+                .andExpect(status().isMethodNotAllowed());
+        mockMvc.perform(delete("/actuator/batchfetch"))
+                .andExpect(status().isMethodNotAllowed());
+    }
+}
@@ -0,0 +1,80 @@
+package jpabook.jpashop.config.jpa;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jpabook.jpashop.domain.Address;
+import jpabook.jpashop.domain.Member;
+import jpabook.jpashop.domain.Order;
+import jpabook.jpashop.domain.item.Book;
+import jpabook.jpashop.service.OrderService;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest(properties = {
+        "jpashop.batch-fetch.instrument=true",
+        "spring.jpa.properties.hibernate.default_batch_fetch_size=100"})
+@Transactional
+class LazyLoadStatsTest {
+
+    private static final int ORDER_COUNT = 30;
+
+    @PersistenceContext
+    EntityManager em;
+
+    @Autowired
+    OrderService orderService;
+    @Autowired
+    LazyLoadStats stats;
+
+    @Test
+    public void 연관별_지연로딩_배치크기_측정() throws Exception {
+        //Given
+        Member member = createOrders();
+        stats.reset();
+
+        //When - 요청 하나에서 주문 30건의 orderItems, member를 지연 로딩
+        stats.beginRequest();
+        List<Order> orders = em.createQuery("select o from Order o where o.member.id = :memberId", Order.class)
+                .setParameter("memberId", member.getId())
+                .getResultList();
+        orders.forEach(o -> {
+            o.getOrderItems().size();
+            o.getMember().getName();
+        });
+        stats.endRequest();
+
+        //Then
+        Map<String, Object> orderItems = stats.snapshot(FetchAssociation.ORDER_ORDER_ITEMS);
+        assertEquals(1L, orderItems.get("lazyInits"), "배치 한번");
+        assertEquals((long) ORDER_COUNT, orderItems.get("maxBatch"), "주문 30건의 컬렉션이 같이 초기화");
+        assertEquals(1L, orderItems.get("requests"));
+        assertEquals(32, stats.recommend(FetchAssociation.ORDER_ORDER_ITEMS), "30을 2의 거듭제곱으로 올림");
+        assertEquals(1L, stats.snapshot(FetchAssociation.ORDER_MEMBER).get("lazyInits"));
+        assertNull(stats.recommend(FetchAssociation.CATEGORY_CHILD), "데이터 없음");
+    }
+
+    private Member createOrders() {
+        Member member = new Member();
+        member.setName("회원1");
+        member.setAddress(new Address("서울", "강가", "123-123"));
+        em.persist(member);
+        Book book = new Book();
+        book.setName("JPA in Action");
+        book.setPrice(10000);
+        book.setStockQuantity(ORDER_COUNT);
+        em.persist(book);
+        for (int i = 0; i < ORDER_COUNT; i++) {
+            orderService.order(member.getId(), book.getId(), 1);
+        }
+        em.flush();
+        em.clear();
+        return member;
+    }
+}
@@ -0,0 +1,346 @@
+package jpabook.jpashop.config.shard;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jpabook.jpashop.api.OrderApiController;
+import jpabook.jpashop.api.OrderSimpleApiController;
+import jpabook.jpashop.domain.Member;
+import jpabook.jpashop.domain.Order;
+import jpabook.jpashop.domain.OrderStatus;
+import jpabook.jpashop.domain.item.Book;
+import jpabook.jpashop.exception.NotEnoughStockException;
+import jpabook.jpashop.repository.order.query.OrderQueryDto;
+import jpabook.jpashop.repository.order.query.OrderQueryRepository;
+import jpabook.jpashop.service.ItemService;
+import jpabook.jpashop.service.MemberService;
+import jpabook.jpashop.service.OrderBulkCancelService;
+import jpabook.jpashop.service.OrderCancelResult;
+import jpabook.jpashop.service.OrderService;
+import jpabook.jpashop.service.archive.OrderArchiver;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.hamcrest.Matchers.hasProperty;
+import static org.hamcrest.Matchers.is;
+import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.model;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+//메모리 DB 두 개를 샤드로 쓴다
+@SpringBootTest(properties = {
+        "spring.datasource.username=sa",
+        "jpashop.sharding.enabled=true",
+        "jpashop.sharding.shards[0].url=jdbc:h2:mem:shard0;DB_CLOSE_DELAY=-1",
+        "jpashop.sharding.shards[1].url=jdbc:h2:mem:shard1;DB_CLOSE_DELAY=-1",
+        "jpashop.archive.enabled=true",
+        "jpashop.archive.age=0s",
+        "jpashop.archive.pause=0ms"
+})
+@AutoConfigureMockMvc
+class ShardingTest {
+
+    private static final AtomicInteger MEMBER_SEQ = new AtomicInteger();
+
+    @Autowired
+    OrderService orderService;
+    @Autowired
+    MemberService memberService;
+    @Autowired
+    ItemService itemService;
+    @Autowired
+    OrderQueryRepository orderQueryRepository;
+    @Autowired
+    OrderShards orderShards;
+    @Autowired
+    ShardDataSources shardDataSources;
+    @Autowired
+    OrderArchiver orderArchiver;
+    @Autowired
+    OrderBulkCancelService orderBulkCancelService;
+    @Autowired
+    MockMvc mockMvc;
+    @Autowired
+    OrderApiController orderApiController;
+    @Autowired
+    OrderSimpleApiController orderSimpleApiController;
+    @Autowired
+    ObjectMapper objectMapper;
+    @Autowired
+    MeterRegistry meterRegistry;
+
+    @Test
+    public void 모든_샤드에_스키마가_있다() {
+        for (String table : List.of("ORDERS", "ORDERS_ARCHIVE", "ORDER_IDEMPOTENCY_KEY", "ORDER_STATUS_COUNT")) {
+            assertEquals(1, shard(1).queryForObject("select count(*) from information_schema.tables" +
+                    " where table_name = ?", Integer.class, table), table);
+        }
+    }
+
+    @Test
+    public void 주문은_회원샤드에_쓰고_id로_샤드를_찾는다() {
+        //Given - 샤드 0, 1에 회원 한 명씩
+        Map<Integer, Long> members = new HashMap<>();
+        for (int i = 0; members.size() < 2; i++) {
+            Long memberId = join("shard-member" + i);
+            members.putIfAbsent(orderShards.shardOf(memberId), memberId);
+        }
+        Long itemId = saveBook("shard-book", 10);
+
+        //When
+        Long orderId0 = orderService.order(members.get(0), itemId, 1);
+        Long orderId1 = orderService.order(members.get(1), itemId, 2);
+
+        //Then - 주문 id로 회원 샤드를 알 수 있다
+        assertEquals(0, orderShards.shardOfId(orderId0));
+        assertEquals(1, orderShards.shardOfId(orderId1));
+        assertEquals(1, countOrders(0, orderId0));
+        assertEquals(1, countOrders(1, orderId1));
+
+        //재고는 샤드마다 나눠 가지고, 주문은 자기 샤드 몫만 줄인다
+        assertEquals(5 - 1, stock(0, itemId));
+        assertEquals(5 - 2, stock(1, itemId));
+
+        //전체 조회는 두 샤드를 합친다
+        List<Long> orderIds = orderQueryRepository.findAllByDto_keyset(null, 1000).stream()
+                .map(OrderQueryDto::getOrderId).toList();
+        assertTrue(orderIds.containsAll(List.of(orderId0, orderId1)));
+
+        //취소는 id에 들어 있는 샤드에서
+        orderService.cancelOrder(orderId1);
+        assertEquals(OrderStatus.CANCEL.name(), shard(1).queryForObject(
+                "select status from orders where order_id = ?", String.class, orderId1));
+        assertEquals(5, stock(1, itemId));
+    }
+
+    @Test
+    public void 회원과_상품은_모든_샤드에_복사된다() {
+        //When
+        Long memberId = join("shard-replica");
+        memberService.update(memberId, "shard-replica2");
+        Long itemId = saveBook("shard-replica-book", 11);
+        itemService.updateItem(itemId, "shard-replica-book2", 1000, 7);
+
+        //Then
+        assertEquals("shard-replica2", shard(1).queryForObject(
+                "select name from member where member_id = ?", String.class, memberId));
+        assertEquals("shard-replica-book2", shard(1).queryForObject(
+                "select name from item where item_id = ?", String.class, itemId));
+        assertEquals(4, stock(0, itemId));
+        assertEquals(3, stock(1, itemId));
+    }
+
+    @Test
+    public void 보관작업은_모든_샤드를_돈다() {
+        //Given - 샤드 0, 1에 취소된 주문 하나씩
+        Long itemId = saveBook("shard-archive-book", 10);
+        Map<Integer, Long> orders = new HashMap<>();
+        for (int i = 0; orders.size() < 2; i++) {
+            Long memberId = join("shard-archive" + i);
+            if (!orders.containsKey(orderShards.shardOf(memberId))) {
+                Long orderId = orderService.order(memberId, itemId, 1);
+                orderService.cancelOrder(orderId);
+                orders.put(orderShards.shardOf(memberId), orderId);
+            }
+        }
+
+        //When
+        orderArchiver.archive();
+
+        //Then - 주문이 있던 샤드의 보관 테이블로 옮겨지고, 단건 조회는 그 샤드에서 찾는다
+        orders.forEach((shard, orderId) -> {
+            assertEquals(0, countOrders(shard, orderId));
+            assertEquals(1, shard(shard).queryForObject(
+                    "select count(*) from orders_archive where order_id = ?", Integer.class, orderId));
+            assertEquals(OrderStatus.CANCEL, orderQueryRepository.findOrderQueryDto(orderId).getOrderStatus());
+        });
+    }
+
+    @Test
+    public void 일괄취소는_주문id의_샤드에서만_처리한다() {
+        //Given - 샤드 0, 1에 주문 하나씩
+        Long itemId = saveBook("shard-bulk-cancel-book", 10);
+        Map<Integer, Long> orders = new HashMap<>();
+        for (int i = 0; orders.size() < 2; i++) {
+            Long memberId = join("shard-bulk-cancel" + i);
+            orders.putIfAbsent(orderShards.shardOf(memberId), orderService.order(memberId, itemId, 2));
+        }
+
+        //When
+        List<OrderCancelResult> results = orderBulkCancelService.cancelOrders(List.of(orders.get(0), orders.get(1)));
+
+        //Then - 각 샤드의 주문이 취소되고 재고는 그 샤드 몫으로 돌아온다
+        assertTrue(results.stream().allMatch(r -> r.getOutcome() == OrderCancelResult.Outcome.CANCELED));
+        orders.forEach((shard, orderId) -> {
+            assertEquals(OrderStatus.CANCEL.name(), shard(shard).queryForObject(
+                    "select status from orders where order_id = ?", String.class, orderId));
+            assertEquals(5, stock(shard, itemId));
+        });
+    }
+
+    @Test
+    public void 화면_재고는_샤드_합이고_수정은_차이만_반영한다() throws Exception {
+        //Given - 10개를 5/5로 나누고 샤드 1 회원이 2개 주문
+        Long itemId = saveBook("shard-stock-book", 10);
+        orderService.order(memberOn(1, "shard-stock"), itemId, 2);
+
+        //Then - 목록, 수정 폼은 두 샤드의 합
+        assertEquals(8, itemService.findTotalStock(itemId));
+        assertEquals(8, itemService.findItemPage(0, 500).stream()
+                .filter(item -> item.getId().equals(itemId)).findFirst().orElseThrow().getStockQuantity());
+        mockMvc.perform(get("/items/" + itemId + "/edit"))
+                .andExpect(model().attribute("form", hasProperty("stockQuantity", is(8))));
+
+        //When - 폼을 그대로 저장하면 재고는 그대로, 팔린 수량도 그대로
+        itemService.updateItem(itemId, "shard-stock-book2", 1000, 8);
+        assertEquals(5, stock(0, itemId));
+        assertEquals(3, stock(1, itemId));
+
+        //When - 12로 늘리면 늘어난 4개만 나눠서 더한다
+        itemService.updateItem(itemId, "shard-stock-book2", 1000, 12);
+        assertEquals(7, stock(0, itemId));
+        assertEquals(5, stock(1, itemId));
+    }
+
+    @Test
+    public void 회원샤드_재고가_모자라면_다른_샤드에서_옮겨온다() {
+        //Given - 4개를 2/2로 나눈다
+        Long itemId = saveBook("shard-borrow-book", 4);
+
+        //When - 샤드 1 회원이 3개 주문
+        orderService.order(memberOn(1, "shard-borrow"), itemId, 3);
+
+        //Then - 샤드 0에서 1개를 옮겨 와서 주문했다
+        assertEquals(1, stock(0, itemId));
+        assertEquals(0, stock(1, itemId));
+        assertEquals(1, itemService.findTotalStock(itemId));
+
+        //전체 재고보다 많으면 재고 부족
+        assertThrows(NotEnoughStockException.class, () -> orderService.order(memberOn(1, "shard-borrow"), itemId, 2));
+        assertEquals(1, itemService.findTotalStock(itemId));
+    }
+
+    @Test
+    public void 복사에_실패하면_다시_시도하고_실패를_알린다() {
+        //Given - 샤드 1의 회원 테이블을 잠시 없앤다
+        double before = failures();
+        shard(1).execute("alter table member rename to member_broken");
+        try {
+            //When, Then - 원본은 커밋되지만 호출한 쪽은 예외로 실패를 안다
+            assertThrows(IllegalStateException.class, () -> join("shard-broken"));
+            assertEquals(before + 1, failures());
+        } finally {
+            shard(1).execute("alter table member_broken rename to member");
+        }
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void 주문_목록은_모든_샤드를_합친다() throws Exception {
+        //Given - 샤드 0, 1에 이 상품의 주문 하나씩
+        Long itemId = saveBook("shard-list-book", 10);
+        List<Long> orderIds = List.of(
+                orderService.order(memberOn(0, "shard-list"), itemId, 1),
+                orderService.order(memberOn(1, "shard-list"), itemId, 1));
+
+        //Then - 화면, v1, v2, v3(simple)
+        List<Long> webOrders = ((List<Order>) mockMvc.perform(get("/orders"))
+                .andExpect(status().isOk())
+                .andReturn().getModelAndView().getModel().get("orders")).stream()
+                .map(Order::getId).toList();
+        assertTrue(webOrders.containsAll(orderIds), "/orders");
+        //v1은 엔티티를 그대로 JSON으로 내보내서 양방향 연관 때문에 직렬화가 끝나지 않으므로 컨트롤러를 직접 부른다
+        //(준영속 주문이어도 연관을 강제 초기화하는 부분에서 예외가 나지 않아야 한다)
+        assertTrue(orderApiController.ordersV1().stream().map(Order::getId).toList().containsAll(orderIds), "v1");
+        assertTrue(orderSimpleApiController.ordersV1().stream().map(Order::getId).toList().containsAll(orderIds),
+                "simple v1");
+        assertTrue(ids("/api/v2/orders", "orderId").containsAll(orderIds), "v2");
+        assertTrue(ids("/api/v2/simple-orders", "orderId").containsAll(orderIds), "simple v2");
+        assertTrue(ids("/api/v3/simple-orders", "orderId").containsAll(orderIds), "simple v3");
+
+        //v3.1 - offset 페이징을 한 건씩 넘겨도 전체를 id 순으로 한번씩 본다
+        List<Long> all = ids("/api/v3.1/orders?offset=0&limit=1000", "orderId");
+        assertTrue(all.containsAll(orderIds), "v3.1");
+        assertEquals(all.stream().sorted().toList(), all);
+        List<Long> paged = new ArrayList<>();
+        for (int offset = 0; offset < all.size(); offset++) {
+            paged.addAll(ids("/api/v3.1/orders?offset=" + offset + "&limit=1", "orderId"));
+        }
+        assertEquals(all, paged);
+
+        //v5 - 상품 조건이 있으면 count 쿼리도 샤드 합, 페이지는 합친 정렬 기준(id desc)으로 자른다
+        JsonNode page0 = json("/api/v5/simple-orders?itemId=" + itemId + "&size=1&page=0");
+        JsonNode page1 = json("/api/v5/simple-orders?itemId=" + itemId + "&size=1&page=1");
+        assertEquals(2, page0.get("totalCount").asLong());
+        assertEquals(orderIds.get(1), page0.get("data").get(0).get("orderId").asLong());
+        assertEquals(orderIds.get(0), page1.get("data").get(0).get("orderId").asLong());
+        JsonNode asc = json("/api/v5/simple-orders?itemId=" + itemId + "&sort=id,asc");
+        assertEquals(orderIds, asc.get("data").findValues("orderId").stream().map(JsonNode::asLong).toList());
+    }
+
+    private List<Long> ids(String url, String field) throws Exception {
+        List<Long> ids = new ArrayList<>();
+        json(url).forEach(order -> ids.add(order.get(field).asLong()));
+        return ids;
+    }
+
+    private JsonNode json(String url) throws Exception {
+        return objectMapper.readTree(mockMvc.perform(get(url).accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString());
+    }
+
+    private double failures() {
+        Counter counter = meterRegistry.find("shard.replication.failures").tag("shard", "1").counter();
+        return counter == null ? 0 : counter.count();
+    }
+
+    //샤드 shard에 속한 새 회원 (이름은 중복 가입 검사에 걸리지 않도록 매번 다르게)
+    private Long memberOn(int shard, String name) {
+        while (true) {
+            Long memberId = join(name + MEMBER_SEQ.incrementAndGet());
+            if (orderShards.shardOf(memberId) == shard) {
+                return memberId;
+            }
+        }
+    }
+
+    private Long join(String name) {
+        Member member = new Member();
+        member.setName(name);
+        return memberService.join(member);
+    }
+
+    private Long saveBook(String name, int stockQuantity) {
+        Book book = new Book();
+        book.setName(name);
+        book.setPrice(1000);
+        book.setStockQuantity(stockQuantity);
+        return itemService.saveItem(book);
+    }
+
+    private int countOrders(int shard, Long orderId) {
+        return shard(shard).queryForObject("select count(*) from orders where order_id = ?", Integer.class, orderId);
+    }
+
+    private int stock(int shard, Long itemId) {
+        return shard(shard).queryForObject("select stock_quantity from item where item_id = ?", Integer.class, itemId);
+    }
+
+    private JdbcTemplate shard(int shard) {
+        return new JdbcTemplate(shardDataSources.shard(shard));
+    }
+}
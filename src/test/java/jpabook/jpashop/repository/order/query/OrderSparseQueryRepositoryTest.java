@@ -0,0 +1,204 @@
+package jpabook.jpashop.repository.order.query;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jpabook.jpashop.domain.Address;
+import jpabook.jpashop.domain.Member;
+import jpabook.jpashop.domain.item.Book;
+import jpabook.jpashop.exception.InvalidRequestException;
+import jpabook.jpashop.service.OrderService;
+import com.p6spy.engine.common.ResultSetInformation;
+import com.p6spy.engine.event.SimpleJdbcEventListener;
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.nio.charset.StandardCharsets;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * ?fields= 좁은 요청(orderId, orderStatus)과 전체 필드 요청을 비교한다.
+ * 실행된 SQL은 StatementInspector로 모아서 개수와 조인을 보고, JSON 크기를 비교한다.
+ * DB에서 읽은 양은 p6spy 리스너로 ResultSet에서 꺼낸 값의 바이트 수를 더해서 재고 (문자열은 UTF-8, 숫자/시각은 자료형 크기),
+ * 조회 시간은 워밍업 뒤 평균을 재서 단정 메시지에 같이 남긴다.
+ */
+@SpringBootTest(properties = "spring.jpa.properties.hibernate.session_factory.statement_inspector="
+        + "jpabook.jpashop.repository.order.query.OrderSparseQueryRepositoryTest$SqlCapture")
+@Transactional
+class OrderSparseQueryRepositoryTest {
+
+    private static final int ORDER_COUNT = 500;
+    private static final String FULL = "orderId,name,orderDate,orderStatus,address,orderItems.*";
+    private static final String NARROW = "orderStatus, orderId";
+    private static final int WARMUP = 10;
+    private static final int RUNS = 30;
+
+    @PersistenceContext
+    EntityManager em;
+
+    @Autowired
+    OrderService orderService;
+    @Autowired
+    OrderSparseQueryRepository orderSparseQueryRepository;
+    @Autowired
+    ObjectMapper objectMapper;
+
+    @Test
+    public void 좁은필드_전체필드_비교() throws Exception {
+        //Given
+        createOrders();
+
+        //When
+        List<String> narrowSql = capture(() -> findOrders(NARROW));
+        long narrowBytes = SqlCapture.resultBytes();
+        List<String> fullSql = capture(() -> findOrders(FULL));
+        long fullBytes = SqlCapture.resultBytes();
+        String report = report(NARROW, narrowSql, narrowBytes) + ", " + report(FULL, fullSql, fullBytes);
+
+        //Then - 좁은 요청은 조인 없이 orders만, 주문 상품 쿼리도 없다
+        assertEquals(1, narrowSql.size(), "주문 쿼리 한번 - " + report);
+        assertFalse(narrowSql.get(0).contains("join"), "member, delivery 조인 없음");
+        assertEquals(2, fullSql.size(), "주문 + 주문 상품 - " + report);
+        assertTrue(narrowBytes * 3 < fullBytes, "DB에서 읽은 양 - " + report);
+        assertTrue(json(NARROW) * 3 < json(FULL), "응답 크기 - " + report);
+        assertSame(OrderFieldSet.of("orderId,orderStatus"), OrderFieldSet.of("orderStatus, orderId"), "필드 집합별 캐시");
+        assertThrows(InvalidRequestException.class, () -> OrderFieldSet.of("password"));
+    }
+
+    private List<SparseOrder> findOrders(String fields) {
+        List<SparseOrder> orders = orderSparseQueryRepository.findOrders(OrderFieldSet.of(fields), null, ORDER_COUNT);
+        assertEquals(ORDER_COUNT, orders.size());
+        return orders;
+    }
+
+    //"fields: SQL n개, 결과 x bytes, JSON y bytes, 조회 z ms"
+    private String report(String fields, List<String> sql, long resultBytes) throws Exception {
+        for (int i = 0; i < WARMUP; i++) {
+            orderSparseQueryRepository.findOrders(OrderFieldSet.of(fields), null, ORDER_COUNT);
+            em.clear();
+        }
+        long start = System.nanoTime();
+        for (int i = 0; i < RUNS; i++) {
+            orderSparseQueryRepository.findOrders(OrderFieldSet.of(fields), null, ORDER_COUNT);
+            em.clear();
+        }
+        double millis = (System.nanoTime() - start) / 1e6 / RUNS;
+        return String.format("[%s] SQL %d개, 결과 %d bytes, JSON %d bytes, 조회 %.2f ms",
+                fields, sql.size(), resultBytes, json(fields), millis);
+    }
+
+    private int json(String fields) throws Exception {
+        return objectMapper.writeValueAsBytes(findOrders(fields)).length;
+    }
+
+    //이 테스트 스레드에서 나간 select만 모은다 (스케줄러 등 다른 스레드의 SQL은 빼고)
+    private List<String> capture(Runnable query) {
+        SqlCapture.start();
+        try {
+            query.run();
+            return SqlCapture.statements();
+        } finally {
+            SqlCapture.stop();
+        }
+    }
+
+    private void createOrders() {
+        Member member = new Member();
+        member.setName("회원1");
+        member.setAddress(new Address("서울", "강가", "123-123"));
+        em.persist(member);
+        Book book = new Book();
+        book.setName("JPA in Action");
+        book.setPrice(10000);
+        book.setStockQuantity(ORDER_COUNT);
+        em.persist(book);
+        for (int i = 0; i < ORDER_COUNT; i++) {
+            orderService.order(member.getId(), book.getId(), 1);
+        }
+        em.flush();
+        em.clear();
+    }
+
+    public static class SqlCapture implements StatementInspector {
+        private static final Queue<String> statements = new ConcurrentLinkedQueue<>();
+        private static final AtomicLong resultBytes = new AtomicLong();
+        private static volatile Thread capturing;
+
+        static void start() {
+            statements.clear();
+            resultBytes.set(0);
+            capturing = Thread.currentThread();
+        }
+
+        static long resultBytes() {
+            return resultBytes.get();
+        }
+
+        static void stop() {
+            capturing = null;
+        }
+
+        static List<String> statements() {
+            return new ArrayList<>(statements);
+        }
+
+        @Override
+        public String inspect(String sql) {
+            if (Thread.currentThread() == capturing && sql.startsWith("select")) {
+                statements.add(sql);
+            }
+            return sql;
+        }
+
+        static boolean capturing() {
+            return Thread.currentThread() == capturing;
+        }
+
+        static void read(Object value) {
+            if (value instanceof String string) {
+                resultBytes.addAndGet(string.getBytes(StandardCharsets.UTF_8).length);
+            } else if (value instanceof Integer) {
+                resultBytes.addAndGet(Integer.BYTES);
+            } else if (value != null) {
+                resultBytes.addAndGet(Long.BYTES); //Long, 시각
+            }
+        }
+    }
+
+    //ResultSet에서 꺼낸 값의 크기를 SqlCapture에 더한다
+    static class ResultBytes extends SimpleJdbcEventListener {
+        @Override
+        public void onAfterResultSetGet(ResultSetInformation info, int columnIndex, Object value, SQLException e) {
+            if (SqlCapture.capturing()) {
+                SqlCapture.read(value);
+            }
+        }
+
+        @Override
+        public void onAfterResultSetGet(ResultSetInformation info, String columnLabel, Object value, SQLException e) {
+            if (SqlCapture.capturing()) {
+                SqlCapture.read(value);
+            }
+        }
+    }
+
+    @TestConfiguration
+    static class Config {
+        @Bean
+        ResultBytes resultBytes() {
+            return new ResultBytes();
+        }
+    }
+}
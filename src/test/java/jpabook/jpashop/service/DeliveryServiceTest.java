@@ -0,0 +1,93 @@
+package jpabook.jpashop.service;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jpabook.jpashop.domain.Address;
+import jpabook.jpashop.domain.DeliveryStatus;
+import jpabook.jpashop.domain.Member;
+import jpabook.jpashop.domain.Order;
+import jpabook.jpashop.domain.item.Book;
+import jpabook.jpashop.domain.item.Item;
+import jpabook.jpashop.exception.InvalidRequestException;
+import jpabook.jpashop.repository.OrderRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest
+@Transactional
+class DeliveryServiceTest {
+
+    @PersistenceContext
+    EntityManager em;
+
+    @Autowired
+    DeliveryService deliveryService;
+    @Autowired
+    OrderService orderService;
+    @Autowired
+    OrderRepository orderRepository;
+
+    @Test
+    public void 배송상태_일괄변경() throws Exception {
+        //Given - 배송 준비 주문 1건, 취소된 주문 1건
+        Member member = createMember();
+        Item item = createBook("JPA in Action", 10000, 10);
+        Order ready = orderRepository.findOne(orderService.order(member.getId(), item.getId(), 1));
+        Order canceled = orderRepository.findOne(orderService.order(member.getId(), item.getId(), 1));
+        orderService.cancelOrder(canceled.getId());
+        Long readyId = ready.getDelivery().getId();
+        Long canceledId = canceled.getDelivery().getId();
+
+        //When
+        List<DeliveryTransitionResult> results = deliveryService.transition(
+                List.of(readyId, canceledId, -1L), DeliveryStatus.READY, DeliveryStatus.COMP);
+
+        //Then - 요청 순서대로 결과, 영속성 컨텍스트에 있던 배송도 새 상태
+        assertEquals(DeliveryTransitionResult.Outcome.UPDATED, results.get(0).getOutcome());
+        assertEquals(DeliveryTransitionResult.Outcome.ORDER_CANCELED, results.get(1).getOutcome());
+        assertEquals(DeliveryTransitionResult.Outcome.NOT_FOUND, results.get(2).getOutcome());
+        assertEquals(DeliveryStatus.COMP, ready.getDelivery().getStatus());
+        em.flush();
+        em.clear();
+        assertEquals(DeliveryStatus.COMP, orderRepository.findOne(ready.getId()).getDelivery().getStatus(), "DB 반영");
+        //같은 요청을 다시 보내면 이미 바뀐 것으로 나온다
+        assertEquals(DeliveryTransitionResult.Outcome.STATUS_MISMATCH, deliveryService.transition(
+                List.of(readyId), DeliveryStatus.READY, DeliveryStatus.COMP).get(0).getOutcome());
+    }
+
+    @Test
+    public void 잘못된_요청은_거절() throws Exception {
+        //빈 목록
+        assertThrows(InvalidRequestException.class,
+                () -> deliveryService.transition(List.of(), DeliveryStatus.READY, DeliveryStatus.COMP));
+        //뒤로 가는 변경
+        assertThrows(InvalidRequestException.class,
+                () -> deliveryService.transition(List.of(1L), DeliveryStatus.COMP, DeliveryStatus.READY));
+        //상태 누락
+        assertThrows(InvalidRequestException.class,
+                () -> deliveryService.transitionAll(DeliveryStatus.READY, null, null, 10));
+    }
+
+    private Member createMember() {
+        Member member = new Member();
+        member.setName("회원1");
+        member.setAddress(new Address("서울", "강가", "123-123"));
+        em.persist(member);
+        return member;
+    }
+
+    private Book createBook(String name, int price, int stockQuantity) {
+        Book book = new Book();
+        book.setName(name);
+        book.setStockQuantity(stockQuantity);
+        book.setPrice(price);
+        em.persist(book);
+        return book;
+    }
+}
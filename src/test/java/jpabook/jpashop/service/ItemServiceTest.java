@@ -3,9 +3,11 @@ package jpabook.jpashop.service;
 import jpabook.jpashop.domain.item.Book;
 import jpabook.jpashop.domain.item.Item;
 import jpabook.jpashop.repository.ItemRepository;
+import jpabook.jpashop.repository.item.query.ItemQueryDto;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.Slice;
 import org.springframework.transaction.annotation.Transactional;
 
 import static org.junit.jupiter.api.Assertions.*;
@@ -30,4 +32,19 @@ class ItemServiceTest {
         assertEquals(book, itemRepository.findOne(id));
     }
 
+    @Test
+    public void 상품목록페이지() {
+        //Given
+        for (int i = 0; i < 3; i++) {
+            Book book = new Book();
+            book.setName("JPA" + i);
+            itemService.saveItem(book);
+        }
+        //When
+        Slice<ItemQueryDto> page = itemService.findItemPage(0, 2);
+        //Then - 2건만 가져오고 다음 페이지가 있다고 알려준다
+        assertEquals(2, page.getNumberOfElements());
+        assertTrue(page.hasNext());
+    }
+
 }
\ No newline at end of file
@@ -0,0 +1,108 @@
+package jpabook.jpashop.service;
+
+import jpabook.jpashop.domain.Member;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+//무효화는 커밋 이후에 일어나므로 테스트 트랜잭션 없이 실행한다
+@SpringBootTest
+@AutoConfigureMockMvc
+class MemberListCacheTest {
+
+    @Autowired
+    MockMvc mockMvc;
+    @Autowired
+    MemberService memberService;
+    @Autowired
+    MemberListCache memberListCache;
+
+    @Test
+    public void 회원가입_수정하면_목록캐시_무효화() throws Exception {
+        //Given - 캐시를 채운다
+        String before = membersV2();
+        assertSame(memberListCache.get("v2:application/json", () -> fail("캐시 히트면 조회하지 않는다")),
+                memberListCache.get("v2:application/json", () -> fail("캐시 히트면 조회하지 않는다")));
+
+        //When - 가입
+        Member member = new Member();
+        member.setName("캐시-" + UUID.randomUUID());
+        Long memberId = memberService.join(member);
+
+        //Then - 다음 요청은 새 회원이 들어간 목록
+        String afterJoin = membersV2();
+        assertFalse(before.contains(member.getName()));
+        assertTrue(afterJoin.contains(member.getName()));
+
+        //When - 이름 수정
+        String renamed = "수정-" + UUID.randomUUID();
+        memberService.update(memberId, renamed);
+
+        //Then
+        assertTrue(membersV2().contains(renamed));
+    }
+
+    @Test
+    public void 같은키_동시요청은_한번만_조회() throws Exception {
+        String key = "test:" + UUID.randomUUID();
+        AtomicInteger loads = new AtomicInteger();
+        CountDownLatch loading = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<byte[]>> results = new ArrayList<>();
+            for (int i = 0; i < 8; i++) {
+                results.add(executor.submit(() -> memberListCache.get(key, () -> {
+                    loads.incrementAndGet();
+                    await(loading);
+                    return new byte[]{1};
+                })));
+            }
+            Thread.sleep(200); //나머지 요청이 조회 중인 future를 기다리게
+            loading.countDown();
+            for (Future<byte[]> result : results) {
+                assertArrayEquals(new byte[]{1}, result.get());
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        assertEquals(1, loads.get(), "스탬피드 방지");
+    }
+
+    @Test
+    public void 조회실패는_캐시하지_않음() {
+        String key = "test:" + UUID.randomUUID();
+        assertThrows(IllegalStateException.class, () -> memberListCache.get(key, () -> {
+            throw new IllegalStateException("db down");
+        }));
+        assertArrayEquals(new byte[]{2}, memberListCache.get(key, () -> new byte[]{2}));
+    }
+
+    private String membersV2() throws Exception {
+        return mockMvc.perform(get("/api/v2/members"))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,112 @@
+package jpabook.jpashop.service;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jpabook.jpashop.domain.Address;
+import jpabook.jpashop.domain.DeliveryStatus;
+import jpabook.jpashop.domain.Member;
+import jpabook.jpashop.domain.OrderStatus;
+import jpabook.jpashop.domain.item.Book;
+import jpabook.jpashop.domain.item.Item;
+import jpabook.jpashop.exception.InvalidRequestException;
+import jpabook.jpashop.repository.OrderRepository;
+import jpabook.jpashop.service.rollup.SalesRollupQuery;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest
+@Transactional
+class OrderBulkCancelServiceTest {
+
+    @PersistenceContext
+    EntityManager em;
+
+    @Autowired
+    OrderBulkCancelService orderBulkCancelService;
+    @Autowired
+    OrderService orderService;
+    @Autowired
+    OrderRepository orderRepository;
+    @Autowired
+    DeliveryService deliveryService;
+    @Autowired
+    SalesRollupQuery salesRollupQuery;
+
+    @Test
+    public void 주문일괄취소() throws Exception {
+        //Given - 같은 상품 주문 2건, 배송완료 주문 1건
+        Member member = createMember();
+        Item item = createBook("JPA in Action", 10000, 10);
+        Long orderId1 = orderService.order(member.getId(), item.getId(), 2);
+        Long orderId2 = orderService.order(member.getId(), item.getId(), 3);
+        Long delivered = orderService.order(member.getId(), item.getId(), 1);
+        deliveryService.transition(List.of(orderRepository.findOne(delivered).getDelivery().getId()),
+                DeliveryStatus.READY, DeliveryStatus.COMP);
+
+        //When
+        List<OrderCancelResult> results = orderBulkCancelService.cancelOrders(
+                List.of(orderId1, orderId2, delivered, -1L));
+
+        //Then - 요청 순서대로 결과, 재고는 상품별로 합쳐서 한번에 되돌린다
+        assertEquals(OrderCancelResult.Outcome.CANCELED, results.get(0).getOutcome());
+        assertEquals(OrderCancelResult.Outcome.CANCELED, results.get(1).getOutcome());
+        assertEquals(OrderCancelResult.Outcome.DELIVERED, results.get(2).getOutcome());
+        assertEquals(OrderCancelResult.Outcome.NOT_FOUND, results.get(3).getOutcome());
+        assertEquals(9, item.getStockQuantity(), "영속성 컨텍스트의 상품 재고");
+        assertEquals(OrderStatus.CANCEL, orderRepository.findOne(orderId1).getStatus());
+        //같은 요청을 다시 보내면 이미 취소된 것으로 나오고 재고는 그대로
+        assertEquals(OrderCancelResult.Outcome.ALREADY_CANCELED,
+                orderBulkCancelService.cancelOrders(List.of(orderId1)).get(0).getOutcome());
+        em.flush();
+        em.clear();
+        assertEquals(9, em.find(Item.class, item.getId()).getStockQuantity(), "DB 반영");
+    }
+
+    @Test
+    public void 일괄취소는_롤업과_아웃박스에_반영() throws Exception {
+        //Given
+        Member member = createMember();
+        Item item = createBook("JPA in Action", 10000, 10);
+        Long orderId1 = orderService.order(member.getId(), item.getId(), 2);
+        Long orderId2 = orderService.order(member.getId(), item.getId(), 1);
+        orderService.order(member.getId(), item.getId(), 1);
+
+        //When
+        orderBulkCancelService.cancelOrders(List.of(orderId1, orderId2));
+
+        //Then - 남은 주문 1건의 매출, 취소 이벤트는 주문마다 하나
+        assertEquals(10000, salesRollupQuery.memberSales(member.getId()).getRevenue(), "회원 누적 매출");
+        assertEquals(2L, em.createQuery("select count(e) from OutboxEvent e" +
+                        " where e.eventType = 'OrderCancelled' and e.aggregateId in :orderIds", Long.class)
+                .setParameter("orderIds", List.of(orderId1, orderId2))
+                .getSingleResult());
+    }
+
+    @Test
+    public void 빈_목록은_거절() throws Exception {
+        assertThrows(InvalidRequestException.class, () -> orderBulkCancelService.cancelOrders(List.of()));
+    }
+
+    private Member createMember() {
+        Member member = new Member();
+        member.setName("회원1");
+        member.setAddress(new Address("서울", "강가", "123-123"));
+        em.persist(member);
+        return member;
+    }
+
+    private Book createBook(String name, int price, int stockQuantity) {
+        Book book = new Book();
+        book.setName(name);
+        book.setStockQuantity(stockQuantity);
+        book.setPrice(price);
+        em.persist(book);
+        return book;
+    }
+}
@@ -5,16 +5,26 @@ import jakarta.persistence.PersistenceContext;
 import jpabook.jpashop.domain.Address;
 import jpabook.jpashop.domain.Member;
 import jpabook.jpashop.domain.Order;
+import jpabook.jpashop.domain.OrderSearch;
 import jpabook.jpashop.domain.OrderStatus;
 import jpabook.jpashop.domain.item.Book;
 import jpabook.jpashop.domain.item.Item;
+import jpabook.jpashop.exception.IdempotencyKeyException;
 import jpabook.jpashop.exception.NotEnoughStockException;
 import jpabook.jpashop.repository.OrderRepository;
+import jpabook.jpashop.service.idempotency.IdempotentOrderResult;
+import jpabook.jpashop.service.idempotency.IdempotentOrderService;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.util.List;
+import java.util.UUID;
+
 import static org.junit.jupiter.api.Assertions.*;
 
 @SpringBootTest
@@ -28,6 +38,8 @@ class OrderServiceTest {
     OrderService orderService;
     @Autowired
     OrderRepository orderRepository;
+    @Autowired
+    IdempotentOrderService idempotentOrderService;
 
     @Test
     public void 상품주문() throws Exception {
@@ -83,6 +95,46 @@ class OrderServiceTest {
         assertEquals(10,item.getStockQuantity(),"재고 수량 다시 증가");
     }
 
+    @Test
+    public void 주문검색_상품조건_페이징() throws Exception {
+        //Given - 같은 책을 두번, 다른 책을 한번 주문
+        Member member = createMember();
+        Item book1 = createBook("검색용 책1", 10000, 10);
+        Item book2 = createBook("검색용 책2", 10000, 10);
+        orderService.order(member.getId(), book1.getId(), 1);
+        orderService.order(member.getId(), book1.getId(), 1);
+        orderService.order(member.getId(), book2.getId(), 1);
+        //When - 책1을 포함한 주문을 한 건씩 페이징
+        OrderSearch orderSearch = new OrderSearch();
+        orderSearch.setItemId(book1.getId());
+        Page<Order> page = orderService.searchOrders(orderSearch,
+                PageRequest.of(0, 1, Sort.by(Sort.Direction.DESC, "orderDate")));
+        //Then
+        assertEquals(2, page.getTotalElements(), "상품 조건에 맞는 전체 주문 수");
+        assertEquals(1, page.getContent().size(), "페이지 크기만큼만 조회");
+    }
+
+    @Test
+    public void 멱등키_주문_재요청() throws Exception {
+        //Given
+        Member member = createMember();
+        Item item = createBook("JPA in Action", 10000, 10);
+        String key = UUID.randomUUID().toString();
+        IdempotentOrderResult first = idempotentOrderService.order(key, member.getId(), item.getId(), 2);
+
+        //When - 같은 키로 다시 주문
+        IdempotentOrderResult again = idempotentOrderService.order(key, member.getId(), item.getId(), 2);
+
+        //Then - 처음 만든 주문이 나오고 재고는 한번만 줄어든다
+        assertFalse(first.isReplayed());
+        assertTrue(again.isReplayed());
+        assertEquals(first.getOrderId(), again.getOrderId());
+        assertEquals(8, item.getStockQuantity(), "재고는 한번만 감소");
+        //같은 키로 다른 수량을 보내면 거절
+        assertThrows(IdempotencyKeyException.class,
+                () -> idempotentOrderService.order(key, member.getId(), item.getId(), 3));
+    }
+
     private Member createMember() {
         Member member = new Member();
         member.setName("회원1");
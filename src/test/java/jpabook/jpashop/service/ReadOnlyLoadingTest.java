@@ -0,0 +1,89 @@
+package jpabook.jpashop.service;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jpabook.jpashop.domain.Address;
+import jpabook.jpashop.domain.Member;
+import jpabook.jpashop.domain.Order;
+import jpabook.jpashop.domain.item.Book;
+import jpabook.jpashop.repository.OrderRepository;
+import org.hibernate.engine.spi.EntityEntry;
+import org.hibernate.engine.spi.SessionImplementor;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 주문 2,000건을 V3(fetch join)로 올릴 때 일반 로딩과 읽기 전용 로딩을 비교한다.
+ * 할당량과 GC는 환경마다 다르므로 검증하지 않고, 읽기 전용 엔티티에 스냅샷이 없는지만 검증한다.
+ * 다른 테스트가 커밋한 주문도 같이 조회되므로 이 테스트 회원의 주문만 센다.
+ */
+@SpringBootTest
+@Transactional
+class ReadOnlyLoadingTest {
+
+    private static final int ORDER_COUNT = 2_000;
+
+    @PersistenceContext
+    EntityManager em;
+
+    @Autowired
+    OrderService orderService;
+    @Autowired
+    OrderRepository orderRepository;
+    @Autowired
+    ReadOnlyLoading readOnlyLoading;
+
+    @Test
+    public void 읽기전용로딩_스냅샷_비교() throws Exception {
+        //Given
+        Long memberId = createOrders();
+
+        //When
+        List<Order> normal = em.createQuery(
+                "select distinct o from Order o join fetch o.member join fetch o.delivery" +
+                        " join fetch o.orderItems oi join fetch oi.item", Order.class).getResultList();
+        EntityEntry normalEntry = entry(normal.get(0));
+        assertNotNull(normalEntry.getLoadedState(), "일반 로딩은 스냅샷을 가진다");
+        em.clear();
+
+        List<Order> readOnly = readOnlyLoading.load(orderRepository::findAllWithItem).stream()
+                .filter(o -> o.getMember().getId().equals(memberId))
+                .toList();
+
+        //Then
+        assertEquals(ORDER_COUNT, readOnly.size());
+        EntityEntry readOnlyEntry = entry(readOnly.get(0));
+        assertTrue(readOnlyEntry.isReadOnly());
+        assertNull(readOnlyEntry.getLoadedState(), "읽기 전용 로딩은 스냅샷이 없다");
+        assertNull(entry(readOnly.get(0).getOrderItems().get(0).getItem()).getLoadedState(),
+                "fetch join으로 같이 올라온 엔티티도 읽기 전용");
+    }
+
+    private EntityEntry entry(Object entity) {
+        return em.unwrap(SessionImplementor.class).getPersistenceContextInternal().getEntry(entity);
+    }
+
+    private Long createOrders() {
+        Member member = new Member();
+        member.setName("회원1");
+        member.setAddress(new Address("서울", "강가", "123-123"));
+        em.persist(member);
+        Book book = new Book();
+        book.setName("JPA in Action");
+        book.setPrice(10000);
+        book.setStockQuantity(ORDER_COUNT);
+        em.persist(book);
+        for (int i = 0; i < ORDER_COUNT; i++) {
+            orderService.order(member.getId(), book.getId(), 1);
+        }
+        em.flush();
+        em.clear();
+        return member.getId();
+    }
+}
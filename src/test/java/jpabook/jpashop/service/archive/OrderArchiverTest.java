@@ -0,0 +1,91 @@
+package jpabook.jpashop.service.archive;
+
+import jakarta.persistence.EntityManager;
+import jpabook.jpashop.domain.Order;
+import jpabook.jpashop.domain.OrderStatus;
+import jpabook.jpashop.service.ItemService;
+import jpabook.jpashop.service.MemberService;
+import jpabook.jpashop.service.OrderService;
+import jpabook.jpashop.service.OrderStatusCounter;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.web.servlet.MockMvc;
+
+import static org.hamcrest.Matchers.hasItem;
+import static org.hamcrest.Matchers.not;
+import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+//보관 작업은 배치마다 커밋하므로 테스트 트랜잭션 없이 실행한다. 나이 기준 0이면 끝난 주문은 모두 보관 대상이다
+@SpringBootTest(properties = {
+        "jpashop.archive.enabled=true",
+        "jpashop.archive.age=0s",
+        "jpashop.archive.pause=0ms",
+        "jpashop.archive.purge-age=0s"
+})
+@AutoConfigureMockMvc
+class OrderArchiverTest {
+
+    @Autowired
+    MockMvc mockMvc;
+    @Autowired
+    OrderArchiver orderArchiver;
+    @Autowired
+    OrderService orderService;
+    @Autowired
+    MemberService memberService;
+    @Autowired
+    ItemService itemService;
+    @Autowired
+    OrderStatusCounter orderStatusCounter;
+    @Autowired
+    EntityManager em;
+
+    @Test
+    public void 끝난주문은_보관되고_단건조회는_보관테이블까지_찾는다() throws Exception {
+        //Given - 진행 중인 주문 하나, 취소된 주문 하나
+        Long memberId = memberService.findMembers().get(0).getId();
+        Long itemId = itemService.findItems().get(0).getId();
+        Long open = orderService.order(memberId, itemId, 1);
+        Long cancelled = orderService.order(memberId, itemId, 1);
+        orderService.cancelOrder(cancelled);
+
+        //When
+        assertTrue(orderArchiver.archive() >= 1);
+
+        //Then - 취소된 주문만 hot 테이블에서 빠진다
+        assertNull(em.find(Order.class, cancelled));
+        assertNotNull(em.find(Order.class, open));
+        assertEquals(hotCount(OrderStatus.CANCEL), orderStatusCounter.count(OrderStatus.CANCEL),
+                "보관한 주문은 상태별 건수에서 빠진다");
+        assertEquals(hotCount(OrderStatus.ORDER), orderStatusCounter.count(OrderStatus.ORDER));
+        mockMvc.perform(get("/api/v5.1/orders").param("fields", "orderId"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.data[*].orderId", hasItem(open.intValue())))
+                .andExpect(jsonPath("$.data[*].orderId", not(hasItem(cancelled.intValue()))));
+        mockMvc.perform(get("/api/orders/{orderId}", cancelled))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.orderStatus").value("CANCEL"))
+                .andExpect(jsonPath("$.orderItems[0].count").value(1));
+
+        //When - 보관 기간도 지나면 지운다
+        assertTrue(orderArchiver.purge() >= 1);
+
+        //Then
+        mockMvc.perform(get("/api/orders/{orderId}", cancelled))
+                .andExpect(status().isNotFound());
+        mockMvc.perform(get("/api/orders/{orderId}", open))
+                .andExpect(status().isOk());
+    }
+
+    //hot 테이블의 상태별 주문 수
+    private long hotCount(OrderStatus status) {
+        return em.createQuery("select count(o) from Order o where o.status = :status", Long.class)
+                .setParameter("status", status)
+                .getSingleResult();
+    }
+}
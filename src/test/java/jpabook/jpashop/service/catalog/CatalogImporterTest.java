@@ -0,0 +1,130 @@
+package jpabook.jpashop.service.catalog;
+
+import jpabook.jpashop.domain.catalog.CatalogImportJob;
+import jpabook.jpashop.domain.item.Book;
+import jpabook.jpashop.domain.item.Item;
+import jpabook.jpashop.exception.InvalidRequestException;
+import jpabook.jpashop.service.ItemService;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import jakarta.persistence.EntityManager;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+//작업은 별도 스레드에서 청크마다 커밋하므로 테스트 트랜잭션 없이 실행한다
+@SpringBootTest(properties = {
+        "jpashop.catalog-import.directory=build/catalog-import-test",
+        "jpashop.catalog-import.chunk-size=2"
+})
+class CatalogImporterTest {
+
+    private static final String HEADER = "id,dtype,name,price,stock_quantity,author,isbn,artist";
+
+    @Autowired
+    CatalogImporter catalogImporter;
+    @Autowired
+    ItemService itemService;
+    @Autowired
+    EntityManager em;
+    @Autowired
+    TransactionTemplate tx;
+
+    @Test
+    public void 신규와_수정을_청크로_가져온다() throws Exception {
+        //Given - 기존 상품 1개, 신규 2줄, 수정 1줄, 잘못된 줄 2개 (알 수 없는 dtype, 없는 상품)
+        String prefix = UUID.randomUUID().toString();
+        Book existing = new Book();
+        existing.setName(prefix + "-기존");
+        existing.setPrice(1000);
+        existing.setStockQuantity(1);
+        itemService.saveItem(existing);
+        String file = write(HEADER,
+                "," + "B," + prefix + "-책,10000,5,김영한,111",
+                ",A," + prefix + "-앨범,20000,3,,,\"아이유, 밴드\"",
+                existing.getId() + ",B," + prefix + "-수정,15000,7,김영한,222",
+                ",X," + prefix + "-잘못,1,1",
+                "-1,B," + prefix + "-없음,1,1");
+
+        //When
+        CatalogImportJob job = await(catalogImporter.start(file).getId());
+
+        //Then
+        assertEquals(CatalogImportJob.Status.COMPLETED, job.getStatus());
+        assertEquals(5, job.getProcessedLines());
+        assertEquals(2, job.getCreated());
+        assertEquals(1, job.getUpdated());
+        assertEquals(2, job.getFailed());
+        assertTrue(job.getLastError().contains("item_id=-1"), job.getLastError());
+        Book updated = (Book) itemService.findOne(existing.getId());
+        assertEquals(prefix + "-수정", updated.getName());
+        assertEquals(15000, updated.getPrice());
+        assertEquals(7, updated.getStockQuantity());
+        assertEquals(3, items(prefix).size(), "신규 2개 + 수정 1개");
+        assertTrue(items(prefix).stream().anyMatch(i -> i.getName().equals(prefix + "-앨범")));
+    }
+
+    @Test
+    public void 체크포인트_다음_줄부터_이어서_가져온다() throws Exception {
+        //Given - 앞 청크(2줄)까지 커밋하고 멈춘 작업
+        String prefix = UUID.randomUUID().toString();
+        String file = write(HEADER,
+                ",B," + prefix + "-1,1000,1,,",
+                ",B," + prefix + "-2,1000,1,,",
+                ",B," + prefix + "-3,1000,1,,",
+                ",B," + prefix + "-4,1000,1,,");
+        Long jobId = tx.execute(status -> {
+            CatalogImportJob job = CatalogImportJob.start(file);
+            job.checkpoint(2, 2, 0, 0, null);
+            job.fail("서버 종료");
+            em.persist(job);
+            return job.getId();
+        });
+
+        //When
+        CatalogImportJob job = await(catalogImporter.resume(jobId).getId());
+
+        //Then - 3, 4번째 줄만 들어간다
+        assertEquals(CatalogImportJob.Status.COMPLETED, job.getStatus());
+        assertEquals(4, job.getProcessedLines());
+        assertEquals(4, job.getCreated(), "이전 청크 포함 누적");
+        assertEquals(List.of(prefix + "-3", prefix + "-4"), items(prefix).stream().map(Item::getName).sorted().toList());
+        //끝난 작업은 다시 시작할 수 없다
+        assertThrows(IllegalStateException.class, () -> catalogImporter.resume(jobId));
+    }
+
+    @Test
+    public void 디렉터리_밖의_파일은_거절() throws Exception {
+        assertThrows(InvalidRequestException.class, () -> catalogImporter.start("../../build.gradle"));
+        assertThrows(InvalidRequestException.class, () -> catalogImporter.start("missing.csv"));
+    }
+
+    private String write(String... lines) throws Exception {
+        Path directory = Files.createDirectories(Path.of("build/catalog-import-test"));
+        String fileName = UUID.randomUUID() + ".csv";
+        Files.write(directory.resolve(fileName), List.of(lines));
+        return fileName;
+    }
+
+    private CatalogImportJob await(Long jobId) throws InterruptedException {
+        for (int i = 0; i < 100; i++) {
+            CatalogImportJob job = catalogImporter.findJob(jobId);
+            if (job.getStatus() != CatalogImportJob.Status.RUNNING) {
+                return job;
+            }
+            Thread.sleep(100);
+        }
+        fail("가져오기가 끝나지 않음");
+        return null;
+    }
+
+    private List<Item> items(String prefix) {
+        return itemService.findItems().stream().filter(i -> i.getName().startsWith(prefix)).toList();
+    }
+}
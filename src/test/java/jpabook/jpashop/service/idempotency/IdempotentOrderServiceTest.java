@@ -0,0 +1,127 @@
+package jpabook.jpashop.service.idempotency;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import jpabook.jpashop.config.shard.OrderShards;
+import jpabook.jpashop.domain.Member;
+import jpabook.jpashop.domain.item.Book;
+import jpabook.jpashop.repository.idempotency.OrderIdempotencyKeyRepository;
+import jpabook.jpashop.service.ItemService;
+import jpabook.jpashop.service.MemberService;
+import jpabook.jpashop.service.OrderService;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 다른 인스턴스는 같은 빈들로 IdempotentOrderService를 하나 더 만들어서 흉내낸다. (메모리 계층이 비어 있고 DB만 같다)
+ * 키는 커밋되어야 다른 요청에 보이므로 테스트 트랜잭션 없이 실행한다.
+ */
+@SpringBootTest
+class IdempotentOrderServiceTest {
+
+    @Autowired
+    IdempotentOrderService idempotentOrderService;
+    @Autowired
+    OrderService orderService;
+    @Autowired
+    OrderIdempotencyKeyRepository repository;
+    @Autowired
+    OrderShards orderShards;
+    @Autowired
+    OrderIdempotencyProperties properties;
+    @Autowired
+    PlatformTransactionManager transactionManager;
+    @Autowired
+    MeterRegistry meterRegistry;
+    @Autowired
+    MemberService memberService;
+    @Autowired
+    ItemService itemService;
+
+    @Test
+    public void 메모리에_없으면_DB의_키로_재생() throws Exception {
+        //Given
+        Long memberId = createMember();
+        Long itemId = createBook(10);
+        String key = UUID.randomUUID().toString();
+        IdempotentOrderResult first = idempotentOrderService.order(key, memberId, itemId, 2);
+        double replayedDb = meterRegistry.counter("order.idempotency.replayed", "tier", "db").count();
+
+        //When - 다른 인스턴스로 간 재시도
+        IdempotentOrderResult again = otherInstance().order(key, memberId, itemId, 2);
+
+        //Then
+        assertFalse(first.isReplayed());
+        assertTrue(again.isReplayed());
+        assertEquals(first.getOrderId(), again.getOrderId());
+        assertEquals(8, itemService.findOne(itemId).getStockQuantity(), "재고는 한번만 감소");
+        assertEquals(replayedDb + 1, meterRegistry.counter("order.idempotency.replayed", "tier", "db").count());
+    }
+
+    @Test
+    public void 같은_키_동시_요청은_주문_하나() throws Exception {
+        //Given - 두 인스턴스에 같은 키가 동시에 4개씩
+        Long memberId = createMember();
+        Long itemId = createBook(100);
+        String key = UUID.randomUUID().toString();
+        IdempotentOrderService other = otherInstance();
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<IdempotentOrderResult>> futures = new ArrayList<>();
+
+        //When
+        for (int i = 0; i < 8; i++) {
+            IdempotentOrderService service = i % 2 == 0 ? idempotentOrderService : other;
+            futures.add(executor.submit(() -> {
+                start.await();
+                return service.order(key, memberId, itemId, 1);
+            }));
+        }
+        start.countDown();
+        Set<Long> orderIds = new HashSet<>();
+        int created = 0;
+        for (Future<IdempotentOrderResult> future : futures) {
+            IdempotentOrderResult result = future.get();
+            orderIds.add(result.getOrderId());
+            created += result.isReplayed() ? 0 : 1;
+        }
+        executor.shutdown();
+
+        //Then - 주문은 하나, 모두 같은 주문 id
+        assertEquals(1, orderIds.size());
+        assertEquals(1, created);
+        assertEquals(99, itemService.findOne(itemId).getStockQuantity(), "재고는 한번만 감소");
+    }
+
+    private IdempotentOrderService otherInstance() {
+        return new IdempotentOrderService(orderService, repository, orderShards, properties, transactionManager,
+                meterRegistry);
+    }
+
+    private Long createMember() {
+        Member member = new Member();
+        member.setName("idempotency-" + UUID.randomUUID());
+        return memberService.join(member);
+    }
+
+    private Long createBook(int stockQuantity) {
+        Book book = new Book();
+        book.setName("JPA");
+        book.setPrice(10000);
+        book.setStockQuantity(stockQuantity);
+        return itemService.saveItem(book);
+    }
+}
@@ -0,0 +1,145 @@
+package jpabook.jpashop.service.outbox;
+
+import jpabook.jpashop.service.ItemService;
+import jpabook.jpashop.service.MemberService;
+import jpabook.jpashop.service.OrderService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+//릴레이는 기본으로 꺼져 있어서 이 테스트에서만 켠다. 스케줄 실행과 겹치지 않도록 간격은 길게
+@SpringBootTest(properties = {
+        "jpashop.outbox.relay.enabled=true",
+        "jpashop.outbox.relay.interval=PT1H",
+        "jpashop.outbox.relay.batch-size=2"
+})
+class OutboxRelayTest {
+
+    @Autowired
+    OutboxRelay outboxRelay;
+    @Autowired
+    Received received;
+    @Autowired
+    OrderService orderService;
+    @Autowired
+    MemberService memberService;
+    @Autowired
+    ItemService itemService;
+    @Autowired
+    JdbcTemplate jdbcTemplate;
+
+    @BeforeEach
+    void drain() {
+        outboxRelay.run();
+        received.messages.clear();
+        received.failing = false;
+    }
+
+    @Test
+    public void 주문_이벤트를_순서대로_보낸다() {
+        //Given
+        Long orderId = order();
+        orderService.cancelOrder(orderId);
+
+        //When - 배치 크기(2)보다 많아도 한번 실행에 다 보낸다
+        outboxRelay.run();
+
+        //Then
+        List<String> events = received.messages.stream()
+                .filter(m -> m.getAggregateId().equals(orderId))
+                .map(OutboxMessage::getEventType)
+                .toList();
+        assertEquals(List.of("OrderPlaced", "OrderCancelled"), events);
+        assertEquals(List.of(1L, 2L), sequences(orderId), "주문 안에서 순번대로");
+
+        //보낸 이벤트는 다시 보내지 않는다
+        received.messages.clear();
+        outboxRelay.run();
+        assertTrue(received.messages.isEmpty());
+    }
+
+    @Test
+    public void 보내다_실패하면_다음_실행에서_같은_이벤트부터_다시_보낸다() {
+        //Given
+        Long orderId = order();
+        received.failing = true;
+
+        //When - 싱크가 실패하면 표시하지 않는다
+        outboxRelay.run();
+        assertTrue(received.messages.isEmpty());
+
+        //Then - 복구되면 같은 이벤트를 보낸다 (최소 한번)
+        received.failing = false;
+        outboxRelay.run();
+        assertTrue(received.messages.stream()
+                .anyMatch(m -> m.getAggregateId().equals(orderId) && m.getEventType().equals("OrderPlaced")));
+    }
+
+    @Test
+    public void 이벤트_id가_뒤바뀌어도_주문_안에서는_순번대로_보낸다() {
+        //Given - 인스턴스 A에서 주문하고(id 할당 블록이 큰 쪽) 인스턴스 B에서 취소한(작은 쪽) 상황
+        //취소 이벤트의 id를 주문 이벤트보다 작게 바꾼다
+        Long orderId = order();
+        orderService.cancelOrder(orderId);
+        jdbcTemplate.update("update outbox_event" +
+                " set outbox_event_id = (select min(outbox_event_id) - 1 from outbox_event)" +
+                " where aggregate_id = ? and event_type = 'OrderCancelled'", orderId);
+
+        //When
+        outboxRelay.run();
+
+        //Then - id는 취소가 작지만 주문이 먼저 나간다
+        List<OutboxMessage> messages = received.messages.stream()
+                .filter(m -> m.getAggregateId().equals(orderId))
+                .toList();
+        assertEquals(List.of("OrderPlaced", "OrderCancelled"),
+                messages.stream().map(OutboxMessage::getEventType).toList());
+        assertTrue(messages.get(1).getId() < messages.get(0).getId());
+        assertEquals(List.of(1L, 2L), sequences(orderId));
+    }
+
+    private List<Long> sequences(Long orderId) {
+        return received.messages.stream()
+                .filter(m -> m.getAggregateId().equals(orderId))
+                .map(OutboxMessage::getSequence)
+                .toList();
+    }
+
+    private Long order() {
+        Long memberId = memberService.findMembers().get(0).getId();
+        Long itemId = itemService.findItems().get(0).getId();
+        return orderService.order(memberId, itemId, 1);
+    }
+
+    //기본 싱크(event)가 보내는 메시지를 받는다
+    static class Received {
+        final List<OutboxMessage> messages = new CopyOnWriteArrayList<>();
+        volatile boolean failing;
+
+        @EventListener
+        public void on(OutboxMessage message) {
+            if (failing) {
+                throw new IllegalStateException("sink down");
+            }
+            messages.add(message);
+        }
+    }
+
+    @TestConfiguration
+    static class Config {
+        @Bean
+        Received received() {
+            return new Received();
+        }
+    }
+}
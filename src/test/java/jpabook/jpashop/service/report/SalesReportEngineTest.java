@@ -0,0 +1,96 @@
+package jpabook.jpashop.service.report;
+
+import jpabook.jpashop.domain.OrderStatus;
+import jpabook.jpashop.domain.item.Book;
+import jpabook.jpashop.exception.InvalidRequestException;
+import jpabook.jpashop.service.ItemService;
+import jpabook.jpashop.service.MemberService;
+import jpabook.jpashop.service.OrderService;
+import jpabook.jpashop.service.archive.OrderArchiver;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.time.LocalDate;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+//리포트는 파티션마다 새 트랜잭션에서 읽으므로 테스트 트랜잭션 없이 실행한다. 나이 기준 0이면 끝난 주문은 모두 보관 대상이다
+@SpringBootTest(properties = {
+        "jpashop.archive.enabled=true",
+        "jpashop.archive.age=0s",
+        "jpashop.archive.pause=0ms"
+})
+@AutoConfigureMockMvc
+class SalesReportEngineTest {
+
+    @Autowired
+    MockMvc mockMvc;
+    @Autowired
+    SalesReportEngine salesReportEngine;
+    @Autowired
+    SalesReportJobs salesReportJobs;
+    @Autowired
+    OrderArchiver orderArchiver;
+    @Autowired
+    OrderService orderService;
+    @Autowired
+    MemberService memberService;
+    @Autowired
+    ItemService itemService;
+
+    @Test
+    public void 보관된_주문도_리포트에_들어간다() throws Exception {
+        //Given - 새 상품의 진행 중인 주문 하나, 취소 후 보관된 주문 하나
+        Long memberId = memberService.findMembers().get(0).getId();
+        Book book = new Book();
+        book.setName("report-book");
+        book.setPrice(1_000_000);
+        book.setStockQuantity(10);
+        Long itemId = itemService.saveItem(book);
+        orderService.order(memberId, itemId, 2);
+        Long cancelled = orderService.order(memberId, itemId, 3);
+        orderService.cancelOrder(cancelled);
+        assertTrue(orderArchiver.archive() >= 1);
+
+        //When
+        LocalDate today = LocalDate.now();
+        SalesReport report = salesReportEngine.run(today, today, 1000);
+
+        //Then - 두 주문 모두 상품 매출에 들어가고, 취소 주문은 상태별로 보인다
+        SalesReport.ItemLine line = report.getTopItems().stream()
+                .filter(l -> l.getItemId().equals(itemId))
+                .findFirst().orElseThrow();
+        assertEquals("report-book", line.getName());
+        assertEquals(5, line.getUnits());
+        assertEquals(5_000_000, line.getRevenue());
+        assertEquals(2, line.getOrders());
+        assertTrue(report.getByStatus().stream()
+                .anyMatch(s -> s.getKey() == OrderStatus.CANCEL && s.getUnits() >= 3), "보관된 취소 주문");
+    }
+
+    @Test
+    public void 기간이_거꾸로면_400() throws Exception {
+        LocalDate today = LocalDate.now();
+        assertThrows(InvalidRequestException.class, () -> salesReportJobs.submit(today, today.minusDays(1), 10));
+        mockMvc.perform(post("/api/reports/sales")
+                        .param("from", today.toString())
+                        .param("to", today.minusDays(1).toString()))
+                .andExpect(status().isBadRequest());
+        mockMvc.perform(post("/api/reports/sales").param("from", "2024-13-01").param("to", "2024-12-01"))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    public void 주문이_없는_기간은_빈_리포트() throws Exception {
+        LocalDate past = LocalDate.of(2000, 1, 1);
+        SalesReport report = salesReportEngine.run(past, past, 10);
+        assertEquals(0, report.getRows());
+        assertEquals(0, report.getRevenue());
+        assertTrue(report.getTopItems().isEmpty());
+    }
+}
@@ -0,0 +1,183 @@
+package jpabook.jpashop.service.rollup;
+
+import jpabook.jpashop.domain.Member;
+import jpabook.jpashop.domain.OrderStatus;
+import jpabook.jpashop.domain.item.Book;
+import jpabook.jpashop.service.ItemService;
+import jpabook.jpashop.service.MemberService;
+import jpabook.jpashop.service.OrderService;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+//동시 주문과 다시 계산을 섞어야 하므로 테스트 트랜잭션 없이 실행한다. 테스트마다 새 회원과 상품을 쓴다
+@SpringBootTest
+class SalesRollupTest {
+
+    @Autowired
+    SalesRollupQuery salesRollupQuery;
+    @Autowired
+    SalesRollupRebuilder salesRollupRebuilder;
+    @Autowired
+    OrderService orderService;
+    @Autowired
+    MemberService memberService;
+    @Autowired
+    ItemService itemService;
+    @Autowired
+    JdbcTemplate jdbcTemplate;
+
+    @Test
+    public void 매출롤업_주문취소() throws Exception {
+        //Given
+        Long memberId = join();
+        Long itemId = saveBook(10);
+        Long orderId = orderService.order(memberId, itemId, 2);
+        orderService.order(memberId, itemId, 1);
+
+        //When
+        orderService.cancelOrder(orderId);
+
+        //Then - 취소된 주문은 빠진 순매출
+        SalesRollupQuery.ItemSales sales = itemSales(itemId);
+        assertEquals(10000, sales.getRevenue(), "오늘 상품 매출");
+        assertEquals(1, sales.getUnits());
+        assertEquals(1, sales.getOrderCount());
+        assertEquals(10000, salesRollupQuery.memberSales(memberId).getRevenue(), "회원 누적 매출");
+    }
+
+    @Test
+    public void 처음_넣는_키에_동시에_주문해도_합쳐진다() throws Exception {
+        //Given - 롤업 행이 아직 없는 회원과 상품
+        Long memberId = join();
+        Long itemId = saveBook(100);
+        int threads = 8;
+
+        //When - 동시에 주문해서 같은 키를 처음 넣는 MERGE끼리 부딪히게 한다
+        runConcurrently(threads, () -> orderService.order(memberId, itemId, 1));
+
+        //Then
+        SalesRollupQuery.ItemSales sales = itemSales(itemId);
+        assertEquals(threads, sales.getUnits());
+        assertEquals(threads, sales.getOrderCount());
+        assertEquals(threads, salesRollupQuery.memberSales(memberId).getOrderCount());
+    }
+
+    @Test
+    public void 주문을_받는_중에_다시_계산해도_맞는다() throws Exception {
+        //Given - 롤업 값이 어긋난 상태
+        Long memberId = join();
+        Long itemId = saveBook(1000);
+        orderService.order(memberId, itemId, 1);
+        jdbcTemplate.update("update item_daily_sales set units = units + 100 where item_id = ?", itemId);
+        jdbcTemplate.update("update member_sales set order_count = order_count + 100 where member_id = ?", memberId);
+
+        //When - 주문과 취소가 들어오는 동안 다시 계산
+        List<Long> orderIds = new ArrayList<>();
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        List<Future<?>> writers = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            writers.add(executor.submit(() -> {
+                for (int n = 0; n < 20; n++) {
+                    Long orderId = orderService.order(memberId, itemId, 1);
+                    if (n % 4 == 0) {
+                        orderService.cancelOrder(orderId);
+                    }
+                    synchronized (orderIds) {
+                        orderIds.add(orderId);
+                    }
+                }
+                return null;
+            }));
+        }
+        for (int i = 0; i < 3; i++) {
+            salesRollupRebuilder.rebuild();
+        }
+        for (Future<?> writer : writers) {
+            writer.get();
+        }
+        executor.shutdown();
+
+        //Then - 주문 테이블에서 센 값과 같다 (어긋났던 값도 고쳐진다)
+        long units = jdbcTemplate.queryForObject("select coalesce(sum(oi.count), 0) from order_item oi" +
+                " join orders o on o.order_id = oi.order_id where oi.item_id = ? and o.status = 'ORDER'", Long.class, itemId);
+        assertEquals(1 + 4 * 15, units);
+        assertEquals(units, itemSales(itemId).getUnits());
+        assertEquals(units, salesRollupQuery.memberSales(memberId).getOrderCount());
+        assertEquals(orderCount(OrderStatus.ORDER), salesRollupQuery.orderStatusCounts().get(OrderStatus.ORDER));
+        assertEquals(orderCount(OrderStatus.CANCEL), salesRollupQuery.orderStatusCounts().get(OrderStatus.CANCEL));
+    }
+
+    @Test
+    public void 상태별_수는_slot을_합친다() throws Exception {
+        //Given
+        Long memberId = join();
+        Long itemId = saveBook(100);
+
+        //When - 여러 트랜잭션이 아무 slot에나 더한다
+        runConcurrently(8, () -> orderService.order(memberId, itemId, 1));
+
+        //Then
+        assertEquals(orderCount(OrderStatus.ORDER), salesRollupQuery.orderStatusCounts().get(OrderStatus.ORDER));
+        assertTrue(jdbcTemplate.queryForObject("select count(*) from order_status_count where status = 'ORDER'",
+                Integer.class) > 1, "상태 하나가 여러 행에 나뉜다");
+    }
+
+    private void runConcurrently(int threads, Runnable task) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        CountDownLatch ready = new CountDownLatch(threads);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int i = 0; i < threads; i++) {
+            futures.add(executor.submit(() -> {
+                ready.countDown();
+                start.await();
+                task.run();
+                return null;
+            }));
+        }
+        ready.await();
+        start.countDown();
+        for (Future<?> future : futures) {
+            future.get();
+        }
+        executor.shutdown();
+    }
+
+    //주문 테이블(hot)에서 센 상태별 주문 수
+    private long orderCount(OrderStatus status) {
+        return jdbcTemplate.queryForObject("select count(*) from orders where status = ?", Long.class, status.name());
+    }
+
+    private SalesRollupQuery.ItemSales itemSales(Long itemId) {
+        return salesRollupQuery.topItems(LocalDate.now(), Integer.MAX_VALUE).stream()
+                .filter(sales -> sales.getItemId().equals(itemId))
+                .findFirst().orElseThrow();
+    }
+
+    private Long join() {
+        Member member = new Member();
+        member.setName("rollup-member-" + UUID.randomUUID());
+        return memberService.join(member);
+    }
+
+    private Long saveBook(int stockQuantity) {
+        Book book = new Book();
+        book.setName("rollup-book");
+        book.setPrice(10000);
+        book.setStockQuantity(stockQuantity);
+        return itemService.saveItem(book);
+    }
+}
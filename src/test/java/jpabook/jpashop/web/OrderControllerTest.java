@@ -0,0 +1,56 @@
+package jpabook.jpashop.web;
+
+import jpabook.jpashop.domain.Member;
+import jpabook.jpashop.domain.item.Book;
+import jpabook.jpashop.service.ItemService;
+import jpabook.jpashop.service.MemberService;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.redirectedUrl;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+class OrderControllerTest {
+
+    @Autowired
+    MockMvc mockMvc;
+    @Autowired
+    MemberService memberService;
+    @Autowired
+    ItemService itemService;
+
+    @Test
+    public void 모바일_재시도는_Idempotency_Key_헤더로_주문_하나() throws Exception {
+        //Given
+        Member member = new Member();
+        member.setName("web-order-" + UUID.randomUUID());
+        Long memberId = memberService.join(member);
+        Book book = new Book();
+        book.setName("JPA");
+        book.setPrice(10000);
+        book.setStockQuantity(10);
+        Long itemId = itemService.saveItem(book);
+        String key = UUID.randomUUID().toString();
+
+        //When - 폼 필드 없이 헤더만 보내고, 같은 키로 한번 더
+        for (int i = 0; i < 2; i++) {
+            mockMvc.perform(post("/order")
+                            .header("Idempotency-Key", key)
+                            .param("memberId", String.valueOf(memberId))
+                            .param("itemId", String.valueOf(itemId))
+                            .param("count", "3"))
+                    .andExpect(redirectedUrl("/orders"));
+        }
+
+        //Then
+        assertEquals(7, itemService.findOne(itemId).getStockQuantity(), "재고는 한번만 감소");
+    }
+}